@@ -0,0 +1,40 @@
+package com.codelry.redis.maptree.bench;
+
+import com.codelry.redis.maptree.generator.DocumentGenerator;
+import com.codelry.redis.maptree.generator.DocumentProfile;
+
+public enum DocumentShape {
+  WIDE {
+    @Override
+    DocumentProfile profile(int size) {
+      return DocumentProfile.wide(size);
+    }
+  },
+  DEEP {
+    @Override
+    DocumentProfile profile(int size) {
+      return DocumentProfile.deep(Math.min(size, MAX_DEPTH));
+    }
+  },
+  OBJECT_ARRAY {
+    @Override
+    DocumentProfile profile(int size) {
+      return DocumentProfile.objectArray(size);
+    }
+  },
+  PRIMITIVE_ARRAY {
+    @Override
+    DocumentProfile profile(int size) {
+      return DocumentProfile.primitiveArray(size);
+    }
+  };
+
+  // Gson's JsonReader rejects documents nested deeper than 255 levels
+  static final int MAX_DEPTH = 128;
+
+  abstract DocumentProfile profile(int size);
+
+  public byte[] build(int size) {
+    return new DocumentGenerator(profile(size)).generate(0);
+  }
+}
@@ -0,0 +1,75 @@
+package com.codelry.redis.maptree.bench;
+
+import com.codelry.redis.maptree.config.GsonJsonParser;
+import com.google.gson.JsonParser;
+import io.lettuce.core.json.JsonObject;
+import io.lettuce.core.json.JsonValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GsonJsonParserBenchmark {
+
+  @Param({"WIDE", "DEEP", "OBJECT_ARRAY", "PRIMITIVE_ARRAY"})
+  private DocumentShape shape;
+
+  @Param({"100", "1000"})
+  private int size;
+
+  private final GsonJsonParser parser = new GsonJsonParser();
+
+  private byte[] document;
+  private List<String> members;
+  private JsonValue value;
+
+  @Setup
+  public void setup() {
+    document = shape.build(size);
+    members = new ArrayList<>(JsonParser.parseString(new String(document, StandardCharsets.UTF_8))
+        .getAsJsonObject().keySet());
+    value = parser.createJsonValue(ByteBuffer.wrap(document));
+  }
+
+  // a created value parses on first access, so each top-level member is read to include the parse
+  @Benchmark
+  public void createAndRead(Blackhole blackhole) {
+    JsonObject object = parser.createJsonValue(ByteBuffer.wrap(document)).asJsonObject();
+    for (String member : members) {
+      JsonValue child = object.get(member);
+      if (child.isJsonArray()) {
+        blackhole.consume(child.asJsonArray().asList());
+      } else if (child.isJsonObject()) {
+        blackhole.consume(child.asJsonObject().size());
+      } else {
+        blackhole.consume(child.asString());
+      }
+    }
+  }
+
+  // an unmodified value hands back its reply bytes without serializing
+  @Benchmark
+  public ByteBuffer asByteBuffer() {
+    return value.asByteBuffer();
+  }
+}
@@ -0,0 +1,60 @@
+package com.codelry.redis.maptree.bench;
+
+import com.codelry.redis.maptree.service.JsonFlattener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonFlattenerBenchmark {
+
+  @Param({"WIDE", "DEEP", "OBJECT_ARRAY", "PRIMITIVE_ARRAY"})
+  private DocumentShape shape;
+
+  @Param({"100", "1000"})
+  private int size;
+
+  private byte[] document;
+
+  @Setup
+  public void setup() {
+    document = shape.build(size);
+  }
+
+  @Benchmark
+  public Set<String> flattenPaths() {
+    return JsonFlattener.flattenPaths(document);
+  }
+
+  @Benchmark
+  public Map<String, String> mapPaths() {
+    return JsonFlattener.mapPaths(document);
+  }
+
+  @Benchmark
+  public Set<String> flattenTree() {
+    return JsonFlattener.flattenTree(document);
+  }
+
+  @Benchmark
+  public Map<String, Object> mapPathTree() {
+    return JsonFlattener.mapPathTree(document);
+  }
+}
@@ -0,0 +1,73 @@
+package com.codelry.redis.maptree.bench;
+
+import com.codelry.redis.maptree.config.JsonParserType;
+import io.lettuce.core.json.JsonParser;
+import io.lettuce.core.json.JsonValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonParserBenchmark {
+
+  @Param({"gson", "jackson-streaming", "raw"})
+  private String parserType;
+
+  @Param({"WIDE", "DEEP", "OBJECT_ARRAY"})
+  private DocumentShape shape;
+
+  @Param({"10", "100", "1000"})
+  private int size;
+
+  private JsonParser parser;
+  private byte[] reply;
+
+  @Setup
+  public void setup() {
+    parser = JsonParserType.fromName(parserType).create();
+    // JSON.GET with a $ path replies with an array of matches
+    byte[] document = shape.build(size);
+    reply = new byte[document.length + 2];
+    reply[0] = '[';
+    System.arraycopy(document, 0, reply, 1, document.length);
+    reply[reply.length - 1] = ']';
+  }
+
+  @Benchmark
+  public JsonValue load() {
+    return parser.loadJsonValue(ByteBuffer.wrap(reply));
+  }
+
+  @Benchmark
+  public int loadAndRead() {
+    JsonValue value = parser.loadJsonValue(ByteBuffer.wrap(reply));
+    return value.asJsonArray().getFirst().asJsonObject().size();
+  }
+
+  @Benchmark
+  public ByteBuffer loadAndPassThrough() {
+    return parser.loadJsonValue(ByteBuffer.wrap(reply)).asByteBuffer();
+  }
+
+  @Benchmark
+  public String loadAndToString() {
+    return parser.loadJsonValue(ByteBuffer.wrap(reply)).toString();
+  }
+}
@@ -0,0 +1,46 @@
+package com.codelry.redis.maptree.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.auto-model")
+public class AutoModelProperties {
+
+  private int explorationSamples = 5;
+  private double explorationRate = 0.05;
+  private double latencyWeight = 0.5;
+  private double smoothing = 0.2;
+
+  public int getExplorationSamples() {
+    return explorationSamples;
+  }
+
+  public void setExplorationSamples(int explorationSamples) {
+    this.explorationSamples = explorationSamples;
+  }
+
+  public double getExplorationRate() {
+    return explorationRate;
+  }
+
+  public void setExplorationRate(double explorationRate) {
+    this.explorationRate = explorationRate;
+  }
+
+  public double getLatencyWeight() {
+    return latencyWeight;
+  }
+
+  public void setLatencyWeight(double latencyWeight) {
+    this.latencyWeight = latencyWeight;
+  }
+
+  public double getSmoothing() {
+    return smoothing;
+  }
+
+  public void setSmoothing(double smoothing) {
+    this.smoothing = smoothing;
+  }
+}
@@ -0,0 +1,55 @@
+package com.codelry.redis.maptree.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.batch")
+public class BatchProperties {
+
+  private boolean transactional = false;
+  private int hmgetChunkSize = 500;
+  private int jsonGetChunkSize = 100;
+  private int hashScanCount = 0;
+  private int patchAttempts = 5;
+
+  public boolean isTransactional() {
+    return transactional;
+  }
+
+  public void setTransactional(boolean transactional) {
+    this.transactional = transactional;
+  }
+
+  public int getHmgetChunkSize() {
+    return hmgetChunkSize;
+  }
+
+  public void setHmgetChunkSize(int hmgetChunkSize) {
+    this.hmgetChunkSize = hmgetChunkSize;
+  }
+
+  public int getJsonGetChunkSize() {
+    return jsonGetChunkSize;
+  }
+
+  public void setJsonGetChunkSize(int jsonGetChunkSize) {
+    this.jsonGetChunkSize = jsonGetChunkSize;
+  }
+
+  public int getHashScanCount() {
+    return hashScanCount;
+  }
+
+  public void setHashScanCount(int hashScanCount) {
+    this.hashScanCount = hashScanCount;
+  }
+
+  public int getPatchAttempts() {
+    return patchAttempts;
+  }
+
+  public void setPatchAttempts(int patchAttempts) {
+    this.patchAttempts = patchAttempts;
+  }
+}
@@ -0,0 +1,91 @@
+package com.codelry.redis.maptree.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.benchmark")
+public class BenchmarkProperties {
+
+  private int maxConcurrency = 64;
+  private long maxDurationSeconds = 300;
+  private long maxWarmupSeconds = 60;
+  private int maxDocumentPool = 10000;
+  private int maxDepth = 8;
+  private int maxFanout = 64;
+  private int maxArrayLength = 100;
+  private int maxKeyLength = 64;
+  private int maxValueSize = 4096;
+
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  public void setMaxConcurrency(int maxConcurrency) {
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  public long getMaxDurationSeconds() {
+    return maxDurationSeconds;
+  }
+
+  public void setMaxDurationSeconds(long maxDurationSeconds) {
+    this.maxDurationSeconds = maxDurationSeconds;
+  }
+
+  public long getMaxWarmupSeconds() {
+    return maxWarmupSeconds;
+  }
+
+  public void setMaxWarmupSeconds(long maxWarmupSeconds) {
+    this.maxWarmupSeconds = maxWarmupSeconds;
+  }
+
+  public int getMaxDocumentPool() {
+    return maxDocumentPool;
+  }
+
+  public void setMaxDocumentPool(int maxDocumentPool) {
+    this.maxDocumentPool = maxDocumentPool;
+  }
+
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  public void setMaxDepth(int maxDepth) {
+    this.maxDepth = maxDepth;
+  }
+
+  public int getMaxFanout() {
+    return maxFanout;
+  }
+
+  public void setMaxFanout(int maxFanout) {
+    this.maxFanout = maxFanout;
+  }
+
+  public int getMaxArrayLength() {
+    return maxArrayLength;
+  }
+
+  public void setMaxArrayLength(int maxArrayLength) {
+    this.maxArrayLength = maxArrayLength;
+  }
+
+  public int getMaxKeyLength() {
+    return maxKeyLength;
+  }
+
+  public void setMaxKeyLength(int maxKeyLength) {
+    this.maxKeyLength = maxKeyLength;
+  }
+
+  public int getMaxValueSize() {
+    return maxValueSize;
+  }
+
+  public void setMaxValueSize(int maxValueSize) {
+    this.maxValueSize = maxValueSize;
+  }
+}
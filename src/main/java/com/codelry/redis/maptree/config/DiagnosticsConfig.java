@@ -0,0 +1,24 @@
+package com.codelry.redis.maptree.config;
+
+import com.codelry.redis.maptree.diagnostics.DiagnosticsSink;
+import com.codelry.redis.maptree.diagnostics.MappedJournal;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class DiagnosticsConfig {
+
+  @Bean(destroyMethod = "close")
+  public DiagnosticsSink diagnosticsSink(DiagnosticsProperties properties, MeterRegistry meterRegistry) throws IOException {
+    if (!properties.isEnabled()) {
+      return DiagnosticsSink.disabled();
+    }
+    MappedJournal journal = new MappedJournal(Path.of(properties.getDirectory()),
+        properties.getSegmentSize().toBytes(), properties.getMaxSegments());
+    return new DiagnosticsSink(journal, properties.getQueueCapacity(), meterRegistry);
+  }
+}
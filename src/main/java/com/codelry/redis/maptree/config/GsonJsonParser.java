@@ -10,6 +10,8 @@ import jakarta.validation.constraints.NotNull;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -26,42 +28,96 @@ public class GsonJsonParser implements JsonParser {
 
   @Override
   public JsonValue loadJsonValue(ByteBuffer byteBuffer) {
-    String json = StandardCharsets.UTF_8.decode(byteBuffer).toString();
-    return createJsonValue(json);
+    // Lettuce hands over a view of its receive buffer, so keep one copy of the reply bytes
+    ByteBuffer copy = ByteBuffer.allocate(byteBuffer.remaining());
+    copy.put(byteBuffer.duplicate()).flip();
+    return new GsonJsonValue(copy.asReadOnlyBuffer(), gson);
   }
 
   @Override
   public JsonValue createJsonValue(ByteBuffer byteBuffer) {
-    String json = StandardCharsets.UTF_8.decode(byteBuffer).toString();
-    return createJsonValue(json);
+    return new GsonJsonValue(byteBuffer.slice().asReadOnlyBuffer(), gson);
   }
 
   @Override
   public JsonValue createJsonValue(String s) {
     JsonElement element = gson.fromJson(s, JsonElement.class);
-    return new GsonJsonValue(element, gson);
+    return new GsonJsonValue(element, gson, null);
   }
 
   @Override
   public JsonObject createJsonObject() {
-    return new GsonJsonValue(new com.google.gson.JsonObject(), gson).asJsonObject();
+    return new GsonJsonValue(new com.google.gson.JsonObject(), gson, null).asJsonObject();
   }
 
   @Override
   public JsonArray createJsonArray() {
-    return new GsonJsonValue(new com.google.gson.JsonArray(), gson).asJsonArray();
+    return new GsonJsonValue(new com.google.gson.JsonArray(), gson, null).asJsonArray();
   }
 
   @Override
   public JsonValue fromObject(Object o) {
-    String json = gson.toJson(o);
-    return createJsonValue(json);
+    return new GsonJsonValue(gson.toJsonTree(o), gson, null);
   }
 
-  private record GsonJsonValue(JsonElement element, Gson gson) implements JsonValue, JsonObject, JsonArray {
+  private static final class GsonJsonValue implements JsonValue, JsonObject, JsonArray {
+    private final Gson gson;
+    private final GsonJsonValue parent;
+    private volatile ByteBuffer raw;
+    private volatile JsonElement element;
+    private List<JsonValue> children;
+
+    GsonJsonValue(ByteBuffer raw, Gson gson) {
+      this.raw = raw;
+      this.gson = gson;
+      this.parent = null;
+    }
+
+    GsonJsonValue(JsonElement element, Gson gson, GsonJsonValue parent) {
+      this.element = element;
+      this.gson = gson;
+      this.parent = parent;
+    }
+
+    private JsonElement element() {
+      JsonElement parsed = element;
+      if (parsed == null) {
+        parsed = gson.fromJson(StandardCharsets.UTF_8.decode(raw.duplicate()).toString(), JsonElement.class);
+        element = parsed;
+      }
+      return parsed;
+    }
+
+    private static byte first(ByteBuffer bytes) {
+      for (int i = bytes.position(); i < bytes.limit(); i++) {
+        byte b = bytes.get(i);
+        if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+          return b;
+        }
+      }
+      return 0;
+    }
+
+    private synchronized void modified() {
+      raw = null;
+      children = null;
+      if (parent != null) {
+        parent.modified();
+      }
+    }
+
+    private GsonJsonValue child(JsonElement value) {
+      return new GsonJsonValue(value, gson, this);
+    }
+
+    private static JsonElement unwrap(JsonValue value) {
+      return value instanceof GsonJsonValue gsonValue ? gsonValue.element() : null;
+    }
+
     @Override
     public boolean isJsonArray() {
-      return element.isJsonArray();
+      ByteBuffer bytes = raw;
+      return bytes != null ? first(bytes) == '[' : element().isJsonArray();
     }
 
     @Override
@@ -71,7 +127,8 @@ public class GsonJsonParser implements JsonParser {
 
     @Override
     public boolean isJsonObject() {
-      return element.isJsonObject();
+      ByteBuffer bytes = raw;
+      return bytes != null ? first(bytes) == '{' : element().isJsonObject();
     }
 
     @Override
@@ -81,60 +138,82 @@ public class GsonJsonParser implements JsonParser {
 
     @Override
     public boolean isString() {
-      return element.isJsonPrimitive() && element.getAsJsonPrimitive().isString();
+      ByteBuffer bytes = raw;
+      if (bytes != null) {
+        return first(bytes) == '"';
+      }
+      return element().isJsonPrimitive() && element().getAsJsonPrimitive().isString();
     }
 
     @Override
     public boolean isNumber() {
-      return element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber();
+      ByteBuffer bytes = raw;
+      if (bytes != null) {
+        byte b = first(bytes);
+        return b == '-' || (b >= '0' && b <= '9');
+      }
+      return element().isJsonPrimitive() && element().getAsJsonPrimitive().isNumber();
     }
 
     @Override
     public Number asNumber() {
       if (isNumber()) {
-        return element.getAsNumber();
+        return element().getAsNumber();
       }
       return null;
     }
 
     @Override
     public boolean isBoolean() {
-      return element.isJsonPrimitive() && element.getAsJsonPrimitive().isBoolean();
+      ByteBuffer bytes = raw;
+      if (bytes != null) {
+        byte b = first(bytes);
+        return b == 't' || b == 'f';
+      }
+      return element().isJsonPrimitive() && element().getAsJsonPrimitive().isBoolean();
     }
 
     @Override
     public Boolean asBoolean() {
       if (isBoolean()) {
-        return element.getAsBoolean();
+        return element().getAsBoolean();
       }
       return null;
     }
 
     @Override
     public boolean isNull() {
-      return element.isJsonNull();
+      ByteBuffer bytes = raw;
+      return bytes != null ? first(bytes) == 'n' : element().isJsonNull();
     }
 
     @Override
     public <T> T toObject(Class<T> aClass) {
-      return gson.fromJson(element, aClass);
+      return gson.fromJson(element(), aClass);
     }
 
     @Override
     public String asString() {
-      return element.getAsString();
+      return element().getAsString();
     }
 
     @Override
     @NotNull
     public String toString() {
-      return gson.toJson(element);
+      ByteBuffer bytes = raw;
+      if (bytes != null) {
+        return StandardCharsets.UTF_8.decode(bytes.duplicate()).toString();
+      }
+      return gson.toJson(element());
     }
 
     @Override
     public ByteBuffer asByteBuffer() {
-      String json = gson.toJson(element);
-      return StandardCharsets.UTF_8.encode(json);
+      ByteBuffer bytes = raw;
+      if (bytes != null) {
+        return bytes.duplicate();
+      }
+      return StandardCharsets.UTF_8.encode(gson.toJson(element()));
     }
 
     @Override
@@ -142,9 +221,11 @@ public class GsonJsonParser implements JsonParser {
       if (!isJsonArray()) {
         throw new UnsupportedOperationException("Not a JSON array");
       }
-      com.google.gson.JsonArray array = element.getAsJsonArray();
-      if (jsonValue instanceof GsonJsonValue gsonValue) {
-        array.add(gsonValue.element);
+      com.google.gson.JsonArray array = element().getAsJsonArray();
+      JsonElement value = unwrap(jsonValue);
+      if (value != null) {
+        array.add(value);
+        modified();
       }
       return this;
     }
@@ -154,22 +235,27 @@ public class GsonJsonParser implements JsonParser {
       if (!isJsonArray()) {
         throw new UnsupportedOperationException("Not a JSON array");
       }
-      com.google.gson.JsonArray array = element.getAsJsonArray();
+      com.google.gson.JsonArray array = element().getAsJsonArray();
       if (jsonArray instanceof GsonJsonValue gsonValue && gsonValue.isJsonArray()) {
-        gsonValue.element.getAsJsonArray().forEach(array::add);
+        gsonValue.element().getAsJsonArray().forEach(array::add);
+        modified();
       }
     }
 
     @Override
-    public List<JsonValue> asList() {
+    public synchronized List<JsonValue> asList() {
       if (!isJsonArray()) {
         return List.of();
       }
-      com.google.gson.JsonArray array = element.getAsJsonArray();
-      return java.util.stream.StreamSupport.stream(array.spliterator(), false)
-          .map(e -> new GsonJsonValue(e, gson))
-          .map(v -> (JsonValue) v)
-          .toList();
+      if (children == null) {
+        com.google.gson.JsonArray array = element().getAsJsonArray();
+        List<JsonValue> values = new ArrayList<>(array.size());
+        for (JsonElement value : array) {
+          values.add(child(value));
+        }
+        children = Collections.unmodifiableList(values);
+      }
+      return children;
     }
 
     @Override
@@ -177,34 +263,18 @@ public class GsonJsonParser implements JsonParser {
       if (!isJsonArray()) {
         return null;
       }
-      com.google.gson.JsonArray array = element.getAsJsonArray();
-      if (i >= 0 && i < array.size()) {
-        return new GsonJsonValue(array.get(i), gson);
-      }
-      return null;
+      List<JsonValue> values = asList();
+      return i >= 0 && i < values.size() ? values.get(i) : null;
     }
 
     @Override
     public JsonValue getFirst() {
-      if (!isJsonArray()) {
-        return null;
-      }
-      com.google.gson.JsonArray array = element.getAsJsonArray();
-      if (!array.isEmpty()) {
-        return new GsonJsonValue(array.get(0), gson);
-      }
-      return null;
+      return get(0);
     }
 
     @Override
     public Iterator<JsonValue> iterator() {
-      if (!isJsonArray()) {
-        return java.util.Collections.emptyIterator();
-      }
-      com.google.gson.JsonArray array = element.getAsJsonArray();
-      return java.util.stream.StreamSupport.stream(array.spliterator(), false)
-          .map(e -> (JsonValue) new GsonJsonValue(e, gson))
-          .iterator();
+      return asList().iterator();
     }
 
     @Override
@@ -212,10 +282,11 @@ public class GsonJsonParser implements JsonParser {
       if (!isJsonArray()) {
         return null;
       }
-      com.google.gson.JsonArray array = element.getAsJsonArray();
+      com.google.gson.JsonArray array = element().getAsJsonArray();
       if (i >= 0 && i < array.size()) {
         JsonElement removed = array.remove(i);
-        return new GsonJsonValue(removed, gson);
+        modified();
+        return new GsonJsonValue(removed, gson, null);
       }
       return null;
     }
@@ -225,10 +296,12 @@ public class GsonJsonParser implements JsonParser {
       if (!isJsonArray()) {
         return null;
       }
-      com.google.gson.JsonArray array = element.getAsJsonArray();
-      if (i >= 0 && i < array.size() && jsonValue instanceof GsonJsonValue gsonValue) {
-        JsonElement old = array.set(i, gsonValue.element);
-        return new GsonJsonValue(old, gson);
+      com.google.gson.JsonArray array = element().getAsJsonArray();
+      JsonElement value = unwrap(jsonValue);
+      if (i >= 0 && i < array.size() && value != null) {
+        JsonElement old = array.set(i, value);
+        modified();
+        return new GsonJsonValue(old, gson, null);
       }
       return null;
     }
@@ -238,9 +311,11 @@ public class GsonJsonParser implements JsonParser {
       if (!isJsonObject()) {
         throw new UnsupportedOperationException("Not a JSON object");
       }
-      com.google.gson.JsonObject obj = element.getAsJsonObject();
-      if (jsonValue instanceof GsonJsonValue gsonValue) {
-        obj.add(key, gsonValue.element);
+      com.google.gson.JsonObject obj = element().getAsJsonObject();
+      JsonElement value = unwrap(jsonValue);
+      if (value != null) {
+        obj.add(key, value);
+        modified();
       }
       return this;
     }
@@ -250,9 +325,9 @@ public class GsonJsonParser implements JsonParser {
       if (!isJsonObject()) {
         return null;
       }
-      com.google.gson.JsonObject obj = element.getAsJsonObject();
+      com.google.gson.JsonObject obj = element().getAsJsonObject();
       JsonElement value = obj.get(key);
-      return value != null ? new GsonJsonValue(value, gson) : null;
+      return value != null ? child(value) : null;
     }
 
     @Override
@@ -260,17 +335,21 @@ public class GsonJsonParser implements JsonParser {
       if (!isJsonObject()) {
         return null;
       }
-      com.google.gson.JsonObject obj = element.getAsJsonObject();
+      com.google.gson.JsonObject obj = element().getAsJsonObject();
       JsonElement removed = obj.remove(key);
-      return removed != null ? new GsonJsonValue(removed, gson) : null;
+      if (removed == null) {
+        return null;
+      }
+      modified();
+      return new GsonJsonValue(removed, gson, null);
     }
 
     @Override
     public int size() {
       if (isJsonArray()) {
-        return element.getAsJsonArray().size();
+        return asList().size();
       } else if (isJsonObject()) {
-        return element.getAsJsonObject().size();
+        return element().getAsJsonObject().size();
       }
       return 0;
     }
@@ -0,0 +1,441 @@
+package com.codelry.redis.maptree.config;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.lettuce.core.json.JsonArray;
+import io.lettuce.core.json.JsonObject;
+import io.lettuce.core.json.JsonParser;
+import io.lettuce.core.json.JsonValue;
+import jakarta.validation.constraints.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+public class JacksonJsonParser implements JsonParser {
+  private final ObjectMapper mapper;
+
+  public JacksonJsonParser() {
+    this(JsonMapper.builder()
+        .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+        .disable(JsonNodeFeature.STRIP_TRAILING_BIGDECIMAL_ZEROES)
+        .build());
+  }
+
+  public JacksonJsonParser(ObjectMapper mapper) {
+    this.mapper = mapper;
+  }
+
+  @Override
+  public JsonValue loadJsonValue(ByteBuffer byteBuffer) {
+    // Lettuce hands over a view of its receive buffer, so keep one copy of the reply bytes
+    byte[] copy = new byte[byteBuffer.remaining()];
+    byteBuffer.duplicate().get(copy);
+    return new JacksonJsonValue(mapper, copy, 0, copy.length);
+  }
+
+  @Override
+  public JsonValue createJsonValue(ByteBuffer byteBuffer) {
+    if (byteBuffer.hasArray()) {
+      return new JacksonJsonValue(mapper, byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(),
+          byteBuffer.remaining());
+    }
+    return loadJsonValue(byteBuffer);
+  }
+
+  @Override
+  public JsonValue createJsonValue(String s) {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    return new JacksonJsonValue(mapper, bytes, 0, bytes.length);
+  }
+
+  @Override
+  public JsonObject createJsonObject() {
+    return new JacksonJsonValue(mapper, mapper.createObjectNode(), null, null, -1);
+  }
+
+  @Override
+  public JsonArray createJsonArray() {
+    return new JacksonJsonValue(mapper, mapper.createArrayNode(), null, null, -1);
+  }
+
+  @Override
+  public JsonValue fromObject(Object o) {
+    return new JacksonJsonValue(mapper, mapper.valueToTree(o), null, null, -1);
+  }
+
+  // an unmodified value is a slice of the reply bytes; members are found by stepping over tokens, and a tree is only
+  // read for scalars, conversions and edits
+  private static final class JacksonJsonValue implements JsonValue, JsonObject, JsonArray {
+    private final ObjectMapper mapper;
+    private final JacksonJsonValue parent;
+    private final String name;
+    private final int index;
+    private final int offset;
+    private final int length;
+    private volatile byte[] raw;
+    private volatile JsonNode node;
+    private volatile boolean attached;
+    private List<JacksonJsonValue> members;
+
+    JacksonJsonValue(ObjectMapper mapper, byte[] raw, int offset, int length) {
+      this(mapper, null, null, -1, raw, offset, length);
+    }
+
+    JacksonJsonValue(ObjectMapper mapper, JacksonJsonValue parent, String name, int index, byte[] raw, int offset,
+                     int length) {
+      this.mapper = mapper;
+      this.parent = parent;
+      this.name = name;
+      this.index = index;
+      this.raw = raw;
+      this.offset = offset;
+      this.length = length;
+      this.attached = parent == null;
+    }
+
+    JacksonJsonValue(ObjectMapper mapper, JsonNode node, JacksonJsonValue parent, String name, int index) {
+      this.mapper = mapper;
+      this.parent = parent;
+      this.name = name;
+      this.index = index;
+      this.offset = 0;
+      this.length = 0;
+      this.node = node;
+      this.attached = true;
+    }
+
+    private com.fasterxml.jackson.core.JsonParser tokens(byte[] bytes) throws IOException {
+      return mapper.getFactory().createParser(bytes, offset, length);
+    }
+
+    private JsonNode node() {
+      JsonNode parsed = node;
+      if (parsed == null) {
+        try (com.fasterxml.jackson.core.JsonParser tokens = tokens(raw)) {
+          parsed = mapper.readTree(tokens);
+        } catch (IOException e) {
+          throw new RuntimeException("Failed to parse JSON value", e);
+        }
+        node = parsed;
+      }
+      return parsed;
+    }
+
+    // edits go to the node the enclosing value holds, so the whole document reserializes with them
+    private synchronized JsonNode tree() {
+      if (!attached) {
+        JsonNode container = parent.tree();
+        node = name != null ? container.get(name) : container.get(index);
+        attached = true;
+      }
+      return node();
+    }
+
+    private synchronized void modified() {
+      raw = null;
+      members = null;
+      if (parent != null) {
+        parent.modified();
+      }
+    }
+
+    private synchronized List<JacksonJsonValue> members(byte[] bytes) {
+      if (members == null) {
+        List<JacksonJsonValue> values = new ArrayList<>();
+        try (com.fasterxml.jackson.core.JsonParser tokens = tokens(bytes)) {
+          tokens.nextToken();
+          JsonToken token;
+          while ((token = tokens.nextToken()) != null && !token.isStructEnd()) {
+            String member = null;
+            if (token == JsonToken.FIELD_NAME) {
+              member = tokens.currentName();
+              tokens.nextToken();
+            }
+            int start = (int) tokens.currentTokenLocation().getByteOffset();
+            tokens.skipChildren();
+            tokens.finishToken();
+            int end = (int) tokens.currentLocation().getByteOffset();
+            values.add(new JacksonJsonValue(mapper, this, member, values.size(), bytes, offset + start, end - start));
+          }
+        } catch (IOException e) {
+          throw new RuntimeException("Failed to parse JSON value", e);
+        }
+        members = Collections.unmodifiableList(values);
+      }
+      return members;
+    }
+
+    private JacksonJsonValue child(JsonNode value, String member, int position) {
+      return new JacksonJsonValue(mapper, value, this, member, position);
+    }
+
+    private static JsonNode unwrap(JsonValue value) {
+      return value instanceof JacksonJsonValue jacksonValue ? jacksonValue.node() : null;
+    }
+
+    private static byte first(byte[] bytes, int offset, int length) {
+      for (int i = offset; i < offset + length; i++) {
+        byte b = bytes[i];
+        if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+          return b;
+        }
+      }
+      return 0;
+    }
+
+    @Override
+    public boolean isJsonArray() {
+      byte[] bytes = raw;
+      return bytes != null ? first(bytes, offset, length) == '[' : node().isArray();
+    }
+
+    @Override
+    public JsonArray asJsonArray() {
+      return isJsonArray() ? this : null;
+    }
+
+    @Override
+    public boolean isJsonObject() {
+      byte[] bytes = raw;
+      return bytes != null ? first(bytes, offset, length) == '{' : node().isObject();
+    }
+
+    @Override
+    public JsonObject asJsonObject() {
+      return isJsonObject() ? this : null;
+    }
+
+    @Override
+    public boolean isString() {
+      byte[] bytes = raw;
+      return bytes != null ? first(bytes, offset, length) == '"' : node().isTextual();
+    }
+
+    @Override
+    public boolean isNumber() {
+      byte[] bytes = raw;
+      if (bytes != null) {
+        byte b = first(bytes, offset, length);
+        return b == '-' || (b >= '0' && b <= '9');
+      }
+      return node().isNumber();
+    }
+
+    @Override
+    public Number asNumber() {
+      return isNumber() ? node().numberValue() : null;
+    }
+
+    @Override
+    public boolean isBoolean() {
+      byte[] bytes = raw;
+      if (bytes != null) {
+        byte b = first(bytes, offset, length);
+        return b == 't' || b == 'f';
+      }
+      return node().isBoolean();
+    }
+
+    @Override
+    public Boolean asBoolean() {
+      return isBoolean() ? node().booleanValue() : null;
+    }
+
+    @Override
+    public boolean isNull() {
+      byte[] bytes = raw;
+      return bytes != null ? first(bytes, offset, length) == 'n' : node().isNull();
+    }
+
+    @Override
+    public <T> T toObject(Class<T> aClass) {
+      byte[] bytes = raw;
+      if (bytes == null) {
+        return mapper.convertValue(node(), aClass);
+      }
+      try {
+        return mapper.readValue(bytes, offset, length, aClass);
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to parse JSON value", e);
+      }
+    }
+
+    @Override
+    public String asString() {
+      return node().asText();
+    }
+
+    @Override
+    @NotNull
+    public String toString() {
+      byte[] bytes = raw;
+      if (bytes != null) {
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+      }
+      return node().toString();
+    }
+
+    @Override
+    public ByteBuffer asByteBuffer() {
+      byte[] bytes = raw;
+      if (bytes != null) {
+        return ByteBuffer.wrap(bytes, offset, length).slice().asReadOnlyBuffer();
+      }
+      try {
+        return ByteBuffer.wrap(mapper.writeValueAsBytes(node()));
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to write JSON value", e);
+      }
+    }
+
+    @Override
+    public JsonArray add(JsonValue jsonValue) {
+      if (!isJsonArray()) {
+        throw new UnsupportedOperationException("Not a JSON array");
+      }
+      JsonNode value = unwrap(jsonValue);
+      if (value != null) {
+        ((ArrayNode) tree()).add(value);
+        modified();
+      }
+      return this;
+    }
+
+    @Override
+    public void addAll(JsonArray jsonArray) {
+      if (!isJsonArray()) {
+        throw new UnsupportedOperationException("Not a JSON array");
+      }
+      if (jsonArray instanceof JacksonJsonValue jacksonValue && jacksonValue.isJsonArray()) {
+        ((ArrayNode) tree()).addAll((ArrayNode) jacksonValue.node());
+        modified();
+      }
+    }
+
+    @Override
+    public List<JsonValue> asList() {
+      if (!isJsonArray()) {
+        return List.of();
+      }
+      byte[] bytes = raw;
+      if (bytes != null) {
+        return Collections.unmodifiableList(members(bytes));
+      }
+      JsonNode array = node();
+      List<JsonValue> values = new ArrayList<>(array.size());
+      for (int i = 0; i < array.size(); i++) {
+        values.add(child(array.get(i), null, i));
+      }
+      return values;
+    }
+
+    @Override
+    public JsonValue get(int i) {
+      if (!isJsonArray()) {
+        return null;
+      }
+      List<JsonValue> values = asList();
+      return i >= 0 && i < values.size() ? values.get(i) : null;
+    }
+
+    @Override
+    public JsonValue getFirst() {
+      return get(0);
+    }
+
+    @Override
+    public Iterator<JsonValue> iterator() {
+      return asList().iterator();
+    }
+
+    @Override
+    public JsonValue remove(int i) {
+      if (!isJsonArray() || i < 0 || i >= size()) {
+        return null;
+      }
+      JsonNode removed = ((ArrayNode) tree()).remove(i);
+      modified();
+      return new JacksonJsonValue(mapper, removed, null, null, -1);
+    }
+
+    @Override
+    public JsonValue replace(int i, JsonValue jsonValue) {
+      if (!isJsonArray() || i < 0 || i >= size()) {
+        return null;
+      }
+      JsonNode value = unwrap(jsonValue);
+      if (value == null) {
+        return null;
+      }
+      JsonNode old = ((ArrayNode) tree()).set(i, value);
+      modified();
+      return new JacksonJsonValue(mapper, old, null, null, -1);
+    }
+
+    @Override
+    public JsonObject put(String key, JsonValue jsonValue) {
+      if (!isJsonObject()) {
+        throw new UnsupportedOperationException("Not a JSON object");
+      }
+      JsonNode value = unwrap(jsonValue);
+      if (value != null) {
+        ((ObjectNode) tree()).set(key, value);
+        modified();
+      }
+      return this;
+    }
+
+    @Override
+    public JsonValue get(String key) {
+      if (!isJsonObject()) {
+        return null;
+      }
+      byte[] bytes = raw;
+      if (bytes == null) {
+        JsonNode value = node().get(key);
+        return value != null ? child(value, key, -1) : null;
+      }
+      // the last duplicate wins, as it does in a tree read
+      JsonValue found = null;
+      for (JacksonJsonValue member : members(bytes)) {
+        if (key.equals(member.name)) {
+          found = member;
+        }
+      }
+      return found;
+    }
+
+    @Override
+    public JsonValue remove(String key) {
+      if (!isJsonObject()) {
+        return null;
+      }
+      JsonNode removed = ((ObjectNode) tree()).remove(key);
+      if (removed == null) {
+        return null;
+      }
+      modified();
+      return new JacksonJsonValue(mapper, removed, null, null, -1);
+    }
+
+    @Override
+    public int size() {
+      byte[] bytes = raw;
+      if (bytes != null) {
+        return isJsonArray() || isJsonObject() ? members(bytes).size() : 0;
+      }
+      return isJsonArray() || isJsonObject() ? node().size() : 0;
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package com.codelry.redis.maptree.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.json")
+public class JsonParserProperties {
+
+  private JsonParserType parser = JsonParserType.GSON;
+
+  public JsonParserType getParser() {
+    return parser;
+  }
+
+  public void setParser(JsonParserType parser) {
+    this.parser = parser;
+  }
+}
@@ -0,0 +1,37 @@
+package com.codelry.redis.maptree.config;
+
+import io.lettuce.core.json.DefaultJsonParser;
+import io.lettuce.core.json.JsonParser;
+
+public enum JsonParserType {
+  GSON("gson"),
+  JACKSON_STREAMING("jackson-streaming"),
+  RAW("raw");
+
+  private final String tag;
+
+  JsonParserType(String tag) {
+    this.tag = tag;
+  }
+
+  public String tag() {
+    return tag;
+  }
+
+  public JsonParser create() {
+    return switch (this) {
+      case GSON -> new GsonJsonParser();
+      case JACKSON_STREAMING -> new JacksonJsonParser();
+      case RAW -> new DefaultJsonParser();
+    };
+  }
+
+  public static JsonParserType fromName(String name) {
+    for (JsonParserType type : values()) {
+      if (type.tag.equalsIgnoreCase(name)) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown JSON parser: " + name);
+  }
+}
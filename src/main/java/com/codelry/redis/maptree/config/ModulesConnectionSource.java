@@ -0,0 +1,16 @@
+package com.codelry.redis.maptree.config;
+
+import com.redis.lettucemod.api.StatefulRedisModulesConnection;
+
+public interface ModulesConnectionSource extends AutoCloseable {
+
+  StatefulRedisModulesConnection<String, String> acquire() throws Exception;
+
+  void release(StatefulRedisModulesConnection<String, String> connection);
+
+  String mode();
+
+  @Override
+  default void close() {
+  }
+}
@@ -0,0 +1,37 @@
+package com.codelry.redis.maptree.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.path-dictionary")
+public class PathDictionaryProperties {
+
+  private boolean enabled = false;
+  private String namespace = "__paths__";
+  private int cacheEntries = 65536;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public String getNamespace() {
+    return namespace;
+  }
+
+  public void setNamespace(String namespace) {
+    this.namespace = namespace;
+  }
+
+  public int getCacheEntries() {
+    return cacheEntries;
+  }
+
+  public void setCacheEntries(int cacheEntries) {
+    this.cacheEntries = cacheEntries;
+  }
+}
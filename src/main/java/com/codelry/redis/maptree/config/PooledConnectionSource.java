@@ -0,0 +1,28 @@
+package com.codelry.redis.maptree.config;
+
+import com.redis.lettucemod.api.StatefulRedisModulesConnection;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+
+public class PooledConnectionSource implements ModulesConnectionSource {
+
+  private final GenericObjectPool<StatefulRedisModulesConnection<String, String>> pool;
+
+  public PooledConnectionSource(GenericObjectPool<StatefulRedisModulesConnection<String, String>> pool) {
+    this.pool = pool;
+  }
+
+  @Override
+  public StatefulRedisModulesConnection<String, String> acquire() throws Exception {
+    return pool.borrowObject();
+  }
+
+  @Override
+  public void release(StatefulRedisModulesConnection<String, String> connection) {
+    pool.returnObject(connection);
+  }
+
+  @Override
+  public String mode() {
+    return "pooled";
+  }
+}
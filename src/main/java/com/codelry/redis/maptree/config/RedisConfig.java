@@ -1,5 +1,6 @@
 package com.codelry.redis.maptree.config;
 
+import com.codelry.redis.maptree.service.ValueCodec;
 import com.redis.lettucemod.RedisModulesClient;
 import com.redis.lettucemod.api.StatefulRedisModulesConnection;
 import com.redis.lettucemod.api.sync.RedisModulesCommands;
@@ -7,15 +8,21 @@ import io.lettuce.core.ClientOptions;
 import io.lettuce.core.RedisURI;
 import io.lettuce.core.SslOptions;
 import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
 import io.lettuce.core.resource.ClientResources;
 import io.lettuce.core.resource.DefaultClientResources;
 import io.lettuce.core.support.ConnectionPoolSupport;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.convert.DurationUnit;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -129,12 +136,14 @@ public class RedisConfig {
   }
 
   @Bean
-  public RedisConnectionFactory redisConnectionFactory(ClientResources clientResources) throws Exception {
+  public RedisConnectionFactory redisConnectionFactory(ClientResources clientResources,
+                                                       JsonParserProperties jsonParserProperties) throws Exception {
     RedisStandaloneConfiguration config = new RedisStandaloneConfiguration();
     config.setHostName(redisHost);
     config.setPort(redisPort);
     config.setDatabase(redisDatabase);
-    logger.info("Lettuce host: {}, port: {}, database: {}", redisHost, redisPort, redisDatabase);
+    logger.info("Lettuce host: {}, port: {}, database: {}, JSON parser: {}", redisHost, redisPort, redisDatabase,
+        jsonParserProperties.getParser().tag());
 
     if (StringUtils.hasText(redisPassword)) {
       config.setPassword(redisPassword);
@@ -148,7 +157,7 @@ public class RedisConfig {
             .clientResources(clientResources);
 
     ClientOptions.Builder options = ClientOptions.builder()
-        .jsonParser(GsonJsonParser::new)
+        .jsonParser(jsonParserProperties.getParser()::create)
         .autoReconnect(true)
         .pingBeforeActivateConnection(true);
 
@@ -210,7 +219,8 @@ public class RedisConfig {
 
   @Bean(destroyMethod = "close")
   @DependsOn("redisConnectionFactory")
-  public RedisModulesClient modulesConnection() throws Exception {
+  public RedisModulesClient modulesConnection(ClientResources clientResources,
+                                              JsonParserProperties jsonParserProperties) throws Exception {
     RedisURI.Builder builder = RedisURI.builder()
         .withHost(redisHost)
         .withPort(redisPort)
@@ -224,6 +234,7 @@ public class RedisConfig {
     }
 
     ClientOptions.Builder options = ClientOptions.builder()
+        .jsonParser(jsonParserProperties.getParser()::create)
         .autoReconnect(true)
         .pingBeforeActivateConnection(true);
 
@@ -232,7 +243,7 @@ public class RedisConfig {
       options.sslOptions(sslOptions);
     }
 
-    RedisModulesClient client = RedisModulesClient.create(builder.build());
+    RedisModulesClient client = RedisModulesClient.create(clientResources, builder.build());
     client.setOptions(options.build());
     return client;
   }
@@ -243,16 +254,33 @@ public class RedisConfig {
     return redisModulesClient.connect();
   }
 
+  // the reactive map and tree paths keep names as strings and store values as the ValueCodec encodes them
   @Bean
+  public StatefulRedisModulesConnection<String, byte[]> redisModulesValueConnection(
+      RedisModulesClient redisModulesClient) {
+    return redisModulesClient.connect(RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE));
+  }
+
+  // shared mode multiplexes over its own connections, so the pool only exists in pooled mode
+  @Bean
+  @ConditionalOnProperty(name = "app.redis-modules.mode", havingValue = "pooled", matchIfMissing = true)
   public GenericObjectPool<StatefulRedisModulesConnection<String, String>> redisConnectionPool(
       RedisModulesClient redisModulesClient) {
     return ConnectionPoolSupport.createGenericObjectPool(redisModulesClient::connect, redisModulesPoolConfig());
   }
 
-  @Bean
+  @Bean(destroyMethod = "close")
   public RedisModulesTemplate redisModulesTemplate(
-      GenericObjectPool<StatefulRedisModulesConnection<String, String>> pool) {
-    return new RedisModulesTemplate(pool);
+      RedisModulesProperties properties,
+      RedisModulesClient redisModulesClient,
+      ObjectProvider<GenericObjectPool<StatefulRedisModulesConnection<String, String>>> pool,
+      MeterRegistry meterRegistry) {
+    ModulesConnectionSource source = switch (properties.getMode()) {
+      case POOLED -> new PooledConnectionSource(pool.getObject());
+      case SHARED -> new SharedConnectionSource(redisModulesClient::connect, properties.getConnections(),
+          properties.getHealthCheckInterval(), properties.getHealthCheckTimeout());
+    };
+    return new RedisModulesTemplate(source, meterRegistry);
   }
 
   @Bean
@@ -274,4 +302,9 @@ public class RedisConfig {
     template.afterPropertiesSet();
     return template;
   }
+
+  @Bean
+  public ValueCodec valueCodec(ValueCodecProperties valueCodecProperties) {
+    return valueCodecProperties.getType().create();
+  }
 }
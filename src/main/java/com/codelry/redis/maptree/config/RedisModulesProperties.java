@@ -0,0 +1,53 @@
+package com.codelry.redis.maptree.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "app.redis-modules")
+public class RedisModulesProperties {
+
+  public enum Mode {
+    POOLED,
+    SHARED
+  }
+
+  private Mode mode = Mode.POOLED;
+  private int connections = 1;
+  private Duration healthCheckInterval = Duration.ofSeconds(10);
+  private Duration healthCheckTimeout = Duration.ofSeconds(1);
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  public void setMode(Mode mode) {
+    this.mode = mode;
+  }
+
+  public int getConnections() {
+    return connections;
+  }
+
+  public void setConnections(int connections) {
+    this.connections = connections;
+  }
+
+  public Duration getHealthCheckInterval() {
+    return healthCheckInterval;
+  }
+
+  public void setHealthCheckInterval(Duration healthCheckInterval) {
+    this.healthCheckInterval = healthCheckInterval;
+  }
+
+  public Duration getHealthCheckTimeout() {
+    return healthCheckTimeout;
+  }
+
+  public void setHealthCheckTimeout(Duration healthCheckTimeout) {
+    this.healthCheckTimeout = healthCheckTimeout;
+  }
+}
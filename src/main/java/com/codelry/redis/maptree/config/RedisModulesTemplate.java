@@ -5,17 +5,33 @@ import com.redis.lettucemod.api.sync.RedisModulesCommands;
 import io.lettuce.core.json.JsonPath;
 import io.lettuce.core.json.JsonType;
 import io.lettuce.core.json.JsonValue;
-import org.apache.commons.pool2.impl.GenericObjectPool;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
-public class RedisModulesTemplate {
+public class RedisModulesTemplate implements AutoCloseable {
 
-  private final GenericObjectPool<StatefulRedisModulesConnection<String, String>> pool;
+  private final ModulesConnectionSource source;
+  private final Timer acquireTimer;
+  private final Timer commandTimer;
 
-  public RedisModulesTemplate(GenericObjectPool<StatefulRedisModulesConnection<String, String>> pool) {
-    this.pool = pool;
+  public RedisModulesTemplate(ModulesConnectionSource source, MeterRegistry meterRegistry) {
+    this.source = source;
+
+    this.acquireTimer = Timer.builder("redis.modules.acquire.duration")
+        .description("Time spent waiting for a Redis modules connection")
+        .tag("mode", source.mode())
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+
+    this.commandTimer = Timer.builder("redis.modules.command.duration")
+        .description("Time taken to run a Redis modules command")
+        .tag("mode", source.mode())
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
   }
 
   public void jsonSet(String key, JsonPath path, String json) {
@@ -44,15 +60,21 @@ public class RedisModulesTemplate {
 
   public <T> T execute(Function<RedisModulesCommands<String, String>, T> action) {
     StatefulRedisModulesConnection<String, String> connection = null;
+    long start = System.nanoTime();
+    long acquired = start;
     try {
-      connection = pool.borrowObject();
+      connection = source.acquire();
+      acquired = System.nanoTime();
+      acquireTimer.record(acquired - start, TimeUnit.NANOSECONDS);
       RedisModulesCommands<String, String> commands = connection.sync();
       return action.apply(commands);
     } catch (Exception e) {
       throw new RuntimeException("Redis operation failed", e);
     } finally {
       if (connection != null) {
-        pool.returnObject(connection);
+        // failed commands are timed too, so timeouts show up in the latency
+        commandTimer.record(System.nanoTime() - acquired, TimeUnit.NANOSECONDS);
+        source.release(connection);
       }
     }
   }
@@ -63,4 +85,9 @@ public class RedisModulesTemplate {
       return null;
     });
   }
+
+  @Override
+  public void close() {
+    source.close();
+  }
 }
@@ -0,0 +1,109 @@
+package com.codelry.redis.maptree.config;
+
+import com.redis.lettucemod.api.StatefulRedisModulesConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+public class SharedConnectionSource implements ModulesConnectionSource {
+
+  private static final Logger logger = LoggerFactory.getLogger(SharedConnectionSource.class);
+
+  private final Supplier<StatefulRedisModulesConnection<String, String>> connector;
+  private final AtomicReferenceArray<StatefulRedisModulesConnection<String, String>> connections;
+  private final AtomicInteger next = new AtomicInteger();
+  private final Duration healthCheckTimeout;
+  private final ScheduledExecutorService scheduler;
+
+  public SharedConnectionSource(Supplier<StatefulRedisModulesConnection<String, String>> connector,
+                                int size,
+                                Duration healthCheckInterval,
+                                Duration healthCheckTimeout) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Shared connection mode needs at least one connection");
+    }
+    this.connector = connector;
+    this.connections = new AtomicReferenceArray<>(size);
+    this.healthCheckTimeout = healthCheckTimeout;
+    for (int i = 0; i < size; i++) {
+      connections.set(i, connector.get());
+    }
+
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "redis-modules-health");
+      thread.setDaemon(true);
+      return thread;
+    });
+    if (healthCheckInterval != null && !healthCheckInterval.isZero() && !healthCheckInterval.isNegative()) {
+      long interval = healthCheckInterval.toMillis();
+      scheduler.scheduleWithFixedDelay(this::checkHealth, interval, interval, TimeUnit.MILLISECONDS);
+    }
+    logger.info("Shared Redis modules mode with {} connections", size);
+  }
+
+  @Override
+  public StatefulRedisModulesConnection<String, String> acquire() {
+    return connections.get(Math.floorMod(next.getAndIncrement(), connections.length()));
+  }
+
+  @Override
+  public void release(StatefulRedisModulesConnection<String, String> connection) {
+    // shared connections stay open
+  }
+
+  @Override
+  public String mode() {
+    return "shared";
+  }
+
+  void checkHealth() {
+    for (int i = 0; i < connections.length(); i++) {
+      StatefulRedisModulesConnection<String, String> connection = connections.get(i);
+      if (healthy(connection)) {
+        continue;
+      }
+      logger.warn("Replacing unhealthy shared Redis connection {}", i);
+      try {
+        StatefulRedisModulesConnection<String, String> replacement = connector.get();
+        if (connections.compareAndSet(i, connection, replacement)) {
+          connection.closeAsync();
+        } else {
+          replacement.closeAsync();
+        }
+      } catch (Exception e) {
+        logger.warn("Could not reconnect shared Redis connection {}: {}", i, e.getMessage());
+      }
+    }
+  }
+
+  private boolean healthy(StatefulRedisModulesConnection<String, String> connection) {
+    if (!connection.isOpen()) {
+      return false;
+    }
+    try {
+      String reply = connection.async().ping().get(healthCheckTimeout.toMillis(), TimeUnit.MILLISECONDS);
+      return "PONG".equalsIgnoreCase(reply);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return true;
+    } catch (Exception e) {
+      logger.debug("Health check failed", e);
+      return false;
+    }
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+    for (int i = 0; i < connections.length(); i++) {
+      connections.get(i).close();
+    }
+  }
+}
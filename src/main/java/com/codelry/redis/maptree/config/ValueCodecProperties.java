@@ -0,0 +1,19 @@
+package com.codelry.redis.maptree.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.value-codec")
+public class ValueCodecProperties {
+
+  private ValueCodecType type = ValueCodecType.TEXT;
+
+  public ValueCodecType getType() {
+    return type;
+  }
+
+  public void setType(ValueCodecType type) {
+    this.type = type;
+  }
+}
@@ -0,0 +1,36 @@
+package com.codelry.redis.maptree.config;
+
+import com.codelry.redis.maptree.service.TextValueCodec;
+import com.codelry.redis.maptree.service.TypedValueCodec;
+import com.codelry.redis.maptree.service.ValueCodec;
+
+public enum ValueCodecType {
+  TEXT("text"),
+  TYPED("typed");
+
+  private final String tag;
+
+  ValueCodecType(String tag) {
+    this.tag = tag;
+  }
+
+  public String tag() {
+    return tag;
+  }
+
+  public ValueCodec create() {
+    return switch (this) {
+      case TEXT -> new TextValueCodec();
+      case TYPED -> new TypedValueCodec();
+    };
+  }
+
+  public static ValueCodecType fromName(String name) {
+    for (ValueCodecType type : values()) {
+      if (type.tag.equalsIgnoreCase(name)) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown value codec: " + name);
+  }
+}
@@ -0,0 +1,46 @@
+package com.codelry.redis.maptree.controller;
+
+import com.codelry.redis.maptree.dto.BenchReport;
+import com.codelry.redis.maptree.dto.BenchRequest;
+import com.codelry.redis.maptree.service.BenchmarkService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.concurrent.CompletionException;
+
+@RestController
+@RequestMapping("/v1/api")
+public class BenchController {
+
+  private static final Logger logger = LoggerFactory.getLogger(BenchController.class);
+
+  private final BenchmarkService benchmarkService;
+
+  @Autowired
+  public BenchController(BenchmarkService benchmarkService) {
+    this.benchmarkService = benchmarkService;
+  }
+
+  // the run happens on the benchmark runner thread; the capped duration bounds the wait, so the default async
+  // request timeout is lifted for this endpoint
+  @PostMapping("/bench")
+  public DeferredResult<ResponseEntity<BenchReport>> runBenchmark(@RequestBody(required = false) BenchRequest request) {
+    DeferredResult<ResponseEntity<BenchReport>> result = new DeferredResult<>(0L);
+    benchmarkService.submit(request != null ? request : new BenchRequest()).whenComplete((report, error) -> {
+      if (error != null) {
+        result.setErrorResult(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+        return;
+      }
+      logger.info("Benchmark run {} completed for {} models", report.getRunId(), report.getModels().size());
+      result.setResult(ResponseEntity.ok(report));
+    });
+    return result;
+  }
+}
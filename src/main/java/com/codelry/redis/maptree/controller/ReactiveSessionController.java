@@ -0,0 +1,67 @@
+package com.codelry.redis.maptree.controller;
+
+import com.codelry.redis.maptree.model.Record;
+import com.codelry.redis.maptree.model.StorageModel;
+import com.codelry.redis.maptree.service.JsonOutput;
+import com.codelry.redis.maptree.service.ReactiveMapService;
+import com.codelry.redis.maptree.service.ReactiveMapTreeService;
+import com.codelry.redis.maptree.service.ReactiveSessionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+// served by Spring MVC async dispatch: the request thread is released while the Mono waits on Redis
+@RestController
+@RequestMapping("/v1/reactive")
+public class ReactiveSessionController {
+
+  private static final Logger logger = LoggerFactory.getLogger(ReactiveSessionController.class);
+
+  private final ReactiveSessionService sessionService;
+  private final ReactiveMapService mapService;
+  private final ReactiveMapTreeService mapTreeService;
+
+  @Autowired
+  public ReactiveSessionController(ReactiveSessionService sessionService,
+                                   ReactiveMapService mapService,
+                                   ReactiveMapTreeService mapTreeService) {
+    this.sessionService = sessionService;
+    this.mapService = mapService;
+    this.mapTreeService = mapTreeService;
+  }
+
+  @PostMapping("/{model}/{key}")
+  public Mono<ResponseEntity<Map<String, String>>> createRecord(@PathVariable String model,
+                                                                @PathVariable String key,
+                                                                @RequestBody byte[] requestBody) {
+    Mono<Record> record = switch (StorageModel.fromName(model)) {
+      case JSON -> sessionService.createRecord(key, requestBody);
+      case MAP -> mapService.createRecord(key, requestBody);
+      case TREE -> mapTreeService.createRecord(key, requestBody);
+    };
+    return record.map(created -> {
+      logger.debug("Created {} record: {}", model, created.getRecordId());
+      Map<String, String> response = Map.of("key", created.getRecordId().toString());
+      return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    });
+  }
+
+  @GetMapping("/{model}/{key}")
+  public Mono<ResponseEntity<StreamingResponseBody>> getRecord(@PathVariable String model, @PathVariable String key) {
+    Mono<JsonOutput> document = switch (StorageModel.fromName(model)) {
+      case JSON -> sessionService.getRecord(key);
+      case MAP -> mapService.getRecord(key);
+      case TREE -> mapTreeService.getRecord(key);
+    };
+    return document.map(output -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+        .<StreamingResponseBody>body(output::writeTo));
+  }
+}
@@ -1,17 +1,30 @@
 package com.codelry.redis.maptree.controller;
 
+import com.codelry.redis.maptree.dto.DictionaryReport;
+import com.codelry.redis.maptree.dto.MemoryReport;
+import com.codelry.redis.maptree.dto.PatchReport;
+import com.codelry.redis.maptree.exception.RecordNotFoundException;
 import com.codelry.redis.maptree.model.Record;
+import com.codelry.redis.maptree.model.StorageModel;
+import com.codelry.redis.maptree.service.AutoModelService;
+import com.codelry.redis.maptree.service.JsonOutput;
 import com.codelry.redis.maptree.service.MapService;
 import com.codelry.redis.maptree.service.MapTreeService;
+import com.codelry.redis.maptree.service.MemoryProfiler;
+import com.codelry.redis.maptree.service.PatchPlan;
 import com.codelry.redis.maptree.service.SessionService;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -23,12 +36,20 @@ public class SessionController {
   private final SessionService sessionService;
   private final MapService mapService;
   private final MapTreeService mapTreeService;
+  private final MemoryProfiler memoryProfiler;
+  private final AutoModelService autoModelService;
 
   @Autowired
-  public SessionController(SessionService sessionService, MapService mapService, MapTreeService mapTreeService) {
+  public SessionController(SessionService sessionService,
+                           MapService mapService,
+                           MapTreeService mapTreeService,
+                           MemoryProfiler memoryProfiler,
+                           AutoModelService autoModelService) {
     this.sessionService = sessionService;
     this.mapService = mapService;
     this.mapTreeService = mapTreeService;
+    this.memoryProfiler = memoryProfiler;
+    this.autoModelService = autoModelService;
   }
 
   @PostMapping("/create/{key}")
@@ -47,6 +68,13 @@ public class SessionController {
     return ResponseEntity.status(HttpStatus.CREATED).body(response);
   }
 
+  @GetMapping("/map/{key}")
+  public ResponseEntity<StreamingResponseBody> getMapRecord(@PathVariable String key) {
+    JsonOutput output = mapService.getRecord(key);
+    logger.info("Successfully read map record: {}", key);
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(output::writeTo);
+  }
+
   @PostMapping("/tree/{key}")
   public ResponseEntity<Map<String, String>> createTreeRecords(@PathVariable String key, @RequestBody byte[] requestBody) {
     Record record = mapTreeService.createRecord(key, requestBody);
@@ -54,4 +82,98 @@ public class SessionController {
     Map<String, String> response = Map.of("key", record.getRecordId().toString());
     return ResponseEntity.status(HttpStatus.CREATED).body(response);
   }
+
+  @GetMapping("/tree/{key}")
+  public ResponseEntity<StreamingResponseBody> getTreeRecord(@PathVariable String key) {
+    JsonOutput output = mapTreeService.getRecord(key);
+    logger.info("Successfully read tree records: {}", key);
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(output::writeTo);
+  }
+
+  @PostMapping("/auto/{key}")
+  public ResponseEntity<Map<String, String>> createAutoRecord(@PathVariable String key, @RequestBody byte[] requestBody) {
+    AutoModelService.Selection selection = autoModelService.createRecord(key, requestBody);
+    logger.info("Successfully created {} record: {}", selection.model().tag(), selection.record().getRecordId());
+    Map<String, String> response = Map.of("key", selection.record().getRecordId(),
+        "model", selection.model().tag(),
+        "shape", selection.shapeClass());
+    return ResponseEntity.status(HttpStatus.CREATED).body(response);
+  }
+
+  @GetMapping("/auto/{key}")
+  public ResponseEntity<StreamingResponseBody> getAutoRecord(@PathVariable String key) {
+    JsonOutput output = autoModelService.getRecord(key);
+    logger.info("Successfully read auto record: {}", key);
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(output::writeTo);
+  }
+
+  @GetMapping("/{model}/{key}/subtree")
+  public ResponseEntity<StreamingResponseBody> getSubtree(@PathVariable String model,
+                                                          @PathVariable String key,
+                                                          @RequestParam(defaultValue = "") String path) {
+    StorageModel storageModel = StorageModel.fromName(model);
+    JsonOutput output = switch (storageModel) {
+      case JSON -> sessionService.getSubtree(key, path);
+      case MAP -> mapService.getSubtree(key, path);
+      case TREE -> mapTreeService.getSubtree(key, path);
+    };
+    logger.info("Successfully read {} subtree {} of record: {}", storageModel.tag(), path, key);
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(output::writeTo);
+  }
+
+  @GetMapping("/{model}/{key}/fields")
+  public ResponseEntity<StreamingResponseBody> getProjection(@PathVariable String model,
+                                                             @PathVariable String key,
+                                                             @RequestParam("path") List<String> paths) {
+    StorageModel storageModel = StorageModel.fromName(model);
+    JsonOutput output = switch (storageModel) {
+      case JSON -> sessionService.getProjection(key, paths);
+      case MAP -> mapService.getProjection(key, paths);
+      case TREE -> mapTreeService.getProjection(key, paths);
+    };
+    logger.info("Successfully read {} fields of {} record: {}", paths.size(), storageModel.tag(), key);
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(output::writeTo);
+  }
+
+  @GetMapping("/{model}/{key}/dictionary")
+  public ResponseEntity<DictionaryReport> getDictionaryReport(@PathVariable String model, @PathVariable String key) {
+    DictionaryReport report = switch (StorageModel.fromName(model)) {
+      case JSON -> throw new IllegalArgumentException("Path dictionary applies to map and tree records only");
+      case MAP -> mapService.getDictionaryReport(key);
+      case TREE -> mapTreeService.getDictionaryReport(key);
+    };
+    return ResponseEntity.ok(report);
+  }
+
+  @PostMapping("/{model}/{key}/profile")
+  public ResponseEntity<MemoryReport> profileRecord(@PathVariable String model,
+                                                    @PathVariable String key,
+                                                    @RequestBody byte[] requestBody) {
+    StorageModel storageModel = StorageModel.fromName(model);
+    switch (storageModel) {
+      case JSON -> sessionService.createRecord(key, requestBody, false);
+      case MAP -> mapService.createRecord(key, requestBody, false);
+      case TREE -> mapTreeService.createRecord(key, requestBody, false);
+    }
+    return ResponseEntity.ok(memoryProfiler.profile(storageModel, key, requestBody));
+  }
+
+  @PatchMapping(value = "/{model}/{key}", consumes = {"application/merge-patch+json", "application/json-patch+json"})
+  public ResponseEntity<PatchReport> patchRecord(@PathVariable String model,
+                                                 @PathVariable String key,
+                                                 @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                 @RequestBody byte[] requestBody) {
+    PatchPlan plan = PatchPlan.parse(PatchPlan.Format.fromMediaType(contentType), requestBody);
+    StorageModel storageModel = model.equalsIgnoreCase("auto") ? autoModelService.storedModel(key) : StorageModel.fromName(model);
+    if (storageModel == null) {
+      throw new RecordNotFoundException(key);
+    }
+    PatchReport report = switch (storageModel) {
+      case JSON -> sessionService.patchRecord(key, plan);
+      case MAP -> mapService.patchRecord(key, plan);
+      case TREE -> mapTreeService.patchRecord(key, plan);
+    };
+    logger.info("Successfully patched {} record {} with {} operations", storageModel.tag(), key, plan.size());
+    return ResponseEntity.ok(report);
+  }
 }
@@ -0,0 +1,6 @@
+package com.codelry.redis.maptree.diagnostics;
+
+import java.util.Collection;
+
+public record DiagnosticEntry(long timestamp, String recordId, String kind, Collection<String> values) {
+}
@@ -0,0 +1,118 @@
+package com.codelry.redis.maptree.diagnostics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+public class DiagnosticsSink implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(DiagnosticsSink.class);
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+  private final MappedJournal journal;
+  private final int capacity;
+  private final Queue<DiagnosticEntry> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pending = new AtomicInteger();
+  private final Counter written;
+  private final Counter dropped;
+  private final Thread writer;
+  private volatile boolean running = true;
+
+  public DiagnosticsSink(MappedJournal journal, int capacity, MeterRegistry meterRegistry) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Diagnostics queue capacity must be at least 1");
+    }
+    this.journal = journal;
+    this.capacity = capacity;
+    this.written = Counter.builder("diagnostics.entries.written")
+        .description("Diagnostic entries appended to the journal")
+        .register(meterRegistry);
+    this.dropped = Counter.builder("diagnostics.entries.dropped")
+        .description("Diagnostic entries dropped because the queue was full or the write failed")
+        .register(meterRegistry);
+    Gauge.builder("diagnostics.queue.size", pending, AtomicInteger::get)
+        .description("Diagnostic entries waiting for the journal writer")
+        .register(meterRegistry);
+
+    this.writer = new Thread(this::drain, "diagnostics-writer");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  private DiagnosticsSink() {
+    this.journal = null;
+    this.capacity = 0;
+    this.written = null;
+    this.dropped = null;
+    this.writer = null;
+    this.running = false;
+  }
+
+  public static DiagnosticsSink disabled() {
+    return new DiagnosticsSink();
+  }
+
+  public boolean isEnabled() {
+    return journal != null;
+  }
+
+  public void record(String recordId, String kind, Collection<String> values) {
+    if (journal == null || values == null || values.isEmpty()) {
+      return;
+    }
+    if (pending.incrementAndGet() > capacity) {
+      pending.decrementAndGet();
+      dropped.increment();
+      return;
+    }
+    queue.offer(new DiagnosticEntry(System.currentTimeMillis(), recordId, kind, values));
+  }
+
+  private void drain() {
+    while (running || !queue.isEmpty()) {
+      DiagnosticEntry entry = queue.poll();
+      if (entry == null) {
+        LockSupport.parkNanos(IDLE_PARK_NANOS);
+        continue;
+      }
+      pending.decrementAndGet();
+      try {
+        if (journal.append(entry)) {
+          written.increment();
+        } else {
+          dropped.increment();
+          logger.warn("Diagnostic entry for {} is larger than a journal segment", entry.recordId());
+        }
+      } catch (IOException | RuntimeException e) {
+        // one bad entry must not stop the writer thread, or the queue fills and every later entry is dropped
+        dropped.increment();
+        logger.error("Error writing diagnostic entry for {}: {}", entry.recordId(), e.getMessage());
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (journal == null) {
+      return;
+    }
+    running = false;
+    LockSupport.unpark(writer);
+    try {
+      writer.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    journal.close();
+  }
+}
@@ -0,0 +1,148 @@
+package com.codelry.redis.maptree.diagnostics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+public class MappedJournal implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(MappedJournal.class);
+  private static final Pattern SEGMENT_NAME = Pattern.compile("journal-(\\d+)\\.log");
+  private static final int TRIM_CHUNK = 64 * 1024;
+
+  private final Path directory;
+  private final long segmentSize;
+  private final int maxSegments;
+  private final Deque<Path> segments = new ArrayDeque<>();
+  private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+
+  private long sequence;
+  private FileChannel channel;
+  private MappedByteBuffer buffer;
+
+  public MappedJournal(Path directory, long segmentSize, int maxSegments) throws IOException {
+    if (segmentSize < 1 || segmentSize > Integer.MAX_VALUE || maxSegments < 1) {
+      throw new IllegalArgumentException("Journal needs a segment size between 1 byte and 2 GB and at least one segment");
+    }
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.maxSegments = maxSegments;
+
+    Files.createDirectories(directory);
+    try (Stream<Path> files = Files.list(directory)) {
+      files.filter(file -> SEGMENT_NAME.matcher(file.getFileName().toString()).matches())
+          .sorted()
+          .forEach(segments::addLast);
+    }
+    for (Path segment : segments) {
+      Matcher matcher = SEGMENT_NAME.matcher(segment.getFileName().toString());
+      if (matcher.matches()) {
+        sequence = Math.max(sequence, Long.parseLong(matcher.group(1)));
+      }
+      trim(segment);
+    }
+    rotate();
+  }
+
+  public boolean append(DiagnosticEntry entry) throws IOException {
+    block.reset();
+    line("# " + Instant.ofEpochMilli(entry.timestamp()) + " " + entry.recordId() + " " + entry.kind() + " "
+        + entry.values().size());
+    for (String value : entry.values()) {
+      line(value);
+    }
+    if (block.size() > segmentSize) {
+      return false;
+    }
+    if (block.size() > buffer.remaining()) {
+      rotate();
+    }
+    buffer.put(block.toByteArray());
+    return true;
+  }
+
+  private void line(String text) {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    block.write(bytes, 0, bytes.length);
+    block.write('\n');
+  }
+
+  private void rotate() throws IOException {
+    seal();
+    sequence += 1;
+    Path segment = directory.resolve(String.format("journal-%012d.log", sequence));
+    channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    segments.addLast(segment);
+    while (segments.size() > maxSegments) {
+      Path oldest = segments.removeFirst();
+      Files.deleteIfExists(oldest);
+      logger.debug("Removed diagnostics segment {}", oldest);
+    }
+    logger.debug("Opened diagnostics segment {}", segment);
+  }
+
+  // the mapping outlives the channel until it is collected, so a sealed segment keeps its zero-filled tail here;
+  // readers stop at the first NUL, and the tail is trimmed once no process maps the file
+  private void seal() throws IOException {
+    if (channel == null) {
+      return;
+    }
+    buffer.force();
+    channel.close();
+    channel = null;
+    buffer = null;
+  }
+
+  // entries always end in a newline, so everything after the last non-zero byte is unused mapping
+  static void trim(Path segment) throws IOException {
+    try (FileChannel file = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ByteBuffer chunk = ByteBuffer.allocate(TRIM_CHUNK);
+      long size = file.size();
+      long end = size;
+      while (end > 0) {
+        int length = (int) Math.min(TRIM_CHUNK, end);
+        long start = end - length;
+        chunk.clear().limit(length);
+        while (chunk.hasRemaining()) {
+          if (file.read(chunk, start + chunk.position()) < 0) {
+            break;
+          }
+        }
+        int last = chunk.position() - 1;
+        while (last >= 0 && chunk.get(last) == 0) {
+          last -= 1;
+        }
+        if (last >= 0) {
+          end = start + last + 1;
+          break;
+        }
+        end = start;
+      }
+      if (end < size) {
+        file.truncate(end);
+        logger.debug("Trimmed diagnostics segment {} to {} bytes", segment, end);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    seal();
+  }
+}
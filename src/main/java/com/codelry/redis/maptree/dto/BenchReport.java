@@ -0,0 +1,235 @@
+package com.codelry.redis.maptree.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BenchReport {
+  private String runId;
+  @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+  private LocalDateTime startedAt;
+  private int concurrency;
+  private long durationSeconds;
+  private long warmupSeconds;
+  private long averageDocumentBytes;
+  private long keysRemoved;
+  private List<ModelReport> models = new ArrayList<>();
+
+  public String getRunId() {
+    return runId;
+  }
+
+  public void setRunId(String runId) {
+    this.runId = runId;
+  }
+
+  public LocalDateTime getStartedAt() {
+    return startedAt;
+  }
+
+  public void setStartedAt(LocalDateTime startedAt) {
+    this.startedAt = startedAt;
+  }
+
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  public void setConcurrency(int concurrency) {
+    this.concurrency = concurrency;
+  }
+
+  public long getDurationSeconds() {
+    return durationSeconds;
+  }
+
+  public void setDurationSeconds(long durationSeconds) {
+    this.durationSeconds = durationSeconds;
+  }
+
+  public long getWarmupSeconds() {
+    return warmupSeconds;
+  }
+
+  public void setWarmupSeconds(long warmupSeconds) {
+    this.warmupSeconds = warmupSeconds;
+  }
+
+  public long getAverageDocumentBytes() {
+    return averageDocumentBytes;
+  }
+
+  public void setAverageDocumentBytes(long averageDocumentBytes) {
+    this.averageDocumentBytes = averageDocumentBytes;
+  }
+
+  public long getKeysRemoved() {
+    return keysRemoved;
+  }
+
+  public void setKeysRemoved(long keysRemoved) {
+    this.keysRemoved = keysRemoved;
+  }
+
+  public List<ModelReport> getModels() {
+    return models;
+  }
+
+  public void setModels(List<ModelReport> models) {
+    this.models = models;
+  }
+
+  public static class ModelReport {
+    private String model;
+    private String stack;
+    private long documents;
+    private double throughput;
+    private Double documentsPerCpuSecond;
+    private Double commandsPerDocument;
+    private Double memoryPerDocument;
+    private Map<String, PhaseReport> phases = new LinkedHashMap<>();
+
+    public String getModel() {
+      return model;
+    }
+
+    public void setModel(String model) {
+      this.model = model;
+    }
+
+    public String getStack() {
+      return stack;
+    }
+
+    public void setStack(String stack) {
+      this.stack = stack;
+    }
+
+    public long getDocuments() {
+      return documents;
+    }
+
+    public void setDocuments(long documents) {
+      this.documents = documents;
+    }
+
+    public double getThroughput() {
+      return throughput;
+    }
+
+    public void setThroughput(double throughput) {
+      this.throughput = throughput;
+    }
+
+    public Double getDocumentsPerCpuSecond() {
+      return documentsPerCpuSecond;
+    }
+
+    public void setDocumentsPerCpuSecond(Double documentsPerCpuSecond) {
+      this.documentsPerCpuSecond = documentsPerCpuSecond;
+    }
+
+    public Double getCommandsPerDocument() {
+      return commandsPerDocument;
+    }
+
+    public void setCommandsPerDocument(Double commandsPerDocument) {
+      this.commandsPerDocument = commandsPerDocument;
+    }
+
+    public Double getMemoryPerDocument() {
+      return memoryPerDocument;
+    }
+
+    public void setMemoryPerDocument(Double memoryPerDocument) {
+      this.memoryPerDocument = memoryPerDocument;
+    }
+
+    public Map<String, PhaseReport> getPhases() {
+      return phases;
+    }
+
+    public void setPhases(Map<String, PhaseReport> phases) {
+      this.phases = phases;
+    }
+  }
+
+  public static class PhaseReport {
+    private long count;
+    private long errors;
+    private double throughput;
+    private double meanMicros;
+    private long p50Micros;
+    private long p99Micros;
+    private long p999Micros;
+    private long maxMicros;
+
+    public long getCount() {
+      return count;
+    }
+
+    public void setCount(long count) {
+      this.count = count;
+    }
+
+    public long getErrors() {
+      return errors;
+    }
+
+    public void setErrors(long errors) {
+      this.errors = errors;
+    }
+
+    public double getThroughput() {
+      return throughput;
+    }
+
+    public void setThroughput(double throughput) {
+      this.throughput = throughput;
+    }
+
+    public double getMeanMicros() {
+      return meanMicros;
+    }
+
+    public void setMeanMicros(double meanMicros) {
+      this.meanMicros = meanMicros;
+    }
+
+    public long getP50Micros() {
+      return p50Micros;
+    }
+
+    public void setP50Micros(long p50Micros) {
+      this.p50Micros = p50Micros;
+    }
+
+    public long getP99Micros() {
+      return p99Micros;
+    }
+
+    public void setP99Micros(long p99Micros) {
+      this.p99Micros = p99Micros;
+    }
+
+    public long getP999Micros() {
+      return p999Micros;
+    }
+
+    public void setP999Micros(long p999Micros) {
+      this.p999Micros = p999Micros;
+    }
+
+    public long getMaxMicros() {
+      return maxMicros;
+    }
+
+    public void setMaxMicros(long maxMicros) {
+      this.maxMicros = maxMicros;
+    }
+  }
+}
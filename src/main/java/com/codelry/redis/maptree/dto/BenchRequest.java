@@ -0,0 +1,90 @@
+package com.codelry.redis.maptree.dto;
+
+import com.codelry.redis.maptree.generator.DocumentProfile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BenchRequest {
+  private DocumentProfile profile = new DocumentProfile();
+  private List<String> models = new ArrayList<>(List.of("json", "map", "tree"));
+  private List<String> stacks = new ArrayList<>(List.of("blocking"));
+  private int concurrency = 4;
+  private long durationSeconds = 10;
+  private long warmupSeconds = 2;
+  private int documentPool = 100;
+  private boolean verify = true;
+  private boolean cleanup = true;
+
+  public DocumentProfile getProfile() {
+    return profile;
+  }
+
+  public void setProfile(DocumentProfile profile) {
+    this.profile = profile;
+  }
+
+  public List<String> getModels() {
+    return models;
+  }
+
+  public void setModels(List<String> models) {
+    this.models = models;
+  }
+
+  public List<String> getStacks() {
+    return stacks;
+  }
+
+  public void setStacks(List<String> stacks) {
+    this.stacks = stacks;
+  }
+
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  public void setConcurrency(int concurrency) {
+    this.concurrency = concurrency;
+  }
+
+  public long getDurationSeconds() {
+    return durationSeconds;
+  }
+
+  public void setDurationSeconds(long durationSeconds) {
+    this.durationSeconds = durationSeconds;
+  }
+
+  public long getWarmupSeconds() {
+    return warmupSeconds;
+  }
+
+  public void setWarmupSeconds(long warmupSeconds) {
+    this.warmupSeconds = warmupSeconds;
+  }
+
+  public int getDocumentPool() {
+    return documentPool;
+  }
+
+  public void setDocumentPool(int documentPool) {
+    this.documentPool = documentPool;
+  }
+
+  public boolean isVerify() {
+    return verify;
+  }
+
+  public void setVerify(boolean verify) {
+    this.verify = verify;
+  }
+
+  public boolean isCleanup() {
+    return cleanup;
+  }
+
+  public void setCleanup(boolean cleanup) {
+    this.cleanup = cleanup;
+  }
+}
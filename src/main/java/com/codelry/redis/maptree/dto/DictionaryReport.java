@@ -0,0 +1,76 @@
+package com.codelry.redis.maptree.dto;
+
+public class DictionaryReport {
+  private String key;
+  private String model;
+  private boolean enabled;
+  private int names;
+  private long plainBytes;
+  private long storedBytes;
+  private long savedBytes;
+  private long dictionaryEntries;
+
+  public String getKey() {
+    return key;
+  }
+
+  public void setKey(String key) {
+    this.key = key;
+  }
+
+  public String getModel() {
+    return model;
+  }
+
+  public void setModel(String model) {
+    this.model = model;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getNames() {
+    return names;
+  }
+
+  public void setNames(int names) {
+    this.names = names;
+  }
+
+  public long getPlainBytes() {
+    return plainBytes;
+  }
+
+  public void setPlainBytes(long plainBytes) {
+    this.plainBytes = plainBytes;
+  }
+
+  public long getStoredBytes() {
+    return storedBytes;
+  }
+
+  public void setStoredBytes(long storedBytes) {
+    this.storedBytes = storedBytes;
+  }
+
+  public long getSavedBytes() {
+    return savedBytes;
+  }
+
+  public void setSavedBytes(long savedBytes) {
+    this.savedBytes = savedBytes;
+  }
+
+  public long getDictionaryEntries() {
+    return dictionaryEntries;
+  }
+
+  public void setDictionaryEntries(long dictionaryEntries) {
+    this.dictionaryEntries = dictionaryEntries;
+  }
+}
@@ -0,0 +1,111 @@
+package com.codelry.redis.maptree.dto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MemoryReport {
+  private String key;
+  private String model;
+  private int keys;
+  private int leaves;
+  private long bytes;
+  private double bytesPerLeaf;
+  private Map<String, Integer> encodings = new LinkedHashMap<>();
+  private List<KeyUsage> entries = new ArrayList<>();
+
+  public String getKey() {
+    return key;
+  }
+
+  public void setKey(String key) {
+    this.key = key;
+  }
+
+  public String getModel() {
+    return model;
+  }
+
+  public void setModel(String model) {
+    this.model = model;
+  }
+
+  public int getKeys() {
+    return keys;
+  }
+
+  public void setKeys(int keys) {
+    this.keys = keys;
+  }
+
+  public int getLeaves() {
+    return leaves;
+  }
+
+  public void setLeaves(int leaves) {
+    this.leaves = leaves;
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+
+  public void setBytes(long bytes) {
+    this.bytes = bytes;
+  }
+
+  public double getBytesPerLeaf() {
+    return bytesPerLeaf;
+  }
+
+  public void setBytesPerLeaf(double bytesPerLeaf) {
+    this.bytesPerLeaf = bytesPerLeaf;
+  }
+
+  public Map<String, Integer> getEncodings() {
+    return encodings;
+  }
+
+  public void setEncodings(Map<String, Integer> encodings) {
+    this.encodings = encodings;
+  }
+
+  public List<KeyUsage> getEntries() {
+    return entries;
+  }
+
+  public void setEntries(List<KeyUsage> entries) {
+    this.entries = entries;
+  }
+
+  public static class KeyUsage {
+    private String key;
+    private long bytes;
+    private String encoding;
+
+    public String getKey() {
+      return key;
+    }
+
+    public void setKey(String key) {
+      this.key = key;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    public void setBytes(long bytes) {
+      this.bytes = bytes;
+    }
+
+    public String getEncoding() {
+      return encoding;
+    }
+
+    public void setEncoding(String encoding) {
+      this.encoding = encoding;
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.codelry.redis.maptree.dto;
+
+public class PatchReport {
+  private String key;
+  private String model;
+  private String format;
+  private int operations;
+  private int scopes;
+  private int leavesRead;
+  private int updated;
+  private int removed;
+  private int commands;
+
+  public String getKey() {
+    return key;
+  }
+
+  public void setKey(String key) {
+    this.key = key;
+  }
+
+  public String getModel() {
+    return model;
+  }
+
+  public void setModel(String model) {
+    this.model = model;
+  }
+
+  public String getFormat() {
+    return format;
+  }
+
+  public void setFormat(String format) {
+    this.format = format;
+  }
+
+  public int getOperations() {
+    return operations;
+  }
+
+  public void setOperations(int operations) {
+    this.operations = operations;
+  }
+
+  public int getScopes() {
+    return scopes;
+  }
+
+  public void setScopes(int scopes) {
+    this.scopes = scopes;
+  }
+
+  public int getLeavesRead() {
+    return leavesRead;
+  }
+
+  public void setLeavesRead(int leavesRead) {
+    this.leavesRead = leavesRead;
+  }
+
+  public int getUpdated() {
+    return updated;
+  }
+
+  public void setUpdated(int updated) {
+    this.updated = updated;
+  }
+
+  public int getRemoved() {
+    return removed;
+  }
+
+  public void setRemoved(int removed) {
+    this.removed = removed;
+  }
+
+  public int getCommands() {
+    return commands;
+  }
+
+  public void setCommands(int commands) {
+    this.commands = commands;
+  }
+}
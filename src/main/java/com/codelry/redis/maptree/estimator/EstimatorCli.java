@@ -0,0 +1,210 @@
+package com.codelry.redis.maptree.estimator;
+
+import com.codelry.redis.maptree.config.BatchProperties;
+import com.codelry.redis.maptree.config.PathDictionaryProperties;
+import com.codelry.redis.maptree.config.SchemaCacheProperties;
+import com.codelry.redis.maptree.diagnostics.DiagnosticsSink;
+import com.codelry.redis.maptree.dto.MemoryReport;
+import com.codelry.redis.maptree.model.StorageModel;
+import com.codelry.redis.maptree.service.JsonFlattener;
+import com.codelry.redis.maptree.service.MapService;
+import com.codelry.redis.maptree.service.MapTreeService;
+import com.codelry.redis.maptree.service.MemoryProfiler;
+import com.codelry.redis.maptree.service.PathDictionary;
+import com.codelry.redis.maptree.service.RedisJsonService;
+import com.codelry.redis.maptree.service.SchemaCache;
+import com.codelry.redis.maptree.service.SessionService;
+import com.codelry.redis.maptree.service.TextValueCodec;
+import com.google.gson.Gson;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+public final class EstimatorCli {
+
+  private static final String USAGE =
+      "usage: EstimatorCli <sample.ndjson> [--limit <n>] [--redis <host:port>] [--key-prefix <prefix>]";
+
+  private final MemoryEstimator estimator = new MemoryEstimator();
+  private final Map<StorageModel, Totals> totals = new EnumMap<>(StorageModel.class);
+
+  private EstimatorCli() {
+    for (StorageModel model : StorageModel.values()) {
+      totals.put(model, new Totals());
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path sample = null;
+    long limit = Long.MAX_VALUE;
+    String redis = null;
+    String keyPrefix = "estimate:";
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--limit" -> limit = Long.parseLong(value(args, ++i));
+        case "--redis" -> redis = value(args, ++i);
+        case "--key-prefix" -> keyPrefix = value(args, ++i);
+        default -> {
+          if (sample != null || args[i].startsWith("--")) {
+            throw new IllegalArgumentException(USAGE);
+          }
+          sample = Path.of(args[i]);
+        }
+      }
+    }
+    if (sample == null) {
+      throw new IllegalArgumentException(USAGE);
+    }
+
+    EstimatorCli cli = new EstimatorCli();
+    if (redis == null) {
+      cli.run(sample, limit, keyPrefix, null);
+    } else {
+      try (Target target = new Target(redis)) {
+        cli.run(sample, limit, keyPrefix, target);
+      }
+    }
+    cli.print(redis);
+  }
+
+  private void run(Path sample, long limit, String keyPrefix, Target target) throws IOException {
+    long documents = 0;
+    try (BufferedReader reader = Files.newBufferedReader(sample, StandardCharsets.UTF_8)) {
+      String line;
+      while (documents < limit && (line = reader.readLine()) != null) {
+        if (line.isBlank()) {
+          continue;
+        }
+        byte[] document = line.getBytes(StandardCharsets.UTF_8);
+        Map<String, String> paths = JsonFlattener.mapPaths(document);
+        Map<String, Object> tree = JsonFlattener.mapPathTree(document);
+        for (StorageModel model : StorageModel.values()) {
+          String key = keyPrefix + model.tag() + ":" + documents;
+          MemoryEstimator.ModelEstimate estimate = switch (model) {
+            case JSON -> estimator.json(key, paths);
+            case MAP -> estimator.map(key, paths);
+            case TREE -> estimator.tree(key, tree);
+          };
+          Long measured = target != null ? target.measure(model, key, document, paths.size()) : null;
+          totals.get(model).add(estimate, measured);
+        }
+        documents += 1;
+      }
+    }
+  }
+
+  private void print(String target) {
+    System.out.printf("%-6s %10s %14s %14s %8s %s%n", "model", "documents", "estimated/doc", "measured/doc", "error", "encodings");
+    for (Map.Entry<StorageModel, Totals> entry : totals.entrySet()) {
+      Totals model = entry.getValue();
+      if (model.documents == 0) {
+        continue;
+      }
+      double estimated = (double) model.estimated / model.documents;
+      String measured = "-";
+      String error = "-";
+      if (model.measuredDocuments > 0) {
+        double actual = (double) model.measured / model.measuredDocuments;
+        measured = String.format("%.1f", actual);
+        error = actual > 0 ? String.format("%+.1f%%", (estimated - actual) / actual * 100) : "-";
+      }
+      System.out.printf("%-6s %10d %14.1f %14s %8s %s%n",
+          entry.getKey().tag(), model.documents, estimated, measured, error, model.encodings);
+    }
+    if (target != null) {
+      System.out.printf("measured against %s%n", target);
+    }
+  }
+
+  private static String value(String[] args, int index) {
+    if (index >= args.length) {
+      throw new IllegalArgumentException(USAGE);
+    }
+    return args[index];
+  }
+
+  private static final class Totals {
+    private long documents;
+    private long estimated;
+    private long measuredDocuments;
+    private long measured;
+    private final Map<String, Long> encodings = new TreeMap<>();
+
+    void add(MemoryEstimator.ModelEstimate estimate, Long bytes) {
+      documents += 1;
+      estimated += estimate.bytes();
+      estimate.encodings().forEach((encoding, count) -> encodings.merge(encoding, (long) count, Long::sum));
+      if (bytes != null) {
+        measuredDocuments += 1;
+        measured += bytes;
+      }
+    }
+  }
+
+  // records are written by the same services the API uses, with text values and no path dictionary to match the estimate
+  private static final class Target implements AutoCloseable {
+    private final LettuceConnectionFactory connectionFactory;
+    private final SessionService jsonService;
+    private final MapService mapService;
+    private final MapTreeService treeService;
+    private final MemoryProfiler profiler;
+    private final RedisTemplate<String, String> redisTemplate;
+
+    Target(String redis) {
+      int separator = redis.lastIndexOf(':');
+      if (separator <= 0) {
+        throw new IllegalArgumentException(USAGE);
+      }
+      connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(
+          redis.substring(0, separator), Integer.parseInt(redis.substring(separator + 1))));
+      connectionFactory.afterPropertiesSet();
+
+      redisTemplate = new RedisTemplate<>();
+      redisTemplate.setConnectionFactory(connectionFactory);
+      redisTemplate.setDefaultSerializer(new StringRedisSerializer());
+      redisTemplate.afterPropertiesSet();
+
+      MeterRegistry meterRegistry = new SimpleMeterRegistry();
+      SchemaCache schemaCache = new SchemaCache(new SchemaCacheProperties(), meterRegistry);
+      PathDictionaryProperties dictionaryProperties = new PathDictionaryProperties();
+      dictionaryProperties.setEnabled(false);
+      PathDictionary pathDictionary = new PathDictionary(redisTemplate, dictionaryProperties);
+      jsonService = new SessionService(new RedisJsonService(connectionFactory, new Gson()),
+          new RetryTemplate(), new BatchProperties(), DiagnosticsSink.disabled(), meterRegistry);
+      mapService = new MapService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+          schemaCache, pathDictionary, new TextValueCodec(), DiagnosticsSink.disabled(), meterRegistry);
+      treeService = new MapTreeService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+          schemaCache, pathDictionary, new TextValueCodec(), DiagnosticsSink.disabled(), meterRegistry);
+      profiler = new MemoryProfiler(redisTemplate, treeService, meterRegistry);
+    }
+
+    long measure(StorageModel model, String key, byte[] document, int leaves) {
+      switch (model) {
+        case JSON -> jsonService.createRecord(key, document, false);
+        case MAP -> mapService.createRecord(key, document, false);
+        case TREE -> treeService.createRecord(key, document, false);
+      }
+      MemoryReport report = profiler.profile(model, key, leaves);
+      redisTemplate.delete(report.getEntries().stream().map(MemoryReport.KeyUsage::getKey).toList());
+      return report.getBytes();
+    }
+
+    @Override
+    public void close() {
+      connectionFactory.destroy();
+    }
+  }
+}
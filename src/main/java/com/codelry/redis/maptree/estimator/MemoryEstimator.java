@@ -0,0 +1,329 @@
+package com.codelry.redis.maptree.estimator;
+
+import com.codelry.redis.maptree.model.StorageModel;
+import com.codelry.redis.maptree.service.FlatPath;
+import com.codelry.redis.maptree.service.JsonFlattener;
+import com.codelry.redis.maptree.service.MapTreeService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Predicts MEMORY USAGE under Redis 7.2 on 64-bit jemalloc builds: listpack entry sizes and conversion thresholds
+// for hashes and lists, and RedisJSON costed after its ijson value layout, the roughest part of the estimate.
+public class MemoryEstimator {
+
+  static final int ROBJ = 16;
+  static final int DICT_ENTRY = 24;
+  static final int DICT = 56;
+  static final int QUICKLIST = 40;
+  static final int QUICKLIST_NODE = 32;
+  static final int LISTPACK_HEADER = 6;
+
+  static final int JSON_HEADER = 16;
+  static final int JSON_POINTER = 8;
+  static final int JSON_MEMBER = 24;
+
+  private final Limits limits;
+
+  public MemoryEstimator() {
+    this(Limits.defaults());
+  }
+
+  public MemoryEstimator(Limits limits) {
+    this.limits = limits;
+  }
+
+  public record Limits(int hashMaxListpackEntries, int hashMaxListpackValue, int listMaxListpackBytes) {
+    public static Limits defaults() {
+      return new Limits(128, 64, 8192);
+    }
+  }
+
+  public record ModelEstimate(long bytes, int keys, Map<String, Integer> encodings) {
+  }
+
+  public Map<StorageModel, ModelEstimate> estimate(String key, byte[] document) {
+    Map<StorageModel, ModelEstimate> estimates = new EnumMap<>(StorageModel.class);
+    Map<String, String> paths = JsonFlattener.mapPaths(document);
+    estimates.put(StorageModel.JSON, json(key, paths));
+    estimates.put(StorageModel.MAP, map(key, paths));
+    estimates.put(StorageModel.TREE, tree(key, JsonFlattener.mapPathTree(document)));
+    return estimates;
+  }
+
+  // values may be plain strings or the bytes a ValueCodec writes; either is costed as the bytes Redis would hold
+  public ModelEstimate map(String key, Map<String, ?> fields) {
+    Map<String, byte[]> hash = new HashMap<>();
+    fields.forEach((field, value) -> hash.put(field, bytes(value)));
+    Estimate estimate = new Estimate();
+    estimate.add(key, hash(hash), hashEncoding(hash));
+    return estimate.result();
+  }
+
+  public ModelEstimate list(String key, List<?> items) {
+    List<byte[]> values = items.stream().map(MemoryEstimator::bytes).toList();
+    Estimate estimate = new Estimate();
+    estimate.add(key, list(values), listEncoding(values));
+    return estimate.result();
+  }
+
+  public ModelEstimate string(String key, byte[] value) {
+    Estimate estimate = new Estimate();
+    if (value.length <= 20 && listpackInteger(new String(value, StandardCharsets.UTF_8)) != null) {
+      estimate.add(key, ROBJ, "int");
+    } else if (value.length <= 44) {
+      // embstr keeps the object header and an sdshdr8 in one allocation
+      estimate.add(key, malloc(ROBJ + 3 + value.length + 1), "embstr");
+    } else {
+      estimate.add(key, ROBJ + sds(value.length), "raw");
+    }
+    return estimate.result();
+  }
+
+  public ModelEstimate tree(String key, Map<String, Object> tree) {
+    Estimate estimate = new Estimate();
+    Map<String, byte[]> manifest = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> node : tree.entrySet()) {
+      String nodeKey = key + ":" + node.getKey();
+      if (node.getValue() instanceof Map<?, ?> hash) {
+        Map<String, byte[]> fields = new HashMap<>();
+        hash.forEach((field, value) -> fields.put(String.valueOf(field), bytes(value)));
+        estimate.add(nodeKey, hash(fields), hashEncoding(fields));
+        manifest.put(node.getKey(), bytes("hash"));
+      } else if (node.getValue() instanceof List<?> list) {
+        List<byte[]> items = list.stream().map(MemoryEstimator::bytes).toList();
+        estimate.add(nodeKey, list(items), listEncoding(items));
+        manifest.put(node.getKey(), bytes("list"));
+      }
+    }
+    if (!manifest.isEmpty()) {
+      estimate.add(key + ":" + MapTreeService.MANIFEST_NODE, hash(manifest), hashEncoding(manifest));
+    }
+    return estimate.result();
+  }
+
+  public ModelEstimate json(String key, Map<String, String> paths) {
+    // rebuild the container shape from the flattened paths: object member names and array lengths
+    Map<String, Set<String>> objects = new HashMap<>();
+    Map<String, Integer> arrays = new HashMap<>();
+    Set<String> names = new HashSet<>();
+    long bytes = 0;
+    for (Map.Entry<String, String> leaf : paths.entrySet()) {
+      List<FlatPath.Segment> segments = FlatPath.parse(leaf.getKey()).segments();
+      StringBuilder parent = new StringBuilder();
+      for (FlatPath.Segment segment : segments) {
+        if (segment.isIndex()) {
+          arrays.merge(parent.toString(), segment.index() + 1, Math::max);
+          parent.append('[').append(segment.index()).append(']');
+        } else {
+          objects.computeIfAbsent(parent.toString(), container -> new HashSet<>()).add(segment.name());
+          names.add(segment.name());
+          if (!parent.isEmpty()) {
+            parent.append('.');
+          }
+          parent.append(segment.name());
+        }
+      }
+      bytes += jsonLeaf(leaf.getValue());
+    }
+    for (Set<String> members : objects.values()) {
+      bytes += malloc(JSON_HEADER + (long) JSON_MEMBER * members.size());
+    }
+    for (int length : arrays.values()) {
+      bytes += malloc(JSON_HEADER + (long) JSON_POINTER * length);
+    }
+    // member names are interned strings, stored once however often they repeat
+    for (String name : names) {
+      bytes += jsonString(name);
+    }
+
+    Estimate estimate = new Estimate();
+    estimate.add(key, ROBJ + bytes, "raw");
+    return estimate.result();
+  }
+
+  long hash(Map<String, byte[]> fields) {
+    if (hashEncoding(fields).equals("listpack")) {
+      long listpack = LISTPACK_HEADER + 1;
+      for (Map.Entry<String, byte[]> field : fields.entrySet()) {
+        listpack += listpackEntry(bytes(field.getKey())) + listpackEntry(field.getValue());
+      }
+      return ROBJ + malloc(listpack);
+    }
+    long bytes = ROBJ + DICT + 8L * buckets(fields.size());
+    for (Map.Entry<String, byte[]> field : fields.entrySet()) {
+      bytes += sds(utf8(field.getKey())) + sds(field.getValue().length) + DICT_ENTRY;
+    }
+    return bytes;
+  }
+
+  String hashEncoding(Map<String, byte[]> fields) {
+    if (fields.size() > limits.hashMaxListpackEntries()) {
+      return "hashtable";
+    }
+    for (Map.Entry<String, byte[]> field : fields.entrySet()) {
+      if (utf8(field.getKey()) > limits.hashMaxListpackValue() || field.getValue().length > limits.hashMaxListpackValue()) {
+        return "hashtable";
+      }
+    }
+    return "listpack";
+  }
+
+  long list(List<byte[]> items) {
+    long listpack = LISTPACK_HEADER + 1;
+    for (byte[] item : items) {
+      listpack += listpackEntry(item);
+    }
+    if (listpack <= limits.listMaxListpackBytes()) {
+      return ROBJ + malloc(listpack);
+    }
+
+    long bytes = ROBJ + QUICKLIST;
+    long node = LISTPACK_HEADER + 1;
+    for (byte[] item : items) {
+      long entry = listpackEntry(item);
+      if (node > LISTPACK_HEADER + 1 && node + entry > limits.listMaxListpackBytes()) {
+        bytes += QUICKLIST_NODE + malloc(node);
+        node = LISTPACK_HEADER + 1;
+      }
+      node += entry;
+    }
+    return bytes + QUICKLIST_NODE + malloc(node);
+  }
+
+  String listEncoding(List<byte[]> items) {
+    long listpack = LISTPACK_HEADER + 1;
+    for (byte[] item : items) {
+      listpack += listpackEntry(item);
+    }
+    return listpack <= limits.listMaxListpackBytes() ? "listpack" : "quicklist";
+  }
+
+  static long listpackEntry(byte[] value) {
+    long encoded;
+    Long integer = value.length <= 20 ? listpackInteger(new String(value, StandardCharsets.UTF_8)) : null;
+    if (integer != null) {
+      long v = integer;
+      if (v >= 0 && v <= 127) {
+        encoded = 1;
+      } else if (v >= -4096 && v <= 4095) {
+        encoded = 2;
+      } else if (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE) {
+        encoded = 3;
+      } else if (v >= -8388608 && v <= 8388607) {
+        encoded = 4;
+      } else if (v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE) {
+        encoded = 5;
+      } else {
+        encoded = 9;
+      }
+    } else {
+      int length = value.length;
+      encoded = length + (length < 64 ? 1 : length < 4096 ? 2 : 5);
+    }
+    return encoded + backlen(encoded);
+  }
+
+  // listpack stores a string as an integer only when it reads back byte for byte
+  private static Long listpackInteger(String value) {
+    if (value.isEmpty() || value.length() > 20) {
+      return null;
+    }
+    try {
+      long parsed = Long.parseLong(value);
+      return Long.toString(parsed).equals(value) ? parsed : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static int backlen(long encoded) {
+    if (encoded < 128) {
+      return 1;
+    } else if (encoded < 16384) {
+      return 2;
+    } else if (encoded < 2097152) {
+      return 3;
+    } else if (encoded < 268435456) {
+      return 4;
+    }
+    return 5;
+  }
+
+  static long jsonLeaf(String value) {
+    if (value.equals(JsonFlattener.NULL_VALUE) || value.equals("true") || value.equals("false")) {
+      return 0;
+    }
+    // flattened values carry no type, so numeric-looking text is costed as a number
+    Long integer = listpackInteger(value);
+    if (integer != null) {
+      return integer >= -128 && integer <= 383 ? 0 : integer >= -8388608 && integer <= 8388607 ? 8 : 16;
+    }
+    try {
+      Double.parseDouble(value);
+      return 16;
+    } catch (NumberFormatException e) {
+      return jsonString(value);
+    }
+  }
+
+  private static long jsonString(String value) {
+    return value.isEmpty() ? 0 : malloc(JSON_HEADER + utf8(value));
+  }
+
+  static long sds(int length) {
+    int header = length < 32 ? 1 : length < 256 ? 3 : length < 65536 ? 5 : 9;
+    return malloc(header + length + 1);
+  }
+
+  private static long buckets(int entries) {
+    long size = 4;
+    while (size < entries) {
+      size <<= 1;
+    }
+    return size;
+  }
+
+  // jemalloc size classes: 8, then 16-byte steps to 128, then four classes per doubling
+  static long malloc(long size) {
+    if (size <= 8) {
+      return 8;
+    }
+    if (size <= 128) {
+      return (size + 15) & ~15L;
+    }
+    long group = Long.highestOneBit(size - 1);
+    long step = group / 4;
+    return (size + step - 1) / step * step;
+  }
+
+  private static int utf8(String value) {
+    return value.getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  private static byte[] bytes(Object value) {
+    return value instanceof byte[] raw ? raw : String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static final class Estimate {
+    private long bytes;
+    private int keys;
+    private final Map<String, Integer> encodings = new LinkedHashMap<>();
+
+    void add(String key, long valueBytes, String encoding) {
+      bytes += valueBytes + sds(utf8(key)) + DICT_ENTRY;
+      keys += 1;
+      encodings.merge(encoding, 1, Integer::sum);
+    }
+
+    ModelEstimate result() {
+      return new ModelEstimate(bytes, keys, encodings);
+    }
+  }
+}
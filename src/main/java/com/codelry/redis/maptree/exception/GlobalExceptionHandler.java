@@ -46,4 +46,28 @@ public class GlobalExceptionHandler {
     );
     return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
   }
+
+  @ExceptionHandler(RecordNotFoundException.class)
+  public ResponseEntity<ErrorResponse> handleRecordNotFoundException(RecordNotFoundException ex, WebRequest request) {
+    logger.info(ex.getMessage());
+
+    ErrorResponse errorResponse = new ErrorResponse(
+        "Not Found",
+        ex.getMessage(),
+        request.getDescription(false).replace("uri=", "")
+    );
+    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+  }
+
+  @ExceptionHandler(PatchConflictException.class)
+  public ResponseEntity<ErrorResponse> handlePatchConflictException(PatchConflictException ex, WebRequest request) {
+    logger.warn(ex.getMessage());
+
+    ErrorResponse errorResponse = new ErrorResponse(
+        "Conflict",
+        ex.getMessage(),
+        request.getDescription(false).replace("uri=", "")
+    );
+    return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+  }
 }
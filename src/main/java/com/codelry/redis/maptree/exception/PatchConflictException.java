@@ -0,0 +1,8 @@
+package com.codelry.redis.maptree.exception;
+
+public class PatchConflictException extends RuntimeException {
+
+  public PatchConflictException(String key, int attempts) {
+    super("Record " + key + " kept changing while it was patched, gave up after " + attempts + " attempts");
+  }
+}
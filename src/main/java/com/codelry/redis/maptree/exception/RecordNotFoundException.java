@@ -0,0 +1,12 @@
+package com.codelry.redis.maptree.exception;
+
+public class RecordNotFoundException extends RuntimeException {
+
+  public RecordNotFoundException(String key) {
+    super("Record not found: " + key);
+  }
+
+  public RecordNotFoundException(String key, String path) {
+    super("Path not found in record " + key + ": " + path);
+  }
+}
@@ -0,0 +1,143 @@
+package com.codelry.redis.maptree.generator;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+public class DocumentGenerator {
+
+  private static final char[] KEY_CHARS = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+  private static final char[] VALUE_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+  private final DocumentProfile profile;
+
+  public DocumentGenerator(DocumentProfile profile) {
+    if (profile.getDepth() < 1 || profile.getFanout() < 1 || profile.getArrayLength() < 0) {
+      throw new IllegalArgumentException("Document profile needs depth >= 1, fanout >= 1 and arrayLength >= 0");
+    }
+    this.profile = profile;
+  }
+
+  public DocumentProfile getProfile() {
+    return profile;
+  }
+
+  public byte[] generate(long index) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      write(index, out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  public void write(long index, OutputStream out) throws IOException {
+    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    write(index, writer);
+    writer.flush();
+  }
+
+  public void write(long index, Path file) throws IOException {
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+      write(index, out);
+    }
+  }
+
+  public void writeNdjson(long count, OutputStream out) throws IOException {
+    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    for (long index = 0; index < count; index++) {
+      write(index, writer);
+      writer.write('\n');
+    }
+    writer.flush();
+  }
+
+  public void writeNdjson(long count, Path file) throws IOException {
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+      writeNdjson(count, out);
+    }
+  }
+
+  private void write(long index, Writer out) throws IOException {
+    SplittableRandom random = new SplittableRandom(profile.getSeed() + index * GOLDEN_GAMMA);
+    JsonWriter writer = new JsonWriter(out);
+    writeObject(writer, random, 1);
+    writer.flush();
+  }
+
+  private void writeObject(JsonWriter writer, SplittableRandom random, int level) throws IOException {
+    writer.beginObject();
+    int fanout = profile.getFanout();
+    for (int i = 0; i < fanout; i++) {
+      writer.name(key(random, i));
+      // the last member below the depth limit is always an object so documents reach the configured depth
+      if (i == fanout - 1 && level < profile.getDepth()) {
+        writeObject(writer, random, level + 1);
+      } else {
+        writeMember(writer, random, level);
+      }
+    }
+    writer.endObject();
+  }
+
+  private void writeMember(JsonWriter writer, SplittableRandom random, int level) throws IOException {
+    if (level < profile.getDepth()) {
+      double choice = random.nextDouble();
+      if (choice < profile.getNestingRatio()) {
+        writeObject(writer, random, level + 1);
+        return;
+      }
+      if (choice < profile.getNestingRatio() + profile.getArrayRatio()) {
+        writeArray(writer, random, level);
+        return;
+      }
+    }
+    writePrimitive(writer, random);
+  }
+
+  private void writeArray(JsonWriter writer, SplittableRandom random, int level) throws IOException {
+    boolean objects = random.nextDouble() < profile.getObjectArrayRatio();
+    writer.beginArray();
+    for (int i = 0; i < profile.getArrayLength(); i++) {
+      if (objects) {
+        writeObject(writer, random, level + 1);
+      } else {
+        writePrimitive(writer, random);
+      }
+    }
+    writer.endArray();
+  }
+
+  private void writePrimitive(JsonWriter writer, SplittableRandom random) throws IOException {
+    if (random.nextDouble() < profile.getNumericRatio()) {
+      writer.value(random.nextLong(1_000_000_000L));
+    } else {
+      writer.value(text(random, VALUE_CHARS, profile.getValueSize()));
+    }
+  }
+
+  private String key(SplittableRandom random, int index) {
+    String suffix = Integer.toString(index);
+    return text(random, KEY_CHARS, Math.max(1, profile.getKeyLength() - suffix.length())) + suffix;
+  }
+
+  private static String text(SplittableRandom random, char[] alphabet, int length) {
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = alphabet[random.nextInt(alphabet.length)];
+    }
+    return new String(chars);
+  }
+}
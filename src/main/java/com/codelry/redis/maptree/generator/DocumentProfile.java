@@ -0,0 +1,135 @@
+package com.codelry.redis.maptree.generator;
+
+public class DocumentProfile {
+
+  private long seed = 42L;
+  private int depth = 3;
+  private int fanout = 8;
+  private int arrayLength = 4;
+  private double nestingRatio = 0.2;
+  private double arrayRatio = 0.1;
+  private double objectArrayRatio = 0.5;
+  private int keyLength = 8;
+  private int valueSize = 16;
+  private double numericRatio = 0.3;
+
+  public static DocumentProfile wide(int fields) {
+    DocumentProfile profile = new DocumentProfile();
+    profile.setDepth(1);
+    profile.setFanout(fields);
+    profile.setNestingRatio(0);
+    profile.setArrayRatio(0);
+    return profile;
+  }
+
+  public static DocumentProfile deep(int depth) {
+    DocumentProfile profile = new DocumentProfile();
+    profile.setDepth(depth);
+    profile.setFanout(3);
+    profile.setNestingRatio(0);
+    profile.setArrayRatio(0);
+    return profile;
+  }
+
+  public static DocumentProfile objectArray(int length) {
+    DocumentProfile profile = new DocumentProfile();
+    profile.setDepth(2);
+    profile.setFanout(2);
+    profile.setArrayLength(length);
+    profile.setNestingRatio(0);
+    profile.setArrayRatio(1);
+    profile.setObjectArrayRatio(1);
+    return profile;
+  }
+
+  public static DocumentProfile primitiveArray(int length) {
+    DocumentProfile profile = new DocumentProfile();
+    profile.setDepth(2);
+    profile.setFanout(2);
+    profile.setArrayLength(length);
+    profile.setNestingRatio(0);
+    profile.setArrayRatio(1);
+    profile.setObjectArrayRatio(0);
+    return profile;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public void setDepth(int depth) {
+    this.depth = depth;
+  }
+
+  public int getFanout() {
+    return fanout;
+  }
+
+  public void setFanout(int fanout) {
+    this.fanout = fanout;
+  }
+
+  public int getArrayLength() {
+    return arrayLength;
+  }
+
+  public void setArrayLength(int arrayLength) {
+    this.arrayLength = arrayLength;
+  }
+
+  public double getNestingRatio() {
+    return nestingRatio;
+  }
+
+  public void setNestingRatio(double nestingRatio) {
+    this.nestingRatio = nestingRatio;
+  }
+
+  public double getArrayRatio() {
+    return arrayRatio;
+  }
+
+  public void setArrayRatio(double arrayRatio) {
+    this.arrayRatio = arrayRatio;
+  }
+
+  public double getObjectArrayRatio() {
+    return objectArrayRatio;
+  }
+
+  public void setObjectArrayRatio(double objectArrayRatio) {
+    this.objectArrayRatio = objectArrayRatio;
+  }
+
+  public int getKeyLength() {
+    return keyLength;
+  }
+
+  public void setKeyLength(int keyLength) {
+    this.keyLength = keyLength;
+  }
+
+  public int getValueSize() {
+    return valueSize;
+  }
+
+  public void setValueSize(int valueSize) {
+    this.valueSize = valueSize;
+  }
+
+  public double getNumericRatio() {
+    return numericRatio;
+  }
+
+  public void setNumericRatio(double numericRatio) {
+    this.numericRatio = numericRatio;
+  }
+}
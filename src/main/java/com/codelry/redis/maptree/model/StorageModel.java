@@ -0,0 +1,26 @@
+package com.codelry.redis.maptree.model;
+
+public enum StorageModel {
+  JSON("json"),
+  MAP("map"),
+  TREE("tree");
+
+  private final String tag;
+
+  StorageModel(String tag) {
+    this.tag = tag;
+  }
+
+  public String tag() {
+    return tag;
+  }
+
+  public static StorageModel fromName(String name) {
+    for (StorageModel model : values()) {
+      if (model.tag.equalsIgnoreCase(name)) {
+        return model;
+      }
+    }
+    throw new IllegalArgumentException("Unknown storage model: " + name);
+  }
+}
@@ -0,0 +1,313 @@
+package com.codelry.redis.maptree.service;
+
+import com.codelry.redis.maptree.config.AutoModelProperties;
+import com.codelry.redis.maptree.estimator.MemoryEstimator;
+import com.codelry.redis.maptree.exception.RecordNotFoundException;
+import com.codelry.redis.maptree.model.Record;
+import com.codelry.redis.maptree.model.StorageModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@Service
+public class AutoModelService {
+
+  private static final Logger logger = LoggerFactory.getLogger(AutoModelService.class);
+
+  static final String MODEL_NODE = "__model__";
+  static final String SHADOW_NODE = "__shadow__";
+  static final String STAGING_NODE = "__staging__";
+
+  private static final StorageModel[] MODELS = StorageModel.values();
+
+  private final RedisTemplate<String, String> redisTemplate;
+  private final SessionService sessionService;
+  private final MapService mapService;
+  private final MapTreeService mapTreeService;
+  private final SchemaCache schemaCache;
+  private final PathDictionary pathDictionary;
+  private final ValueCodec valueCodec;
+  private final AutoModelProperties properties;
+  private final MeterRegistry meterRegistry;
+  private final MemoryEstimator estimator = new MemoryEstimator();
+
+  private final Map<String, ShapeStats> statistics = new ConcurrentHashMap<>();
+
+  @Autowired
+  public AutoModelService(RedisTemplate<String, String> redisTemplate,
+                          SessionService sessionService,
+                          MapService mapService,
+                          MapTreeService mapTreeService,
+                          SchemaCache schemaCache,
+                          PathDictionary pathDictionary,
+                          ValueCodec valueCodec,
+                          AutoModelProperties properties,
+                          MeterRegistry meterRegistry) {
+    this.redisTemplate = redisTemplate;
+    this.sessionService = sessionService;
+    this.mapService = mapService;
+    this.mapTreeService = mapTreeService;
+    this.schemaCache = schemaCache;
+    this.pathDictionary = pathDictionary;
+    this.valueCodec = valueCodec;
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+  }
+
+  public record DocumentShape(int depth, int leaves, int maxArray, int bytes) {
+    public String shapeClass() {
+      String depthClass = depth <= 2 ? "flat" : depth <= 5 ? "nested" : "deep";
+      String leafClass = leaves <= 32 ? "narrow" : leaves <= 256 ? "medium" : "wide";
+      String arrayClass = maxArray == 0 ? "scalar" : maxArray <= 16 ? "short" : "long";
+      String sizeClass = bytes <= 1024 ? "small" : bytes <= 16384 ? "medium" : "large";
+      return depthClass + "-" + leafClass + "-" + arrayClass + "-" + sizeClass;
+    }
+  }
+
+  public record Selection(Record record, StorageModel model, String shapeClass) {
+  }
+
+  public Selection createRecord(String key, byte[] requestBody) {
+    SchemaCache.ShapedDocument document = schemaCache.resolve(requestBody);
+    String shapeClass = shape(document.schema(), requestBody.length).shapeClass();
+    ShapeStats stats = statistics.computeIfAbsent(shapeClass, name -> new ShapeStats());
+
+    // memory is estimated offline for every model, so a class learns all three footprints from each sample it takes
+    if (stats.needsMemory(properties.getExplorationSamples())) {
+      stats.recordMemory(estimateMemory(key, document), properties.getSmoothing());
+    }
+
+    // exploration times a shadow copy, so a record only ever moves to the model its class has learned is best
+    StorageModel explored = stats.explore(properties);
+    if (explored != null) {
+      String shadowKey = key + ":" + SHADOW_NODE;
+      timedWrite(explored, shadowKey, requestBody, stats, shapeClass);
+      deleteRecord(explored, shadowKey);
+      meterRegistry.counter("record.auto.explored", Tags.of("model", explored.tag(), "shape", shapeClass)).increment();
+    }
+
+    StorageModel model = stats.choose(properties);
+    StorageModel previous = storedModel(key);
+    Record record;
+    if (previous == null || previous == model) {
+      record = timedWrite(model, key, requestBody, stats, shapeClass);
+      redisTemplate.opsForValue().set(modelKey(key), model.tag());
+    } else if (previous != StorageModel.TREE && model != StorageModel.TREE) {
+      // JSON and MAP records share the key, so the new one is staged and renamed over the old with its tag
+      String stagingKey = key + ":" + STAGING_NODE;
+      record = timedWrite(model, stagingKey, requestBody, stats, shapeClass);
+      record.setRecordId(key);
+      flip(key, model, connection -> connection.keyCommands().rename(raw(stagingKey), raw(key)));
+    } else {
+      // the new record is complete before the tag points at it, and the old keys go in the same transaction
+      record = timedWrite(model, key, requestBody, stats, shapeClass);
+      byte[][] previousKeys = recordKeys(previous, key).stream().map(AutoModelService::raw).toArray(byte[][]::new);
+      flip(key, model, connection -> {
+        if (previousKeys.length > 0) {
+          connection.keyCommands().del(previousKeys);
+        }
+      });
+      logger.debug("Removed {} record {} after it was stored as {}", previous.tag(), key, model.tag());
+    }
+    meterRegistry.counter("record.auto.selected", Tags.of("model", model.tag(), "shape", shapeClass)).increment();
+
+    logger.info("Stored record {} as {} for shape {}", key, model.tag(), shapeClass);
+    return new Selection(record, model, shapeClass);
+  }
+
+  public JsonOutput getRecord(String key) {
+    StorageModel model = storedModel(key);
+    if (model == null) {
+      throw new RecordNotFoundException(key);
+    }
+    return switch (model) {
+      case JSON -> sessionService.getRecord(key);
+      case MAP -> mapService.getRecord(key);
+      case TREE -> mapTreeService.getRecord(key);
+    };
+  }
+
+  public StorageModel storedModel(String key) {
+    String tag = redisTemplate.opsForValue().get(modelKey(key));
+    return tag != null ? StorageModel.fromName(tag) : null;
+  }
+
+  static DocumentShape shape(DocumentSchema schema, int bytes) {
+    int depth = 0;
+    int maxArray = 0;
+    for (String path : schema.paths()) {
+      FlatPath flatPath = FlatPath.parse(path);
+      depth = Math.max(depth, flatPath.depth());
+      for (FlatPath.Segment segment : flatPath.segments()) {
+        if (segment.isIndex()) {
+          maxArray = Math.max(maxArray, segment.index() + 1);
+        }
+      }
+    }
+    return new DocumentShape(depth, schema.slots(), maxArray, bytes);
+  }
+
+  private Record timedWrite(StorageModel model, String key, byte[] requestBody, ShapeStats stats, String shapeClass) {
+    long start = System.nanoTime();
+    Record record = switch (model) {
+      case JSON -> sessionService.createRecord(key, requestBody);
+      case MAP -> mapService.createRecord(key, requestBody);
+      case TREE -> mapTreeService.createRecord(key, requestBody);
+    };
+    long elapsed = System.nanoTime() - start;
+
+    stats.recordLatency(model, elapsed, properties.getSmoothing());
+    Timer.builder("record.auto.write.duration")
+        .description("Time taken to write a record through the model chosen for its shape")
+        .tags(Tags.of("model", model.tag(), "shape", shapeClass))
+        .register(meterRegistry)
+        .record(elapsed, TimeUnit.NANOSECONDS);
+    return record;
+  }
+
+  private void flip(String key, StorageModel model, Consumer<RedisConnection> previous) {
+    byte[] rawModelKey = raw(modelKey(key));
+    byte[] tag = raw(model.tag());
+    redisTemplate.execute((RedisCallback<Object>) connection -> {
+      connection.multi();
+      previous.accept(connection);
+      connection.stringCommands().set(rawModelKey, tag);
+      connection.exec();
+      return null;
+    });
+  }
+
+  // the estimate is taken over the bytes the services write: codec-encoded values under the names the dictionary already holds
+  private long[] estimateMemory(String key, SchemaCache.ShapedDocument document) {
+    Map<String, byte[]> fields = storedNames(document.mapPaths(valueCodec));
+    Map<String, Object> tree = storedNames(document.mapPathTree(valueCodec));
+    long[] bytes = new long[MODELS.length];
+    for (StorageModel model : MODELS) {
+      bytes[model.ordinal()] = switch (model) {
+        case JSON -> estimator.json(key, document.mapPaths()).bytes();
+        case MAP -> estimator.map(key, fields).bytes();
+        case TREE -> estimator.tree(key, tree).bytes();
+      };
+    }
+    return bytes;
+  }
+
+  // estimating never allocates IDs, so paths the dictionary has not seen yet are costed by their plain names
+  private <V> Map<String, V> storedNames(Map<String, V> fields) {
+    if (!pathDictionary.isEnabled()) {
+      return fields;
+    }
+    Map<String, String> tokens = pathDictionary.lookup(fields.keySet());
+    Map<String, V> stored = new LinkedHashMap<>(fields.size() * 4 / 3 + 1);
+    fields.forEach((path, value) -> stored.put(tokens.getOrDefault(path, path), value));
+    return stored;
+  }
+
+  private void deleteRecord(StorageModel model, String key) {
+    logger.debug("Removing {} record {}", model.tag(), key);
+    redisTemplate.delete(recordKeys(model, key));
+  }
+
+  private List<String> recordKeys(StorageModel model, String key) {
+    return model == StorageModel.TREE ? mapTreeService.recordKeys(key) : List.of(key);
+  }
+
+  private static String modelKey(String key) {
+    return key + ":" + MODEL_NODE;
+  }
+
+  private static byte[] raw(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static final class ShapeStats {
+    private final long[] samples = new long[MODELS.length];
+    private final double[] latency = new double[MODELS.length];
+    private final double[] memory = new double[MODELS.length];
+    private long memorySamples;
+
+    synchronized boolean needsMemory(int explorationSamples) {
+      return memorySamples < explorationSamples || ThreadLocalRandom.current().nextInt(16) == 0;
+    }
+
+    synchronized void recordMemory(long[] bytes, double smoothing) {
+      for (int i = 0; i < bytes.length; i++) {
+        memory[i] = memorySamples == 0 ? bytes[i] : memory[i] + smoothing * (bytes[i] - memory[i]);
+      }
+      memorySamples += 1;
+    }
+
+    synchronized void recordLatency(StorageModel model, long nanos, double smoothing) {
+      int i = model.ordinal();
+      latency[i] = samples[i] == 0 ? nanos : latency[i] + smoothing * (nanos - latency[i]);
+      samples[i] += 1;
+    }
+
+    synchronized StorageModel explore(AutoModelProperties properties) {
+      StorageModel leastSampled = MODELS[0];
+      for (StorageModel model : MODELS) {
+        if (samples[model.ordinal()] < samples[leastSampled.ordinal()]) {
+          leastSampled = model;
+        }
+      }
+      if (samples[leastSampled.ordinal()] < properties.getExplorationSamples()) {
+        return leastSampled;
+      }
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      if (random.nextDouble() < properties.getExplorationRate()) {
+        return MODELS[random.nextInt(MODELS.length)];
+      }
+      return null;
+    }
+
+    synchronized StorageModel choose(AutoModelProperties properties) {
+      // a model with no timed writes has no latency to compare, so it waits until exploration has sampled it
+      boolean anySampled = false;
+      for (long count : samples) {
+        anySampled |= count > 0;
+      }
+
+      // each cost is scored relative to the best model for the class, so nanoseconds and bytes weigh evenly
+      double minLatency = Double.MAX_VALUE;
+      double minMemory = Double.MAX_VALUE;
+      for (int i = 0; i < MODELS.length; i++) {
+        if (samples[i] > 0 || !anySampled) {
+          minLatency = Math.min(minLatency, latency[i]);
+          minMemory = Math.min(minMemory, memory[i]);
+        }
+      }
+      double weight = properties.getLatencyWeight();
+      StorageModel best = MODELS[0];
+      double bestScore = Double.MAX_VALUE;
+      for (StorageModel model : MODELS) {
+        int i = model.ordinal();
+        if (samples[i] == 0 && anySampled) {
+          continue;
+        }
+        double score = weight * latency[i] / Math.max(minLatency, 1)
+            + (1 - weight) * memory[i] / Math.max(minMemory, 1);
+        if (score < bestScore) {
+          bestScore = score;
+          best = model;
+        }
+      }
+      return best;
+    }
+  }
+}
@@ -0,0 +1,496 @@
+package com.codelry.redis.maptree.service;
+
+import com.codelry.redis.maptree.config.BenchmarkProperties;
+import com.codelry.redis.maptree.dto.BenchReport;
+import com.codelry.redis.maptree.dto.BenchRequest;
+import com.codelry.redis.maptree.generator.DocumentGenerator;
+import com.codelry.redis.maptree.generator.DocumentProfile;
+import com.codelry.redis.maptree.model.StorageModel;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+public class BenchmarkService implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(BenchmarkService.class);
+  private static final String KEY_PREFIX = "bench:";
+  private static final int CLEANUP_BATCH_SIZE = 1000;
+
+  private final SessionService sessionService;
+  private final MapService mapService;
+  private final MapTreeService mapTreeService;
+  private final ReactiveSessionService reactiveSessionService;
+  private final ReactiveMapService reactiveMapService;
+  private final ReactiveMapTreeService reactiveMapTreeService;
+  private final RedisTemplate<String, String> redisTemplate;
+  private final BenchmarkProperties properties;
+  // one run at a time, so concurrent benchmarks do not skew each other and no servlet thread waits on them
+  private final ExecutorService runner;
+
+  @Autowired
+  public BenchmarkService(SessionService sessionService,
+                          MapService mapService,
+                          MapTreeService mapTreeService,
+                          ReactiveSessionService reactiveSessionService,
+                          ReactiveMapService reactiveMapService,
+                          ReactiveMapTreeService reactiveMapTreeService,
+                          RedisTemplate<String, String> redisTemplate,
+                          BenchmarkProperties properties) {
+    this.sessionService = sessionService;
+    this.mapService = mapService;
+    this.mapTreeService = mapTreeService;
+    this.reactiveSessionService = reactiveSessionService;
+    this.reactiveMapService = reactiveMapService;
+    this.reactiveMapTreeService = reactiveMapTreeService;
+    this.redisTemplate = redisTemplate;
+    this.properties = properties;
+    this.runner = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "benchmark-runner");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  // the request is validated and capped on the caller's thread, so a bad request fails before it is queued
+  public CompletableFuture<BenchReport> submit(BenchRequest request) {
+    if (request.getConcurrency() < 1 || request.getDurationSeconds() < 1 || request.getWarmupSeconds() < 0
+        || request.getDocumentPool() < 1) {
+      throw new IllegalArgumentException("Benchmark needs concurrency >= 1, durationSeconds >= 1, warmupSeconds >= 0 and documentPool >= 1");
+    }
+    request.setConcurrency(Math.min(request.getConcurrency(), properties.getMaxConcurrency()));
+    request.setDurationSeconds(Math.min(request.getDurationSeconds(), properties.getMaxDurationSeconds()));
+    request.setWarmupSeconds(Math.min(request.getWarmupSeconds(), properties.getMaxWarmupSeconds()));
+    request.setDocumentPool(Math.min(request.getDocumentPool(), properties.getMaxDocumentPool()));
+    capProfile(request.getProfile());
+
+    List<StorageModel> models = new ArrayList<>();
+    for (String model : request.getModels()) {
+      models.add(StorageModel.fromName(model));
+    }
+    List<Stack> stacks = new ArrayList<>();
+    for (String stack : request.getStacks()) {
+      stacks.add(Stack.fromName(stack));
+    }
+    return CompletableFuture.supplyAsync(() -> run(request, models, stacks), runner);
+  }
+
+  // the generated document grows with every one of these, so each is bounded before any document is built
+  private void capProfile(DocumentProfile profile) {
+    if (profile == null) {
+      throw new IllegalArgumentException("Benchmark needs a document profile");
+    }
+    if (profile.getDepth() < 1 || profile.getFanout() < 1 || profile.getArrayLength() < 0 || profile.getKeyLength() < 0
+        || profile.getValueSize() < 0) {
+      throw new IllegalArgumentException("Document profile needs depth >= 1, fanout >= 1 and arrayLength, keyLength and valueSize >= 0");
+    }
+    if (!ratio(profile.getNestingRatio()) || !ratio(profile.getArrayRatio()) || !ratio(profile.getObjectArrayRatio())
+        || !ratio(profile.getNumericRatio())) {
+      throw new IllegalArgumentException("Document profile ratios must be between 0 and 1");
+    }
+    profile.setDepth(Math.min(profile.getDepth(), properties.getMaxDepth()));
+    profile.setFanout(Math.min(profile.getFanout(), properties.getMaxFanout()));
+    profile.setArrayLength(Math.min(profile.getArrayLength(), properties.getMaxArrayLength()));
+    profile.setKeyLength(Math.min(profile.getKeyLength(), properties.getMaxKeyLength()));
+    profile.setValueSize(Math.min(profile.getValueSize(), properties.getMaxValueSize()));
+  }
+
+  private static boolean ratio(double value) {
+    return value >= 0 && value <= 1;
+  }
+
+  private BenchReport run(BenchRequest request, List<StorageModel> models, List<Stack> stacks) {
+    String runId = UUID.randomUUID().toString().substring(0, 8);
+    DocumentGenerator generator = new DocumentGenerator(request.getProfile());
+    List<byte[]> documents = new ArrayList<>(request.getDocumentPool());
+    long totalBytes = 0;
+    for (int i = 0; i < request.getDocumentPool(); i++) {
+      byte[] document = generator.generate(i);
+      documents.add(document);
+      totalBytes += document.length;
+    }
+
+    BenchReport report = new BenchReport();
+    report.setRunId(runId);
+    report.setStartedAt(LocalDateTime.now());
+    report.setConcurrency(request.getConcurrency());
+    report.setDurationSeconds(request.getDurationSeconds());
+    report.setWarmupSeconds(request.getWarmupSeconds());
+    report.setAverageDocumentBytes(totalBytes / documents.size());
+
+    logger.info("Starting benchmark run {} for {} on {} with {} workers", runId, models, stacks,
+        request.getConcurrency());
+    try {
+      for (Stack stack : stacks) {
+        for (StorageModel model : models) {
+          report.getModels().add(runModel(runId, stack, model, request, documents));
+        }
+      }
+    } finally {
+      if (request.isCleanup()) {
+        report.setKeysRemoved(cleanup(runId));
+      }
+    }
+    logger.info("Finished benchmark run {}", runId);
+    return report;
+  }
+
+  private BenchReport.ModelReport runModel(String runId, Stack stack, StorageModel model, BenchRequest request,
+                                           List<byte[]> documents) {
+    String keyPrefix = KEY_PREFIX + runId + ":" + stack.tag + ":" + model.tag() + ":";
+    AtomicLong sequence = new AtomicLong();
+
+    if (request.getWarmupSeconds() > 0) {
+      drive(stack, model, request, documents, keyPrefix, sequence, request.getWarmupSeconds(), new Phases());
+    }
+
+    long commandsBefore = commandCalls();
+    long memoryBefore = usedMemory();
+
+    Phases phases = new Phases();
+    long cpuBefore = processCpuTime();
+    long start = System.nanoTime();
+    long completed = drive(stack, model, request, documents, keyPrefix, sequence, request.getDurationSeconds(), phases);
+    double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+    long cpuAfter = processCpuTime();
+
+    long commandsAfter = commandCalls();
+    long memoryAfter = usedMemory();
+
+    BenchReport.ModelReport report = new BenchReport.ModelReport();
+    report.setModel(model.tag());
+    report.setStack(stack.tag);
+    report.setDocuments(completed);
+    report.setThroughput(completed / elapsedSeconds);
+    if (cpuBefore >= 0 && cpuAfter > cpuBefore) {
+      report.setDocumentsPerCpuSecond(completed / ((cpuAfter - cpuBefore) / 1e9));
+    }
+    if (completed > 0 && commandsBefore >= 0 && commandsAfter >= 0) {
+      report.setCommandsPerDocument((double) (commandsAfter - commandsBefore) / completed);
+    }
+    if (completed > 0 && memoryBefore >= 0 && memoryAfter >= 0) {
+      report.setMemoryPerDocument((double) (memoryAfter - memoryBefore) / completed);
+    }
+    report.getPhases().put("write", phases.write.report(elapsedSeconds));
+    report.getPhases().put("read", phases.read.report(elapsedSeconds));
+    if (request.isVerify() && stack == Stack.BLOCKING) {
+      report.getPhases().put("verify", phases.verify.report(elapsedSeconds));
+    }
+    logger.info("Benchmark {} {}/{}: {} documents, {} docs/s", runId, stack.tag, model.tag(), completed,
+        String.format("%.1f", report.getThroughput()));
+    return report;
+  }
+
+  private long drive(Stack stack, StorageModel model, BenchRequest request, List<byte[]> documents, String keyPrefix,
+                     AtomicLong sequence, long seconds, Phases phases) {
+    return switch (stack) {
+      case BLOCKING -> driveBlocking(model, request, documents, keyPrefix, sequence, seconds, phases);
+      case REACTIVE -> driveReactive(model, request, documents, keyPrefix, sequence, seconds, phases);
+    };
+  }
+
+  private long driveBlocking(StorageModel model, BenchRequest request, List<byte[]> documents, String keyPrefix,
+                     AtomicLong sequence, long seconds, Phases phases) {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    LongAdder completed = new LongAdder();
+
+    Callable<Void> worker = () -> {
+      while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+        long index = sequence.getAndIncrement();
+        String key = keyPrefix + index;
+        byte[] document = documents.get((int) (index % documents.size()));
+
+        if (!phases.write.time(() -> write(model, key, document))) {
+          continue;
+        }
+        // a document only counts once every phase it went through succeeded
+        if (!phases.read.time(() -> read(model, key))) {
+          continue;
+        }
+        if (request.isVerify() && !phases.verify.time(() -> verify(model, key, document))) {
+          continue;
+        }
+        completed.increment();
+      }
+      return null;
+    };
+
+    ExecutorService executor = Executors.newFixedThreadPool(request.getConcurrency());
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < request.getConcurrency(); i++) {
+        futures.add(executor.submit(worker));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Benchmark interrupted", e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Benchmark worker failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    return completed.sum();
+  }
+
+  private long driveReactive(StorageModel model, BenchRequest request, List<byte[]> documents, String keyPrefix,
+                             AtomicLong sequence, long seconds, Phases phases) {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    Long completed = Flux.<Long>generate(sink -> {
+          if (System.nanoTime() < deadline) {
+            sink.next(sequence.getAndIncrement());
+          } else {
+            sink.complete();
+          }
+        })
+        .flatMap(index -> {
+          String key = keyPrefix + index;
+          byte[] document = documents.get((int) (index % documents.size()));
+          return phases.write.time(writeReactive(model, key, document))
+              .filter(Boolean::booleanValue)
+              .flatMap(written -> phases.read.time(readReactive(model, key)))
+              .filter(Boolean::booleanValue);
+        }, request.getConcurrency())
+        .count()
+        .block();
+    return completed != null ? completed : 0;
+  }
+
+  private void write(StorageModel model, String key, byte[] document) {
+    switch (model) {
+      case JSON -> sessionService.createRecord(key, document, false);
+      case MAP -> mapService.createRecord(key, document, false);
+      case TREE -> mapTreeService.createRecord(key, document, false);
+    }
+  }
+
+  private Mono<?> writeReactive(StorageModel model, String key, byte[] document) {
+    return switch (model) {
+      case JSON -> reactiveSessionService.createRecord(key, document);
+      case MAP -> reactiveMapService.createRecord(key, document);
+      case TREE -> reactiveMapTreeService.createRecord(key, document);
+    };
+  }
+
+  // the body is rendered as on the blocking path, so both stacks pay for reassembly
+  private Mono<?> readReactive(StorageModel model, String key) {
+    Mono<JsonOutput> output = switch (model) {
+      case JSON -> reactiveSessionService.getRecord(key);
+      case MAP -> reactiveMapService.getRecord(key);
+      case TREE -> reactiveMapTreeService.getRecord(key);
+    };
+    return output.doOnNext(document -> {
+      try {
+        document.writeTo(OutputStream.nullOutputStream());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  private void read(StorageModel model, String key) throws Exception {
+    JsonOutput output = switch (model) {
+      case JSON -> sessionService.getRecord(key);
+      case MAP -> mapService.getRecord(key);
+      case TREE -> mapTreeService.getRecord(key);
+    };
+    output.writeTo(OutputStream.nullOutputStream());
+  }
+
+  private void verify(StorageModel model, String key, byte[] document) {
+    switch (model) {
+      case JSON -> sessionService.subDocGet(key, document);
+      case MAP -> mapService.subDocGet(key, document);
+      case TREE -> mapTreeService.verifyRecord(key);
+    }
+  }
+
+  private static long processCpuTime() {
+    OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    if (os instanceof com.sun.management.OperatingSystemMXBean bean) {
+      return bean.getProcessCpuTime();
+    }
+    return -1;
+  }
+
+  private long commandCalls() {
+    Properties stats = info("commandstats");
+    if (stats == null || stats.isEmpty()) {
+      return -1;
+    }
+    long calls = 0;
+    for (String name : stats.stringPropertyNames()) {
+      if (!name.startsWith("cmdstat_") || name.equals("cmdstat_info")) {
+        continue;
+      }
+      for (String part : stats.getProperty(name).split(",")) {
+        if (part.startsWith("calls=")) {
+          calls += Long.parseLong(part.substring("calls=".length()));
+        }
+      }
+    }
+    return calls;
+  }
+
+  private long usedMemory() {
+    Properties stats = info("memory");
+    String usedMemory = stats != null ? stats.getProperty("used_memory") : null;
+    return usedMemory != null ? Long.parseLong(usedMemory.trim()) : -1;
+  }
+
+  private Properties info(String section) {
+    try {
+      return redisTemplate.execute((RedisCallback<Properties>) connection -> connection.serverCommands().info(section));
+    } catch (Exception e) {
+      logger.warn("INFO {} is not available: {}", section, e.getMessage());
+      return null;
+    }
+  }
+
+  private long cleanup(String runId) {
+    ScanOptions options = ScanOptions.scanOptions()
+        .match(KEY_PREFIX + runId + ":*")
+        .count(CLEANUP_BATCH_SIZE)
+        .build();
+
+    Long removed = redisTemplate.execute((RedisCallback<Long>) connection -> {
+      long total = 0;
+      List<byte[]> batch = new ArrayList<>(CLEANUP_BATCH_SIZE);
+      try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+        while (cursor.hasNext()) {
+          batch.add(cursor.next());
+          if (batch.size() == CLEANUP_BATCH_SIZE) {
+            total += unlink(connection, batch);
+            batch.clear();
+          }
+        }
+      }
+      if (!batch.isEmpty()) {
+        total += unlink(connection, batch);
+      }
+      return total;
+    });
+    logger.info("Removed {} keys for benchmark run {}", removed, runId);
+    return removed != null ? removed : 0;
+  }
+
+  private static long unlink(RedisConnection connection, List<byte[]> keys) {
+    Long count = connection.keyCommands().unlink(keys.toArray(new byte[0][]));
+    return count != null ? count : 0;
+  }
+
+  @Override
+  public void close() {
+    runner.shutdownNow();
+  }
+
+  @FunctionalInterface
+  private interface Operation {
+    void run() throws Exception;
+  }
+
+  private static final class Phase {
+    private final Histogram histogram = new ConcurrentHistogram(3);
+    private final LongAdder errors = new LongAdder();
+
+    boolean time(Operation operation) {
+      long start = System.nanoTime();
+      try {
+        operation.run();
+      } catch (Exception e) {
+        errors.increment();
+        logger.debug("Benchmark operation failed", e);
+        return false;
+      }
+      histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+      return true;
+    }
+
+    Mono<Boolean> time(Mono<?> operation) {
+      return Mono.defer(() -> {
+        long start = System.nanoTime();
+        return operation
+            .then(Mono.fromCallable(() -> {
+              histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+              return true;
+            }))
+            .onErrorResume(e -> {
+              errors.increment();
+              logger.debug("Benchmark operation failed", e);
+              return Mono.just(false);
+            });
+      });
+    }
+
+    BenchReport.PhaseReport report(double elapsedSeconds) {
+      BenchReport.PhaseReport report = new BenchReport.PhaseReport();
+      report.setCount(histogram.getTotalCount());
+      report.setErrors(errors.sum());
+      report.setThroughput(histogram.getTotalCount() / elapsedSeconds);
+      report.setMeanMicros(histogram.getMean());
+      report.setP50Micros(histogram.getValueAtPercentile(50));
+      report.setP99Micros(histogram.getValueAtPercentile(99));
+      report.setP999Micros(histogram.getValueAtPercentile(99.9));
+      report.setMaxMicros(histogram.getMaxValue());
+      return report;
+    }
+  }
+
+  private enum Stack {
+    BLOCKING("blocking"),
+    REACTIVE("reactive");
+
+    private final String tag;
+
+    Stack(String tag) {
+      this.tag = tag;
+    }
+
+    static Stack fromName(String name) {
+      for (Stack stack : values()) {
+        if (stack.tag.equalsIgnoreCase(name)) {
+          return stack;
+        }
+      }
+      throw new IllegalArgumentException("Unknown benchmark stack: " + name);
+    }
+  }
+
+  private static final class Phases {
+    private final Phase write = new Phase();
+    private final Phase read = new Phase();
+    private final Phase verify = new Phase();
+  }
+}
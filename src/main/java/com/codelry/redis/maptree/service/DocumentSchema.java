@@ -0,0 +1,264 @@
+package com.codelry.redis.maptree.service;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public final class DocumentSchema {
+
+    private final String[] paths;
+    private final Set<String> pathSet;
+    private final String[] nodes;
+    private final boolean[] listNodes;
+    private final int[] nodeSizes;
+    private final int[] slotNodes;
+    private final String[] slotFields;
+
+    private DocumentSchema(String[] paths, String[] treePaths) {
+        this.paths = paths;
+        this.pathSet = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(paths)));
+
+        // same grouping as JsonFlattener.putTreeValue: the first value decides whether a node is a hash or a list
+        Map<String, Integer> nodeIndex = new LinkedHashMap<>();
+        List<Boolean> lists = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        this.slotNodes = new int[treePaths.length];
+        this.slotFields = new String[treePaths.length];
+        for (int i = 0; i < treePaths.length; i++) {
+            String path = treePaths[i];
+            int dot = path.lastIndexOf('.');
+            String node = dot < 0 ? "root" : path.substring(0, dot);
+            String field = path.substring(dot + 1);
+            Integer index = nodeIndex.get(node);
+            if (index == null) {
+                index = nodeIndex.size();
+                nodeIndex.put(node, index);
+                lists.add(field.equals(StreamingJsonFlattener.LIST_ITEM));
+                sizes.add(0);
+            }
+            sizes.set(index, sizes.get(index) + 1);
+            slotNodes[i] = index;
+            slotFields[i] = field;
+        }
+        this.nodes = nodeIndex.keySet().toArray(new String[0]);
+        this.listNodes = new boolean[nodes.length];
+        this.nodeSizes = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            listNodes[i] = lists.get(i);
+            nodeSizes[i] = sizes.get(i);
+        }
+    }
+
+    public static DocumentSchema build(byte[] json) {
+        return shape(json).schema();
+    }
+
+    public int slots() {
+        return paths.length;
+    }
+
+    public Set<String> paths() {
+        return pathSet;
+    }
+
+    public List<String> nodes() {
+        return List.of(nodes);
+    }
+
+    public <T> Map<String, T> mapPaths(T[] values) {
+        Map<String, T> map = new HashMap<>(capacity(paths.length));
+        for (int i = 0; i < paths.length; i++) {
+            map.put(paths[i], values[i]);
+        }
+        return map;
+    }
+
+    public <T> Map<String, Object> mapPathTree(T[] values) {
+        Object[] containers = new Object[nodes.length];
+        Map<String, Object> tree = new HashMap<>(capacity(nodes.length));
+        for (int i = 0; i < nodes.length; i++) {
+            containers[i] = listNodes[i] ? new ArrayList<T>(nodeSizes[i]) : new HashMap<String, Object>(capacity(nodeSizes[i]));
+            tree.put(nodes[i], containers[i]);
+        }
+        for (int i = 0; i < slotNodes.length; i++) {
+            int node = slotNodes[i];
+            if (listNodes[node]) {
+                @SuppressWarnings("unchecked")
+                List<T> list = (List<T>) containers[node];
+                list.add(values[i]);
+            } else {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> hash = (Map<String, Object>) containers[node];
+                hash.put(slotFields[i], values[i]);
+            }
+        }
+        return tree;
+    }
+
+    private static int capacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+
+    public static Scan scan(byte[] json) {
+        return read(json, new Scanner(false));
+    }
+
+    // one pass that also collects the flat and tree paths, so the scan carries its schema
+    public static Scan shape(byte[] json) {
+        return read(json, new Scanner(true));
+    }
+
+    private static Scan read(byte[] json, Scanner scanner) {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8))) {
+            reader.setStrictness(Strictness.LENIENT);
+            try {
+                reader.peek();
+            } catch (EOFException e) {
+                scanner.leaf('n', JsonToken.NULL, JsonFlattener.NULL_VALUE);
+                return scanner.result();
+            }
+            scanner.read(reader);
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonSyntaxException("Did not consume the entire document.");
+            }
+        } catch (MalformedJsonException | EOFException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return scanner.result();
+    }
+
+    // the full token stream of names and containers, so equal fingerprints always mean equal schemas
+    public record Fingerprint(String structure) {
+    }
+
+    // schema is null unless the document was read with shape()
+    public record Scan(Fingerprint fingerprint, String[] values, JsonToken[] kinds, DocumentSchema schema) {
+    }
+
+    private static final class Scanner {
+        private final StringBuilder structure = new StringBuilder();
+        private final StringBuilder flat;
+        private final StringBuilder tree;
+        private final List<String> paths;
+        private final List<String> treePaths;
+        private String[] values = new String[64];
+        private JsonToken[] kinds = new JsonToken[64];
+        private int slots;
+
+        Scanner(boolean collectPaths) {
+            this.flat = collectPaths ? new StringBuilder() : null;
+            this.tree = collectPaths ? new StringBuilder() : null;
+            this.paths = collectPaths ? new ArrayList<>() : null;
+            this.treePaths = collectPaths ? new ArrayList<>() : null;
+        }
+
+        void read(JsonReader reader) throws IOException {
+            switch (reader.peek()) {
+                case BEGIN_OBJECT -> {
+                    structure.append('{');
+                    int flatMark = flat == null ? 0 : flat.length();
+                    int treeMark = tree == null ? 0 : tree.length();
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String name = reader.nextName();
+                        // length prefix keeps the token stream unambiguous whatever the names contain
+                        structure.append(name.length()).append('"').append(name).append(':');
+                        if (flat != null) {
+                            // same joins as StreamingJsonFlattener.read
+                            appendName(flat, flatMark, name);
+                            appendName(tree, treeMark, name);
+                        }
+                        read(reader);
+                        if (flat != null) {
+                            flat.setLength(flatMark);
+                            tree.setLength(treeMark);
+                        }
+                    }
+                    reader.endObject();
+                    structure.append('}');
+                }
+                case BEGIN_ARRAY -> {
+                    structure.append('[');
+                    int flatMark = flat == null ? 0 : flat.length();
+                    int treeMark = tree == null ? 0 : tree.length();
+                    reader.beginArray();
+                    int index = 0;
+                    while (reader.hasNext()) {
+                        if (flat != null) {
+                            flat.append('[').append(index).append(']');
+                            if (StreamingJsonFlattener.isPrimitive(reader.peek())) {
+                                tree.append('.').append(StreamingJsonFlattener.LIST_ITEM);
+                            } else {
+                                tree.append('[').append(index).append(']');
+                            }
+                        }
+                        read(reader);
+                        if (flat != null) {
+                            flat.setLength(flatMark);
+                            tree.setLength(treeMark);
+                        }
+                        structure.append(',');
+                        index++;
+                    }
+                    reader.endArray();
+                    structure.append(']');
+                }
+                case NULL -> {
+                    reader.nextNull();
+                    leaf('n', JsonToken.NULL, JsonFlattener.NULL_VALUE);
+                }
+                case BOOLEAN -> leaf('v', JsonToken.BOOLEAN, reader.nextBoolean() ? "true" : "false");
+                case NUMBER -> leaf('v', JsonToken.NUMBER, reader.nextString());
+                default -> leaf('v', JsonToken.STRING, reader.nextString());
+            }
+        }
+
+        private static void appendName(StringBuilder path, int mark, String name) {
+            if (mark > 0) {
+                path.append('.');
+            }
+            path.append(name);
+        }
+
+        void leaf(char marker, JsonToken kind, String value) {
+            structure.append(marker);
+            if (flat != null) {
+                paths.add(flat.toString());
+                treePaths.add(tree.toString());
+            }
+            if (slots == values.length) {
+                values = Arrays.copyOf(values, slots * 2);
+                kinds = Arrays.copyOf(kinds, slots * 2);
+            }
+            kinds[slots] = kind;
+            values[slots++] = value;
+        }
+
+        Scan result() {
+            DocumentSchema schema = paths == null ? null
+                    : new DocumentSchema(paths.toArray(new String[0]), treePaths.toArray(new String[0]));
+            return new Scan(new Fingerprint(structure.toString()), Arrays.copyOf(values, slots),
+                    Arrays.copyOf(kinds, slots), schema);
+        }
+    }
+}
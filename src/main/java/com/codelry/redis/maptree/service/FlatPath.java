@@ -0,0 +1,167 @@
+package com.codelry.redis.maptree.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class FlatPath implements Comparable<FlatPath> {
+
+    private final String path;
+    private final List<Segment> segments;
+
+    private FlatPath(String path, List<Segment> segments) {
+        this.path = path;
+        this.segments = segments;
+    }
+
+    public static FlatPath parse(String path) {
+        List<Segment> segments = new ArrayList<>();
+        int length = path.length();
+        int start = 0;
+        int i = 0;
+        while (i < length) {
+            char c = path.charAt(i);
+            if (c == '.') {
+                if (i > start) {
+                    segments.add(Segment.name(path.substring(start, i)));
+                }
+                i += 1;
+                start = i;
+            } else if (c == '[') {
+                int close = path.indexOf(']', i);
+                if (close > i + 1 && isDigits(path, i + 1, close)) {
+                    if (i > start) {
+                        segments.add(Segment.name(path.substring(start, i)));
+                    }
+                    segments.add(Segment.index(Integer.parseInt(path, i + 1, close, 10)));
+                    i = close + 1;
+                    start = i;
+                } else {
+                    i += 1;
+                }
+            } else {
+                i += 1;
+            }
+        }
+        if (start < length) {
+            segments.add(Segment.name(path.substring(start)));
+        }
+        return new FlatPath(path, Collections.unmodifiableList(segments));
+    }
+
+    public static boolean startsWith(String path, String prefix) {
+        if (prefix.isEmpty()) {
+            return true;
+        }
+        if (!path.startsWith(prefix)) {
+            return false;
+        }
+        if (path.length() == prefix.length()) {
+            return true;
+        }
+        char next = path.charAt(prefix.length());
+        return next == '.' || next == '[';
+    }
+
+    public static String relativize(String path, String prefix) {
+        if (prefix.isEmpty()) {
+            return path;
+        }
+        String rest = path.substring(prefix.length());
+        return rest.startsWith(".") ? rest.substring(1) : rest;
+    }
+
+    public static String globEscape(String path) {
+        StringBuilder escaped = new StringBuilder(path.length() + 8);
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    public String path() {
+        return path;
+    }
+
+    public List<Segment> segments() {
+        return segments;
+    }
+
+    public int depth() {
+        return segments.size();
+    }
+
+    @Override
+    public int compareTo(FlatPath other) {
+        int common = Math.min(segments.size(), other.segments.size());
+        for (int i = 0; i < common; i++) {
+            int result = segments.get(i).compareTo(other.segments.get(i));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(segments.size(), other.segments.size());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof FlatPath other && segments.equals(other.segments);
+    }
+
+    @Override
+    public int hashCode() {
+        return segments.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    private static boolean isDigits(String s, int from, int to) {
+        if (to - from > 9) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (!Character.isDigit(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public record Segment(String name, int index) implements Comparable<Segment> {
+
+        public static Segment name(String name) {
+            return new Segment(name, -1);
+        }
+
+        public static Segment index(int index) {
+            return new Segment(null, index);
+        }
+
+        public boolean isIndex() {
+            return name == null;
+        }
+
+        @Override
+        public int compareTo(Segment other) {
+            if (isIndex() && other.isIndex()) {
+                return Integer.compare(index, other.index);
+            }
+            if (isIndex() != other.isIndex()) {
+                return isIndex() ? -1 : 1;
+            }
+            return name.compareTo(other.name);
+        }
+
+        @Override
+        public String toString() {
+            return isIndex() ? "[" + index + "]" : name;
+        }
+    }
+}
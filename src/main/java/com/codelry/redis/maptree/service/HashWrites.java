@@ -0,0 +1,33 @@
+package com.codelry.redis.maptree.service;
+
+import org.springframework.data.redis.connection.RedisConnection;
+
+import java.util.Map;
+
+final class HashWrites {
+
+  private HashWrites() {
+  }
+
+  // variadic HSET, since RedisHashCommands.hMSet sends the deprecated HMSET; works pipelined and inside MULTI
+  static void hSet(RedisConnection connection, byte[] key, Map<byte[], byte[]> fields) {
+    byte[][] args = new byte[1 + fields.size() * 2][];
+    args[0] = key;
+    int index = 1;
+    for (Map.Entry<byte[], byte[]> field : fields.entrySet()) {
+      args[index++] = field.getKey();
+      args[index++] = field.getValue();
+    }
+    connection.execute("HSET", args);
+  }
+
+  // closes the pipeline after a failed write without letting a second failure replace the first
+  static RuntimeException closeAfterFailure(RedisConnection connection, RuntimeException failure) {
+    try {
+      connection.closePipeline();
+    } catch (RuntimeException closeFailure) {
+      failure.addSuppressed(closeFailure);
+    }
+    return failure;
+  }
+}
@@ -4,9 +4,10 @@ import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonToken;
 
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.util.*;
 
 import org.slf4j.Logger;
@@ -17,18 +18,28 @@ public final class JsonFlattener {
     private static final Logger logger = LoggerFactory.getLogger(JsonFlattener.class);
     private static final Gson GSON = new Gson();
 
+    public static final String NULL_VALUE = "__null__";
+
     private JsonFlattener() {
         // no instances
     }
 
     public static Set<String> flattenPaths(byte[] json) {
-        JsonElement root = JsonParser.parseString(new String(json, StandardCharsets.UTF_8));
-        return flattenPaths(root);
+        PathCollector collector = new PathCollector();
+        StreamingJsonFlattener.flatten(json, false, collector);
+        return collector.paths;
+    }
+
+    public static Set<String> flattenPaths(InputStream json) {
+        PathCollector collector = new PathCollector();
+        StreamingJsonFlattener.flatten(json, false, collector);
+        return collector.paths;
     }
 
     public static Set<String> flattenPaths(String json) {
-        JsonElement root = JsonParser.parseString(json);
-        return flattenPaths(root);
+        PathCollector collector = new PathCollector();
+        StreamingJsonFlattener.flatten(new StringReader(json), false, collector);
+        return collector.paths;
     }
 
     public static Set<String> flattenPaths(JsonElement root) {
@@ -38,8 +49,15 @@ public final class JsonFlattener {
     }
 
     public static Map<String, String> mapPaths(byte[] json) {
-        JsonElement root = JsonParser.parseString(new String(json, StandardCharsets.UTF_8));
-        return mapPaths(root);
+        ValueMapper mapper = new ValueMapper();
+        StreamingJsonFlattener.flatten(json, false, mapper);
+        return mapper.map;
+    }
+
+    public static Map<String, String> mapPaths(InputStream json) {
+        ValueMapper mapper = new ValueMapper();
+        StreamingJsonFlattener.flatten(json, false, mapper);
+        return mapper.map;
     }
 
     public static Map<String, String> mapPaths(JsonElement root) {
@@ -48,6 +66,10 @@ public final class JsonFlattener {
         return map;
     }
 
+    static void mapPaths(JsonElement root, String prefix, Map<String, String> map) {
+        map(root, prefix, map);
+    }
+
     public static Set<String> flattenTree(JsonElement root) {
         LinkedHashSet<String> paths = new LinkedHashSet<>();
         walkTree(root, "", paths);
@@ -55,13 +77,27 @@ public final class JsonFlattener {
     }
 
     public static Set<String> flattenTree(byte[] json) {
-        JsonElement root = JsonParser.parseString(new String(json, StandardCharsets.UTF_8));
-        return flattenTree(root);
+        TreeKeyCollector collector = new TreeKeyCollector();
+        StreamingJsonFlattener.flatten(json, true, collector);
+        return collector.keys;
+    }
+
+    public static Set<String> flattenTree(InputStream json) {
+        TreeKeyCollector collector = new TreeKeyCollector();
+        StreamingJsonFlattener.flatten(json, true, collector);
+        return collector.keys;
     }
 
     public static Map<String, Object> mapPathTree(byte[] json) {
-        JsonElement root = JsonParser.parseString(new String(json, StandardCharsets.UTF_8));
-        return mapPathTree(root);
+        TreeMapper mapper = new TreeMapper();
+        StreamingJsonFlattener.flatten(json, true, mapper);
+        return mapper.tree;
+    }
+
+    public static Map<String, Object> mapPathTree(InputStream json) {
+        TreeMapper mapper = new TreeMapper();
+        StreamingJsonFlattener.flatten(json, true, mapper);
+        return mapper.tree;
     }
 
     public static Map<String, Object> mapPathTree(JsonElement root) {
@@ -105,7 +141,7 @@ public final class JsonFlattener {
         }
 
         if (element.isJsonNull()) {
-            map.put(prefix, "__null__");
+            map.put(prefix, NULL_VALUE);
             return;
         }
 
@@ -187,7 +223,7 @@ public final class JsonFlattener {
                 JsonElement item = array.get(i);
                 String nextPrefix;
                 if (item.isJsonPrimitive()) {
-                    nextPrefix = prefix + ".__list_item__";
+                    nextPrefix = prefix + "." + StreamingJsonFlattener.LIST_ITEM;
                 } else {
                     nextPrefix = prefix + "[" + i + "]";
                 }
@@ -196,33 +232,32 @@ public final class JsonFlattener {
             return;
         }
 
-        String[] path = prefix.split("\\.");
-        String key = path.length == 1 ? "root" : prefix.substring(0, prefix.lastIndexOf('.'));
-        String field = path[path.length - 1];
-        if (tree.containsKey(key)) {
-            Object value = tree.get(key);
-            if (value instanceof Map) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> mapValue = (Map<String, Object>) value;
-                String fieldValue = element.isJsonNull() ? "__null__" : element.getAsString();
-                mapValue.put(field, fieldValue);
-            } else if (value instanceof List) {
-                @SuppressWarnings("unchecked")
-                List<String> listValue = (List<String>) value;
-                listValue.add(element.getAsString());
-            } else {
-                logger.warn("Unexpected value type for key: {} -> {}", key, value);
-            }
+        putTreeValue(prefix, element.isJsonNull() ? NULL_VALUE : element.getAsString(), tree);
+    }
+
+    static void putTreeValue(String prefix, String value, Map<String, Object> tree) {
+        int dot = prefix.lastIndexOf('.');
+        String key = dot < 0 ? "root" : prefix.substring(0, dot);
+        String field = prefix.substring(dot + 1);
+        Object current = tree.get(key);
+        if (current instanceof Map) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> mapValue = (Map<String, Object>) current;
+            mapValue.put(field, value);
+        } else if (current instanceof List) {
+            @SuppressWarnings("unchecked")
+            List<String> listValue = (List<String>) current;
+            listValue.add(value);
+        } else if (current != null) {
+            logger.warn("Unexpected value type for key: {} -> {}", key, current);
+        } else if (field.equals(StreamingJsonFlattener.LIST_ITEM)) {
+            List<String> listValue = new ArrayList<>();
+            listValue.add(value);
+            tree.put(key, listValue);
         } else {
-            if (field.equals("__list_item__")) {
-                List<String> listValue = new ArrayList<>();
-                listValue.add(element.getAsString());
-                tree.put(key, listValue);
-            } else {
-                Map<String, Object> mapValue = new HashMap<>();
-                mapValue.put(field, element.getAsString());
-                tree.put(key, mapValue);
-            }
+            Map<String, Object> mapValue = new HashMap<>();
+            mapValue.put(field, value);
+            tree.put(key, mapValue);
         }
     }
 
@@ -235,4 +270,70 @@ public final class JsonFlattener {
         }
         return true;
     }
+
+    private static final class PathCollector implements StreamingJsonFlattener.PathHandler {
+        private final LinkedHashSet<String> paths = new LinkedHashSet<>();
+
+        @Override
+        public void value(String path, String value) {
+            paths.add(path);
+        }
+
+        @Override
+        public void nullValue(String path) {
+            paths.add(path);
+        }
+    }
+
+    private static final class ValueMapper implements StreamingJsonFlattener.PathHandler {
+        private final Map<String, String> map = new HashMap<>();
+
+        @Override
+        public void value(String path, String value) {
+            map.put(path, value);
+        }
+
+        @Override
+        public void nullValue(String path) {
+            map.put(path, NULL_VALUE);
+        }
+    }
+
+    private static final class TreeKeyCollector implements StreamingJsonFlattener.PathHandler {
+        private final LinkedHashSet<String> keys = new LinkedHashSet<>();
+
+        @Override
+        public void beginObject(String path) {
+            keys.add(path.isEmpty() ? "root" : path);
+        }
+
+        @Override
+        public void beginArray(String path, JsonToken first) {
+            if (first != JsonToken.END_ARRAY && first != JsonToken.BEGIN_OBJECT) {
+                keys.add(path.isEmpty() ? "root" : path);
+            }
+        }
+
+        @Override
+        public void value(String path, String value) {
+        }
+
+        @Override
+        public void nullValue(String path) {
+        }
+    }
+
+    private static final class TreeMapper implements StreamingJsonFlattener.PathHandler {
+        private final Map<String, Object> tree = new HashMap<>();
+
+        @Override
+        public void value(String path, String value) {
+            putTreeValue(path, value, tree);
+        }
+
+        @Override
+        public void nullValue(String path) {
+            putTreeValue(path, NULL_VALUE, tree);
+        }
+    }
 }
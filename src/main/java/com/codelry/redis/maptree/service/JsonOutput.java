@@ -0,0 +1,9 @@
+package com.codelry.redis.maptree.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+@FunctionalInterface
+public interface JsonOutput {
+  void writeTo(OutputStream out) throws IOException;
+}
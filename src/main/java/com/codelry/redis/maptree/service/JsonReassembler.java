@@ -0,0 +1,167 @@
+package com.codelry.redis.maptree.service;
+
+import com.google.gson.JsonNull;
+import com.google.gson.stream.JsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class JsonReassembler {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonReassembler.class);
+
+    private JsonReassembler() {
+        // no instances
+    }
+
+    public static void write(Map<String, ?> fields, OutputStream out) throws IOException {
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        write(fields, writer);
+        writer.flush();
+    }
+
+    public static void write(Map<String, ?> fields, JsonWriter writer) throws IOException {
+        List<Leaf> leaves = new ArrayList<>(fields.size());
+        for (Map.Entry<String, ?> field : fields.entrySet()) {
+            leaves.add(new Leaf(FlatPath.parse(field.getKey()), field.getValue()));
+        }
+        leaves.sort(Comparator.comparing(Leaf::path));
+        write(leaves, writer);
+    }
+
+    public static Map<String, Object> treeFields(Map<String, Object> tree) {
+        Map<String, Object> fields = new HashMap<>();
+        for (Map.Entry<String, Object> node : tree.entrySet()) {
+            String prefix = node.getKey().equals("root") ? "" : node.getKey();
+            if (node.getValue() instanceof Map<?, ?> hash) {
+                for (Map.Entry<?, ?> field : hash.entrySet()) {
+                    String name = String.valueOf(field.getKey());
+                    fields.put(prefix.isEmpty() ? name : prefix + "." + name, field.getValue());
+                }
+            } else if (node.getValue() instanceof List<?> list) {
+                for (int i = 0; i < list.size(); i++) {
+                    fields.put(prefix + "[" + i + "]", list.get(i));
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static void write(List<Leaf> leaves, JsonWriter writer) throws IOException {
+        if (leaves.isEmpty()) {
+            writer.nullValue();
+            return;
+        }
+        if (leaves.get(0).path().depth() == 0) {
+            writeValue(leaves.get(0).value(), writer);
+            return;
+        }
+
+        List<FlatPath.Segment> open = new ArrayList<>();
+        List<Level> levels = new ArrayList<>();
+        levels.add(begin(leaves.get(0).path().segments().get(0), writer));
+
+        for (Leaf leaf : leaves) {
+            List<FlatPath.Segment> segments = leaf.path().segments();
+            int last = segments.size() - 1;
+            if (last < 0) {
+                logger.warn("Skipping root value mixed with nested paths");
+                continue;
+            }
+
+            int common = 0;
+            while (common < open.size() && common < last && open.get(common).equals(segments.get(common))) {
+                common += 1;
+            }
+            while (open.size() > common) {
+                end(levels.remove(levels.size() - 1), writer);
+                open.remove(open.size() - 1);
+            }
+
+            if (!member(segments.get(common), levels.get(levels.size() - 1), writer)) {
+                logger.warn("Skipping path {} that does not match its parent container", leaf.path());
+                continue;
+            }
+            for (int i = common; i < last; i++) {
+                levels.add(begin(segments.get(i + 1), writer));
+                open.add(segments.get(i));
+                if (!member(segments.get(i + 1), levels.get(levels.size() - 1), writer)) {
+                    break;
+                }
+            }
+            if (open.size() == last) {
+                writeValue(leaf.value(), writer);
+            }
+        }
+
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            end(levels.get(i), writer);
+        }
+    }
+
+    private static Level begin(FlatPath.Segment first, JsonWriter writer) throws IOException {
+        if (first.isIndex()) {
+            writer.beginArray();
+            return new Level(true);
+        }
+        writer.beginObject();
+        return new Level(false);
+    }
+
+    private static void end(Level level, JsonWriter writer) throws IOException {
+        if (level.array) {
+            writer.endArray();
+        } else {
+            writer.endObject();
+        }
+    }
+
+    private static boolean member(FlatPath.Segment segment, Level level, JsonWriter writer) throws IOException {
+        if (!level.array) {
+            writer.name(segment.toString());
+            return true;
+        }
+        if (!segment.isIndex()) {
+            return false;
+        }
+        while (level.next < segment.index()) {
+            writer.nullValue();
+            level.next += 1;
+        }
+        level.next = Math.max(level.next, segment.index() + 1);
+        return true;
+    }
+
+    private static void writeValue(Object value, JsonWriter writer) throws IOException {
+        if (value == null || value instanceof JsonNull) {
+            writer.nullValue();
+        } else if (value instanceof Boolean bool) {
+            writer.value(bool);
+        } else if (value instanceof Number number) {
+            writer.value(number);
+        } else {
+            writer.value(value.toString());
+        }
+    }
+
+    private record Leaf(FlatPath path, Object value) {
+    }
+
+    private static final class Level {
+        private final boolean array;
+        private int next;
+
+        private Level(boolean array) {
+            this.array = array;
+        }
+    }
+}
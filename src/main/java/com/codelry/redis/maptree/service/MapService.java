@@ -1,22 +1,45 @@
 package com.codelry.redis.maptree.service;
 
+import com.codelry.redis.maptree.config.BatchProperties;
+import com.codelry.redis.maptree.diagnostics.DiagnosticsSink;
+import com.codelry.redis.maptree.dto.DictionaryReport;
+import com.codelry.redis.maptree.dto.PatchReport;
+import com.codelry.redis.maptree.exception.PatchConflictException;
+import com.codelry.redis.maptree.exception.RecordNotFoundException;
 import com.codelry.redis.maptree.model.Record;
+import com.codelry.redis.maptree.model.StorageModel;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.stream.JsonToken;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 @Service
 public class MapService {
@@ -29,21 +52,43 @@ public class MapService {
   private static final String FIELD_CREATED_AT = "createdAt";
   private static final String FIELD_LAST_ACCESSED_AT = "lastAccessedAt";
 
+  private static final int SUBTREE_SCAN_COUNT = 1000;
+
   private final RetryTemplate retryTemplate;
   private final RedisTemplate<String, String> redisTemplate;
+  private final BatchProperties batchProperties;
+  private final SchemaCache schemaCache;
+  private final PathDictionary pathDictionary;
+  private final ValueCodec valueCodec;
+  private final DiagnosticsSink diagnosticsSink;
   private final MeterRegistry meterRegistry;
 
   private final ObjectMapper objectMapper = new ObjectMapper();
 
   private final Timer createRecordTimer;
-  private final Timer getRecordPathTimer;
+  private final Timer getRecordBatchTimer;
+  private final Timer getDocumentTimer;
+  private final Timer getSubtreeTimer;
+  private final DistributionSummary subtreeBytesSummary;
+  private final Timer getProjectionTimer;
+  private final Timer patchRecordTimer;
 
   @Autowired
   public MapService(RedisTemplate<String, String> redisTemplate,
                     RetryTemplate retryTemplate,
+                    BatchProperties batchProperties,
+                    SchemaCache schemaCache,
+                    PathDictionary pathDictionary,
+                    ValueCodec valueCodec,
+                    DiagnosticsSink diagnosticsSink,
                     MeterRegistry meterRegistry) {
     this.redisTemplate = redisTemplate;
     this.retryTemplate = retryTemplate;
+    this.batchProperties = batchProperties;
+    this.schemaCache = schemaCache;
+    this.pathDictionary = pathDictionary;
+    this.valueCodec = valueCodec;
+    this.diagnosticsSink = diagnosticsSink;
     this.meterRegistry = meterRegistry;
 
     this.createRecordTimer = Timer.builder("record.create.duration")
@@ -51,9 +96,10 @@ public class MapService {
         .tag("record", "create")
         .register(meterRegistry);
 
-    this.getRecordPathTimer = Timer.builder("record.get.path.duration")
-        .description("Time taken to get a record by path")
+    this.getRecordBatchTimer = Timer.builder("record.get.batch.duration")
+        .description("Time taken to get all paths of a record in one pipeline")
         .tag("record", "get")
+        .tag("model", "map")
         .publishPercentiles(0.95, 0.99)
         .serviceLevelObjectives(
             Duration.ofMillis(1),
@@ -61,9 +107,48 @@ public class MapService {
             Duration.ofMillis(10)
         )
         .register(meterRegistry);
+
+    this.getDocumentTimer = Timer.builder("record.get.document.duration")
+        .description("Time taken to read a whole record for reassembly")
+        .tag("record", "get")
+        .tag("model", "map")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+
+    this.getSubtreeTimer = Timer.builder("record.subtree.duration")
+        .description("Time taken to read one subtree of a record")
+        .tag("record", "subtree")
+        .tag("model", "map")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+
+    this.subtreeBytesSummary = DistributionSummary.builder("record.subtree.bytes")
+        .description("Bytes returned by Redis for one subtree read")
+        .baseUnit("bytes")
+        .tag("record", "subtree")
+        .tag("model", "map")
+        .register(meterRegistry);
+
+    this.getProjectionTimer = Timer.builder("record.projection.duration")
+        .description("Time taken to read a projection of record fields in one pipeline")
+        .tag("record", "projection")
+        .tag("model", "map")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+
+    this.patchRecordTimer = Timer.builder("record.patch.duration")
+        .description("Time taken to read and apply a patch to a record")
+        .tag("record", "patch")
+        .tag("model", "map")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
   }
 
   public Record createRecord(String key, byte[] requestBody) {
+    return createRecord(key, requestBody, true);
+  }
+
+  public Record createRecord(String key, byte[] requestBody, boolean verify) {
     try {
       Timer.Sample retryTimerSample = Timer.start(meterRegistry);
 
@@ -76,14 +161,18 @@ public class MapService {
 
         Record record = new Record(key);
 
-        Map<String, String> map = JsonFlattener.mapPaths(requestBody);
-        createRecordTimer.record(() -> redisTemplate.opsForHash().putAll(key, map));
+        SchemaCache.ShapedDocument document = schemaCache.resolve(requestBody);
+        record.setRecordSchema(document.paths());
+        Map<String, byte[]> map = storedFields(document.mapPaths(valueCodec));
+        createRecordTimer.record(() -> writeHash(key, map));
 
         logger.info("Successfully created record with ID: {}", record.getRecordId());
 
         meterRegistry.counter("record.create.success", Tags.of("record", "create")).increment();
 
-        subDocGet(key, requestBody);
+        if (verify) {
+          subDocGet(key, requestBody);
+        }
 
         return record;
       }, context -> {
@@ -108,33 +197,432 @@ public class MapService {
     try {
       logger.info("Processing paths in document: {}", key);
       Set<String> paths = JsonFlattener.flattenPaths(document);
-      FileWriter.create(paths);
+      diagnosticsSink.record(key, "paths", paths);
       logger.info("Found {} paths in document", paths.size());
 
-      Set<String> nullPaths = new HashSet<>();
-
+      List<String> fields = new ArrayList<>(paths.size());
       for (String path : paths) {
-        if (path.contains("@")) {
-          continue;
+        if (!path.contains("@")) {
+          fields.add(path);
         }
+      }
+
+      List<byte[]> values = getRecordBatchTimer.recordCallable(() -> getFields(key, fields));
 
-        Object data = getRecordPathTimer.recordCallable(() -> redisTemplate.opsForHash().get(key, path));
+      Set<String> nullPaths = new HashSet<>();
 
-        if (data == null) {
+      for (int i = 0; i < fields.size(); i++) {
+        if (values.get(i) == null) {
           meterRegistry.counter("record.get.null", Tags.of("record", "get")).increment();
-          nullPaths.add(path);
+          nullPaths.add(fields.get(i));
           continue;
         }
 
-        if (data instanceof String) {
-          meterRegistry.counter("record.get.string", Tags.of("record", "get")).increment();
-        } else {
-          meterRegistry.counter("record.get.object", Tags.of("record", "get")).increment();
-        }
+        meterRegistry.counter("record.get.string", Tags.of("record", "get")).increment();
       }
-      FileWriter.create(nullPaths, "null_output.txt");
+      diagnosticsSink.record(key, "null-paths", nullPaths);
     } catch (Exception e) {
       logger.error("Error processing map", e);
     }
   }
+
+  private void writeHash(String key, Map<String, byte[]> fields) {
+    byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+    Map<byte[], byte[]> hash = new LinkedHashMap<>();
+    fields.forEach((field, value) -> hash.put(field.getBytes(StandardCharsets.UTF_8), value));
+    if (pathDictionary.isEnabled()) {
+      hash.put(PathDictionary.ENCODED_MARKER.getBytes(StandardCharsets.UTF_8), markerValue());
+    }
+    redisTemplate.execute((RedisCallback<Object>) connection -> {
+      HashWrites.hSet(connection, rawKey, hash);
+      return null;
+    });
+  }
+
+  public JsonOutput getRecord(String key) {
+    Map<String, Object> fields = getDocumentTimer.record(() -> readHash(key));
+    if (fields == null || fields.isEmpty()) {
+      throw new RecordNotFoundException(key);
+    }
+    logger.debug("Read {} fields for record {}", fields.size(), key);
+    return out -> JsonReassembler.write(fields, out);
+  }
+
+  private Map<String, Object> readHash(String key) {
+    byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+    int scanCount = batchProperties.getHashScanCount();
+
+    Map<String, Object> stored = redisTemplate.execute((RedisCallback<Map<String, Object>>) connection -> {
+      Map<String, Object> fields = new HashMap<>();
+      if (scanCount > 0) {
+        ScanOptions options = ScanOptions.scanOptions().count(scanCount).build();
+        try (Cursor<Map.Entry<byte[], byte[]>> cursor = connection.hashCommands().hScan(rawKey, options)) {
+          while (cursor.hasNext()) {
+            Map.Entry<byte[], byte[]> field = cursor.next();
+            fields.put(decode(field.getKey()), valueCodec.decode(field.getValue()));
+          }
+        }
+      } else {
+        Map<byte[], byte[]> hash = connection.hashCommands().hGetAll(rawKey);
+        if (hash != null) {
+          hash.forEach((field, value) -> fields.put(decode(field), valueCodec.decode(value)));
+        }
+      }
+      return fields;
+    });
+    return stored != null ? restoredFields(stored) : null;
+  }
+
+  private <V> Map<String, V> storedFields(Map<String, V> fields) {
+    if (!pathDictionary.isEnabled()) {
+      return fields;
+    }
+    Map<String, String> tokens = pathDictionary.encode(fields.keySet());
+    Map<String, V> stored = new HashMap<>(fields.size() * 4 / 3 + 1);
+    fields.forEach((path, value) -> stored.put(tokens.get(path), value));
+    return stored;
+  }
+
+  private <V> Map<String, V> restoredFields(Map<String, V> fields) {
+    if (!fields.containsKey(PathDictionary.ENCODED_MARKER)) {
+      return fields;
+    }
+    Map<String, String> paths = pathDictionary.resolve(fields.keySet());
+    Map<String, V> restored = new HashMap<>(fields.size() * 4 / 3 + 1);
+    paths.forEach((name, path) -> restored.put(path, fields.get(name)));
+    return restored;
+  }
+
+  private byte[] markerValue() {
+    return valueCodec.encode(pathDictionary.namespace(), JsonToken.STRING);
+  }
+
+  public DictionaryReport getDictionaryReport(String key) {
+    byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+    Set<byte[]> names = redisTemplate.execute((RedisCallback<Set<byte[]>>) connection ->
+        connection.hashCommands().hKeys(rawKey));
+    if (names == null || names.isEmpty()) {
+      throw new RecordNotFoundException(key);
+    }
+    List<String> storedNames = names.stream().map(MapService::decode).toList();
+    return pathDictionary.report(key, StorageModel.MAP, storedNames, null);
+  }
+
+  public JsonOutput getSubtree(String key, String path) {
+    Map<String, Object> fields = getSubtreeTimer.record(() -> scanSubtree(key, path));
+    if (fields == null || fields.isEmpty()) {
+      throw new RecordNotFoundException(key, path);
+    }
+    logger.debug("Read {} fields under {} for record {}", fields.size(), path, key);
+    return out -> JsonReassembler.write(fields, out);
+  }
+
+  public JsonOutput getProjection(String key, List<String> paths) {
+    List<String> fieldPaths = new ArrayList<>(new LinkedHashSet<>(paths));
+    List<byte[]> values = getProjectionTimer.record(() -> getFields(key, fieldPaths));
+
+    Map<String, Object> fields = new HashMap<>();
+    for (int i = 0; i < fieldPaths.size(); i++) {
+      if (values.get(i) != null) {
+        fields.put(fieldPaths.get(i), valueCodec.decode(values.get(i)));
+      }
+    }
+    if (fields.isEmpty()) {
+      throw new RecordNotFoundException(key);
+    }
+    return out -> JsonReassembler.write(fields, out);
+  }
+
+  public PatchReport patchRecord(String key, PatchPlan plan) {
+    return patchRecordTimer.record(() -> applyPatch(key, plan));
+  }
+
+  // the hash is watched from its first read, so a write landing before EXEC discards the patch and it is planned again
+  private PatchReport applyPatch(String key, PatchPlan plan) {
+    int attempts = Math.max(1, batchProperties.getPatchAttempts());
+    for (int attempt = 1; attempt <= attempts; attempt++) {
+      PatchReport report = redisTemplate.execute((RedisCallback<PatchReport>) connection -> {
+        try {
+          return tryPatch(connection, key, plan);
+        } catch (RuntimeException e) {
+          connection.unwatch();
+          throw e;
+        }
+      });
+      if (report != null) {
+        return report;
+      }
+      logger.debug("Record {} changed while it was patched (attempt {})", key, attempt);
+    }
+    throw new PatchConflictException(key, attempts);
+  }
+
+  private PatchReport tryPatch(RedisConnection connection, String key, PatchPlan plan) {
+    byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+    connection.watch(rawKey);
+    connection.openPipeline();
+    connection.hashCommands().hExists(rawKey, PathDictionary.ENCODED_MARKER.getBytes(StandardCharsets.UTF_8));
+    connection.hashCommands().hRandField(rawKey, 2);
+    List<Object> head = connection.closePipeline();
+    @SuppressWarnings("unchecked")
+    List<byte[]> sample = head != null && head.size() > 1 ? (List<byte[]>) head.get(1) : null;
+    if (sample == null || sample.isEmpty()) {
+      throw new RecordNotFoundException(key);
+    }
+    boolean encoded = Boolean.TRUE.equals(head.get(0));
+
+    // every leaf shares the root's kind, so any two fields settle it, and the rest is read one prefix at a time
+    List<String> sampleNames = new ArrayList<>(sample.stream().map(MapService::decode).toList());
+    if (encoded) {
+      sampleNames.add(PathDictionary.ENCODED_MARKER);
+    }
+    NavigableSet<String> rootPaths = new TreeSet<>(pathDictionary.resolve(sampleNames).values());
+    NavigableMap<String, byte[]> leaves = new TreeMap<>();
+    Map<String, String> stored = new HashMap<>();
+    List<String> prefixes = new ArrayList<>();
+
+    Map<String, PatchPlan.Kind> kinds = plan.kinds(paths -> {
+      Map<String, PatchPlan.Kind> answers = new HashMap<>();
+      for (String path : paths) {
+        if (path.isEmpty()) {
+          answers.put(path, PatchPlan.kindOf(rootPaths, path));
+        } else {
+          readUnder(connection, rawKey, encoded, path, prefixes, leaves, stored);
+          answers.put(path, PatchPlan.kindOf(leaves.navigableKeySet(), path));
+        }
+      }
+      return answers;
+    });
+    Map<String, byte[]> current = new HashMap<>();
+    for (String scope : plan.scopes(kinds)) {
+      readUnder(connection, rawKey, encoded, scope, prefixes, leaves, stored);
+      PatchPlan.under(leaves.navigableKeySet(), scope).forEach(path -> current.put(path, leaves.get(path)));
+    }
+    PatchPlan.Result<byte[]> result = plan.apply(kinds, current, valueCodec::encode);
+
+    // existing fields keep the names they were stored under, and new ones follow the form the record was written in
+    Map<String, String> names = new HashMap<>(stored);
+    if (encoded) {
+      List<String> unnamed = result.puts().keySet().stream().filter(path -> !names.containsKey(path)).toList();
+      if (!unnamed.isEmpty()) {
+        names.putAll(pathDictionary.encode(unnamed));
+      }
+    }
+    byte[][] rawRemoves = result.removes().stream()
+        .map(path -> names.getOrDefault(path, path).getBytes(StandardCharsets.UTF_8))
+        .toArray(byte[][]::new);
+    Map<byte[], byte[]> hash = new LinkedHashMap<>();
+    result.puts().forEach((path, value) -> hash.put(names.getOrDefault(path, path).getBytes(StandardCharsets.UTF_8), value));
+    if (rawRemoves.length == 0 && hash.isEmpty()) {
+      connection.unwatch();
+      return plan.report(key, StorageModel.MAP, result, 0);
+    }
+    // an encoded record that loses every field would otherwise keep its marker alone
+    boolean emptied = encoded && hash.isEmpty() && Long.valueOf(rawRemoves.length + 1).equals(connection.hashCommands().hLen(rawKey));
+
+    int commands = 0;
+    connection.multi();
+    if (emptied) {
+      connection.keyCommands().del(rawKey);
+      commands += 1;
+    } else if (rawRemoves.length > 0) {
+      connection.hashCommands().hDel(rawKey, rawRemoves);
+      commands += 1;
+    }
+    if (!hash.isEmpty()) {
+      HashWrites.hSet(connection, rawKey, hash);
+      commands += 1;
+    }
+    List<Object> replies = connection.exec();
+    if (replies == null || replies.isEmpty()) {
+      return null;
+    }
+
+    logger.debug("Patched record {}: {} fields set, {} removed", key, hash.size(), rawRemoves.length);
+    return plan.report(key, StorageModel.MAP, result, commands);
+  }
+
+  // reads every leaf whose path starts with the prefix unless an earlier, shorter prefix already covered it
+  private void readUnder(RedisConnection connection, byte[] rawKey, boolean encoded, String prefix, List<String> prefixes,
+                         NavigableMap<String, byte[]> leaves, Map<String, String> stored) {
+    for (String read : prefixes) {
+      if (prefix.startsWith(read)) {
+        return;
+      }
+    }
+    prefixes.add(prefix);
+
+    if (!encoded) {
+      ScanOptions.ScanOptionsBuilder options = ScanOptions.scanOptions().count(SUBTREE_SCAN_COUNT);
+      if (!prefix.isEmpty()) {
+        options.match(FlatPath.globEscape(prefix) + "*");
+      }
+      try (Cursor<Map.Entry<byte[], byte[]>> cursor = connection.hashCommands().hScan(rawKey, options.build())) {
+        while (cursor.hasNext()) {
+          Map.Entry<byte[], byte[]> field = cursor.next();
+          leaves.put(decode(field.getKey()), field.getValue());
+        }
+      }
+      return;
+    }
+
+    Map<String, String> tokens = prefix.isEmpty() ? null : pathDictionary.lookupUnder(prefix);
+    if (tokens == null) {
+      Map<String, byte[]> fields = new HashMap<>();
+      Map<byte[], byte[]> hash = connection.hashCommands().hGetAll(rawKey);
+      if (hash != null) {
+        hash.forEach((field, value) -> fields.put(decode(field), value));
+      }
+      pathDictionary.resolve(fields.keySet()).forEach((name, path) -> {
+        leaves.put(path, fields.get(name));
+        stored.put(path, name);
+      });
+      return;
+    }
+    if (tokens.isEmpty()) {
+      return;
+    }
+    List<String> paths = new ArrayList<>(tokens.keySet());
+    byte[][] fields = paths.stream().map(path -> tokens.get(path).getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+    List<byte[]> values = connection.hashCommands().hMGet(rawKey, fields);
+    for (int i = 0; values != null && i < paths.size() && i < values.size(); i++) {
+      if (values.get(i) != null) {
+        leaves.put(paths.get(i), values.get(i));
+        stored.put(paths.get(i), tokens.get(paths.get(i)));
+      }
+    }
+  }
+
+  private Map<String, Object> scanSubtree(String key, String path) {
+    if (pathDictionary.isEnabled()) {
+      return readSubtreeFields(key, path);
+    }
+    byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+    int scanCount = batchProperties.getHashScanCount() > 0 ? batchProperties.getHashScanCount() : SUBTREE_SCAN_COUNT;
+    ScanOptions options = ScanOptions.scanOptions().count(scanCount).match(FlatPath.globEscape(path) + "*").build();
+
+    Map<String, Object> scanned = redisTemplate.execute((RedisCallback<Map<String, Object>>) connection -> {
+      Map<String, Object> hash = new HashMap<>();
+      long bytes = 0;
+      try (Cursor<Map.Entry<byte[], byte[]>> cursor = connection.hashCommands().hScan(rawKey, options)) {
+        while (cursor.hasNext()) {
+          Map.Entry<byte[], byte[]> field = cursor.next();
+          bytes += field.getKey().length + field.getValue().length;
+          hash.put(decode(field.getKey()), valueCodec.decode(field.getValue()));
+        }
+      }
+      subtreeBytesSummary.record(bytes);
+      return hash;
+    });
+
+    Map<String, Object> fields = new HashMap<>();
+    if (scanned != null) {
+      scanned.forEach((name, value) -> {
+        if (FlatPath.startsWith(name, path)) {
+          fields.put(FlatPath.relativize(name, path), value);
+        }
+      });
+    }
+    return fields;
+  }
+
+  // token names carry no path prefix for MATCH, so the names are read first and only the values under the path follow
+  private Map<String, Object> readSubtreeFields(String key, String path) {
+    byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+    Set<byte[]> names = redisTemplate.execute((RedisCallback<Set<byte[]>>) connection ->
+        connection.hashCommands().hKeys(rawKey));
+    Map<String, Object> fields = new HashMap<>();
+    if (names == null || names.isEmpty()) {
+      return fields;
+    }
+    long bytes = 0;
+    List<String> storedNames = new ArrayList<>(names.size());
+    for (byte[] name : names) {
+      storedNames.add(decode(name));
+      bytes += name.length;
+    }
+    List<String> stored = new ArrayList<>();
+    List<String> paths = new ArrayList<>();
+    pathDictionary.resolve(storedNames).forEach((name, field) -> {
+      if (FlatPath.startsWith(field, path)) {
+        stored.add(name);
+        paths.add(field);
+      }
+    });
+    List<byte[]> values = stored.isEmpty() ? List.of() : readFields(rawKey, stored);
+    for (int i = 0; i < paths.size(); i++) {
+      if (values.get(i) != null) {
+        bytes += values.get(i).length;
+        fields.put(FlatPath.relativize(paths.get(i), path), valueCodec.decode(values.get(i)));
+      }
+    }
+    subtreeBytesSummary.record(bytes);
+    return fields;
+  }
+
+  private static String decode(byte[] raw) {
+    return new String(raw, StandardCharsets.UTF_8);
+  }
+
+  private List<byte[]> getFields(String key, List<String> paths) {
+    byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+    if (!pathDictionary.isEnabled()) {
+      return readFields(rawKey, paths);
+    }
+
+    // the marker is read along with the tokens; a record written before the dictionary holds plain names instead
+    Map<String, String> tokens = pathDictionary.lookup(paths);
+    List<String> fields = new ArrayList<>(paths.size() + 1);
+    fields.add(PathDictionary.ENCODED_MARKER);
+    for (String path : paths) {
+      if (tokens.containsKey(path)) {
+        fields.add(tokens.get(path));
+      }
+    }
+    List<byte[]> stored = readFields(rawKey, fields);
+    if (stored.get(0) == null) {
+      return readFields(rawKey, paths);
+    }
+    List<byte[]> values = new ArrayList<>(paths.size());
+    int index = 1;
+    for (String path : paths) {
+      values.add(tokens.containsKey(path) ? stored.get(index++) : null);
+    }
+    return values;
+  }
+
+  private List<byte[]> readFields(byte[] rawKey, List<String> fields) {
+    int chunkSize = Math.max(1, batchProperties.getHmgetChunkSize());
+
+    List<byte[][]> chunks = new ArrayList<>();
+    for (int start = 0; start < fields.size(); start += chunkSize) {
+      int end = Math.min(fields.size(), start + chunkSize);
+      byte[][] chunk = new byte[end - start][];
+      for (int i = start; i < end; i++) {
+        chunk[i - start] = fields.get(i).getBytes(StandardCharsets.UTF_8);
+      }
+      chunks.add(chunk);
+    }
+
+    List<Object> replies = redisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+      connection.openPipeline();
+      for (byte[][] chunk : chunks) {
+        connection.hashCommands().hMGet(rawKey, chunk);
+      }
+      return connection.closePipeline();
+    });
+
+    List<byte[]> values = new ArrayList<>(fields.size());
+    if (replies != null) {
+      for (Object reply : replies) {
+        @SuppressWarnings("unchecked")
+        List<byte[]> chunkValues = (List<byte[]>) reply;
+        values.addAll(chunkValues);
+      }
+    }
+    while (values.size() < fields.size()) {
+      values.add(null);
+    }
+    return values;
+  }
 }
@@ -1,7 +1,16 @@
 package com.codelry.redis.maptree.service;
 
+import com.codelry.redis.maptree.config.BatchProperties;
+import com.codelry.redis.maptree.diagnostics.DiagnosticsSink;
+import com.codelry.redis.maptree.dto.DictionaryReport;
+import com.codelry.redis.maptree.dto.PatchReport;
+import com.codelry.redis.maptree.exception.PatchConflictException;
+import com.codelry.redis.maptree.exception.RecordNotFoundException;
 import com.codelry.redis.maptree.model.Record;
+import com.codelry.redis.maptree.model.StorageModel;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.stream.JsonToken;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.Timer;
@@ -9,10 +18,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -29,31 +43,71 @@ public class MapTreeService {
   private static final String FIELD_CREATED_AT = "createdAt";
   private static final String FIELD_LAST_ACCESSED_AT = "lastAccessedAt";
 
+  public static final String MANIFEST_NODE = "__manifest__";
+
   private final RetryTemplate retryTemplate;
   private final RedisTemplate<String, String> redisTemplate;
+  private final BatchProperties batchProperties;
+  private final SchemaCache schemaCache;
+  private final PathDictionary pathDictionary;
+  private final ValueCodec valueCodec;
+  private final DiagnosticsSink diagnosticsSink;
   private final MeterRegistry meterRegistry;
 
   private final ObjectMapper objectMapper = new ObjectMapper();
 
-  private final Timer createRecordTimer;
-  private final Timer getRecordPathTimer;
+  private final Timer createDocumentTimer;
+  private final DistributionSummary batchCommandsSummary;
+  private final DistributionSummary batchBytesSummary;
+  private final Timer getRecordBatchTimer;
+  private final Timer getDocumentTimer;
+  private final Timer getSubtreeTimer;
+  private final DistributionSummary subtreeBytesSummary;
+  private final Timer getProjectionTimer;
+  private final Timer patchRecordTimer;
 
   @Autowired
   public MapTreeService(RedisTemplate<String, String> redisTemplate,
                         RetryTemplate retryTemplate,
+                        BatchProperties batchProperties,
+                        SchemaCache schemaCache,
+                        PathDictionary pathDictionary,
+                        ValueCodec valueCodec,
+                        DiagnosticsSink diagnosticsSink,
                         MeterRegistry meterRegistry) {
     this.redisTemplate = redisTemplate;
     this.retryTemplate = retryTemplate;
+    this.batchProperties = batchProperties;
+    this.schemaCache = schemaCache;
+    this.pathDictionary = pathDictionary;
+    this.valueCodec = valueCodec;
+    this.diagnosticsSink = diagnosticsSink;
     this.meterRegistry = meterRegistry;
 
-    this.createRecordTimer = Timer.builder("record.create.duration")
-        .description("Time taken to create a record")
+    this.createDocumentTimer = Timer.builder("record.create.document.duration")
+        .description("Time taken to write all nodes of a document in one pipeline")
         .tag("record", "create")
+        .tag("model", "tree")
+        .publishPercentiles(0.5, 0.95, 0.99)
         .register(meterRegistry);
 
-    this.getRecordPathTimer = Timer.builder("record.get.path.duration")
-        .description("Time taken to get a record by path")
+    this.batchCommandsSummary = DistributionSummary.builder("record.create.batch.commands")
+        .description("Commands sent in one document write pipeline")
+        .tag("record", "create")
+        .tag("model", "tree")
+        .register(meterRegistry);
+
+    this.batchBytesSummary = DistributionSummary.builder("record.create.batch.bytes")
+        .description("Key, field and value bytes sent in one document write pipeline")
+        .baseUnit("bytes")
+        .tag("record", "create")
+        .tag("model", "tree")
+        .register(meterRegistry);
+
+    this.getRecordBatchTimer = Timer.builder("record.get.batch.duration")
+        .description("Time taken to get all nodes of a record in one pipeline")
         .tag("record", "get")
+        .tag("model", "tree")
         .publishPercentiles(0.95, 0.99)
         .serviceLevelObjectives(
             Duration.ofMillis(1),
@@ -61,9 +115,48 @@ public class MapTreeService {
             Duration.ofMillis(10)
         )
         .register(meterRegistry);
+
+    this.getDocumentTimer = Timer.builder("record.get.document.duration")
+        .description("Time taken to read a whole record for reassembly")
+        .tag("record", "get")
+        .tag("model", "tree")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+
+    this.getSubtreeTimer = Timer.builder("record.subtree.duration")
+        .description("Time taken to read one subtree of a record")
+        .tag("record", "subtree")
+        .tag("model", "tree")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+
+    this.subtreeBytesSummary = DistributionSummary.builder("record.subtree.bytes")
+        .description("Bytes returned by Redis for one subtree read")
+        .baseUnit("bytes")
+        .tag("record", "subtree")
+        .tag("model", "tree")
+        .register(meterRegistry);
+
+    this.getProjectionTimer = Timer.builder("record.projection.duration")
+        .description("Time taken to read a projection of record fields in one pipeline")
+        .tag("record", "projection")
+        .tag("model", "tree")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+
+    this.patchRecordTimer = Timer.builder("record.patch.duration")
+        .description("Time taken to read and apply a patch to a record")
+        .tag("record", "patch")
+        .tag("model", "tree")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
   }
 
   public Record createRecord(String key, byte[] requestBody) {
+    return createRecord(key, requestBody, true);
+  }
+
+  public Record createRecord(String key, byte[] requestBody, boolean verify) {
     try {
       Timer.Sample retryTimerSample = Timer.start(meterRegistry);
 
@@ -76,33 +169,24 @@ public class MapTreeService {
 
         Record record = new Record(key);
 
-        Map<String, Object> map = JsonFlattener.mapPathTree(requestBody);
-        int recordCount = 0;
-        Set<String> keys = new HashSet<>();
-
-        for (Map.Entry<String, Object> entry : map.entrySet()) {
-          String mapKey = key + ":" + entry.getKey();
-          if (entry.getValue() instanceof Map) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> mapValue = (Map<String, Object>) entry.getValue();
-            createRecordTimer.record(() -> redisTemplate.opsForHash().putAll(mapKey, mapValue));
-          } else if (entry.getValue() instanceof List) {
-            @SuppressWarnings("unchecked")
-            List<String> listValue = (List<String>) entry.getValue();
-            createRecordTimer.record(() -> redisTemplate.opsForList().leftPushAll(mapKey, listValue));
-          } else {
-            logger.warn("Unexpected value type for key: {} -> {}", entry.getKey(), entry.getValue());
-            continue;
-          }
-          recordCount += 1;
-          keys.add(mapKey);
-        }
+        SchemaCache.ShapedDocument document = schemaCache.resolve(requestBody);
+        record.setRecordSchema(document.paths());
+        Map<String, Object> map = document.mapPathTree(valueCodec);
+        Map<String, DataType> manifest = new LinkedHashMap<>();
+        Map<String, String> stored = storedNodes(map.keySet());
 
-        logger.info("Successfully created {} records for ID: {}", recordCount, record.getRecordId());
+        WriteBatch batch = createDocumentTimer.recordCallable(() -> writeTree(key, map, manifest, stored));
+        batchCommandsSummary.record(batch.commands());
+        batchBytesSummary.record(batch.bytes());
+
+        logger.info("Successfully created {} records for ID: {} ({} commands, {} bytes)",
+            manifest.size(), record.getRecordId(), batch.commands(), batch.bytes());
 
         meterRegistry.counter("record.create.success", Tags.of("record", "create")).increment();
 
-        subDocGet(keys);
+        if (verify) {
+          subDocGet(key, manifest, stored);
+        }
 
         return record;
       }, context -> {
@@ -123,41 +207,908 @@ public class MapTreeService {
     }
   }
 
-  public void subDocGet(Set<String> keys) {
-    logger.info("Processing paths for {} keys", keys.size());
-    int keyCount = 0;
-    try {
-      Set<String> nullPaths = new HashSet<>();
+  private WriteBatch writeTree(String key, Map<String, Object> tree, Map<String, DataType> manifest,
+                               Map<String, String> stored) {
+    boolean transactional = batchProperties.isTransactional();
+    return redisTemplate.execute((RedisCallback<WriteBatch>) connection -> {
+      int commands = 0;
+      long bytes = 0;
+      connection.openPipeline();
+      try {
+        if (transactional) {
+          connection.multi();
+          commands += 1;
+        }
+        for (Map.Entry<String, Object> entry : tree.entrySet()) {
+          String mapKey = key + ":" + stored.getOrDefault(entry.getKey(), entry.getKey());
+          byte[] rawKey = mapKey.getBytes(StandardCharsets.UTF_8);
+          if (entry.getValue() instanceof Map<?, ?> mapValue) {
+            Map<byte[], byte[]> fields = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> field : mapValue.entrySet()) {
+              byte[] rawField = String.valueOf(field.getKey()).getBytes(StandardCharsets.UTF_8);
+              byte[] rawValue = raw(field.getValue());
+              fields.put(rawField, rawValue);
+              bytes += rawField.length + rawValue.length;
+            }
+            HashWrites.hSet(connection, rawKey, fields);
+            manifest.put(entry.getKey(), DataType.HASH);
+            commands += 1;
+          } else if (entry.getValue() instanceof List<?> listValue) {
+            byte[][] values = new byte[listValue.size()][];
+            for (int i = 0; i < values.length; i++) {
+              values[i] = raw(listValue.get(i));
+              bytes += values[i].length;
+            }
+            connection.keyCommands().del(rawKey);
+            connection.listCommands().rPush(rawKey, values);
+            manifest.put(entry.getKey(), DataType.LIST);
+            commands += 2;
+          } else {
+            logger.warn("Unexpected value type for key: {} -> {}", entry.getKey(), entry.getValue());
+            continue;
+          }
+          bytes += rawKey.length;
+        }
 
-      for (String mapKey : keys) {
-        DataType type = redisTemplate.type(mapKey);
-        Object data;
-        if (type == DataType.HASH) {
-          data = getRecordPathTimer.recordCallable(() -> redisTemplate.opsForHash().entries(mapKey));
-        } else if (type == DataType.LIST) {
-          data = getRecordPathTimer.recordCallable(() -> redisTemplate.opsForList().range(mapKey, 0, -1));
-        } else {
-          nullPaths.add(mapKey);
-          continue;
+        byte[] manifestKey = (key + ":" + MANIFEST_NODE).getBytes(StandardCharsets.UTF_8);
+        connection.keyCommands().del(manifestKey);
+        commands += 1;
+        if (!manifest.isEmpty()) {
+          Map<byte[], byte[]> nodes = new LinkedHashMap<>();
+          for (Map.Entry<String, DataType> node : manifest.entrySet()) {
+            byte[] rawNode = stored.getOrDefault(node.getKey(), node.getKey()).getBytes(StandardCharsets.UTF_8);
+            byte[] rawType = node.getValue().code().getBytes(StandardCharsets.UTF_8);
+            nodes.put(rawNode, rawType);
+            bytes += rawNode.length + rawType.length;
+          }
+          if (!stored.isEmpty()) {
+            nodes.put(PathDictionary.ENCODED_MARKER.getBytes(StandardCharsets.UTF_8),
+                DataType.NONE.code().getBytes(StandardCharsets.UTF_8));
+          }
+          HashWrites.hSet(connection, manifestKey, nodes);
+          commands += 1;
         }
-        keyCount += 1;
 
-        if (data == null) {
-          meterRegistry.counter("record.get.null", Tags.of("record", "get")).increment();
-          nullPaths.add(mapKey);
-          continue;
+        if (transactional) {
+          connection.exec();
+          commands += 1;
         }
+      } catch (RuntimeException e) {
+        throw HashWrites.closeAfterFailure(connection, e);
+      }
+      connection.closePipeline();
+      return new WriteBatch(commands, bytes);
+    });
+  }
+
+  public Map<String, Object> subDocGet(String key, Map<String, DataType> manifest, Map<String, String> stored) {
+    logger.info("Processing paths for {} keys", manifest.size());
+    Map<String, Object> tree = new HashMap<>();
+    try {
+      Set<String> nullPaths = new HashSet<>();
 
-        if (data instanceof Map) {
+      List<Object> replies = getRecordBatchTimer.recordCallable(() -> readNodes(key, manifest, stored));
+
+      int index = 0;
+      for (String node : manifest.keySet()) {
+        Object data = index < replies.size() ? replies.get(index) : null;
+        index += 1;
+
+        Object nodeData = decodeNode(data);
+        if (nodeData instanceof Map) {
           meterRegistry.counter("record.get.hash", Tags.of("record", "get")).increment();
-        } else {
+          tree.put(node, nodeData);
+        } else if (nodeData instanceof List) {
           meterRegistry.counter("record.get.list", Tags.of("record", "get")).increment();
+          tree.put(node, nodeData);
+        } else {
+          meterRegistry.counter("record.get.null", Tags.of("record", "get")).increment();
+          nullPaths.add(key + ":" + node);
         }
       }
-      FileWriter.create(nullPaths, "null_output.txt");
-      logger.info("Get: Processed {} keys, {} null", keyCount, nullPaths.size());
+      diagnosticsSink.record(key, "null-paths", nullPaths);
+      logger.info("Get: Processed {} keys, {} null", tree.size(), nullPaths.size());
     } catch (Exception e) {
       logger.error("Error processing map", e);
     }
+    return tree;
+  }
+
+  public void verifyRecord(String key) {
+    Map<String, String> stored = new HashMap<>();
+    subDocGet(key, readManifest(key, stored), stored);
+  }
+
+  public JsonOutput getRecord(String key) {
+    Map<String, Object> tree = getDocumentTimer.record(() -> readTree(key));
+    if (tree == null || tree.isEmpty()) {
+      throw new RecordNotFoundException(key);
+    }
+    logger.debug("Read {} nodes for record {}", tree.size(), key);
+    Map<String, Object> fields = JsonReassembler.treeFields(tree);
+    return out -> JsonReassembler.write(fields, out);
+  }
+
+  private Map<String, Object> readTree(String key) {
+    Map<String, String> stored = new HashMap<>();
+    Map<String, DataType> manifest = readManifest(key, stored);
+    Map<String, Object> tree = new HashMap<>();
+    if (manifest.isEmpty()) {
+      return tree;
+    }
+
+    List<Object> replies = readNodes(key, manifest, stored);
+    int index = 0;
+    for (String node : manifest.keySet()) {
+      Object data = decodeNode(index < replies.size() ? replies.get(index) : null);
+      index += 1;
+      if (data != null) {
+        tree.put(node, data);
+      }
+    }
+    return tree;
+  }
+
+  public JsonOutput getSubtree(String key, String path) {
+    if (path.isEmpty()) {
+      return getRecord(key);
+    }
+    Map<String, Object> fields = getSubtreeTimer.record(() -> readSubtree(key, path));
+    if (fields == null || fields.isEmpty()) {
+      throw new RecordNotFoundException(key, path);
+    }
+    logger.debug("Read {} fields under {} for record {}", fields.size(), path, key);
+    return out -> JsonReassembler.write(fields, out);
+  }
+
+  private Map<String, Object> readSubtree(String key, String path) {
+    Map<String, String> stored = new HashMap<>();
+    Map<String, DataType> manifest = readManifest(key, stored);
+    Map<String, DataType> nodes = new LinkedHashMap<>();
+    for (Map.Entry<String, DataType> node : manifest.entrySet()) {
+      String nodePath = node.getKey().equals("root") ? "" : node.getKey();
+      if (FlatPath.startsWith(nodePath, path)) {
+        nodes.put(node.getKey(), node.getValue());
+      }
+    }
+    if (nodes.isEmpty()) {
+      return readLeaf(key, path, manifest, stored);
+    }
+
+    List<Object> replies = readNodes(key, nodes, stored);
+    Map<String, Object> tree = new HashMap<>();
+    long bytes = 0;
+    int index = 0;
+    for (String node : nodes.keySet()) {
+      Object reply = index < replies.size() ? replies.get(index) : null;
+      index += 1;
+      bytes += replyBytes(reply);
+      Object data = decodeNode(reply);
+      if (data != null) {
+        tree.put(node, data);
+      }
+    }
+    subtreeBytesSummary.record(bytes);
+
+    Map<String, Object> fields = new HashMap<>();
+    JsonReassembler.treeFields(tree).forEach((field, value) -> {
+      if (FlatPath.startsWith(field, path)) {
+        fields.put(FlatPath.relativize(field, path), value);
+      }
+    });
+    return fields;
+  }
+
+  private Map<String, Object> readLeaf(String key, String path, Map<String, DataType> manifest,
+                                       Map<String, String> stored) {
+    Map<String, Object> fields = new HashMap<>();
+    List<FlatPath.Segment> segments = FlatPath.parse(path).segments();
+    if (segments.isEmpty()) {
+      return fields;
+    }
+
+    byte[] value = null;
+    FlatPath.Segment last = segments.get(segments.size() - 1);
+    if (last.isIndex()) {
+      String listNode = path.substring(0, path.lastIndexOf('['));
+      if (manifest.get(listNode) == DataType.LIST) {
+        byte[] rawKey = nodeKey(key, listNode, stored);
+        value = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+            connection.listCommands().lIndex(rawKey, last.index()));
+      }
+    }
+    if (value == null) {
+      int dot = path.lastIndexOf('.');
+      String hashNode = dot < 0 ? "root" : path.substring(0, dot);
+      String field = dot < 0 ? path : path.substring(dot + 1);
+      if (manifest.get(hashNode) == DataType.HASH) {
+        byte[] rawKey = nodeKey(key, hashNode, stored);
+        byte[] rawField = field.getBytes(StandardCharsets.UTF_8);
+        value = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+            connection.hashCommands().hGet(rawKey, rawField));
+      }
+    }
+
+    if (value != null) {
+      subtreeBytesSummary.record(value.length);
+      fields.put("", valueCodec.decode(value));
+    }
+    return fields;
+  }
+
+  public JsonOutput getProjection(String key, List<String> paths) {
+    TreeProjection plan = TreeProjection.plan(paths);
+    Map<String, Object> fields = getProjectionTimer.record(() -> readProjection(key, plan));
+    if (fields == null || fields.isEmpty()) {
+      throw new RecordNotFoundException(key);
+    }
+    return out -> JsonReassembler.write(fields, out);
+  }
+
+  private Map<String, Object> readProjection(String key, TreeProjection plan) {
+    Map<String, Set<String>> hashReads = plan.hashReads();
+    Map<String, int[]> listReads = plan.listReads();
+    // node keys follow the names the manifest holds, which stay plain for records written without the dictionary
+    Map<String, String> stored = new HashMap<>();
+    if (pathDictionary.isEnabled()) {
+      readManifest(key, stored);
+    }
+
+    List<Object> replies = redisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+      connection.openPipeline();
+      for (Map.Entry<String, int[]> node : listReads.entrySet()) {
+        byte[] rawKey = nodeKey(key, node.getKey(), stored);
+        connection.listCommands().lRange(rawKey, node.getValue()[0], node.getValue()[1]);
+      }
+      hashReads(connection, key, hashReads, stored);
+      return connection.closePipeline();
+    });
+    if (replies == null) {
+      replies = List.of();
+    }
+
+    int index = 0;
+    Map<String, List<Object>> listValues = new HashMap<>();
+    for (String node : listReads.keySet()) {
+      Object reply = index < replies.size() ? replies.get(index) : null;
+      index += 1;
+      if (decodeNode(reply) instanceof List<?> items) {
+        listValues.put(node, new ArrayList<>(items));
+      }
+    }
+    Map<String, Map<String, Object>> hashValues = new HashMap<>();
+    collectHashes(hashReads, replies, index, hashValues);
+
+    // a second pipeline only for indexed paths the lists did not hold
+    Map<String, Set<String>> fallbackReads = plan.fallbackReads(listValues);
+    if (!fallbackReads.isEmpty()) {
+      List<Object> fallback = redisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+        connection.openPipeline();
+        hashReads(connection, key, fallbackReads, stored);
+        return connection.closePipeline();
+      });
+      collectHashes(fallbackReads, fallback == null ? List.of() : fallback, 0, hashValues);
+    }
+    return plan.resolve(hashValues, listValues);
+  }
+
+  private void hashReads(RedisConnection connection, String key, Map<String, Set<String>> reads,
+                         Map<String, String> stored) {
+    for (Map.Entry<String, Set<String>> node : reads.entrySet()) {
+      byte[] rawKey = nodeKey(key, node.getKey(), stored);
+      byte[][] rawFields = node.getValue().stream()
+          .map(field -> field.getBytes(StandardCharsets.UTF_8))
+          .toArray(byte[][]::new);
+      connection.hashCommands().hMGet(rawKey, rawFields);
+    }
+  }
+
+  private void collectHashes(Map<String, Set<String>> reads, List<Object> replies, int index,
+                             Map<String, Map<String, Object>> hashValues) {
+    for (Map.Entry<String, Set<String>> node : reads.entrySet()) {
+      Object reply = index < replies.size() ? replies.get(index) : null;
+      index += 1;
+      if (reply instanceof List<?> values) {
+        Map<String, Object> hash = hashValues.computeIfAbsent(node.getKey(), name -> new HashMap<>());
+        int position = 0;
+        for (String field : node.getValue()) {
+          Object value = position < values.size() ? values.get(position) : null;
+          position += 1;
+          if (value != null) {
+            hash.put(field, decodeValue(value));
+          }
+        }
+      }
+    }
+  }
+
+  public PatchReport patchRecord(String key, PatchPlan plan) {
+    return patchRecordTimer.record(() -> applyPatch(key, plan));
+  }
+
+  // the manifest and every node key are watched before they are read, so a write landing before EXEC discards the
+  // patch and it is planned again
+  private PatchReport applyPatch(String key, PatchPlan plan) {
+    int attempts = Math.max(1, batchProperties.getPatchAttempts());
+    for (int attempt = 1; attempt <= attempts; attempt++) {
+      PatchReport report = redisTemplate.execute((RedisCallback<PatchReport>) connection -> {
+        try {
+          return tryPatch(connection, key, plan);
+        } catch (RuntimeException e) {
+          connection.unwatch();
+          throw e;
+        }
+      });
+      if (report != null) {
+        return report;
+      }
+      logger.debug("Record {} changed while it was patched (attempt {})", key, attempt);
+    }
+    throw new PatchConflictException(key, attempts);
+  }
+
+  private PatchReport tryPatch(RedisConnection connection, String key, PatchPlan plan) {
+    connection.watch((key + ":" + MANIFEST_NODE).getBytes(StandardCharsets.UTF_8));
+    Map<String, String> stored = new HashMap<>();
+    Map<String, DataType> manifest = readManifest(connection, key, stored);
+    if (manifest.isEmpty()) {
+      throw new RecordNotFoundException(key);
+    }
+    NavigableSet<String> nodePaths = new TreeSet<>();
+    manifest.keySet().forEach(node -> nodePaths.add(nodePath(node)));
+
+    Map<String, PatchPlan.Kind> kinds = plan.kinds(paths -> treeKinds(connection, key, manifest, stored, nodePaths, paths));
+    Set<String> scopes = plan.scopes(kinds);
+    Map<String, Slot> slots = new HashMap<>();
+    Map<String, byte[]> current = readScopes(connection, key, manifest, stored, kinds, scopes, slots);
+    PatchPlan.Result<byte[]> result = plan.apply(kinds, current, valueCodec::encode);
+
+    Integer commands = writePatch(connection, key, manifest, stored, result, slots);
+    if (commands == null) {
+      return null;
+    }
+    logger.debug("Patched record {} with {} commands", key, commands);
+    return plan.report(key, StorageModel.TREE, result, commands);
+  }
+
+  // node names settle containers; a scalar needs its field in the parent hash, or its place in a list node, and an
+  // array of nulls has no node at all, only its items in the parent hash
+  private Map<String, PatchPlan.Kind> treeKinds(RedisConnection connection, String key, Map<String, DataType> manifest,
+                                                Map<String, String> stored, NavigableSet<String> nodePaths,
+                                                Set<String> paths) {
+    Map<String, PatchPlan.Kind> kinds = new HashMap<>();
+    List<String> probes = new ArrayList<>();
+    for (String path : paths) {
+      if (path.isEmpty()) {
+        boolean array = manifest.get("") == DataType.LIST || !nodePaths.subSet("[", "\\").isEmpty();
+        kinds.put(path, array ? PatchPlan.Kind.ARRAY : PatchPlan.Kind.OBJECT);
+      } else if (manifest.get(path) == DataType.LIST || !nodePaths.subSet(path + "[", path + "\\").isEmpty()) {
+        kinds.put(path, PatchPlan.Kind.ARRAY);
+      } else if (manifest.get(path) == DataType.HASH || !nodePaths.subSet(path + ".", path + "/").isEmpty()) {
+        kinds.put(path, PatchPlan.Kind.OBJECT);
+      } else {
+        probes.add(path);
+      }
+    }
+    if (probes.isEmpty()) {
+      return kinds;
+    }
+
+    List<String> fieldProbes = probes.stream().filter(path -> manifest.get(hashNode(path)) == DataType.HASH).toList();
+    List<String> itemProbes = probes.stream()
+        .filter(path -> path.endsWith("]") && manifest.get(listNode(path)) == DataType.LIST)
+        .toList();
+    Set<String> probed = new LinkedHashSet<>();
+    fieldProbes.forEach(path -> probed.add(hashNode(path)));
+    itemProbes.forEach(path -> probed.add(listNode(path)));
+    watchNodes(connection, key, probed, stored);
+    connection.openPipeline();
+    for (String path : fieldProbes) {
+      byte[] rawKey = nodeKey(key, hashNode(path), stored);
+      connection.hashCommands().hExists(rawKey, field(path).getBytes(StandardCharsets.UTF_8));
+      connection.hashCommands().hExists(rawKey, (field(path) + "[0]").getBytes(StandardCharsets.UTF_8));
+    }
+    for (String path : itemProbes) {
+      connection.listCommands().lLen(nodeKey(key, listNode(path), stored));
+    }
+    List<Object> replies = connection.closePipeline();
+    if (replies == null) {
+      replies = List.of();
+    }
+
+    probes.forEach(path -> kinds.put(path, PatchPlan.Kind.ABSENT));
+    int index = 0;
+    for (String path : fieldProbes) {
+      Object exists = index < replies.size() ? replies.get(index) : null;
+      Object firstItem = index + 1 < replies.size() ? replies.get(index + 1) : null;
+      index += 2;
+      if (Boolean.TRUE.equals(exists)) {
+        kinds.put(path, PatchPlan.Kind.VALUE);
+      } else if (Boolean.TRUE.equals(firstItem)) {
+        kinds.put(path, PatchPlan.Kind.ARRAY);
+      }
+    }
+    for (String path : itemProbes) {
+      Object length = index < replies.size() ? replies.get(index) : null;
+      index += 1;
+      if (length instanceof Number size && listIndex(path) < size.longValue()) {
+        kinds.put(path, PatchPlan.Kind.VALUE);
+      }
+    }
+    return kinds;
+  }
+
+  private Map<String, byte[]> readScopes(RedisConnection connection, String key, Map<String, DataType> manifest,
+                                         Map<String, String> stored, Map<String, PatchPlan.Kind> kinds,
+                                         Set<String> scopes, Map<String, Slot> slots) {
+    Map<String, DataType> covered = new LinkedHashMap<>();
+    for (Map.Entry<String, DataType> node : manifest.entrySet()) {
+      if (isCovered(node.getKey(), scopes)) {
+        covered.put(node.getKey(), node.getValue());
+      }
+    }
+    // a scope outside every covered node lives in its parent hash, and the null items of an array are kept there too
+    List<String> fieldReads = new ArrayList<>();
+    List<String> itemScans = new ArrayList<>();
+    for (String scope : scopes) {
+      String parent = hashNode(scope);
+      if (scope.isEmpty() || covered.containsKey(parent) || manifest.get(parent) != DataType.HASH) {
+        continue;
+      }
+      fieldReads.add(scope);
+      PatchPlan.Kind kind = kinds.get(scope);
+      if (kind == null || kind == PatchPlan.Kind.ARRAY || manifest.get(scope) == DataType.LIST) {
+        itemScans.add(scope);
+      }
+    }
+
+    Set<String> read = new LinkedHashSet<>(covered.keySet());
+    fieldReads.forEach(scope -> read.add(hashNode(scope)));
+    watchNodes(connection, key, read, stored);
+    connection.openPipeline();
+    for (Map.Entry<String, DataType> node : covered.entrySet()) {
+      byte[] rawKey = nodeKey(key, node.getKey(), stored);
+      if (node.getValue() == DataType.LIST) {
+        connection.listCommands().lRange(rawKey, 0, -1);
+      } else {
+        connection.hashCommands().hGetAll(rawKey);
+      }
+    }
+    for (String scope : fieldReads) {
+      connection.hashCommands().hGet(nodeKey(key, hashNode(scope), stored), field(scope).getBytes(StandardCharsets.UTF_8));
+    }
+    List<Object> replies = connection.closePipeline();
+    if (replies == null) {
+      replies = List.of();
+    }
+
+    Map<String, byte[]> current = new HashMap<>();
+    int index = 0;
+    for (String node : covered.keySet()) {
+      Object reply = index < replies.size() ? replies.get(index) : null;
+      index += 1;
+      if (reply instanceof Map<?, ?> hash) {
+        hash.forEach((field, value) -> putLeaf(current, slots, node, decode(field), (byte[]) value));
+      } else if (reply instanceof List<?> items) {
+        for (int i = 0; i < items.size(); i++) {
+          current.put(nodePath(node) + "[" + i + "]", (byte[]) items.get(i));
+          slots.put(nodePath(node) + "[" + i + "]", new Slot(node, null, i));
+        }
+      }
+    }
+    for (String scope : fieldReads) {
+      Object reply = index < replies.size() ? replies.get(index) : null;
+      index += 1;
+      if (reply instanceof byte[] value) {
+        putLeaf(current, slots, hashNode(scope), field(scope), value);
+      }
+    }
+
+    for (String scope : itemScans) {
+      byte[] rawKey = nodeKey(key, hashNode(scope), stored);
+      ScanOptions options = ScanOptions.scanOptions().match(FlatPath.globEscape(field(scope) + "[") + "*").build();
+      try (Cursor<Map.Entry<byte[], byte[]>> cursor = connection.hashCommands().hScan(rawKey, options)) {
+        while (cursor.hasNext()) {
+          Map.Entry<byte[], byte[]> field = cursor.next();
+          putLeaf(current, slots, hashNode(scope), decode(field.getKey()), field.getValue());
+        }
+      }
+    }
+    return current;
+  }
+
+  private Integer writePatch(RedisConnection connection, String key, Map<String, DataType> manifest,
+                             Map<String, String> stored, PatchPlan.Result<byte[]> result, Map<String, Slot> slots) {
+    // leaves are placed the way a full write lays them out: scalar array items in list nodes, the rest in hashes
+    byte[] nullValue = valueCodec.encode(null, JsonToken.NULL);
+    Map<String, Map<String, byte[]>> beforeHashes = new HashMap<>();
+    Map<String, TreeMap<Integer, byte[]>> beforeLists = new HashMap<>();
+    for (Map.Entry<String, byte[]> leaf : result.before().entrySet()) {
+      Slot slot = slots.get(leaf.getKey());
+      if (slot.field() != null) {
+        beforeHashes.computeIfAbsent(slot.node(), node -> new HashMap<>()).put(slot.field(), leaf.getValue());
+      } else {
+        beforeLists.computeIfAbsent(slot.node(), node -> new TreeMap<>()).put(slot.index(), leaf.getValue());
+      }
+    }
+    Map<String, Map<String, byte[]>> afterHashes = new HashMap<>();
+    Map<String, TreeMap<Integer, byte[]>> afterLists = new HashMap<>();
+    for (Map.Entry<String, byte[]> leaf : result.after().entrySet()) {
+      String path = leaf.getKey();
+      if (path.endsWith("]") && !Arrays.equals(leaf.getValue(), nullValue)) {
+        afterLists.computeIfAbsent(listNode(path), node -> new TreeMap<>()).put(listIndex(path), leaf.getValue());
+      } else {
+        afterHashes.computeIfAbsent(hashNode(path), node -> new HashMap<>()).put(field(path), leaf.getValue());
+      }
+    }
+
+    Set<String> nodes = new LinkedHashSet<>();
+    nodes.addAll(beforeHashes.keySet());
+    nodes.addAll(beforeLists.keySet());
+    nodes.addAll(afterHashes.keySet());
+    nodes.addAll(afterLists.keySet());
+    if (nodes.isEmpty()) {
+      connection.unwatch();
+      return 0;
+    }
+    // existing nodes keep the names the manifest holds, and new ones follow the form the record was written in
+    Map<String, String> names = new HashMap<>(stored);
+    if (!stored.isEmpty()) {
+      List<String> created = nodes.stream().filter(node -> !manifest.containsKey(node)).toList();
+      if (!created.isEmpty()) {
+        names.putAll(pathDictionary.encode(created));
+      }
+    }
+    byte[] manifestKey = (key + ":" + MANIFEST_NODE).getBytes(StandardCharsets.UTF_8);
+
+    // a hash outside the scopes that loses every field it has leaves the manifest too; its key is already watched
+    List<String> emptyCandidates = new ArrayList<>();
+    for (String node : nodes) {
+      if (!isCovered(node, result.scopes()) && manifest.get(node) == DataType.HASH
+          && !afterHashes.containsKey(node) && beforeHashes.containsKey(node)) {
+        emptyCandidates.add(node);
+      }
+    }
+    Set<String> emptied = new HashSet<>();
+    if (!emptyCandidates.isEmpty()) {
+      connection.openPipeline();
+      for (String node : emptyCandidates) {
+        connection.hashCommands().hLen(nodeKey(key, node, names));
+      }
+      List<Object> lengths = connection.closePipeline();
+      for (int i = 0; i < emptyCandidates.size(); i++) {
+        Object length = lengths != null && i < lengths.size() ? lengths.get(i) : null;
+        String node = emptyCandidates.get(i);
+        if (length instanceof Number size && size.longValue() == beforeHashes.get(node).size()) {
+          emptied.add(node);
+        }
+      }
+    }
+
+    int count = 0;
+    Map<byte[], byte[]> manifestPuts = new LinkedHashMap<>();
+    List<byte[]> manifestRemoves = new ArrayList<>();
+    connection.multi();
+    for (String node : nodes) {
+      byte[] rawKey = nodeKey(key, node, names);
+      byte[] rawNode = names.getOrDefault(node, node).getBytes(StandardCharsets.UTF_8);
+      Map<String, byte[]> beforeHash = beforeHashes.getOrDefault(node, Map.of());
+      Map<String, byte[]> afterHash = afterHashes.getOrDefault(node, Map.of());
+      List<byte[]> beforeList = new ArrayList<>(beforeLists.getOrDefault(node, new TreeMap<>()).values());
+      List<byte[]> afterList = new ArrayList<>(afterLists.getOrDefault(node, new TreeMap<>()).values());
+      DataType storedType = manifest.get(node);
+      DataType type = !afterList.isEmpty() ? DataType.LIST : !afterHash.isEmpty() ? DataType.HASH : null;
+
+      if (!isCovered(node, result.scopes())) {
+        // only the fields under the scopes were read, so the rest of this hash is left as it is
+        if (storedType == DataType.LIST || type == DataType.LIST || !beforeList.isEmpty()) {
+          connection.discard();
+          throw new IllegalStateException("List node " + node + " changed outside the patch scopes");
+        }
+        count += updateHash(connection, rawKey, beforeHash, afterHash);
+        if (storedType == null && type != null) {
+          manifestPuts.put(rawNode, type.code().getBytes(StandardCharsets.UTF_8));
+        } else if (emptied.contains(node)) {
+          manifestRemoves.add(rawNode);
+        }
+      } else if (type == null) {
+        if (storedType != null) {
+          connection.keyCommands().del(rawKey);
+          manifestRemoves.add(rawNode);
+          count += 1;
+        }
+      } else if (storedType != type) {
+        if (storedType != null) {
+          connection.keyCommands().del(rawKey);
+          count += 1;
+        }
+        count += type == DataType.LIST
+            ? updateList(connection, rawKey, List.of(), afterList)
+            : updateHash(connection, rawKey, Map.of(), afterHash);
+        manifestPuts.put(rawNode, type.code().getBytes(StandardCharsets.UTF_8));
+      } else if (type == DataType.LIST) {
+        count += updateList(connection, rawKey, beforeList, afterList);
+      } else {
+        count += updateHash(connection, rawKey, beforeHash, afterHash);
+      }
+    }
+    // an encoded record that loses every node would otherwise keep its marker alone
+    if (!stored.isEmpty() && manifestPuts.isEmpty() && manifestRemoves.size() == manifest.size()) {
+      manifestRemoves.add(PathDictionary.ENCODED_MARKER.getBytes(StandardCharsets.UTF_8));
+    }
+    if (!manifestRemoves.isEmpty()) {
+      connection.hashCommands().hDel(manifestKey, manifestRemoves.toArray(new byte[0][]));
+      count += 1;
+    }
+    if (!manifestPuts.isEmpty()) {
+      HashWrites.hSet(connection, manifestKey, manifestPuts);
+      count += 1;
+    }
+    if (count == 0) {
+      connection.discard();
+      return 0;
+    }
+    List<Object> replies = connection.exec();
+    return replies == null || replies.isEmpty() ? null : count;
+  }
+
+  private static int updateHash(RedisConnection connection, byte[] rawKey,
+                                Map<String, byte[]> before, Map<String, byte[]> after) {
+    int count = 0;
+    List<byte[]> removed = new ArrayList<>();
+    for (String field : before.keySet()) {
+      if (!after.containsKey(field)) {
+        removed.add(field.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    Map<byte[], byte[]> changed = new LinkedHashMap<>();
+    for (Map.Entry<String, byte[]> field : after.entrySet()) {
+      if (!Arrays.equals(before.get(field.getKey()), field.getValue())) {
+        changed.put(field.getKey().getBytes(StandardCharsets.UTF_8), field.getValue());
+      }
+    }
+    if (!removed.isEmpty()) {
+      connection.hashCommands().hDel(rawKey, removed.toArray(new byte[0][]));
+      count += 1;
+    }
+    if (!changed.isEmpty()) {
+      HashWrites.hSet(connection, rawKey, changed);
+      count += 1;
+    }
+    return count;
+  }
+
+  // an index shift is an insert or delete at either end of the list, or a rewrite when it lands in the middle
+  private static int updateList(RedisConnection connection, byte[] rawKey, List<byte[]> before, List<byte[]> after) {
+    int prefix = 0;
+    while (prefix < before.size() && prefix < after.size() && Arrays.equals(before.get(prefix), after.get(prefix))) {
+      prefix += 1;
+    }
+    int suffix = 0;
+    while (suffix < before.size() - prefix && suffix < after.size() - prefix
+        && Arrays.equals(before.get(before.size() - 1 - suffix), after.get(after.size() - 1 - suffix))) {
+      suffix += 1;
+    }
+
+    if (before.size() == after.size()) {
+      int count = 0;
+      for (int i = prefix; i < after.size() - suffix; i++) {
+        if (!Arrays.equals(before.get(i), after.get(i))) {
+          connection.listCommands().lSet(rawKey, i, after.get(i));
+          count += 1;
+        }
+      }
+      return count;
+    }
+    if (!before.isEmpty() && prefix == before.size()) {
+      connection.listCommands().rPush(rawKey, after.subList(prefix, after.size()).toArray(new byte[0][]));
+      return 1;
+    }
+    if (!before.isEmpty() && suffix == before.size()) {
+      List<byte[]> head = new ArrayList<>(after.subList(0, after.size() - suffix));
+      Collections.reverse(head);
+      connection.listCommands().lPush(rawKey, head.toArray(new byte[0][]));
+      return 1;
+    }
+    if (!after.isEmpty() && prefix == after.size()) {
+      connection.listCommands().lTrim(rawKey, 0, after.size() - 1);
+      return 1;
+    }
+    if (!after.isEmpty() && suffix == after.size()) {
+      connection.listCommands().lTrim(rawKey, before.size() - after.size(), -1);
+      return 1;
+    }
+    int count = 0;
+    if (!before.isEmpty()) {
+      connection.keyCommands().del(rawKey);
+      count += 1;
+    }
+    if (!after.isEmpty()) {
+      connection.listCommands().rPush(rawKey, after.toArray(new byte[0][]));
+      count += 1;
+    }
+    return count;
+  }
+
+  private static void putLeaf(Map<String, byte[]> current, Map<String, Slot> slots, String node, String field, byte[] value) {
+    String path = PatchPlan.join(nodePath(node), "." + field);
+    current.put(path, value);
+    slots.put(path, new Slot(node, field, -1));
+  }
+
+  private static boolean isCovered(String node, Set<String> scopes) {
+    String path = nodePath(node);
+    for (String scope : scopes) {
+      if (FlatPath.startsWith(path, scope)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String nodePath(String node) {
+    return node.equals("root") ? "" : node;
+  }
+
+  private static String hashNode(String path) {
+    int dot = path.lastIndexOf('.');
+    return dot < 0 ? "root" : path.substring(0, dot);
+  }
+
+  private static String field(String path) {
+    return path.substring(path.lastIndexOf('.') + 1);
+  }
+
+  private static String listNode(String path) {
+    return path.substring(0, path.lastIndexOf('['));
+  }
+
+  private static int listIndex(String path) {
+    return Integer.parseInt(path.substring(path.lastIndexOf('[') + 1, path.length() - 1));
+  }
+
+  // fills stored with the name each node key was written under, wherever that differs from the node path
+  private Map<String, DataType> readManifest(String key, Map<String, String> stored) {
+    Map<String, DataType> manifest = redisTemplate.execute((RedisCallback<Map<String, DataType>>) connection ->
+        readManifest(connection, key, stored));
+    return manifest != null ? manifest : new LinkedHashMap<>();
+  }
+
+  private Map<String, DataType> readManifest(RedisConnection connection, String key, Map<String, String> stored) {
+    byte[] manifestKey = (key + ":" + MANIFEST_NODE).getBytes(StandardCharsets.UTF_8);
+    Map<byte[], byte[]> nodes = connection.hashCommands().hGetAll(manifestKey);
+
+    Map<String, DataType> manifest = new LinkedHashMap<>();
+    if (nodes == null || nodes.isEmpty()) {
+      return manifest;
+    }
+    Map<String, DataType> types = new LinkedHashMap<>();
+    nodes.forEach((node, type) -> types.put(decode(node), DataType.fromCode(decode(type))));
+    if (!types.containsKey(PathDictionary.ENCODED_MARKER)) {
+      return types;
+    }
+    pathDictionary.resolve(types.keySet()).forEach((node, path) -> {
+      manifest.put(path, types.get(node));
+      stored.put(path, node);
+    });
+    return manifest;
+  }
+
+  public DictionaryReport getDictionaryReport(String key) {
+    byte[] manifestKey = (key + ":" + MANIFEST_NODE).getBytes(StandardCharsets.UTF_8);
+    Set<byte[]> nodes = redisTemplate.execute((RedisCallback<Set<byte[]>>) connection ->
+        connection.hashCommands().hKeys(manifestKey));
+    if (nodes == null || nodes.isEmpty()) {
+      throw new RecordNotFoundException(key);
+    }
+    List<String> storedNames = nodes.stream().map(MapTreeService::decode).toList();
+    return pathDictionary.report(key, StorageModel.TREE, storedNames, key + ":");
+  }
+
+  // every key a record holds: the nodes its manifest names, then the manifest itself; none when there is no manifest
+  public List<String> recordKeys(String key) {
+    String manifestKey = key + ":" + MANIFEST_NODE;
+    byte[] rawManifestKey = manifestKey.getBytes(StandardCharsets.UTF_8);
+    Set<byte[]> nodes = redisTemplate.execute((RedisCallback<Set<byte[]>>) connection ->
+        connection.hashCommands().hKeys(rawManifestKey));
+    List<String> keys = new ArrayList<>();
+    if (nodes == null || nodes.isEmpty()) {
+      return keys;
+    }
+    // manifest fields are the stored node names, already dictionary tokens when encoding is on
+    for (byte[] node : nodes) {
+      String name = decode(node);
+      if (!name.equals(PathDictionary.ENCODED_MARKER)) {
+        keys.add(key + ":" + name);
+      }
+    }
+    keys.add(manifestKey);
+    return keys;
+  }
+
+  private Map<String, String> storedNodes(Collection<String> nodes) {
+    if (!pathDictionary.isEnabled()) {
+      return Map.of();
+    }
+    return pathDictionary.encode(nodes);
+  }
+
+  private static void watchNodes(RedisConnection connection, String key, Collection<String> nodes,
+                                 Map<String, String> stored) {
+    if (!nodes.isEmpty()) {
+      connection.watch(nodes.stream().map(node -> nodeKey(key, node, stored)).toArray(byte[][]::new));
+    }
+  }
+
+  private static byte[] nodeKey(String key, String node, Map<String, String> stored) {
+    return (key + ":" + stored.getOrDefault(node, node)).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private List<Object> readNodes(String key, Map<String, DataType> manifest, Map<String, String> stored) {
+    List<Object> replies = redisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+      connection.openPipeline();
+      for (Map.Entry<String, DataType> node : manifest.entrySet()) {
+        byte[] rawKey = nodeKey(key, node.getKey(), stored);
+        if (node.getValue() == DataType.LIST) {
+          connection.listCommands().lRange(rawKey, 0, -1);
+        } else {
+          connection.hashCommands().hGetAll(rawKey);
+        }
+      }
+      return connection.closePipeline();
+    });
+    return replies != null ? replies : List.of();
+  }
+
+  private Object decodeNode(Object data) {
+    if (data instanceof Map<?, ?> hash && !hash.isEmpty()) {
+      Map<String, Object> fields = new HashMap<>();
+      for (Map.Entry<?, ?> field : hash.entrySet()) {
+        fields.put(decode(field.getKey()), decodeValue(field.getValue()));
+      }
+      return fields;
+    }
+    if (data instanceof List<?> list && !list.isEmpty()) {
+      List<Object> items = new ArrayList<>(list.size());
+      for (Object item : list) {
+        items.add(decodeValue(item));
+      }
+      return items;
+    }
+    return null;
+  }
+
+  private Object decodeValue(Object raw) {
+    return raw instanceof byte[] bytes ? valueCodec.decode(bytes) : raw;
+  }
+
+  private static byte[] raw(Object value) {
+    return value instanceof byte[] bytes ? bytes : String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static long replyBytes(Object data) {
+    long bytes = 0;
+    if (data instanceof Map<?, ?> hash) {
+      for (Map.Entry<?, ?> field : hash.entrySet()) {
+        bytes += replyBytes(field.getKey()) + replyBytes(field.getValue());
+      }
+    } else if (data instanceof List<?> list) {
+      for (Object item : list) {
+        bytes += replyBytes(item);
+      }
+    } else if (data instanceof byte[] raw) {
+      bytes += raw.length;
+    }
+    return bytes;
+  }
+
+  private static String decode(Object raw) {
+    return raw instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : String.valueOf(raw);
+  }
+
+  private record WriteBatch(int commands, long bytes) {
+  }
+
+  private record Slot(String node, String field, int index) {
   }
 }
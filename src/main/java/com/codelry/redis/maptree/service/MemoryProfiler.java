@@ -0,0 +1,135 @@
+package com.codelry.redis.maptree.service;
+
+import com.codelry.redis.maptree.dto.MemoryReport;
+import com.codelry.redis.maptree.exception.RecordNotFoundException;
+import com.codelry.redis.maptree.model.StorageModel;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class MemoryProfiler {
+
+  private static final Logger logger = LoggerFactory.getLogger(MemoryProfiler.class);
+
+  private static final byte[] USAGE = "USAGE".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] SAMPLES = "SAMPLES".getBytes(StandardCharsets.UTF_8);
+  // 0 samples every nested value, so large hashes and lists are measured exactly
+  private static final byte[] ALL_SAMPLES = "0".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] ENCODING = "ENCODING".getBytes(StandardCharsets.UTF_8);
+
+  private final RedisTemplate<String, String> redisTemplate;
+  private final MapTreeService mapTreeService;
+  private final MeterRegistry meterRegistry;
+
+  private final Map<StorageModel, DistributionSummary> recordBytesSummaries = new EnumMap<>(StorageModel.class);
+  private final Map<StorageModel, DistributionSummary> leafBytesSummaries = new EnumMap<>(StorageModel.class);
+
+  @Autowired
+  public MemoryProfiler(RedisTemplate<String, String> redisTemplate, MapTreeService mapTreeService,
+                        MeterRegistry meterRegistry) {
+    this.redisTemplate = redisTemplate;
+    this.mapTreeService = mapTreeService;
+    this.meterRegistry = meterRegistry;
+
+    for (StorageModel model : StorageModel.values()) {
+      recordBytesSummaries.put(model, DistributionSummary.builder("record.memory.bytes")
+          .description("Redis memory used by all keys of one record")
+          .baseUnit("bytes")
+          .tag("model", model.tag())
+          .register(meterRegistry));
+      leafBytesSummaries.put(model, DistributionSummary.builder("record.memory.leaf.bytes")
+          .description("Redis memory per leaf value of one record")
+          .baseUnit("bytes")
+          .tag("model", model.tag())
+          .register(meterRegistry));
+    }
+  }
+
+  public MemoryReport profile(StorageModel model, String key, byte[] document) {
+    AtomicInteger leaves = new AtomicInteger();
+    StreamingJsonFlattener.flatten(document, false, new StreamingJsonFlattener.PathHandler() {
+      @Override
+      public void value(String path, String value) {
+        leaves.incrementAndGet();
+      }
+
+      @Override
+      public void nullValue(String path) {
+        leaves.incrementAndGet();
+      }
+    });
+    return profile(model, key, leaves.get());
+  }
+
+  public MemoryReport profile(StorageModel model, String key, int leaves) {
+    List<String> keys = recordKeys(model, key);
+    List<Object> replies = redisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+      connection.openPipeline();
+      for (String name : keys) {
+        byte[] rawKey = name.getBytes(StandardCharsets.UTF_8);
+        connection.execute("MEMORY", USAGE, rawKey, SAMPLES, ALL_SAMPLES);
+        connection.execute("OBJECT", ENCODING, rawKey);
+      }
+      return connection.closePipeline();
+    });
+    if (replies == null) {
+      replies = List.of();
+    }
+
+    MemoryReport report = new MemoryReport();
+    report.setKey(key);
+    report.setModel(model.tag());
+    report.setLeaves(leaves);
+    long total = 0;
+    for (int i = 0; i < keys.size(); i++) {
+      Object usage = i * 2 < replies.size() ? replies.get(i * 2) : null;
+      Object encoding = i * 2 + 1 < replies.size() ? replies.get(i * 2 + 1) : null;
+      if (!(usage instanceof Number bytes)) {
+        logger.debug("No memory usage reported for {}", keys.get(i));
+        continue;
+      }
+      MemoryReport.KeyUsage entry = new MemoryReport.KeyUsage();
+      entry.setKey(keys.get(i));
+      entry.setBytes(bytes.longValue());
+      entry.setEncoding(encoding instanceof byte[] raw ? new String(raw, StandardCharsets.UTF_8) : "unknown");
+      report.getEntries().add(entry);
+      report.getEncodings().merge(entry.getEncoding(), 1, Integer::sum);
+      total += entry.getBytes();
+    }
+    if (report.getEntries().isEmpty()) {
+      throw new RecordNotFoundException(key);
+    }
+    report.setKeys(report.getEntries().size());
+    report.setBytes(total);
+    report.setBytesPerLeaf(leaves > 0 ? (double) total / leaves : 0);
+
+    recordBytesSummaries.get(model).record(total);
+    if (leaves > 0) {
+      leafBytesSummaries.get(model).record(report.getBytesPerLeaf());
+    }
+    report.getEncodings().forEach((encoding, count) ->
+        meterRegistry.counter("record.memory.encoding", Tags.of("model", model.tag(), "encoding", encoding))
+            .increment(count));
+
+    logger.info("Profiled {} record {}: {} bytes over {} keys, {} leaves",
+        model.tag(), key, total, report.getKeys(), leaves);
+    return report;
+  }
+
+  private List<String> recordKeys(StorageModel model, String key) {
+    return model == StorageModel.TREE ? mapTreeService.recordKeys(key) : List.of(key);
+  }
+}
@@ -0,0 +1,686 @@
+package com.codelry.redis.maptree.service;
+
+import com.codelry.redis.maptree.dto.PatchReport;
+import com.codelry.redis.maptree.model.StorageModel;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+// Applies RFC 7396 merge patches and RFC 6902 JSON patches to flattened leaves. A store first answers the kinds of the
+// paths a plan probes, then supplies every leaf under the scopes it can change, and the plan yields a leaf diff.
+public final class PatchPlan {
+
+    public enum Format {
+        MERGE_PATCH("application/merge-patch+json"),
+        JSON_PATCH("application/json-patch+json");
+
+        private final String mediaType;
+
+        Format(String mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public String mediaType() {
+            return mediaType;
+        }
+
+        public static Format fromMediaType(String contentType) {
+            if (contentType != null) {
+                String mediaType = contentType.split(";", 2)[0].trim();
+                for (Format format : values()) {
+                    if (format.mediaType.equalsIgnoreCase(mediaType)) {
+                        return format;
+                    }
+                }
+            }
+            throw new IllegalArgumentException("Unsupported patch media type: " + contentType);
+        }
+    }
+
+    public enum Kind {
+        ABSENT,
+        VALUE,
+        OBJECT,
+        ARRAY
+    }
+
+    public record Result<V>(Set<String> scopes, Map<String, V> before, NavigableMap<String, V> after,
+                            Map<String, V> puts, Set<String> removes, Map<String, Kind> emptied) {
+        public boolean isEmpty() {
+            return puts.isEmpty() && removes.isEmpty();
+        }
+    }
+
+    private enum Type {
+        ADD, REMOVE, REPLACE, MOVE, COPY, TEST,
+        MERGE_OBJECT, MERGE_SET, MERGE_REMOVE
+    }
+
+    private record Operation(Type type, List<String> path, List<String> from, JsonElement value) {
+        boolean merge() {
+            return type == Type.MERGE_OBJECT || type == Type.MERGE_SET || type == Type.MERGE_REMOVE;
+        }
+    }
+
+    private final Format format;
+    private final List<Operation> operations;
+
+    private PatchPlan(Format format, List<Operation> operations) {
+        this.format = format;
+        this.operations = operations;
+    }
+
+    public static PatchPlan parse(Format format, byte[] body) {
+        JsonElement root;
+        try {
+            root = JsonParser.parseString(new String(body, StandardCharsets.UTF_8));
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("Patch body is not valid JSON", e);
+        }
+        List<Operation> operations = new ArrayList<>();
+        if (format == Format.MERGE_PATCH) {
+            if (root.isJsonObject()) {
+                operations.add(new Operation(Type.MERGE_OBJECT, List.of(), null, null));
+                mergeOperations(List.of(), root.getAsJsonObject(), operations);
+            } else {
+                operations.add(new Operation(Type.MERGE_SET, List.of(), null, root));
+            }
+        } else {
+            if (!root.isJsonArray()) {
+                throw new IllegalArgumentException("JSON patch must be an array of operations");
+            }
+            for (JsonElement element : root.getAsJsonArray()) {
+                operations.add(jsonOperation(element));
+            }
+        }
+        return new PatchPlan(format, operations);
+    }
+
+    public Format format() {
+        return format;
+    }
+
+    public int size() {
+        return operations.size();
+    }
+
+    // containers whose kinds are still needed to resolve tokens and pick scopes; callers read them until none are left
+    public Set<String> probes(Map<String, Kind> known) {
+        Set<String> probes = new LinkedHashSet<>();
+        if (!known.containsKey("")) {
+            probes.add("");
+        }
+        for (Operation operation : operations) {
+            if (operation.type() == Type.MERGE_OBJECT) {
+                String path = flat(operation.path(), true, null);
+                if (!known.containsKey(path)) {
+                    probes.add(path);
+                }
+            } else if (!operation.merge()) {
+                addPrefixes(operation.path(), known, probes);
+                if (operation.from() != null) {
+                    addPrefixes(operation.from(), known, probes);
+                }
+            }
+        }
+        return probes;
+    }
+
+    public PatchReport report(String key, StorageModel model, Result<?> result, int commands) {
+        PatchReport report = new PatchReport();
+        report.setKey(key);
+        report.setModel(model.tag());
+        report.setFormat(format.mediaType());
+        report.setOperations(operations.size());
+        report.setScopes(result.scopes().size());
+        report.setLeavesRead(result.before().size());
+        report.setUpdated(result.puts().size());
+        report.setRemoved(result.removes().size());
+        report.setCommands(commands);
+        return report;
+    }
+
+    public Map<String, Kind> kinds(Function<Set<String>, Map<String, Kind>> reader) {
+        Map<String, Kind> kinds = new HashMap<>();
+        Set<String> probes;
+        while (!(probes = probes(kinds)).isEmpty()) {
+            Map<String, Kind> answers = reader.apply(probes);
+            for (String probe : probes) {
+                kinds.put(probe, answers.getOrDefault(probe, Kind.ABSENT));
+            }
+        }
+        return kinds;
+    }
+
+    public Set<String> scopes(Map<String, Kind> kinds) {
+        List<String> scopes = new ArrayList<>();
+        for (Operation operation : operations) {
+            switch (operation.type()) {
+                case MERGE_OBJECT -> {
+                    String path = flat(operation.path(), true, null);
+                    Kind kind = kinds.getOrDefault(path, Kind.ABSENT);
+                    if (kind == Kind.VALUE || kind == Kind.ARRAY) {
+                        scopes.add(path);
+                    }
+                }
+                case MERGE_SET, MERGE_REMOVE -> scopes.add(flat(operation.path(), true, null));
+                default -> {
+                    scopes.add(scope(operation.path(), kinds));
+                    if (operation.from() != null) {
+                        scopes.add(scope(operation.from(), kinds));
+                    }
+                }
+            }
+        }
+        // only outermost scopes are read, anything nested in one is already covered by it
+        scopes.sort(Comparator.comparingInt(String::length));
+        Set<String> outermost = new LinkedHashSet<>();
+        for (String scope : scopes) {
+            boolean covered = false;
+            for (String outer : outermost) {
+                if (FlatPath.startsWith(scope, outer)) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) {
+                outermost.add(scope);
+            }
+        }
+        return outermost;
+    }
+
+    public <V> Result<V> apply(Map<String, Kind> kinds, Map<String, V> current, Function<JsonElement, V> encoder) {
+        Set<String> scopes = scopes(kinds);
+        State<V> state = new State<>(scopes, kinds, current, encoder);
+        for (Operation operation : operations) {
+            state.apply(operation);
+        }
+
+        Map<String, V> puts = new LinkedHashMap<>();
+        for (Map.Entry<String, V> leaf : state.leaves.entrySet()) {
+            if (!current.containsKey(leaf.getKey()) || !Objects.deepEquals(current.get(leaf.getKey()), leaf.getValue())) {
+                puts.put(leaf.getKey(), leaf.getValue());
+            }
+        }
+        Set<String> removes = new LinkedHashSet<>();
+        for (String path : current.keySet()) {
+            if (!state.leaves.containsKey(path)) {
+                removes.add(path);
+            }
+        }
+        return new Result<>(scopes, current, state.leaves, puts, removes, state.emptied);
+    }
+
+    public static Kind kindOf(NavigableSet<String> paths, String path) {
+        if (path.isEmpty()) {
+            if (paths.isEmpty()) {
+                return Kind.ABSENT;
+            }
+            if (paths.contains("")) {
+                return Kind.VALUE;
+            }
+            return paths.first().startsWith("[") ? Kind.ARRAY : Kind.OBJECT;
+        }
+        if (paths.contains(path)) {
+            return Kind.VALUE;
+        }
+        if (!paths.subSet(path + "[", true, path + "\\", false).isEmpty()) {
+            return Kind.ARRAY;
+        }
+        if (!paths.subSet(path + ".", true, path + "/", false).isEmpty()) {
+            return Kind.OBJECT;
+        }
+        return Kind.ABSENT;
+    }
+
+    public static List<String> under(NavigableSet<String> paths, String scope) {
+        if (scope.isEmpty()) {
+            return new ArrayList<>(paths);
+        }
+        List<String> under = new ArrayList<>();
+        if (paths.contains(scope)) {
+            under.add(scope);
+        }
+        under.addAll(paths.subSet(scope + ".", true, scope + "/", false));
+        under.addAll(paths.subSet(scope + "[", true, scope + "\\", false));
+        return under;
+    }
+
+    public static <V> Map<String, V> leaves(String base, JsonElement value, Function<JsonElement, V> encoder) {
+        Map<String, V> suffixes = new LinkedHashMap<>();
+        flatten(value, "", encoder, suffixes);
+        Map<String, V> leaves = new LinkedHashMap<>();
+        suffixes.forEach((suffix, leaf) -> leaves.put(join(base, suffix), leaf));
+        return leaves;
+    }
+
+    private static <V> void flatten(JsonElement value, String suffix, Function<JsonElement, V> encoder, Map<String, V> values) {
+        if (value == null || value.isJsonNull()) {
+            values.put(suffix, encoder.apply(JsonNull.INSTANCE));
+        } else if (value.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> member : value.getAsJsonObject().entrySet()) {
+                flatten(member.getValue(), suffix + "." + member.getKey(), encoder, values);
+            }
+        } else if (value.isJsonArray()) {
+            JsonArray array = value.getAsJsonArray();
+            for (int i = 0; i < array.size(); i++) {
+                flatten(array.get(i), suffix + "[" + i + "]", encoder, values);
+            }
+        } else {
+            values.put(suffix, encoder.apply(value));
+        }
+    }
+
+    static String parent(String path) {
+        int cut = Math.max(path.lastIndexOf('.'), path.lastIndexOf('['));
+        return cut < 0 ? "" : path.substring(0, cut);
+    }
+
+    static String join(String base, String suffix) {
+        if (base.isEmpty()) {
+            return suffix.startsWith(".") ? suffix.substring(1) : suffix;
+        }
+        return base + suffix;
+    }
+
+    private static void mergeOperations(List<String> path, JsonObject patch, List<Operation> operations) {
+        for (Map.Entry<String, JsonElement> member : patch.entrySet()) {
+            List<String> memberPath = append(path, member.getKey());
+            JsonElement value = member.getValue();
+            if (value.isJsonObject()) {
+                operations.add(new Operation(Type.MERGE_OBJECT, memberPath, null, null));
+                mergeOperations(memberPath, value.getAsJsonObject(), operations);
+            } else if (value.isJsonNull()) {
+                operations.add(new Operation(Type.MERGE_REMOVE, memberPath, null, null));
+            } else {
+                operations.add(new Operation(Type.MERGE_SET, memberPath, null, value));
+            }
+        }
+    }
+
+    private static Operation jsonOperation(JsonElement element) {
+        if (!element.isJsonObject()) {
+            throw new IllegalArgumentException("JSON patch operation must be an object");
+        }
+        JsonObject object = element.getAsJsonObject();
+        String op = member(object, "op");
+        Type type = switch (op) {
+            case "add" -> Type.ADD;
+            case "remove" -> Type.REMOVE;
+            case "replace" -> Type.REPLACE;
+            case "move" -> Type.MOVE;
+            case "copy" -> Type.COPY;
+            case "test" -> Type.TEST;
+            default -> throw new IllegalArgumentException("Unknown JSON patch operation: " + op);
+        };
+        List<String> path = pointer(member(object, "path"));
+        List<String> from = type == Type.MOVE || type == Type.COPY ? pointer(member(object, "from")) : null;
+        JsonElement value = null;
+        if (type == Type.ADD || type == Type.REPLACE || type == Type.TEST) {
+            if (!object.has("value")) {
+                throw new IllegalArgumentException("JSON patch " + op + " operation requires a value");
+            }
+            value = object.get("value");
+        }
+        if (type == Type.MOVE && isPrefix(from, path) && from.size() < path.size()) {
+            throw new IllegalArgumentException("Cannot move " + member(object, "from") + " into one of its children");
+        }
+        return new Operation(type, path, from, value);
+    }
+
+    private static String member(JsonObject object, String name) {
+        JsonElement value = object.get(name);
+        if (value == null || !value.isJsonPrimitive() || !value.getAsJsonPrimitive().isString()) {
+            throw new IllegalArgumentException("JSON patch operation requires a string " + name);
+        }
+        return value.getAsString();
+    }
+
+    static List<String> pointer(String pointer) {
+        if (pointer.isEmpty()) {
+            return List.of();
+        }
+        if (pointer.charAt(0) != '/') {
+            throw new IllegalArgumentException("Invalid JSON pointer: " + pointer);
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : pointer.substring(1).split("/", -1)) {
+            tokens.add(token.replace("~1", "/").replace("~0", "~"));
+        }
+        return tokens;
+    }
+
+    private static boolean isPrefix(List<String> prefix, List<String> path) {
+        return prefix.size() <= path.size() && path.subList(0, prefix.size()).equals(prefix);
+    }
+
+    private static List<String> append(List<String> path, String token) {
+        List<String> tokens = new ArrayList<>(path.size() + 1);
+        tokens.addAll(path);
+        tokens.add(token);
+        return tokens;
+    }
+
+    private static boolean isIndex(String token) {
+        if (token.isEmpty() || token.length() > 9 || (token.length() > 1 && token.charAt(0) == '0')) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (!Character.isDigit(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // a numeric token is an array index only where its container is an array, otherwise it names a member
+    private static String flat(List<String> tokens, boolean names, Function<String, Kind> kinds) {
+        String path = "";
+        for (String token : tokens) {
+            if (!names && isIndex(token) && kinds.apply(path) == Kind.ARRAY) {
+                path = path + "[" + token + "]";
+            } else {
+                path = path.isEmpty() ? token : path + "." + token;
+            }
+        }
+        return path;
+    }
+
+    // unknown containers are assumed to be arrays, so a numeric member name costs one more probe round
+    private static void addPrefixes(List<String> tokens, Map<String, Kind> known, Set<String> probes) {
+        String path = "";
+        for (String token : tokens) {
+            if (!known.containsKey(path)) {
+                probes.add(path);
+            }
+            if (isIndex(token) && known.getOrDefault(path, Kind.ARRAY) == Kind.ARRAY) {
+                path = path + "[" + token + "]";
+            } else {
+                path = join(path, "." + token);
+            }
+        }
+    }
+
+    private static String scope(List<String> tokens, Map<String, Kind> kinds) {
+        if (tokens.isEmpty()) {
+            return "";
+        }
+        Function<String, Kind> kind = path -> kinds.getOrDefault(path, Kind.ABSENT);
+        String parent = flat(tokens.subList(0, tokens.size() - 1), false, kind);
+        // array edits shift the indices of later elements, so the whole array is read and rewritten
+        if (kind.apply(parent) == Kind.ARRAY) {
+            return parent;
+        }
+        return join(parent, "." + tokens.get(tokens.size() - 1));
+    }
+
+    private static String describe(List<String> tokens) {
+        StringBuilder pointer = new StringBuilder();
+        for (String token : tokens) {
+            pointer.append('/').append(token.replace("~", "~0").replace("/", "~1"));
+        }
+        return pointer.toString();
+    }
+
+    private record Target(String parent, Kind parentKind, String path, int index) {
+    }
+
+    private static final class State<V> {
+        private final Set<String> scopes;
+        private final Map<String, Kind> kinds;
+        private final TreeMap<String, V> leaves;
+        private final Function<JsonElement, V> encoder;
+        // containers emptied by this patch keep their kind for later operations, although nothing of them is stored
+        private final Map<String, Kind> emptied = new HashMap<>();
+
+        private State(Set<String> scopes, Map<String, Kind> kinds, Map<String, V> current, Function<JsonElement, V> encoder) {
+            this.scopes = scopes;
+            this.kinds = kinds;
+            this.leaves = new TreeMap<>(current);
+            this.encoder = encoder;
+        }
+
+        void apply(Operation operation) {
+            List<String> path = operation.path();
+            switch (operation.type()) {
+                case MERGE_OBJECT -> {
+                    String target = flat(path, true, null);
+                    Kind kind = kind(target);
+                    if (kind == Kind.VALUE || kind == Kind.ARRAY) {
+                        removeUnder(target);
+                    }
+                }
+                case MERGE_REMOVE -> removeUnder(flat(path, true, null));
+                case MERGE_SET -> {
+                    String target = flat(path, true, null);
+                    removeUnder(target);
+                    putAll(target, values(operation.value()));
+                }
+                case ADD -> add(path, values(operation.value()));
+                case REMOVE -> remove(path);
+                case REPLACE -> {
+                    Target target = existing(path);
+                    removeUnder(target.path());
+                    putAll(target.path(), values(operation.value()));
+                }
+                case MOVE -> {
+                    if (!operation.from().equals(path)) {
+                        add(path, remove(operation.from()));
+                    }
+                }
+                case COPY -> add(path, relative(existing(operation.from()).path()));
+                case TEST -> {
+                    Map<String, V> actual = relative(existing(path).path());
+                    Map<String, V> expected = values(operation.value());
+                    if (!equal(actual, expected)) {
+                        throw new IllegalArgumentException("JSON patch test failed at " + describe(path));
+                    }
+                }
+            }
+        }
+
+        private void add(List<String> tokens, Map<String, V> values) {
+            if (tokens.isEmpty()) {
+                removeUnder("");
+                putAll("", values);
+                return;
+            }
+            String token = tokens.get(tokens.size() - 1);
+            String parent = flat(tokens.subList(0, tokens.size() - 1), false, this::kind);
+            Kind parentKind = kind(parent);
+            if (parentKind == Kind.ARRAY) {
+                int length = length(parent);
+                if (!token.equals("-") && !isIndex(token)) {
+                    throw new IllegalArgumentException("Invalid array index in " + describe(tokens));
+                }
+                int index = token.equals("-") ? length : Integer.parseInt(token);
+                if (index > length) {
+                    throw new IllegalArgumentException("Array index out of bounds in " + describe(tokens));
+                }
+                shift(parent, index, 1);
+                putAll(parent + "[" + index + "]", values);
+                return;
+            }
+            // empty containers are not stored, so a missing object member is treated as an empty object
+            if (parentKind == Kind.VALUE || (parentKind == Kind.ABSENT && parent.endsWith("]"))) {
+                throw new IllegalArgumentException("Parent of " + describe(tokens) + " is not a container");
+            }
+            String target = join(parent, "." + token);
+            removeUnder(target);
+            putAll(target, values);
+        }
+
+        private Map<String, V> remove(List<String> tokens) {
+            if (tokens.isEmpty()) {
+                throw new IllegalArgumentException("Cannot remove the document root");
+            }
+            Target target = existing(tokens);
+            Map<String, V> removed = relative(target.path());
+            removeUnder(target.path());
+            if (target.index() >= 0) {
+                shift(target.parent(), target.index() + 1, -1);
+            }
+            if (inScope(target.parent()) && kind(target.parent()) == Kind.ABSENT) {
+                emptied.put(target.parent(), target.index() >= 0 ? Kind.ARRAY : Kind.OBJECT);
+            }
+            return removed;
+        }
+
+        private Target existing(List<String> tokens) {
+            if (tokens.isEmpty()) {
+                if (kind("") == Kind.ABSENT) {
+                    throw new IllegalArgumentException("Document root does not exist");
+                }
+                return new Target("", Kind.ABSENT, "", -1);
+            }
+            String token = tokens.get(tokens.size() - 1);
+            String parent = flat(tokens.subList(0, tokens.size() - 1), false, this::kind);
+            Kind parentKind = kind(parent);
+            if (parentKind == Kind.ARRAY) {
+                if (!isIndex(token) || Integer.parseInt(token) >= length(parent)) {
+                    throw new IllegalArgumentException("Path " + describe(tokens) + " does not exist");
+                }
+                return new Target(parent, parentKind, parent + "[" + token + "]", Integer.parseInt(token));
+            }
+            String path = join(parent, "." + token);
+            if (relative(path).isEmpty() && !emptied.containsKey(path)) {
+                throw new IllegalArgumentException("Path " + describe(tokens) + " does not exist");
+            }
+            return new Target(parent, parentKind, path, -1);
+        }
+
+        Kind kind(String path) {
+            if (!inScope(path)) {
+                return kinds.getOrDefault(path, Kind.ABSENT);
+            }
+            Kind kind = kindOf(leaves.navigableKeySet(), path);
+            return kind == Kind.ABSENT ? emptied.getOrDefault(path, Kind.ABSENT) : kind;
+        }
+
+        private boolean inScope(String path) {
+            for (String scope : scopes) {
+                if (FlatPath.startsWith(path, scope)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void requireScope(String path) {
+            if (!inScope(path)) {
+                throw new IllegalStateException("Patch reached " + path + " outside the paths it read");
+            }
+        }
+
+        private NavigableMap<String, V> elements(String array) {
+            return leaves.subMap(array + "[", true, array + "\\", false);
+        }
+
+        private int length(String array) {
+            int length = 0;
+            for (String path : elements(array).keySet()) {
+                length = Math.max(length, index(array, path) + 1);
+            }
+            return length;
+        }
+
+        private static int index(String array, String path) {
+            int start = array.length() + 1;
+            return Integer.parseInt(path, start, path.indexOf(']', start), 10);
+        }
+
+        private void shift(String array, int from, int delta) {
+            requireScope(array);
+            Map<String, V> moved = new HashMap<>();
+            Iterator<Map.Entry<String, V>> iterator = elements(array).entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, V> leaf = iterator.next();
+                int index = index(array, leaf.getKey());
+                if (index >= from) {
+                    String rest = leaf.getKey().substring(leaf.getKey().indexOf(']', array.length()) + 1);
+                    moved.put(array + "[" + (index + delta) + "]" + rest, leaf.getValue());
+                    iterator.remove();
+                }
+            }
+            leaves.putAll(moved);
+        }
+
+        private Map<String, V> relative(String path) {
+            Map<String, V> values = new LinkedHashMap<>();
+            if (path.isEmpty()) {
+                for (Map.Entry<String, V> leaf : leaves.entrySet()) {
+                    String key = leaf.getKey();
+                    values.put(key.isEmpty() || key.startsWith("[") ? key : "." + key, leaf.getValue());
+                }
+                return values;
+            }
+            if (leaves.containsKey(path)) {
+                values.put("", leaves.get(path));
+            }
+            for (Map.Entry<String, V> leaf : leaves.subMap(path + ".", true, path + "/", false).entrySet()) {
+                values.put(leaf.getKey().substring(path.length()), leaf.getValue());
+            }
+            for (Map.Entry<String, V> leaf : elements(path).entrySet()) {
+                values.put(leaf.getKey().substring(path.length()), leaf.getValue());
+            }
+            return values;
+        }
+
+        private void removeUnder(String path) {
+            requireScope(path);
+            emptied.keySet().removeIf(array -> FlatPath.startsWith(array, path));
+            if (path.isEmpty()) {
+                leaves.clear();
+                return;
+            }
+            leaves.remove(path);
+            leaves.subMap(path + ".", true, path + "/", false).clear();
+            elements(path).clear();
+        }
+
+        private void putAll(String base, Map<String, V> values) {
+            requireScope(base);
+            for (Map.Entry<String, V> value : values.entrySet()) {
+                leaves.put(join(base, value.getKey()), value.getValue());
+            }
+        }
+
+        private Map<String, V> values(JsonElement value) {
+            Map<String, V> values = new LinkedHashMap<>();
+            flatten(value, "", encoder, values);
+            return values;
+        }
+
+        private boolean equal(Map<String, V> actual, Map<String, V> expected) {
+            if (actual.size() != expected.size()) {
+                return false;
+            }
+            for (Map.Entry<String, V> leaf : expected.entrySet()) {
+                if (!actual.containsKey(leaf.getKey()) || !Objects.deepEquals(actual.get(leaf.getKey()), leaf.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.codelry.redis.maptree.service;
+
+import com.codelry.redis.maptree.config.PathDictionaryProperties;
+import com.codelry.redis.maptree.dto.DictionaryReport;
+import com.codelry.redis.maptree.model.StorageModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class PathDictionary {
+
+  private static final Logger logger = LoggerFactory.getLogger(PathDictionary.class);
+
+  static final char TOKEN_PREFIX = '~';
+  private static final String DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+  private static final int MAX_TOKEN_LENGTH = 12;
+  private static final int SCAN_COUNT = 1000;
+
+  // ID 0 is never handed out, so its token marks a record whose names were all written as tokens
+  static final String ENCODED_MARKER = token(0);
+
+  private final RedisTemplate<String, String> redisTemplate;
+  private final boolean enabled;
+  private final String namespace;
+  private final byte[] idsKey;
+  private final byte[] namesKey;
+  private final byte[] sequenceKey;
+
+  private final Map<String, String> tokens;
+  private final Map<String, String> paths;
+
+  @Autowired
+  public PathDictionary(RedisTemplate<String, String> redisTemplate, PathDictionaryProperties properties) {
+    this.redisTemplate = redisTemplate;
+    this.enabled = properties.isEnabled();
+    this.namespace = properties.getNamespace();
+    // one hash tag so the dictionary keys share a cluster slot
+    String prefix = "{" + namespace + "}:";
+    this.idsKey = (prefix + "ids").getBytes(StandardCharsets.UTF_8);
+    this.namesKey = (prefix + "names").getBytes(StandardCharsets.UTF_8);
+    this.sequenceKey = (prefix + "seq").getBytes(StandardCharsets.UTF_8);
+    this.tokens = boundedCache(properties.getCacheEntries());
+    this.paths = boundedCache(properties.getCacheEntries());
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public Map<String, String> encode(Collection<String> names) {
+    Map<String, String> result = lookup(names);
+    List<String> missing = new ArrayList<>();
+    for (String name : new LinkedHashSet<>(names)) {
+      if (!result.containsKey(name)) {
+        missing.add(name);
+      }
+    }
+    if (missing.isEmpty()) {
+      return result;
+    }
+
+    Long last = redisTemplate.execute((RedisCallback<Long>) connection ->
+        connection.stringCommands().incrBy(sequenceKey, missing.size()));
+    if (last == null) {
+      throw new IllegalStateException("Could not reserve path dictionary IDs");
+    }
+    long first = last - missing.size() + 1;
+
+    // names are written before ids so a published id can always be decoded; a lost HSETNX leaves a harmless alias
+    List<Object> replies = redisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+      connection.openPipeline();
+      for (int i = 0; i < missing.size(); i++) {
+        byte[] id = Long.toString(first + i).getBytes(StandardCharsets.UTF_8);
+        byte[] path = missing.get(i).getBytes(StandardCharsets.UTF_8);
+        connection.hashCommands().hSet(namesKey, id, path);
+        connection.hashCommands().hSetNX(idsKey, path, id);
+      }
+      return connection.closePipeline();
+    });
+
+    List<String> lost = new ArrayList<>();
+    for (int i = 0; i < missing.size(); i++) {
+      Object won = replies != null && replies.size() > i * 2 + 1 ? replies.get(i * 2 + 1) : null;
+      if (Boolean.TRUE.equals(won)) {
+        cache(missing.get(i), token(first + i));
+        result.put(missing.get(i), token(first + i));
+      } else {
+        lost.add(missing.get(i));
+      }
+    }
+    if (!lost.isEmpty()) {
+      Map<String, String> winners = lookup(lost);
+      if (winners.size() != lost.size()) {
+        throw new IllegalStateException("Path dictionary has no ID for " + lost.size() + " paths");
+      }
+      result.putAll(winners);
+    }
+    return result;
+  }
+
+  public Map<String, String> lookup(Collection<String> names) {
+    Map<String, String> result = new LinkedHashMap<>();
+    List<String> missing = new ArrayList<>();
+    for (String name : new LinkedHashSet<>(names)) {
+      String token = tokens.get(name);
+      if (token != null) {
+        result.put(name, token);
+      } else {
+        missing.add(name);
+      }
+    }
+    if (missing.isEmpty()) {
+      return result;
+    }
+
+    byte[][] fields = missing.stream().map(name -> name.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+    List<byte[]> ids = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+        connection.hashCommands().hMGet(idsKey, fields));
+    for (int i = 0; ids != null && i < missing.size() && i < ids.size(); i++) {
+      if (ids.get(i) != null) {
+        String token = token(Long.parseLong(new String(ids.get(i), StandardCharsets.UTF_8)));
+        cache(missing.get(i), token);
+        result.put(missing.get(i), token);
+      }
+    }
+    return result;
+  }
+
+  // tokens carry no path prefix, so the paths under one are found in the dictionary and then looked for in the record
+  public Map<String, String> lookupUnder(String prefix) {
+    ScanOptions options = ScanOptions.scanOptions().count(SCAN_COUNT).match(FlatPath.globEscape(prefix) + "*").build();
+    Map<String, String> result = new LinkedHashMap<>();
+    redisTemplate.execute((RedisCallback<Object>) connection -> {
+      try (Cursor<Map.Entry<byte[], byte[]>> cursor = connection.hashCommands().hScan(idsKey, options)) {
+        while (cursor.hasNext()) {
+          Map.Entry<byte[], byte[]> entry = cursor.next();
+          String path = new String(entry.getKey(), StandardCharsets.UTF_8);
+          String token = token(Long.parseLong(new String(entry.getValue(), StandardCharsets.UTF_8)));
+          cache(path, token);
+          result.put(path, token);
+        }
+      }
+      return null;
+    });
+    return result;
+  }
+
+  // a record is read by the names it actually holds: tokens only when it carries the marker, plain paths otherwise
+  public Map<String, String> resolve(Collection<String> storedNames) {
+    if (!storedNames.contains(ENCODED_MARKER)) {
+      Map<String, String> plain = new LinkedHashMap<>();
+      storedNames.forEach(name -> plain.put(name, name));
+      return plain;
+    }
+    List<String> names = new ArrayList<>(storedNames.size());
+    for (String name : storedNames) {
+      if (!name.equals(ENCODED_MARKER)) {
+        names.add(name);
+      }
+    }
+    return decode(names);
+  }
+
+  public String namespace() {
+    return namespace;
+  }
+
+  private Map<String, String> decode(Collection<String> names) {
+    Map<String, String> result = new LinkedHashMap<>();
+    List<String> missing = new ArrayList<>();
+    for (String name : new LinkedHashSet<>(names)) {
+      String path = isToken(name) ? paths.get(name) : name;
+      if (path != null) {
+        result.put(name, path);
+      } else {
+        missing.add(name);
+      }
+    }
+    if (missing.isEmpty()) {
+      return result;
+    }
+
+    byte[][] fields = missing.stream()
+        .map(token -> Long.toString(id(token)).getBytes(StandardCharsets.UTF_8))
+        .toArray(byte[][]::new);
+    List<byte[]> replies = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+        connection.hashCommands().hMGet(namesKey, fields));
+    for (int i = 0; i < missing.size(); i++) {
+      byte[] path = replies != null && i < replies.size() ? replies.get(i) : null;
+      if (path != null) {
+        String decoded = new String(path, StandardCharsets.UTF_8);
+        cache(decoded, missing.get(i));
+        result.put(missing.get(i), decoded);
+      } else {
+        logger.warn("Path dictionary has no entry for {}", missing.get(i));
+        result.put(missing.get(i), missing.get(i));
+      }
+    }
+    return result;
+  }
+
+  public long size() {
+    Long size = redisTemplate.execute((RedisCallback<Long>) connection -> connection.hashCommands().hLen(idsKey));
+    return size != null ? size : 0;
+  }
+
+  public DictionaryReport report(String key, StorageModel model, Collection<String> storedNames, String keyPrefix) {
+    Map<String, String> decoded = resolve(storedNames);
+    long plainBytes = 0;
+    long storedBytes = 0;
+    for (String stored : decoded.keySet()) {
+      String plain = decoded.get(stored);
+      plainBytes += utf8Length(plain);
+      storedBytes += utf8Length(stored);
+      if (keyPrefix != null) {
+        plainBytes += utf8Length(keyPrefix + plain);
+        storedBytes += utf8Length(keyPrefix + stored);
+      }
+    }
+
+    DictionaryReport report = new DictionaryReport();
+    report.setKey(key);
+    report.setModel(model.tag());
+    report.setEnabled(enabled);
+    report.setNames(decoded.size());
+    report.setPlainBytes(plainBytes);
+    report.setStoredBytes(storedBytes);
+    report.setSavedBytes(plainBytes - storedBytes);
+    report.setDictionaryEntries(enabled ? size() : 0);
+    return report;
+  }
+
+  private void cache(String path, String token) {
+    tokens.put(path, token);
+    paths.put(token, path);
+  }
+
+  private static Map<String, String> boundedCache(int maxEntries) {
+    return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+        return size() > maxEntries;
+      }
+    });
+  }
+
+  private static long utf8Length(String value) {
+    return value.getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  static String token(long id) {
+    StringBuilder token = new StringBuilder(MAX_TOKEN_LENGTH).append(TOKEN_PREFIX);
+    do {
+      token.append(DIGITS.charAt((int) (id & 63)));
+      id >>>= 6;
+    } while (id != 0);
+    return token.toString();
+  }
+
+  static long id(String token) {
+    long id = 0;
+    for (int i = token.length() - 1; i > 0; i--) {
+      id = (id << 6) | DIGITS.indexOf(token.charAt(i));
+    }
+    return id;
+  }
+
+  static boolean isToken(String name) {
+    if (name.length() < 2 || name.length() > MAX_TOKEN_LENGTH || name.charAt(0) != TOKEN_PREFIX) {
+      return false;
+    }
+    for (int i = 1; i < name.length(); i++) {
+      if (DIGITS.indexOf(name.charAt(i)) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
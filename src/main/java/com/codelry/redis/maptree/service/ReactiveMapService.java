@@ -0,0 +1,107 @@
+package com.codelry.redis.maptree.service;
+
+import com.codelry.redis.maptree.config.RetryProperties;
+import com.codelry.redis.maptree.exception.RecordNotFoundException;
+import com.codelry.redis.maptree.model.Record;
+import com.google.gson.stream.JsonToken;
+import com.redis.lettucemod.api.StatefulRedisModulesConnection;
+import com.redis.lettucemod.api.reactive.RedisModulesReactiveCommands;
+import io.lettuce.core.KeyValue;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Service
+public class ReactiveMapService {
+
+  private final RedisModulesReactiveCommands<String, byte[]> commands;
+  private final Retry retry;
+  private final SchemaCache schemaCache;
+  private final PathDictionary pathDictionary;
+  private final ValueCodec valueCodec;
+
+  private final Timer createTimer;
+  private final Timer getTimer;
+
+  @Autowired
+  public ReactiveMapService(StatefulRedisModulesConnection<String, byte[]> redisModulesValueConnection,
+                            RetryProperties retryProperties,
+                            SchemaCache schemaCache,
+                            PathDictionary pathDictionary,
+                            ValueCodec valueCodec,
+                            MeterRegistry meterRegistry) {
+    this.commands = redisModulesValueConnection.reactive();
+    this.retry = ReactiveSupport.retry(retryProperties);
+    this.schemaCache = schemaCache;
+    this.pathDictionary = pathDictionary;
+    this.valueCodec = valueCodec;
+
+    this.createTimer = Timer.builder("record.reactive.create.duration")
+        .description("Time taken to create a record on the reactive path")
+        .tag("record", "create")
+        .tag("model", "map")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+
+    this.getTimer = Timer.builder("record.reactive.get.duration")
+        .description("Time taken to read a record on the reactive path")
+        .tag("record", "get")
+        .tag("model", "map")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+  }
+
+  public Mono<Record> createRecord(String key, byte[] requestBody) {
+    Mono<Long> write = Mono.fromCallable(() -> schemaCache.resolve(requestBody).mapPaths(valueCodec))
+        .flatMap(this::storedFields)
+        .flatMap(fields -> commands.hset(key, fields).retryWhen(retry));
+    return ReactiveSupport.timed(write, createTimer)
+        .thenReturn(new Record(key));
+  }
+
+  public Mono<JsonOutput> getRecord(String key) {
+    Mono<Map<String, Object>> read = Mono.defer(() -> commands.hgetall(key)
+            .collectMap(KeyValue::getKey, field -> valueCodec.decode(field.getValue())))
+        .flatMap(this::restoredFields);
+    return ReactiveSupport.timed(read.retryWhen(retry), getTimer)
+        .map(fields -> {
+          if (fields.isEmpty()) {
+            throw new RecordNotFoundException(key);
+          }
+          return out -> JsonReassembler.write(fields, out);
+        });
+  }
+
+  // reserving dictionary IDs takes blocking Redis calls, so field names are encoded off the Lettuce I/O threads
+  private Mono<Map<String, byte[]>> storedFields(Map<String, byte[]> fields) {
+    if (!pathDictionary.isEnabled()) {
+      return Mono.just(fields);
+    }
+    return Mono.fromCallable(() -> {
+      Map<String, String> tokens = pathDictionary.encode(fields.keySet());
+      Map<String, byte[]> stored = new HashMap<>(fields.size() * 4 / 3 + 1);
+      fields.forEach((path, value) -> stored.put(tokens.get(path), value));
+      stored.put(PathDictionary.ENCODED_MARKER, valueCodec.encode(pathDictionary.namespace(), JsonToken.STRING));
+      return stored;
+    }).subscribeOn(Schedulers.boundedElastic());
+  }
+
+  // records written with the dictionary carry the marker, and their names are resolved off the Lettuce I/O threads
+  private Mono<Map<String, Object>> restoredFields(Map<String, Object> fields) {
+    if (!fields.containsKey(PathDictionary.ENCODED_MARKER)) {
+      return Mono.just(fields);
+    }
+    return Mono.fromCallable(() -> {
+      Map<String, Object> restored = new HashMap<>();
+      pathDictionary.resolve(fields.keySet()).forEach((name, path) -> restored.put(path, fields.get(name)));
+      return restored;
+    }).subscribeOn(Schedulers.boundedElastic());
+  }
+}
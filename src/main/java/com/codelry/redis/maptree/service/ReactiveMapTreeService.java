@@ -0,0 +1,151 @@
+package com.codelry.redis.maptree.service;
+
+import com.codelry.redis.maptree.config.RetryProperties;
+import com.codelry.redis.maptree.exception.RecordNotFoundException;
+import com.codelry.redis.maptree.model.Record;
+import com.redis.lettucemod.api.StatefulRedisModulesConnection;
+import com.redis.lettucemod.api.reactive.RedisModulesReactiveCommands;
+import io.lettuce.core.KeyValue;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class ReactiveMapTreeService {
+
+  private final RedisModulesReactiveCommands<String, byte[]> commands;
+  private final Retry retry;
+  private final SchemaCache schemaCache;
+  private final PathDictionary pathDictionary;
+  private final ValueCodec valueCodec;
+
+  private final Timer createTimer;
+  private final Timer getTimer;
+
+  @Autowired
+  public ReactiveMapTreeService(StatefulRedisModulesConnection<String, byte[]> redisModulesValueConnection,
+                                RetryProperties retryProperties,
+                                SchemaCache schemaCache,
+                                PathDictionary pathDictionary,
+                                ValueCodec valueCodec,
+                                MeterRegistry meterRegistry) {
+    this.commands = redisModulesValueConnection.reactive();
+    this.retry = ReactiveSupport.retry(retryProperties);
+    this.schemaCache = schemaCache;
+    this.pathDictionary = pathDictionary;
+    this.valueCodec = valueCodec;
+
+    this.createTimer = Timer.builder("record.reactive.create.duration")
+        .description("Time taken to create a record on the reactive path")
+        .tag("record", "create")
+        .tag("model", "tree")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+
+    this.getTimer = Timer.builder("record.reactive.get.duration")
+        .description("Time taken to read a record on the reactive path")
+        .tag("record", "get")
+        .tag("model", "tree")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+  }
+
+  public Mono<Record> createRecord(String key, byte[] requestBody) {
+    Mono<Long> write = Mono.fromCallable(() -> schemaCache.resolve(requestBody).mapPathTree(valueCodec))
+        .flatMap(tree -> storedNodes(tree.keySet()).flatMap(stored -> writeTree(key, tree, stored).retryWhen(retry)));
+    return ReactiveSupport.timed(write, createTimer)
+        .thenReturn(new Record(key));
+  }
+
+  public Mono<JsonOutput> getRecord(String key) {
+    Mono<Map<String, Object>> read = Mono.defer(() -> commands.hgetall(key + ":" + MapTreeService.MANIFEST_NODE)
+            .collectMap(KeyValue::getKey, node -> new String(node.getValue(), StandardCharsets.UTF_8)))
+        .flatMap(manifest -> nodePaths(manifest).flatMap(paths -> readNodes(key, manifest, paths)));
+    return ReactiveSupport.timed(read.retryWhen(retry), getTimer)
+        .map(tree -> {
+          if (tree.isEmpty()) {
+            throw new RecordNotFoundException(key);
+          }
+          Map<String, Object> fields = JsonReassembler.treeFields(tree);
+          return out -> JsonReassembler.write(fields, out);
+        });
+  }
+
+  // every command is sent as soon as the write is subscribed and the connection runs them in the order sent, so a
+  // list is cleared before it is refilled and the manifest only names nodes that are already written
+  private Mono<Long> writeTree(String key, Map<String, Object> tree, Map<String, String> stored) {
+    List<Mono<Long>> writes = new ArrayList<>();
+    Map<String, byte[]> manifest = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> entry : tree.entrySet()) {
+      String node = stored.getOrDefault(entry.getKey(), entry.getKey());
+      String nodeKey = key + ":" + node;
+      if (entry.getValue() instanceof Map<?, ?> mapValue) {
+        Map<String, byte[]> fields = new LinkedHashMap<>();
+        mapValue.forEach((field, value) -> fields.put(String.valueOf(field), raw(value)));
+        writes.add(commands.hset(nodeKey, fields));
+        manifest.put(node, DataType.HASH.code().getBytes(StandardCharsets.UTF_8));
+      } else if (entry.getValue() instanceof List<?> listValue) {
+        byte[][] items = listValue.stream().map(ReactiveMapTreeService::raw).toArray(byte[][]::new);
+        writes.add(commands.del(nodeKey));
+        writes.add(commands.rpush(nodeKey, items));
+        manifest.put(node, DataType.LIST.code().getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    String manifestKey = key + ":" + MapTreeService.MANIFEST_NODE;
+    writes.add(commands.del(manifestKey));
+    if (!manifest.isEmpty()) {
+      if (!stored.isEmpty()) {
+        manifest.put(PathDictionary.ENCODED_MARKER, DataType.NONE.code().getBytes(StandardCharsets.UTF_8));
+      }
+      writes.add(commands.hset(manifestKey, manifest));
+    }
+    return Flux.mergeSequential(writes, writes.size(), 1).count();
+  }
+
+  // reserving dictionary IDs takes blocking Redis calls, so node names are encoded off the Lettuce I/O threads
+  private Mono<Map<String, String>> storedNodes(Collection<String> nodes) {
+    if (!pathDictionary.isEnabled()) {
+      return Mono.just(Map.of());
+    }
+    return Mono.fromCallable(() -> pathDictionary.encode(nodes)).subscribeOn(Schedulers.boundedElastic());
+  }
+
+  // node keys follow the names the manifest holds; a record written with the dictionary resolves them off the Lettuce I/O threads
+  private Mono<Map<String, String>> nodePaths(Map<String, String> manifest) {
+    if (!manifest.containsKey(PathDictionary.ENCODED_MARKER)) {
+      return Mono.just(pathDictionary.resolve(manifest.keySet()));
+    }
+    return Mono.fromCallable(() -> pathDictionary.resolve(manifest.keySet())).subscribeOn(Schedulers.boundedElastic());
+  }
+
+  private Mono<Map<String, Object>> readNodes(String key, Map<String, String> manifest, Map<String, String> paths) {
+    return Flux.fromIterable(paths.entrySet())
+        .flatMap(node -> {
+          String nodeKey = key + ":" + node.getKey();
+          Mono<Object> data = DataType.fromCode(manifest.get(node.getKey())) == DataType.LIST
+              ? commands.lrange(nodeKey, 0, -1).map(valueCodec::decode).collectList().cast(Object.class)
+              : commands.hgetall(nodeKey)
+                  .collectMap(KeyValue::getKey, field -> valueCodec.decode(field.getValue())).cast(Object.class);
+          return data.map(value -> Map.entry(node.getValue(), value));
+        })
+        .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+  }
+
+  private static byte[] raw(Object value) {
+    return value instanceof byte[] bytes ? bytes : String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+  }
+}
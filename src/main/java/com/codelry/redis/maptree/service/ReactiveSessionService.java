@@ -0,0 +1,94 @@
+package com.codelry.redis.maptree.service;
+
+import com.codelry.redis.maptree.config.RetryProperties;
+import com.codelry.redis.maptree.exception.RecordNotFoundException;
+import com.codelry.redis.maptree.model.Record;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import com.redis.lettucemod.api.StatefulRedisModulesConnection;
+import com.redis.lettucemod.api.reactive.RedisModulesReactiveCommands;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.output.StatusOutput;
+import io.lettuce.core.output.ValueOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.ProtocolKeyword;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.nio.charset.StandardCharsets;
+
+@Service
+public class ReactiveSessionService {
+
+  private final RedisModulesReactiveCommands<String, String> commands;
+  private final Retry retry;
+
+  private final Timer createTimer;
+  private final Timer getTimer;
+
+  @Autowired
+  public ReactiveSessionService(StatefulRedisModulesConnection<String, String> redisModulesConnection,
+                                RetryProperties retryProperties,
+                                MeterRegistry meterRegistry) {
+    this.commands = redisModulesConnection.reactive();
+    this.retry = ReactiveSupport.retry(retryProperties);
+
+    this.createTimer = Timer.builder("record.reactive.create.duration")
+        .description("Time taken to create a record on the reactive path")
+        .tag("record", "create")
+        .tag("model", "json")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+
+    this.getTimer = Timer.builder("record.reactive.get.duration")
+        .description("Time taken to read a record on the reactive path")
+        .tag("record", "get")
+        .tag("model", "json")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+  }
+
+  public Mono<Record> createRecord(String key, byte[] requestBody) {
+    Mono<String> write = Mono.defer(() -> commands.dispatch(JsonCommand.SET, new StatusOutput<>(StringCodec.UTF8),
+            new CommandArgs<>(StringCodec.UTF8).addKey(key).add("$").add(requestBody))
+        .next());
+    return ReactiveSupport.timed(write.retryWhen(retry), createTimer)
+        .thenReturn(new Record(key));
+  }
+
+  public Mono<JsonOutput> getRecord(String key) {
+    Mono<String> read = Mono.defer(() -> commands.dispatch(JsonCommand.GET, new ValueOutput<>(StringCodec.UTF8),
+            new CommandArgs<>(StringCodec.UTF8).addKey(key).add("$"))
+        .next());
+    return ReactiveSupport.timed(read.retryWhen(retry), getTimer)
+        .switchIfEmpty(Mono.error(() -> new RecordNotFoundException(key)))
+        .map(reply -> {
+          JsonArray matches = JsonParser.parseString(reply).getAsJsonArray();
+          if (matches.isEmpty()) {
+            throw new RecordNotFoundException(key);
+          }
+          byte[] body = matches.get(0).toString().getBytes(StandardCharsets.UTF_8);
+          return out -> out.write(body);
+        });
+  }
+
+  private enum JsonCommand implements ProtocolKeyword {
+    SET("JSON.SET"),
+    GET("JSON.GET");
+
+    private final byte[] bytes;
+
+    JsonCommand(String command) {
+      this.bytes = command.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public byte[] getBytes() {
+      return bytes;
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.codelry.redis.maptree.service;
+
+import com.codelry.redis.maptree.config.RetryProperties;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisConnectionException;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+final class ReactiveSupport {
+
+  private ReactiveSupport() {
+  }
+
+  static Retry retry(RetryProperties properties) {
+    return Retry.backoff(Math.max(0, properties.getMaxAttempts() - 1), Duration.ofMillis(properties.getDelay()))
+        .filter(e -> e instanceof RedisConnectionException || e instanceof RedisCommandTimeoutException);
+  }
+
+  // failed and cancelled calls are timed too, like the blocking timers that wrap the whole call
+  static <T> Mono<T> timed(Mono<T> mono, Timer timer) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      return mono.doFinally(signal -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    });
+  }
+}
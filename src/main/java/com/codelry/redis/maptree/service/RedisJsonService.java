@@ -2,10 +2,18 @@ package com.codelry.redis.maptree.service;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
 @Service
 public class RedisJsonService {
 
@@ -66,17 +74,140 @@ public class RedisJsonService {
     }
   }
 
-  public String getJsonAsString(String key, String path) {
+  public Map<String, JsonElement> jsonGet(String key, List<String> paths, int chunkSize) {
+    if (paths.isEmpty()) {
+      return new LinkedHashMap<>();
+    }
     try (RedisConnection connection = connectionFactory.getConnection()) {
-      Object result = connection.execute("JSON.GET",
-          key.getBytes(),
-          path.getBytes());
+      return jsonGet(connection, key, paths, chunkSize);
+    }
+  }
 
-      if (result == null) {
-        return null;
+  public Map<String, JsonElement> jsonGet(RedisConnection connection, String key, List<String> paths, int chunkSize) {
+    Map<String, JsonElement> results = new LinkedHashMap<>();
+    if (paths.isEmpty()) {
+      return results;
+    }
+
+    int size = Math.max(1, chunkSize);
+    List<List<String>> chunks = new ArrayList<>();
+    for (int start = 0; start < paths.size(); start += size) {
+      chunks.add(paths.subList(start, Math.min(paths.size(), start + size)));
+    }
+
+    try {
+      connection.openPipeline();
+      for (List<String> chunk : chunks) {
+        byte[][] args = new byte[chunk.size() + 1][];
+        args[0] = key.getBytes();
+        for (int i = 0; i < chunk.size(); i++) {
+          args[i + 1] = chunk.get(i).getBytes();
+        }
+        connection.execute("JSON.GET", args);
       }
+      List<Object> replies = connection.closePipeline();
 
-      return new String((byte[]) result);
+      for (int i = 0; i < chunks.size(); i++) {
+        Object reply = i < replies.size() ? replies.get(i) : null;
+        decodeMultiPathReply(chunks.get(i), reply, results);
+      }
+      return results;
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to get JSON for key: " + key, e);
+    }
+  }
+
+  private void decodeMultiPathReply(List<String> paths, Object reply, Map<String, JsonElement> results) {
+    if (reply == null) {
+      paths.forEach(path -> results.put(path, null));
+      return;
+    }
+
+    JsonElement element = gson.fromJson(new String((byte[]) reply), JsonElement.class);
+    if (paths.size() == 1) {
+      results.put(paths.get(0), element);
+      return;
+    }
+
+    JsonObject byPath = element.getAsJsonObject();
+    for (String path : paths) {
+      results.put(path, byPath.get(path));
+    }
+  }
+
+  public Map<String, String> jsonTypes(String key, Collection<String> paths) {
+    try (RedisConnection connection = connectionFactory.getConnection()) {
+      return jsonTypes(connection, key, paths);
+    }
+  }
+
+  public Map<String, String> jsonTypes(RedisConnection connection, String key, Collection<String> paths) {
+    List<String> ordered = new ArrayList<>(paths);
+    Map<String, String> types = new LinkedHashMap<>();
+    if (ordered.isEmpty()) {
+      return types;
+    }
+    try {
+      connection.openPipeline();
+      for (String path : ordered) {
+        connection.execute("JSON.TYPE", key.getBytes(), path.getBytes());
+      }
+      List<Object> replies = connection.closePipeline();
+      for (int i = 0; i < ordered.size(); i++) {
+        types.put(ordered.get(i), typeName(i < replies.size() ? replies.get(i) : null));
+      }
+      return types;
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to get JSON types for key: " + key, e);
+    }
+  }
+
+  private static String typeName(Object reply) {
+    if (reply instanceof List<?> matches) {
+      return matches.isEmpty() ? null : typeName(matches.get(0));
+    }
+    return reply instanceof byte[] raw ? new String(raw) : null;
+  }
+
+  // the key is watched before the callback reads it, so a write landing before EXEC makes jsonUpdate report false
+  public <T> T watched(String key, Function<RedisConnection, T> action) {
+    try (RedisConnection connection = connectionFactory.getConnection()) {
+      connection.watch(key.getBytes());
+      try {
+        return action.apply(connection);
+      } catch (RuntimeException e) {
+        connection.unwatch();
+        throw e;
+      }
+    }
+  }
+
+  public boolean jsonUpdate(RedisConnection connection, String key, Map<String, byte[]> sets, Collection<String> deletes) {
+    if (sets.isEmpty() && deletes.isEmpty()) {
+      connection.unwatch();
+      return true;
+    }
+    connection.multi();
+    for (String path : deletes) {
+      connection.execute("JSON.DEL", key.getBytes(), path.getBytes());
+    }
+    for (Map.Entry<String, byte[]> set : sets.entrySet()) {
+      connection.execute("JSON.SET", key.getBytes(), set.getKey().getBytes(), set.getValue());
+    }
+    List<Object> replies = connection.exec();
+    return replies != null && !replies.isEmpty();
+  }
+
+  public String getJsonAsString(String key, String path) {
+    byte[] result = getJsonAsBytes(key, path);
+    return result != null ? new String(result) : null;
+  }
+
+  public byte[] getJsonAsBytes(String key, String path) {
+    try (RedisConnection connection = connectionFactory.getConnection()) {
+      return (byte[]) connection.execute("JSON.GET",
+          key.getBytes(),
+          path.getBytes());
     }
   }
 
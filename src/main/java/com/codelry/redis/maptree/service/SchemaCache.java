@@ -0,0 +1,114 @@
+package com.codelry.redis.maptree.service;
+
+import com.codelry.redis.maptree.config.SchemaCacheProperties;
+import com.google.gson.stream.JsonToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+@Component
+public class SchemaCache {
+
+  private final boolean enabled;
+  private final Map<DocumentSchema.Fingerprint, DocumentSchema> schemas;
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter evictions;
+
+  @Autowired
+  public SchemaCache(SchemaCacheProperties properties, MeterRegistry meterRegistry) {
+    this.hits = Counter.builder("schema.cache.requests")
+        .description("Documents flattened through the schema cache")
+        .tag("result", "hit")
+        .register(meterRegistry);
+    this.misses = Counter.builder("schema.cache.requests")
+        .description("Documents flattened through the schema cache")
+        .tag("result", "miss")
+        .register(meterRegistry);
+    this.evictions = Counter.builder("schema.cache.evictions")
+        .description("Schemas evicted from the schema cache")
+        .register(meterRegistry);
+
+    this.enabled = properties.isEnabled() && properties.getMaxEntries() > 0;
+    int maxEntries = properties.getMaxEntries();
+    this.schemas = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<DocumentSchema.Fingerprint, DocumentSchema> eldest) {
+        if (size() > maxEntries) {
+          evictions.increment();
+          return true;
+        }
+        return false;
+      }
+    };
+
+    Gauge.builder("schema.cache.size", this, SchemaCache::size)
+        .description("Schemas held in the schema cache")
+        .register(meterRegistry);
+  }
+
+  public ShapedDocument resolve(byte[] json) {
+    if (!enabled) {
+      DocumentSchema.Scan shaped = DocumentSchema.shape(json);
+      return new ShapedDocument(shaped.schema(), shaped.values(), shaped.kinds());
+    }
+    DocumentSchema.Scan scan = DocumentSchema.scan(json);
+    DocumentSchema schema;
+    synchronized (schemas) {
+      schema = schemas.get(scan.fingerprint());
+    }
+    if (schema != null) {
+      hits.increment();
+      return new ShapedDocument(schema, scan.values(), scan.kinds());
+    }
+    misses.increment();
+    DocumentSchema.Scan shaped = DocumentSchema.shape(json);
+    synchronized (schemas) {
+      schemas.put(shaped.fingerprint(), shaped.schema());
+    }
+    return new ShapedDocument(shaped.schema(), shaped.values(), shaped.kinds());
+  }
+
+  public int size() {
+    synchronized (schemas) {
+      return schemas.size();
+    }
+  }
+
+  public record ShapedDocument(DocumentSchema schema, String[] values, JsonToken[] kinds) {
+    public Map<String, String> mapPaths() {
+      return schema.mapPaths(values);
+    }
+
+    public Map<String, Object> mapPathTree() {
+      return schema.mapPathTree(values);
+    }
+
+    public Map<String, byte[]> mapPaths(ValueCodec codec) {
+      return schema.mapPaths(encode(codec));
+    }
+
+    public Map<String, Object> mapPathTree(ValueCodec codec) {
+      return schema.mapPathTree(encode(codec));
+    }
+
+    private byte[][] encode(ValueCodec codec) {
+      byte[][] encoded = new byte[values.length][];
+      for (int i = 0; i < values.length; i++) {
+        encoded[i] = codec.encode(values[i], kinds[i]);
+      }
+      return encoded;
+    }
+
+    public Set<String> paths() {
+      return schema.paths();
+    }
+  }
+}
@@ -1,22 +1,39 @@
 package com.codelry.redis.maptree.service;
 
+import com.codelry.redis.maptree.config.BatchProperties;
+import com.codelry.redis.maptree.diagnostics.DiagnosticsSink;
+import com.codelry.redis.maptree.dto.PatchReport;
+import com.codelry.redis.maptree.exception.PatchConflictException;
+import com.codelry.redis.maptree.exception.RecordNotFoundException;
 import com.codelry.redis.maptree.model.Record;
+import com.codelry.redis.maptree.model.StorageModel;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
 import io.lettuce.core.json.*;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.Tags;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Function;
 
 @Service
 public class SessionService {
@@ -31,19 +48,30 @@ public class SessionService {
 
   private final RetryTemplate retryTemplate;
   private final RedisJsonService redisJsonService;
+  private final BatchProperties batchProperties;
+  private final DiagnosticsSink diagnosticsSink;
   private final MeterRegistry meterRegistry;
 
   private final ObjectMapper objectMapper = new ObjectMapper();
 
   private final Timer createRecordTimer;
-  private final Timer getRecordPathTimer;
+  private final Timer getRecordBatchTimer;
+  private final Timer getDocumentTimer;
+  private final Timer getSubtreeTimer;
+  private final DistributionSummary subtreeBytesSummary;
+  private final Timer getProjectionTimer;
+  private final Timer patchRecordTimer;
 
   @Autowired
   public SessionService(RedisJsonService redisJsonService,
                         RetryTemplate retryTemplate,
+                        BatchProperties batchProperties,
+                        DiagnosticsSink diagnosticsSink,
                         MeterRegistry meterRegistry) {
     this.redisJsonService = redisJsonService;
     this.retryTemplate = retryTemplate;
+    this.batchProperties = batchProperties;
+    this.diagnosticsSink = diagnosticsSink;
     this.meterRegistry = meterRegistry;
 
     this.createRecordTimer = Timer.builder("record.create.duration")
@@ -51,9 +79,10 @@ public class SessionService {
         .tag("record", "create")
         .register(meterRegistry);
 
-    this.getRecordPathTimer = Timer.builder("record.get.path.duration")
-        .description("Time taken to get a record by path")
+    this.getRecordBatchTimer = Timer.builder("record.get.batch.duration")
+        .description("Time taken to get all paths of a record in one pipeline")
         .tag("record", "get")
+        .tag("model", "json")
         .publishPercentiles(0.95, 0.99)
         .serviceLevelObjectives(
             Duration.ofMillis(1),
@@ -61,9 +90,48 @@ public class SessionService {
             Duration.ofMillis(10)
         )
         .register(meterRegistry);
+
+    this.getDocumentTimer = Timer.builder("record.get.document.duration")
+        .description("Time taken to read a whole record for reassembly")
+        .tag("record", "get")
+        .tag("model", "json")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+
+    this.getSubtreeTimer = Timer.builder("record.subtree.duration")
+        .description("Time taken to read one subtree of a record")
+        .tag("record", "subtree")
+        .tag("model", "json")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+
+    this.subtreeBytesSummary = DistributionSummary.builder("record.subtree.bytes")
+        .description("Bytes returned by Redis for one subtree read")
+        .baseUnit("bytes")
+        .tag("record", "subtree")
+        .tag("model", "json")
+        .register(meterRegistry);
+
+    this.getProjectionTimer = Timer.builder("record.projection.duration")
+        .description("Time taken to read a projection of record fields in one pipeline")
+        .tag("record", "projection")
+        .tag("model", "json")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+
+    this.patchRecordTimer = Timer.builder("record.patch.duration")
+        .description("Time taken to read and apply a patch to a record")
+        .tag("record", "patch")
+        .tag("model", "json")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
   }
 
   public Record createRecord(String key, byte[] requestBody) {
+    return createRecord(key, requestBody, true);
+  }
+
+  public Record createRecord(String key, byte[] requestBody, boolean verify) {
     try {
       Timer.Sample retryTimerSample = Timer.start(meterRegistry);
 
@@ -82,7 +150,9 @@ public class SessionService {
 
         meterRegistry.counter("record.create.success", Tags.of("record", "create")).increment();
 
-        subDocGet(key, requestBody);
+        if (verify) {
+          subDocGet(key, requestBody);
+        }
 
         return record;
       }, context -> {
@@ -106,17 +176,22 @@ public class SessionService {
   public void subDocGet(String key, byte[] document) {
     try {
       Set<String> paths = JsonFlattener.flattenPaths(document);
-      FileWriter.create(paths);
+      diagnosticsSink.record(key, "paths", paths);
 
+      List<String> jsonPaths = new ArrayList<>(paths.size());
       for (String path : paths) {
-        if (path.contains("@")) {
-          continue;
+        if (!path.contains("@")) {
+          jsonPaths.add("$." + path);
         }
+      }
 
-        JsonElement data = getRecordPathTimer.recordCallable(() ->
-            redisJsonService.jsonGet(key, "$." + path));
+      Map<String, JsonElement> results = getRecordBatchTimer.recordCallable(() ->
+          redisJsonService.jsonGet(key, jsonPaths, batchProperties.getJsonGetChunkSize()));
 
-        if (data == null) {
+      for (String jsonPath : jsonPaths) {
+        JsonElement data = results.get(jsonPath);
+
+        if (data == null || !data.isJsonArray() || data.getAsJsonArray().isEmpty()) {
           meterRegistry.counter("record.get.null", Tags.of("record", "get")).increment();
           continue;
         }
@@ -137,4 +212,175 @@ public class SessionService {
       logger.error("Error processing JSON", e);
     }
   }
+
+  public JsonOutput getRecord(String key) {
+    byte[] reply = getDocumentTimer.record(() -> redisJsonService.getJsonAsBytes(key, "$"));
+    return firstMatch(key, "", reply);
+  }
+
+  public JsonOutput getSubtree(String key, String path) {
+    String jsonPath = path.isEmpty() ? "$" : "$." + path;
+    byte[] reply = getSubtreeTimer.record(() -> redisJsonService.getJsonAsBytes(key, jsonPath));
+    if (reply != null) {
+      subtreeBytesSummary.record(reply.length);
+    }
+    return firstMatch(key, path, reply);
+  }
+
+  private JsonOutput firstMatch(String key, String path, byte[] reply) {
+    if (reply == null) {
+      throw new RecordNotFoundException(key);
+    }
+    JsonArray matches = JsonParser.parseString(new String(reply, StandardCharsets.UTF_8)).getAsJsonArray();
+    if (matches.isEmpty()) {
+      throw new RecordNotFoundException(key, path);
+    }
+    JsonElement subtree = matches.size() == 1 ? matches.get(0) : matches;
+    byte[] body = subtree.toString().getBytes(StandardCharsets.UTF_8);
+    return out -> out.write(body);
+  }
+
+  public JsonOutput getProjection(String key, List<String> paths) {
+    List<String> fieldPaths = new ArrayList<>(new LinkedHashSet<>(paths));
+    List<String> jsonPaths = new ArrayList<>(fieldPaths.size());
+    for (String path : fieldPaths) {
+      jsonPaths.add("$." + path);
+    }
+
+    Map<String, JsonElement> results = getProjectionTimer.record(() ->
+        redisJsonService.jsonGet(key, jsonPaths, batchProperties.getJsonGetChunkSize()));
+
+    Map<String, Object> fields = new HashMap<>();
+    for (int i = 0; i < fieldPaths.size(); i++) {
+      JsonElement data = results.get(jsonPaths.get(i));
+      if (data == null || !data.isJsonArray() || data.getAsJsonArray().isEmpty()) {
+        continue;
+      }
+      // projections return leaves only, as the map and tree models do; subtrees are read through getSubtree
+      JsonElement value = data.getAsJsonArray().get(0);
+      if (!value.isJsonObject() && !value.isJsonArray()) {
+        fields.put(fieldPaths.get(i), plain(value));
+      }
+    }
+    if (fields.isEmpty()) {
+      throw new RecordNotFoundException(key);
+    }
+    return out -> JsonReassembler.write(fields, out);
+  }
+
+  public PatchReport patchRecord(String key, PatchPlan plan) {
+    return patchRecordTimer.record(() -> applyPatch(key, plan));
+  }
+
+  // the key is watched from its first read, so a write landing before EXEC discards the patch and it is planned again
+  private PatchReport applyPatch(String key, PatchPlan plan) {
+    int attempts = Math.max(1, batchProperties.getPatchAttempts());
+    for (int attempt = 1; attempt <= attempts; attempt++) {
+      PatchReport report = redisJsonService.watched(key, connection -> tryPatch(connection, key, plan));
+      if (report != null) {
+        return report;
+      }
+      logger.debug("Record {} changed while it was patched (attempt {})", key, attempt);
+    }
+    throw new PatchConflictException(key, attempts);
+  }
+
+  private PatchReport tryPatch(RedisConnection connection, String key, PatchPlan plan) {
+    Map<String, PatchPlan.Kind> kinds = plan.kinds(paths -> jsonKinds(connection, key, paths));
+    if (kinds.get("") == PatchPlan.Kind.ABSENT) {
+      throw new RecordNotFoundException(key);
+    }
+
+    Set<String> scopes = plan.scopes(kinds);
+    List<String> scopePaths = scopes.stream().map(SessionService::jsonPath).toList();
+    Map<String, JsonElement> results = redisJsonService.jsonGet(connection, key, scopePaths,
+        batchProperties.getJsonGetChunkSize());
+    Map<String, JsonElement> current = new HashMap<>();
+    for (String scope : scopes) {
+      JsonElement data = results.get(jsonPath(scope));
+      if (data != null && data.isJsonArray() && !data.getAsJsonArray().isEmpty()) {
+        current.putAll(PatchPlan.leaves(scope, data.getAsJsonArray().get(0), Function.identity()));
+      }
+    }
+    PatchPlan.Result<JsonElement> result = plan.apply(kinds, current, Function.identity());
+
+    // a scope under a container that does not exist yet is written from the outermost missing container,
+    // since JSON.SET only adds members to parents that already exist
+    Set<String> roots = new LinkedHashSet<>();
+    for (String scope : result.scopes()) {
+      String root = scope;
+      while (!root.isEmpty() && kinds.get(PatchPlan.parent(root)) == PatchPlan.Kind.ABSENT) {
+        root = PatchPlan.parent(root);
+      }
+      roots.add(root);
+    }
+
+    Map<String, byte[]> sets = new LinkedHashMap<>();
+    List<String> deletes = new ArrayList<>();
+    for (String root : roots) {
+      Map<String, Object> after = new HashMap<>();
+      for (Map.Entry<String, JsonElement> leaf : result.after().entrySet()) {
+        if (FlatPath.startsWith(leaf.getKey(), root)) {
+          after.put(FlatPath.relativize(leaf.getKey(), root), plain(leaf.getValue()));
+        }
+      }
+      boolean changed = result.puts().keySet().stream().anyMatch(path -> FlatPath.startsWith(path, root))
+          || result.removes().stream().anyMatch(path -> FlatPath.startsWith(path, root))
+          || result.emptied().containsKey(root);
+      if (!changed) {
+        continue;
+      }
+      if (!after.isEmpty()) {
+        sets.put(jsonPath(root), reassemble(after));
+      } else if (result.emptied().get(root) == PatchPlan.Kind.ARRAY) {
+        sets.put(jsonPath(root), "[]".getBytes(StandardCharsets.UTF_8));
+      } else if (result.emptied().get(root) == PatchPlan.Kind.OBJECT) {
+        sets.put(jsonPath(root), "{}".getBytes(StandardCharsets.UTF_8));
+      } else {
+        deletes.add(jsonPath(root));
+      }
+    }
+    if (!redisJsonService.jsonUpdate(connection, key, sets, deletes)) {
+      return null;
+    }
+
+    logger.debug("Patched record {} with {} sets and {} deletes", key, sets.size(), deletes.size());
+    return plan.report(key, StorageModel.JSON, result, sets.size() + deletes.size());
+  }
+
+  private Map<String, PatchPlan.Kind> jsonKinds(RedisConnection connection, String key, Set<String> paths) {
+    Map<String, PatchPlan.Kind> kinds = new HashMap<>();
+    Map<String, String> types = redisJsonService.jsonTypes(connection, key,
+        paths.stream().map(SessionService::jsonPath).toList());
+    for (String path : paths) {
+      String type = types.get(jsonPath(path));
+      kinds.put(path, type == null ? PatchPlan.Kind.ABSENT
+          : type.equals("object") ? PatchPlan.Kind.OBJECT
+          : type.equals("array") ? PatchPlan.Kind.ARRAY
+          : PatchPlan.Kind.VALUE);
+    }
+    return kinds;
+  }
+
+  private static String jsonPath(String path) {
+    return path.isEmpty() ? "$" : "$." + path;
+  }
+
+  private static Object plain(JsonElement value) {
+    if (value.isJsonNull()) {
+      return JsonNull.INSTANCE;
+    }
+    JsonPrimitive primitive = value.getAsJsonPrimitive();
+    return primitive.isBoolean() ? primitive.getAsBoolean() : primitive.isNumber() ? primitive.getAsNumber() : primitive.getAsString();
+  }
+
+  private static byte[] reassemble(Map<String, Object> leaves) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      JsonReassembler.write(leaves, out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
 }
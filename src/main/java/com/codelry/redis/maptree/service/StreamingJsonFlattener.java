@@ -0,0 +1,113 @@
+package com.codelry.redis.maptree.service;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+public final class StreamingJsonFlattener {
+
+    public static final String LIST_ITEM = "__list_item__";
+
+    public interface PathHandler {
+        default void beginObject(String path) {
+        }
+
+        default void beginArray(String path, JsonToken first) {
+        }
+
+        void value(String path, String value);
+
+        void nullValue(String path);
+    }
+
+    private StreamingJsonFlattener() {
+        // no instances
+    }
+
+    public static void flatten(byte[] json, boolean listItems, PathHandler handler) {
+        flatten(new ByteArrayInputStream(json), listItems, handler);
+    }
+
+    public static void flatten(InputStream json, boolean listItems, PathHandler handler) {
+        flatten(new InputStreamReader(json, StandardCharsets.UTF_8), listItems, handler);
+    }
+
+    public static void flatten(Reader json, boolean listItems, PathHandler handler) {
+        try (JsonReader reader = new JsonReader(json)) {
+            reader.setStrictness(Strictness.LENIENT);
+            try {
+                reader.peek();
+            } catch (EOFException e) {
+                handler.nullValue("");
+                return;
+            }
+            read(reader, new StringBuilder(), listItems, handler);
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonSyntaxException("Did not consume the entire document.");
+            }
+        } catch (MalformedJsonException | EOFException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    private static void read(JsonReader reader, StringBuilder path, boolean listItems, PathHandler handler)
+            throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT -> {
+                handler.beginObject(path.toString());
+                int mark = path.length();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (mark > 0) {
+                        path.append('.');
+                    }
+                    path.append(name);
+                    read(reader, path, listItems, handler);
+                    path.setLength(mark);
+                }
+                reader.endObject();
+            }
+            case BEGIN_ARRAY -> {
+                int mark = path.length();
+                reader.beginArray();
+                handler.beginArray(path.toString(), reader.peek());
+                int index = 0;
+                while (reader.hasNext()) {
+                    if (listItems && isPrimitive(reader.peek())) {
+                        path.append('.').append(LIST_ITEM);
+                    } else {
+                        path.append('[').append(index).append(']');
+                    }
+                    read(reader, path, listItems, handler);
+                    path.setLength(mark);
+                    index++;
+                }
+                reader.endArray();
+            }
+            case NULL -> {
+                reader.nextNull();
+                handler.nullValue(path.toString());
+            }
+            case BOOLEAN -> handler.value(path.toString(), reader.nextBoolean() ? "true" : "false");
+            default -> handler.value(path.toString(), reader.nextString());
+        }
+    }
+
+    static boolean isPrimitive(JsonToken token) {
+        return token == JsonToken.STRING || token == JsonToken.NUMBER || token == JsonToken.BOOLEAN;
+    }
+}
@@ -0,0 +1,22 @@
+package com.codelry.redis.maptree.service;
+
+import com.google.gson.JsonNull;
+import com.google.gson.stream.JsonToken;
+
+import java.nio.charset.StandardCharsets;
+
+public final class TextValueCodec implements ValueCodec {
+
+    @Override
+    public byte[] encode(String value, JsonToken kind) {
+        String text = kind == JsonToken.NULL || value == null ? JsonFlattener.NULL_VALUE : value;
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Object decode(byte[] raw) {
+        // text storage cannot tell a null from the marker string, so the marker always reads back as null
+        String text = new String(raw, StandardCharsets.UTF_8);
+        return JsonFlattener.NULL_VALUE.equals(text) ? JsonNull.INSTANCE : text;
+    }
+}
@@ -0,0 +1,92 @@
+package com.codelry.redis.maptree.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+final class TreeProjection {
+
+    private final List<Lookup> lookups = new ArrayList<>();
+    private final Map<String, Set<String>> hashReads = new LinkedHashMap<>();
+    private final Map<String, int[]> listReads = new LinkedHashMap<>();
+
+    private TreeProjection() {
+    }
+
+    static TreeProjection plan(Collection<String> paths) {
+        TreeProjection plan = new TreeProjection();
+        for (String path : new LinkedHashSet<>(paths)) {
+            List<FlatPath.Segment> segments = FlatPath.parse(path).segments();
+            if (segments.isEmpty()) {
+                continue;
+            }
+
+            String listNode = null;
+            int index = -1;
+            int dot = path.lastIndexOf('.');
+            String hashNode = dot < 0 ? "root" : path.substring(0, dot);
+            String field = dot < 0 ? path : path.substring(dot + 1);
+            FlatPath.Segment last = segments.get(segments.size() - 1);
+            if (last.isIndex()) {
+                listNode = path.substring(0, path.lastIndexOf('['));
+                index = last.index();
+                int[] range = plan.listReads.computeIfAbsent(listNode, node -> new int[]{Integer.MAX_VALUE, -1});
+                range[0] = Math.min(range[0], index);
+                range[1] = Math.max(range[1], index);
+            } else {
+                plan.hashReads.computeIfAbsent(hashNode, node -> new LinkedHashSet<>()).add(field);
+            }
+
+            plan.lookups.add(new Lookup(path, hashNode, field, listNode, index));
+        }
+        return plan;
+    }
+
+    Map<String, Set<String>> hashReads() {
+        return hashReads;
+    }
+
+    Map<String, int[]> listReads() {
+        return listReads;
+    }
+
+    // indexed paths the lists could not answer, such as null items, which the tree keeps as fields of the parent hash
+    Map<String, Set<String>> fallbackReads(Map<String, List<Object>> listValues) {
+        Map<String, Set<String>> reads = new LinkedHashMap<>();
+        for (Lookup lookup : lookups) {
+            if (lookup.listNode() != null && listItem(lookup, listValues) == null) {
+                reads.computeIfAbsent(lookup.hashNode(), node -> new LinkedHashSet<>()).add(lookup.field());
+            }
+        }
+        return reads;
+    }
+
+    Map<String, Object> resolve(Map<String, Map<String, Object>> hashValues, Map<String, List<Object>> listValues) {
+        Map<String, Object> fields = new HashMap<>();
+        for (Lookup lookup : lookups) {
+            Object value = lookup.listNode() != null ? listItem(lookup, listValues) : null;
+            if (value == null) {
+                Map<String, Object> hash = hashValues.get(lookup.hashNode());
+                value = hash != null ? hash.get(lookup.field()) : null;
+            }
+            if (value != null) {
+                fields.put(lookup.path(), value);
+            }
+        }
+        return fields;
+    }
+
+    private Object listItem(Lookup lookup, Map<String, List<Object>> listValues) {
+        List<Object> items = listValues.get(lookup.listNode());
+        int offset = lookup.index() - listReads.get(lookup.listNode())[0];
+        return items != null && offset < items.size() ? items.get(offset) : null;
+    }
+
+    private record Lookup(String path, String hashNode, String field, String listNode, int index) {
+    }
+}
@@ -0,0 +1,120 @@
+package com.codelry.redis.maptree.service;
+
+import com.google.gson.JsonNull;
+import com.google.gson.stream.JsonToken;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public final class TypedValueCodec implements ValueCodec {
+
+    static final byte NULL = 0x00;
+    static final byte FALSE = 0x01;
+    static final byte TRUE = 0x02;
+    static final byte INTEGER = 0x03;
+    static final byte DOUBLE = 0x04;
+    static final byte DECIMAL = 0x05;
+    static final byte STRING = 0x06;
+
+    private static final int MAX_VARINT_BYTES = 10;
+
+    @Override
+    public byte[] encode(String value, JsonToken kind) {
+        if (kind == JsonToken.NULL || value == null) {
+            return new byte[]{NULL};
+        }
+        return switch (kind) {
+            case BOOLEAN -> new byte[]{Boolean.parseBoolean(value) ? TRUE : FALSE};
+            case NUMBER -> encodeNumber(value);
+            default -> encodeString(value);
+        };
+    }
+
+    @Override
+    public Object decode(byte[] raw) {
+        if (raw.length == 0) {
+            return "";
+        }
+        return switch (raw[0]) {
+            case NULL -> JsonNull.INSTANCE;
+            case FALSE -> Boolean.FALSE;
+            case TRUE -> Boolean.TRUE;
+            case INTEGER -> decodeVarint(raw);
+            case DOUBLE -> ByteBuffer.wrap(raw, 1, Double.BYTES).getDouble();
+            case DECIMAL -> new BigDecimal(new String(raw, 1, raw.length - 1, StandardCharsets.UTF_8));
+            case STRING -> new String(raw, 1, raw.length - 1, StandardCharsets.UTF_8);
+            // untagged strings, including values written before the codec was switched on
+            default -> new String(raw, StandardCharsets.UTF_8);
+        };
+    }
+
+    private static byte[] encodeNumber(String text) {
+        BigDecimal decimal;
+        try {
+            decimal = new BigDecimal(text);
+        } catch (NumberFormatException e) {
+            // lenient parsing lets through number tokens such as NaN that have no decimal form
+            return encodeString(text);
+        }
+        boolean integral = text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0;
+        if (integral) {
+            try {
+                return encodeVarint(decimal.longValueExact());
+            } catch (ArithmeticException e) {
+                return tagged(DECIMAL, text);
+            }
+        }
+        // eight IEEE bytes only pay off over long decimal text, and only when the double is exact
+        if (text.length() >= Double.BYTES) {
+            double number = decimal.doubleValue();
+            if (Double.isFinite(number) && BigDecimal.valueOf(number).compareTo(decimal) == 0) {
+                return ByteBuffer.allocate(1 + Double.BYTES).put(DOUBLE).putDouble(number).array();
+            }
+        }
+        return tagged(DECIMAL, text);
+    }
+
+    private static byte[] encodeString(String value) {
+        // strings stay raw UTF-8 unless their first byte would read as a type tag
+        if (value.isEmpty() || value.charAt(0) > STRING) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+        return tagged(STRING, value);
+    }
+
+    private static byte[] encodeVarint(long value) {
+        byte[] out = new byte[1 + MAX_VARINT_BYTES];
+        out[0] = INTEGER;
+        long zigzag = (value << 1) ^ (value >> 63);
+        int length = 1;
+        while ((zigzag & ~0x7FL) != 0) {
+            out[length++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out[length++] = (byte) zigzag;
+        return Arrays.copyOf(out, length);
+    }
+
+    private static long decodeVarint(byte[] raw) {
+        long zigzag = 0;
+        int shift = 0;
+        for (int i = 1; i < raw.length && shift < 64; i++) {
+            zigzag |= (long) (raw[i] & 0x7F) << shift;
+            if ((raw[i] & 0x80) == 0) {
+                break;
+            }
+            shift += 7;
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static byte[] tagged(byte tag, String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[utf8.length + 1];
+        out[0] = tag;
+        System.arraycopy(utf8, 0, out, 1, utf8.length);
+        return out;
+    }
+}
@@ -0,0 +1,21 @@
+package com.codelry.redis.maptree.service;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonToken;
+
+public interface ValueCodec {
+
+    byte[] encode(String value, JsonToken kind);
+
+    Object decode(byte[] raw);
+
+    default byte[] encode(JsonElement value) {
+        if (value == null || value.isJsonNull()) {
+            return encode(null, JsonToken.NULL);
+        }
+        JsonPrimitive primitive = value.getAsJsonPrimitive();
+        JsonToken kind = primitive.isBoolean() ? JsonToken.BOOLEAN : primitive.isNumber() ? JsonToken.NUMBER : JsonToken.STRING;
+        return encode(primitive.getAsString(), kind);
+    }
+}
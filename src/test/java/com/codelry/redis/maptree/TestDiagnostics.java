@@ -0,0 +1,89 @@
+package com.codelry.redis.maptree;
+
+import com.codelry.redis.maptree.diagnostics.DiagnosticEntry;
+import com.codelry.redis.maptree.diagnostics.DiagnosticsSink;
+import com.codelry.redis.maptree.diagnostics.MappedJournal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestDiagnostics {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void testJournalRotation() throws IOException {
+    try (MappedJournal journal = new MappedJournal(directory, 256, 2)) {
+      for (int i = 0; i < 20; i++) {
+        assertTrue(journal.append(entry("record-" + i, "a.b.c", "d[0]")));
+      }
+      assertFalse(journal.append(entry("oversized", "x".repeat(512))));
+    }
+    assertEquals(2, segments().size());
+  }
+
+  @Test
+  public void testReopenTrimsSegments() throws IOException {
+    // the first journal is never closed, as after a crash, so its segment keeps the zero-filled mapping tail
+    MappedJournal crashed = new MappedJournal(directory, 4096, 4);
+    crashed.append(entry("first", "a"));
+    crashed.append(entry("second", "b", "c"));
+    Path segment = segments().get(0);
+    assertEquals(4096, Files.size(segment));
+
+    try (MappedJournal journal = new MappedJournal(directory, 4096, 4)) {
+      journal.append(entry("third", "d"));
+    }
+    String text = Files.readString(segment, StandardCharsets.UTF_8);
+    assertTrue(text.endsWith("\n"));
+    assertFalse(text.contains("\0"));
+    assertEquals(List.of("first", "second"), text.lines()
+        .filter(line -> line.startsWith("# "))
+        .map(line -> line.split(" ")[2])
+        .toList());
+    assertEquals(2, segments().size());
+  }
+
+  @Test
+  public void testSinkKeepsDrainingAfterFailure() throws IOException {
+    MappedJournal journal = new MappedJournal(directory, 4096, 2) {
+      @Override
+      public boolean append(DiagnosticEntry entry) throws IOException {
+        if (entry.recordId().equals("broken")) {
+          throw new IllegalStateException("unwritable entry");
+        }
+        return super.append(entry);
+      }
+    };
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    DiagnosticsSink sink = new DiagnosticsSink(journal, 16, meterRegistry);
+    sink.record("broken", "paths", List.of("a"));
+    sink.record("record", "paths", List.of("b"));
+    sink.close();
+
+    assertEquals(1.0, meterRegistry.counter("diagnostics.entries.written").count());
+    assertEquals(1.0, meterRegistry.counter("diagnostics.entries.dropped").count());
+  }
+
+  private static DiagnosticEntry entry(String recordId, String... values) {
+    return new DiagnosticEntry(System.currentTimeMillis(), recordId, "paths", List.of(values));
+  }
+
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.sorted().toList();
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.codelry.redis.maptree;
+
+import com.codelry.redis.maptree.generator.DocumentGenerator;
+import com.codelry.redis.maptree.generator.DocumentProfile;
+import com.codelry.redis.maptree.service.FlatPath;
+import com.codelry.redis.maptree.service.JsonFlattener;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class TestDocumentGenerator {
+
+  @Test
+  public void testSameSeedSameDocument() {
+    DocumentGenerator first = new DocumentGenerator(new DocumentProfile());
+    DocumentGenerator second = new DocumentGenerator(new DocumentProfile());
+
+    assertArrayEquals(first.generate(7), second.generate(7));
+    assertFalse(new String(first.generate(7)).equals(new String(first.generate(8))));
+  }
+
+  @Test
+  public void testProfileShape() {
+    Set<String> wide = JsonFlattener.flattenPaths(new DocumentGenerator(DocumentProfile.wide(50)).generate(0));
+    assertEquals(50, wide.size());
+
+    Set<String> deep = JsonFlattener.flattenPaths(new DocumentGenerator(DocumentProfile.deep(20)).generate(0));
+    int depth = deep.stream().mapToInt(path -> FlatPath.parse(path).depth()).max().orElse(0);
+    assertEquals(20, depth);
+  }
+
+  @Test
+  public void testNdjson() throws IOException {
+    DocumentGenerator generator = new DocumentGenerator(new DocumentProfile());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    generator.writeNdjson(5, out);
+
+    String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+    assertEquals(5, lines.length);
+    assertEquals(new String(generator.generate(3), StandardCharsets.UTF_8), lines[3]);
+  }
+}
@@ -0,0 +1,460 @@
+package com.codelry.redis.maptree;
+
+import com.codelry.redis.maptree.config.AutoModelProperties;
+import com.codelry.redis.maptree.config.BatchProperties;
+import com.codelry.redis.maptree.config.PathDictionaryProperties;
+import com.codelry.redis.maptree.config.RetryProperties;
+import com.codelry.redis.maptree.config.SchemaCacheProperties;
+import com.codelry.redis.maptree.diagnostics.DiagnosticsSink;
+import com.codelry.redis.maptree.dto.DictionaryReport;
+import com.codelry.redis.maptree.dto.MemoryReport;
+import com.codelry.redis.maptree.dto.PatchReport;
+import com.codelry.redis.maptree.embedded.EmbeddedRedisServer;
+import com.codelry.redis.maptree.exception.PatchConflictException;
+import com.codelry.redis.maptree.exception.RecordNotFoundException;
+import com.codelry.redis.maptree.model.StorageModel;
+import com.codelry.redis.maptree.service.AutoModelService;
+import com.codelry.redis.maptree.service.JsonFlattener;
+import com.codelry.redis.maptree.service.JsonOutput;
+import com.codelry.redis.maptree.service.MapService;
+import com.codelry.redis.maptree.service.MapTreeService;
+import com.codelry.redis.maptree.service.MemoryProfiler;
+import com.codelry.redis.maptree.service.PatchPlan;
+import com.codelry.redis.maptree.service.PathDictionary;
+import com.codelry.redis.maptree.service.ReactiveMapService;
+import com.codelry.redis.maptree.service.ReactiveMapTreeService;
+import com.codelry.redis.maptree.service.RedisJsonService;
+import com.codelry.redis.maptree.service.SchemaCache;
+import com.codelry.redis.maptree.service.SessionService;
+import com.codelry.redis.maptree.service.TextValueCodec;
+import com.codelry.redis.maptree.service.TypedValueCodec;
+import com.codelry.redis.maptree.service.ValueCodec;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.redis.lettucemod.RedisModulesClient;
+import com.redis.lettucemod.api.StatefulRedisModulesConnection;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestEmbeddedRedis {
+
+  private static EmbeddedRedisServer server;
+  private static LettuceConnectionFactory connectionFactory;
+  private static RedisTemplate<String, String> redisTemplate;
+  private static byte[] document;
+
+  @BeforeAll
+  public static void start() throws IOException {
+    server = new EmbeddedRedisServer().start();
+    connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(server.getHost(), server.getPort()));
+    connectionFactory.afterPropertiesSet();
+
+    redisTemplate = new RedisTemplate<>();
+    redisTemplate.setConnectionFactory(connectionFactory);
+    redisTemplate.setDefaultSerializer(new StringRedisSerializer());
+    redisTemplate.afterPropertiesSet();
+
+    ClassLoader loader = Thread.currentThread().getContextClassLoader();
+    try (InputStream input = Objects.requireNonNull(loader.getResourceAsStream("test.json"))) {
+      document = input.readAllBytes();
+    }
+  }
+
+  @AfterAll
+  public static void stop() {
+    connectionFactory.destroy();
+    server.close();
+  }
+
+  @Test
+  public void testJsonRoundTrip() throws IOException {
+    SessionService service = new SessionService(new RedisJsonService(connectionFactory, new Gson()),
+        new RetryTemplate(), new BatchProperties(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    service.createRecord("json:1", document, false);
+
+    assertEquals(JsonFlattener.mapPaths(document), JsonFlattener.mapPaths(read(service.getRecord("json:1"))));
+    assertEquals("{\"id\":1,\"item\":\"test\"}",
+        new String(read(service.getSubtree("json:1", "complex-object.sub-object")), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testMapRoundTrip() throws IOException {
+    MapService service = new MapService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache(), pathDictionary(false), new TextValueCodec(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    service.createRecord("map:1", document, false);
+
+    assertEquals(JsonFlattener.mapPaths(document), JsonFlattener.mapPaths(read(service.getRecord("map:1"))));
+    assertEquals("{\"id\":\"1\",\"item\":\"test\"}",
+        new String(read(service.getSubtree("map:1", "complex-object.sub-object")), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testTreeRoundTrip() throws IOException {
+    MapTreeService service = new MapTreeService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache(), pathDictionary(false), new TextValueCodec(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    service.createRecord("tree:1", document, false);
+
+    assertEquals(JsonFlattener.mapPaths(document), JsonFlattener.mapPaths(read(service.getRecord("tree:1"))));
+    assertEquals("{\"id\":\"1\",\"item\":\"test\"}",
+        new String(read(service.getSubtree("tree:1", "complex-object.sub-object")), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testPathDictionaryRoundTrip() throws IOException {
+    PathDictionary dictionary = pathDictionary(true);
+    MapService mapService = new MapService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache(), dictionary, new TextValueCodec(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    MapTreeService treeService = new MapTreeService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache(), dictionary, new TextValueCodec(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    mapService.createRecord("map:dictionary", document, false);
+    treeService.createRecord("tree:dictionary", document, false);
+
+    assertEquals(JsonFlattener.mapPaths(document), JsonFlattener.mapPaths(read(mapService.getRecord("map:dictionary"))));
+    assertEquals(JsonFlattener.mapPaths(document), JsonFlattener.mapPaths(read(treeService.getRecord("tree:dictionary"))));
+    assertEquals("{\"id\":\"1\",\"item\":\"test\"}",
+        new String(read(mapService.getSubtree("map:dictionary", "complex-object.sub-object")), StandardCharsets.UTF_8));
+    assertEquals("{\"id\":\"1\",\"item\":\"test\"}",
+        new String(read(treeService.getSubtree("tree:dictionary", "complex-object.sub-object")), StandardCharsets.UTF_8));
+
+    DictionaryReport report = mapService.getDictionaryReport("map:dictionary");
+    assertTrue(report.getSavedBytes() > 0);
+    assertTrue(report.getDictionaryEntries() >= report.getNames());
+  }
+
+  @Test
+  public void testPathDictionaryReadsPlainRecords() throws IOException {
+    PathDictionary dictionary = pathDictionary(true);
+    MapService plainMap = new MapService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache(), pathDictionary(false), new TextValueCodec(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    MapTreeService plainTree = new MapTreeService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache(), pathDictionary(false), new TextValueCodec(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    MapService mapService = new MapService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache(), dictionary, new TextValueCodec(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    MapTreeService treeService = new MapTreeService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache(), dictionary, new TextValueCodec(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+
+    // interning the same paths for another record must not redirect reads of the plain one
+    byte[] legacy = "{\"~B\":\"plain\",\"a\":{\"b\":\"1\",\"c\":[\"x\",\"y\"]}}".getBytes(StandardCharsets.UTF_8);
+    mapService.createRecord("map:encoded", legacy, false);
+    treeService.createRecord("tree:encoded", legacy, false);
+    plainMap.createRecord("map:legacy", legacy, false);
+    plainTree.createRecord("tree:legacy", legacy, false);
+
+    for (String key : new String[]{"map:legacy", "map:encoded"}) {
+      assertEquals(JsonFlattener.mapPaths(legacy), JsonFlattener.mapPaths(read(mapService.getRecord(key))));
+      assertEquals("{\"b\":\"1\",\"c\":[\"x\",\"y\"]}",
+          new String(read(mapService.getSubtree(key, "a")), StandardCharsets.UTF_8));
+      assertEquals(JsonParser.parseString("{\"~B\":\"plain\",\"a\":{\"b\":\"1\"}}"), JsonParser.parseString(
+          new String(read(mapService.getProjection(key, List.of("~B", "a.b"))), StandardCharsets.UTF_8)));
+    }
+    for (String key : new String[]{"tree:legacy", "tree:encoded"}) {
+      assertEquals(JsonFlattener.mapPaths(legacy), JsonFlattener.mapPaths(read(treeService.getRecord(key))));
+      assertEquals("[\"x\",\"y\"]", new String(read(treeService.getSubtree(key, "a.c")), StandardCharsets.UTF_8));
+      assertEquals("{\"a\":{\"b\":\"1\",\"c\":[null,\"y\"]}}",
+          new String(read(treeService.getProjection(key, List.of("a.b", "a.c[1]"))), StandardCharsets.UTF_8));
+    }
+    // a null item lives in the parent hash rather than the list, and a container path is not a field
+    byte[] nulls = "{\"a\":{\"c\":[\"x\",null]}}".getBytes(StandardCharsets.UTF_8);
+    treeService.createRecord("tree:nulls", nulls, false);
+    assertEquals("{\"a\":{\"c\":[\"x\",null]}}", new String(
+        read(treeService.getProjection("tree:nulls", List.of("a.c[0]", "a.c[1]"))), StandardCharsets.UTF_8));
+    assertThrows(RecordNotFoundException.class, () -> treeService.getProjection("tree:nulls", List.of("a")));
+    assertEquals(JsonFlattener.mapPaths(legacy), JsonFlattener.mapPaths(read(plainMap.getRecord("map:encoded"))));
+  }
+
+  @Test
+  public void testTypedValueRoundTrip() throws IOException {
+    MapService mapService = new MapService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache(), pathDictionary(false), new TypedValueCodec(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    MapTreeService treeService = new MapTreeService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache(), pathDictionary(false), new TypedValueCodec(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    mapService.createRecord("map:typed", document, false);
+    treeService.createRecord("tree:typed", document, false);
+
+    String expected = new String(document, StandardCharsets.UTF_8);
+    assertEquals(JsonParser.parseString(expected),
+        JsonParser.parseString(new String(read(mapService.getRecord("map:typed")), StandardCharsets.UTF_8)));
+    assertEquals(JsonParser.parseString(expected),
+        JsonParser.parseString(new String(read(treeService.getRecord("tree:typed")), StandardCharsets.UTF_8)));
+    assertEquals("{\"id\":1,\"item\":\"test\"}",
+        new String(read(treeService.getSubtree("tree:typed", "complex-object.sub-object")), StandardCharsets.UTF_8));
+
+    // the text codec's null marker is an ordinary string to the typed codec
+    String marker = "{\"a\":\"" + JsonFlattener.NULL_VALUE + "\",\"b\":null,\"c\":[\"" + JsonFlattener.NULL_VALUE + "\",null]}";
+    mapService.createRecord("map:typed:marker", marker.getBytes(StandardCharsets.UTF_8), false);
+    treeService.createRecord("tree:typed:marker", marker.getBytes(StandardCharsets.UTF_8), false);
+    assertEquals(JsonParser.parseString(marker),
+        JsonParser.parseString(new String(read(mapService.getRecord("map:typed:marker")), StandardCharsets.UTF_8)));
+    assertEquals(JsonParser.parseString(marker),
+        JsonParser.parseString(new String(read(treeService.getRecord("tree:typed:marker")), StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void testReactiveTypedRoundTrip() throws IOException {
+    ValueCodec codec = new TypedValueCodec();
+    PathDictionary dictionary = pathDictionary(true);
+    MapService mapService = new MapService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache(), dictionary, codec, DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    MapTreeService treeService = new MapTreeService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache(), dictionary, codec, DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    JsonElement expected = JsonParser.parseString(new String(document, StandardCharsets.UTF_8));
+
+    RedisModulesClient client = RedisModulesClient.create(RedisURI.create(server.getHost(), server.getPort()));
+    try (StatefulRedisModulesConnection<String, byte[]> connection =
+             client.connect(RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE))) {
+      ReactiveMapService reactiveMap = new ReactiveMapService(connection, new RetryProperties(), schemaCache(),
+          dictionary, codec, new SimpleMeterRegistry());
+      ReactiveMapTreeService reactiveTree = new ReactiveMapTreeService(connection, new RetryProperties(), schemaCache(),
+          dictionary, codec, new SimpleMeterRegistry());
+
+      // each side reads what the other wrote, typed values and dictionary names included
+      mapService.createRecord("map:mixed:blocking", document, false);
+      reactiveMap.createRecord("map:mixed:reactive", document).block();
+      treeService.createRecord("tree:mixed:blocking", document, false);
+      reactiveTree.createRecord("tree:mixed:reactive", document).block();
+      for (String key : new String[]{"map:mixed:blocking", "map:mixed:reactive"}) {
+        assertEquals(expected, JsonParser.parseString(
+            new String(read(Objects.requireNonNull(reactiveMap.getRecord(key).block())), StandardCharsets.UTF_8)));
+        assertEquals(expected, JsonParser.parseString(new String(read(mapService.getRecord(key)), StandardCharsets.UTF_8)));
+      }
+      for (String key : new String[]{"tree:mixed:blocking", "tree:mixed:reactive"}) {
+        assertEquals(expected, JsonParser.parseString(
+            new String(read(Objects.requireNonNull(reactiveTree.getRecord(key).block())), StandardCharsets.UTF_8)));
+        assertEquals(expected, JsonParser.parseString(new String(read(treeService.getRecord(key)), StandardCharsets.UTF_8)));
+      }
+      // the reactive writes store dictionary names just as the blocking ones do
+      assertTrue(mapService.getDictionaryReport("map:mixed:reactive").getSavedBytes() > 0);
+      assertTrue(treeService.getDictionaryReport("tree:mixed:reactive").getSavedBytes() > 0);
+
+      // a list node is cleared before it is refilled, so a shorter rewrite leaves no items behind
+      reactiveTree.createRecord("tree:mixed:list", "{\"tags\":[\"a\",\"b\",\"c\"]}".getBytes(StandardCharsets.UTF_8)).block();
+      reactiveTree.createRecord("tree:mixed:list", "{\"tags\":[\"x\"]}".getBytes(StandardCharsets.UTF_8)).block();
+      assertEquals(JsonParser.parseString("{\"tags\":[\"x\"]}"), JsonParser.parseString(
+          new String(read(Objects.requireNonNull(reactiveTree.getRecord("tree:mixed:list").block())), StandardCharsets.UTF_8)));
+    } finally {
+      client.shutdown();
+    }
+  }
+
+  @Test
+  public void testMemoryProfile() {
+    MapTreeService service = new MapTreeService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache(), pathDictionary(false), new TextValueCodec(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    service.createRecord("tree:profile", document, false);
+
+    MemoryReport report = new MemoryProfiler(redisTemplate, service, new SimpleMeterRegistry())
+        .profile(StorageModel.TREE, "tree:profile", document);
+    assertEquals(report.getEntries().size(), report.getKeys());
+    assertTrue(report.getKeys() > 1);
+    assertTrue(report.getBytes() > 0);
+    assertEquals(JsonFlattener.mapPaths(document).size(), report.getLeaves());
+    assertTrue(report.getEncodings().containsKey("listpack"));
+  }
+
+  @Test
+  public void testAutoModelSelection() throws IOException {
+    SchemaCache schemaCache = schemaCache();
+    AutoModelProperties properties = new AutoModelProperties();
+    properties.setExplorationSamples(1);
+    properties.setExplorationRate(0);
+    SessionService jsonService = new SessionService(new RedisJsonService(connectionFactory, new Gson()),
+        new RetryTemplate(), new BatchProperties(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    MapService mapService = new MapService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache, pathDictionary(false), new TextValueCodec(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    MapTreeService treeService = new MapTreeService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache, pathDictionary(false), new TextValueCodec(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    AutoModelService service = new AutoModelService(redisTemplate, jsonService, mapService, treeService,
+        schemaCache, pathDictionary(false), new TextValueCodec(), properties, meterRegistry);
+
+    // each model is timed once on a shadow copy, which is gone again before the call returns
+    String shapeClass = null;
+    for (int i = 0; i < StorageModel.values().length; i++) {
+      AutoModelService.Selection selection = service.createRecord("auto:1", document);
+      shapeClass = selection.shapeClass();
+      assertEquals(selection.model(), service.storedModel("auto:1"));
+      assertEquals(JsonFlattener.mapPaths(document), JsonFlattener.mapPaths(read(service.getRecord("auto:1"))));
+      assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey("auto:1:__shadow__")));
+      assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey("auto:1:__shadow__:__manifest__")));
+    }
+    for (StorageModel model : StorageModel.values()) {
+      assertEquals(1.0, meterRegistry.counter("record.auto.explored", "model", model.tag(), "shape", shapeClass).count());
+    }
+
+    // a record stored under another model is replaced by the chosen one and its old keys are dropped with the tag flip
+    StorageModel best = service.createRecord("auto:1", document).model();
+    for (StorageModel previous : StorageModel.values()) {
+      if (previous == best) {
+        continue;
+      }
+      String key = "auto:" + previous.tag();
+      switch (previous) {
+        case JSON -> jsonService.createRecord(key, document, false);
+        case MAP -> mapService.createRecord(key, document, false);
+        case TREE -> treeService.createRecord(key, document, false);
+      }
+      redisTemplate.opsForValue().set(key + ":__model__", previous.tag());
+
+      assertEquals(best, service.createRecord(key, document).model());
+      assertEquals(best, service.storedModel(key));
+      assertEquals(JsonFlattener.mapPaths(document), JsonFlattener.mapPaths(read(service.getRecord(key))));
+      assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey(key + ":__staging__")));
+      if (previous == StorageModel.TREE) {
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey(key + ":__manifest__")));
+      } else if (best == StorageModel.TREE) {
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey(key)));
+      }
+    }
+  }
+
+  @Test
+  public void testRecordPatch() throws IOException {
+    SessionService jsonService = new SessionService(new RedisJsonService(connectionFactory, new Gson()),
+        new RetryTemplate(), new BatchProperties(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    MapService mapService = new MapService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache(), pathDictionary(false), new TypedValueCodec(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    MapTreeService treeService = new MapTreeService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache(), pathDictionary(false), new TypedValueCodec(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    byte[] original = ("{\"title\":\"Goodbye!\",\"author\":{\"givenName\":\"John\",\"familyName\":\"Doe\"},"
+        + "\"tags\":[\"example\",\"sample\"],\"content\":\"This will be unchanged\"}").getBytes(StandardCharsets.UTF_8);
+    PatchPlan mergePatch = PatchPlan.parse(PatchPlan.Format.MERGE_PATCH,
+        ("{\"title\":\"Hello!\",\"phoneNumber\":\"+01-555-1234\",\"author\":{\"familyName\":null},"
+            + "\"tags\":[\"example\"]}").getBytes(StandardCharsets.UTF_8));
+    PatchPlan jsonPatch = PatchPlan.parse(PatchPlan.Format.JSON_PATCH,
+        ("[{\"op\":\"add\",\"path\":\"/tags/0\",\"value\":\"first\"},"
+            + "{\"op\":\"replace\",\"path\":\"/author\",\"value\":{\"name\":\"Jane\"}}]").getBytes(StandardCharsets.UTF_8));
+    String merged = "{\"title\":\"Hello!\",\"author\":{\"givenName\":\"John\"},\"tags\":[\"example\"],"
+        + "\"content\":\"This will be unchanged\",\"phoneNumber\":\"+01-555-1234\"}";
+    String patched = "{\"title\":\"Hello!\",\"author\":{\"name\":\"Jane\"},\"tags\":[\"first\",\"example\"],"
+        + "\"content\":\"This will be unchanged\",\"phoneNumber\":\"+01-555-1234\"}";
+
+    jsonService.createRecord("json:patch", original, false);
+    mapService.createRecord("map:patch", original, false);
+    treeService.createRecord("tree:patch", original, false);
+
+    PatchReport report = mapService.patchRecord("map:patch", mergePatch);
+    assertEquals(2, report.getUpdated());
+    assertEquals(2, report.getRemoved());
+    assertEquals(JsonParser.parseString(merged),
+        JsonParser.parseString(new String(read(mapService.getRecord("map:patch")), StandardCharsets.UTF_8)));
+    treeService.patchRecord("tree:patch", mergePatch);
+    assertEquals(JsonParser.parseString(merged),
+        JsonParser.parseString(new String(read(treeService.getRecord("tree:patch")), StandardCharsets.UTF_8)));
+    jsonService.patchRecord("json:patch", mergePatch);
+    assertEquals(JsonParser.parseString(merged),
+        JsonParser.parseString(new String(read(jsonService.getRecord("json:patch")), StandardCharsets.UTF_8)));
+
+    mapService.patchRecord("map:patch", jsonPatch);
+    assertEquals(JsonParser.parseString(patched),
+        JsonParser.parseString(new String(read(mapService.getRecord("map:patch")), StandardCharsets.UTF_8)));
+    treeService.patchRecord("tree:patch", jsonPatch);
+    assertEquals(JsonParser.parseString(patched),
+        JsonParser.parseString(new String(read(treeService.getRecord("tree:patch")), StandardCharsets.UTF_8)));
+    jsonService.patchRecord("json:patch", jsonPatch);
+    assertEquals(JsonParser.parseString(patched),
+        JsonParser.parseString(new String(read(jsonService.getRecord("json:patch")), StandardCharsets.UTF_8)));
+
+    // a record written before the dictionary was enabled is patched under the plain names it already holds
+    MapService encodedMap = new MapService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache(), pathDictionary(true), new TypedValueCodec(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    MapTreeService encodedTree = new MapTreeService(redisTemplate, new RetryTemplate(), new BatchProperties(),
+        schemaCache(), pathDictionary(true), new TypedValueCodec(), DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    encodedMap.createRecord("map:patch:encoded", original, false);
+    encodedTree.createRecord("tree:patch:encoded", original, false);
+    mapService.createRecord("map:patch:legacy", original, false);
+    treeService.createRecord("tree:patch:legacy", original, false);
+    for (String key : new String[]{"map:patch:encoded", "map:patch:legacy"}) {
+      encodedMap.patchRecord(key, mergePatch);
+      encodedMap.patchRecord(key, jsonPatch);
+      assertEquals(JsonParser.parseString(patched),
+          JsonParser.parseString(new String(read(encodedMap.getRecord(key)), StandardCharsets.UTF_8)));
+    }
+    for (String key : new String[]{"tree:patch:encoded", "tree:patch:legacy"}) {
+      encodedTree.patchRecord(key, mergePatch);
+      encodedTree.patchRecord(key, jsonPatch);
+      assertEquals(JsonParser.parseString(patched),
+          JsonParser.parseString(new String(read(encodedTree.getRecord(key)), StandardCharsets.UTF_8)));
+    }
+    assertTrue(redisTemplate.opsForHash().hasKey("map:patch:legacy", "phoneNumber"));
+    assertFalse(redisTemplate.opsForHash().hasKey("map:patch:encoded", "phoneNumber"));
+    assertTrue(Boolean.TRUE.equals(redisTemplate.hasKey("tree:patch:legacy:author")));
+    assertEquals(JsonParser.parseString(patched),
+        JsonParser.parseString(new String(read(mapService.getRecord("map:patch:legacy")), StandardCharsets.UTF_8)));
+
+    assertThrows(RecordNotFoundException.class, () -> treeService.patchRecord("tree:missing", mergePatch));
+  }
+
+  @Test
+  public void testJsonPatchConflict() throws IOException {
+    // every read of the patched scopes is followed by a write from another client, until the budget runs out
+    AtomicInteger interference = new AtomicInteger(1);
+    AtomicInteger writes = new AtomicInteger();
+    RedisJsonService interfering = new RedisJsonService(connectionFactory, new Gson()) {
+      @Override
+      public Map<String, JsonElement> jsonGet(RedisConnection connection, String key, List<String> paths, int chunkSize) {
+        Map<String, JsonElement> results = super.jsonGet(connection, key, paths, chunkSize);
+        if (interference.getAndDecrement() > 0) {
+          jsonSet(key, "$.content", ("\"changed " + writes.incrementAndGet() + "\"").getBytes(StandardCharsets.UTF_8));
+        }
+        return results;
+      }
+    };
+    SessionService service = new SessionService(interfering, new RetryTemplate(), new BatchProperties(),
+        DiagnosticsSink.disabled(), new SimpleMeterRegistry());
+    service.createRecord("json:conflict", "{\"title\":\"a\",\"content\":\"b\"}".getBytes(StandardCharsets.UTF_8), false);
+    PatchPlan patch = PatchPlan.parse(PatchPlan.Format.MERGE_PATCH, "{\"title\":\"c\"}".getBytes(StandardCharsets.UTF_8));
+
+    service.patchRecord("json:conflict", patch);
+    assertEquals(JsonParser.parseString("{\"title\":\"c\",\"content\":\"changed 1\"}"),
+        JsonParser.parseString(new String(read(service.getRecord("json:conflict")), StandardCharsets.UTF_8)));
+
+    interference.set(Integer.MAX_VALUE);
+    PatchPlan retitle = PatchPlan.parse(PatchPlan.Format.MERGE_PATCH, "{\"title\":\"d\"}".getBytes(StandardCharsets.UTF_8));
+    assertThrows(PatchConflictException.class, () -> service.patchRecord("json:conflict", retitle));
+    assertEquals(1 + new BatchProperties().getPatchAttempts(), writes.get());
+    assertEquals("\"c\"", new String(read(service.getSubtree("json:conflict", "title")), StandardCharsets.UTF_8));
+  }
+
+  private static PathDictionary pathDictionary(boolean enabled) {
+    PathDictionaryProperties properties = new PathDictionaryProperties();
+    properties.setEnabled(enabled);
+    return new PathDictionary(redisTemplate, properties);
+  }
+
+  private static SchemaCache schemaCache() {
+    return new SchemaCache(new SchemaCacheProperties(), new SimpleMeterRegistry());
+  }
+
+  private static byte[] read(JsonOutput output) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    output.writeTo(out);
+    return out.toByteArray();
+  }
+}
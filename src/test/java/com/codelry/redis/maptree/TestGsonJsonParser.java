@@ -0,0 +1,43 @@
+package com.codelry.redis.maptree;
+
+import com.codelry.redis.maptree.config.GsonJsonParser;
+import io.lettuce.core.json.JsonValue;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestGsonJsonParser {
+
+  private static final String DOCUMENT = "[{\"name\" : \"a\",  \"items\": [1, 2.50, true]}]";
+
+  @Test
+  public void testUnmodifiedValueKeepsReplyBytes() {
+    GsonJsonParser parser = new GsonJsonParser();
+    JsonValue value = parser.loadJsonValue(ByteBuffer.wrap(DOCUMENT.getBytes(StandardCharsets.UTF_8)));
+
+    assertTrue(value.isJsonArray());
+    assertFalse(value.isJsonObject());
+    assertEquals(DOCUMENT, value.toString());
+    assertEquals(DOCUMENT, StandardCharsets.UTF_8.decode(value.asByteBuffer()).toString());
+
+    assertEquals("a", value.asJsonArray().getFirst().asJsonObject().get("name").asString());
+    assertSame(value.asJsonArray().asList(), value.asJsonArray().asList());
+    assertEquals(DOCUMENT, value.toString());
+  }
+
+  @Test
+  public void testNestedChangeReserializes() {
+    GsonJsonParser parser = new GsonJsonParser();
+    JsonValue value = parser.createJsonValue(ByteBuffer.wrap(DOCUMENT.getBytes(StandardCharsets.UTF_8)));
+
+    value.asJsonArray().getFirst().asJsonObject().put("name", parser.createJsonValue("\"b\""));
+
+    assertEquals("[{\"name\":\"b\",\"items\":[1,2.50,true]}]", value.toString());
+  }
+}
@@ -0,0 +1,69 @@
+package com.codelry.redis.maptree;
+
+import com.codelry.redis.maptree.config.JacksonJsonParser;
+import io.lettuce.core.json.JsonValue;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestJacksonJsonParser {
+
+  private static final String DOCUMENT = "[{\"name\" : \"a\",  \"items\": [1, 2.50, true]}]";
+
+  @Test
+  public void testUnmodifiedValueKeepsReplyBytes() {
+    JacksonJsonParser parser = new JacksonJsonParser();
+    JsonValue value = parser.loadJsonValue(ByteBuffer.wrap(DOCUMENT.getBytes(StandardCharsets.UTF_8)));
+
+    assertTrue(value.isJsonArray());
+    assertFalse(value.isJsonObject());
+    assertEquals(DOCUMENT, value.toString());
+    assertEquals(DOCUMENT, StandardCharsets.UTF_8.decode(value.asByteBuffer()).toString());
+
+    JsonValue first = value.asJsonArray().getFirst();
+    assertEquals("{\"name\" : \"a\",  \"items\": [1, 2.50, true]}", first.toString());
+    assertEquals("a", first.asJsonObject().get("name").asString());
+    assertEquals(2, first.asJsonObject().size());
+    assertEquals(DOCUMENT, value.toString());
+  }
+
+  @Test
+  public void testTrailingZerosSurvive() {
+    JacksonJsonParser parser = new JacksonJsonParser();
+    JsonValue value = parser.loadJsonValue(ByteBuffer.wrap(DOCUMENT.getBytes(StandardCharsets.UTF_8)));
+
+    JsonValue price = value.asJsonArray().getFirst().asJsonObject().get("items").asJsonArray().get(1);
+    assertEquals(new BigDecimal("2.50"), price.asNumber());
+    assertEquals("2.50", price.toString());
+  }
+
+  @Test
+  public void testNestedChangeReserializes() {
+    JacksonJsonParser parser = new JacksonJsonParser();
+    JsonValue value = parser.createJsonValue(ByteBuffer.wrap(DOCUMENT.getBytes(StandardCharsets.UTF_8)));
+
+    value.asJsonArray().getFirst().asJsonObject().put("name", parser.createJsonValue("\"b\""));
+
+    assertEquals("[{\"name\":\"b\",\"items\":[1,2.50,true]}]", value.toString());
+  }
+
+  @Test
+  public void testDirectAndHeapBuffersAgree() {
+    JacksonJsonParser parser = new JacksonJsonParser();
+    byte[] framed = ("xx" + DOCUMENT).getBytes(StandardCharsets.UTF_8);
+
+    ByteBuffer heap = ByteBuffer.wrap(framed, 2, framed.length - 2);
+    ByteBuffer direct = ByteBuffer.allocateDirect(framed.length);
+    direct.put(framed).flip().position(2);
+
+    assertEquals(DOCUMENT, parser.loadJsonValue(heap).toString());
+    assertEquals(DOCUMENT, parser.createJsonValue(direct).toString());
+    assertEquals(2, direct.position());
+  }
+}
@@ -0,0 +1,69 @@
+package com.codelry.redis.maptree;
+
+import com.codelry.redis.maptree.service.JsonFlattener;
+import com.codelry.redis.maptree.service.JsonReassembler;
+import com.google.gson.JsonNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestJsonReassembler {
+
+  @ParameterizedTest
+  @ValueSource(strings = {"test.json"})
+  public void testFlatRoundTrip(String templateFile) throws IOException {
+    ClassLoader loader = Thread.currentThread().getContextClassLoader();
+
+    byte[] document;
+    try (InputStream input = Objects.requireNonNull(loader.getResourceAsStream(templateFile))) {
+      document = input.readAllBytes();
+    }
+
+    Map<String, String> fields = JsonFlattener.mapPaths(document);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JsonReassembler.write(fields, out);
+
+    assertEquals(fields, JsonFlattener.mapPaths(out.toByteArray()));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"test.json"})
+  public void testTreeRoundTrip(String templateFile) throws IOException {
+    ClassLoader loader = Thread.currentThread().getContextClassLoader();
+
+    byte[] document;
+    try (InputStream input = Objects.requireNonNull(loader.getResourceAsStream(templateFile))) {
+      document = input.readAllBytes();
+    }
+
+    Map<String, Object> fields = JsonReassembler.treeFields(JsonFlattener.mapPathTree(document));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JsonReassembler.write(fields, out);
+
+    assertEquals(JsonFlattener.mapPaths(document), JsonFlattener.mapPaths(out.toByteArray()));
+  }
+
+  @Test
+  public void testArrayOrderAndNulls() throws IOException {
+    Map<String, Object> fields = Map.of(
+        "list[10]", "k",
+        "list[2]", "c",
+        "list[0]", "a",
+        "object.value", JsonNull.INSTANCE);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JsonReassembler.write(fields, out);
+
+    assertEquals("{\"list\":[\"a\",null,\"c\",null,null,null,null,null,null,null,\"k\"],\"object\":{\"value\":null}}",
+        out.toString(StandardCharsets.UTF_8));
+  }
+}
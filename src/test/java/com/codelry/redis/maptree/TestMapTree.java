@@ -6,8 +6,12 @@ import org.junit.jupiter.params.provider.ValueSource;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -15,6 +19,8 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 public class TestMapTree {
   private static final Logger logger = LoggerFactory.getLogger(TestMapTree.class);
 
@@ -42,4 +48,21 @@ public class TestMapTree {
       logger.error(e.getMessage(), e);
     }
   }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"test.json"})
+  public void testStreamingMatchesTree(String templateFile) throws IOException {
+    ClassLoader loader = Thread.currentThread().getContextClassLoader();
+
+    byte[] document;
+    try (InputStream input = Objects.requireNonNull(loader.getResourceAsStream(templateFile))) {
+      document = input.readAllBytes();
+    }
+    JsonElement jsonElement = JsonParser.parseString(new String(document, StandardCharsets.UTF_8));
+
+    assertEquals(List.copyOf(JsonFlattener.flattenPaths(jsonElement)), List.copyOf(JsonFlattener.flattenPaths(document)));
+    assertEquals(JsonFlattener.mapPaths(jsonElement), JsonFlattener.mapPaths(document));
+    assertEquals(List.copyOf(JsonFlattener.flattenTree(jsonElement)), List.copyOf(JsonFlattener.flattenTree(document)));
+    assertEquals(JsonFlattener.mapPathTree(jsonElement), JsonFlattener.mapPathTree(document));
+  }
 }
@@ -0,0 +1,58 @@
+package com.codelry.redis.maptree;
+
+import com.codelry.redis.maptree.estimator.MemoryEstimator;
+import com.codelry.redis.maptree.model.StorageModel;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestMemoryEstimator {
+
+  private final MemoryEstimator estimator = new MemoryEstimator();
+
+  @Test
+  public void testHashEncodingThreshold() {
+    MemoryEstimator.ModelEstimate small = estimator.map("k", Map.of("name", "x".repeat(64)));
+    MemoryEstimator.ModelEstimate large = estimator.map("k", Map.of("name", "x".repeat(65)));
+
+    assertEquals(Map.of("listpack", 1), small.encodings());
+    assertEquals(Map.of("hashtable", 1), large.encodings());
+    assertTrue(large.bytes() > small.bytes());
+  }
+
+  @Test
+  public void testListEncodingThreshold() {
+    List<String> items = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      items.add("item-" + "x".repeat(50) + i);
+    }
+    MemoryEstimator.ModelEstimate estimate = estimator.tree("k", Map.of("list", items));
+
+    assertEquals(2, estimate.keys());
+    assertEquals(1, estimate.encodings().get("quicklist"));
+    assertEquals(1, estimate.encodings().get("listpack"));
+  }
+
+  @Test
+  public void testDocumentEstimate() throws IOException {
+    byte[] document;
+    try (InputStream input = Objects.requireNonNull(
+        Thread.currentThread().getContextClassLoader().getResourceAsStream("test.json"))) {
+      document = input.readAllBytes();
+    }
+    Map<StorageModel, MemoryEstimator.ModelEstimate> estimates = estimator.estimate("record:1", document);
+
+    assertEquals(1, estimates.get(StorageModel.JSON).keys());
+    assertEquals(1, estimates.get(StorageModel.MAP).keys());
+    assertTrue(estimates.get(StorageModel.TREE).keys() > 2);
+    assertTrue(estimates.get(StorageModel.TREE).bytes() > estimates.get(StorageModel.MAP).bytes());
+  }
+}
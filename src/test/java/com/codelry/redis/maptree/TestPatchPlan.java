@@ -0,0 +1,88 @@
+package com.codelry.redis.maptree;
+
+import com.codelry.redis.maptree.service.PatchPlan;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestPatchPlan {
+
+  private static final String DOCUMENT =
+      "{\"title\":\"Goodbye!\",\"author\":{\"givenName\":\"John\",\"familyName\":\"Doe\"},"
+          + "\"tags\":[\"example\",\"sample\"],\"content\":\"This will be unchanged\"}";
+
+  @Test
+  public void testMergePatch() {
+    PatchPlan.Result<String> result = apply(DOCUMENT, PatchPlan.Format.MERGE_PATCH,
+        "{\"title\":\"Hello!\",\"phoneNumber\":\"+01-555-1234\",\"author\":{\"familyName\":null},\"tags\":[\"example\"]}");
+
+    // only the leaves under the patched paths are read, so untouched members never leave the store
+    assertEquals(leaves("{\"title\":\"Hello!\",\"tags\":[\"example\"],\"phoneNumber\":\"+01-555-1234\"}"),
+        result.after());
+    assertEquals(Set.of("author.familyName", "tags[1]"), result.removes());
+    assertEquals(Set.of("title", "phoneNumber"), result.puts().keySet());
+    assertFalse(result.before().containsKey("content"));
+    assertFalse(result.before().containsKey("author.givenName"));
+  }
+
+  @Test
+  public void testJsonPatchShiftsIndexes() {
+    PatchPlan.Result<String> result = apply(DOCUMENT, PatchPlan.Format.JSON_PATCH,
+        "[{\"op\":\"add\",\"path\":\"/tags/0\",\"value\":\"first\"},"
+            + "{\"op\":\"move\",\"from\":\"/tags/2\",\"path\":\"/tags/-\"},"
+            + "{\"op\":\"remove\",\"path\":\"/tags/1\"},"
+            + "{\"op\":\"test\",\"path\":\"/tags\",\"value\":[\"first\",\"sample\"]},"
+            + "{\"op\":\"copy\",\"from\":\"/author/givenName\",\"path\":\"/author/nickName\"}]");
+
+    assertEquals("\"first\"", result.after().get("tags[0]"));
+    assertEquals("\"sample\"", result.after().get("tags[1]"));
+    assertEquals("\"John\"", result.after().get("author.nickName"));
+    assertEquals(Set.of(), result.removes());
+  }
+
+  @Test
+  public void testJsonPatchErrors() {
+    assertThrows(IllegalArgumentException.class, () -> apply(DOCUMENT, PatchPlan.Format.JSON_PATCH,
+        "[{\"op\":\"test\",\"path\":\"/title\",\"value\":\"Hello!\"}]"));
+    assertThrows(IllegalArgumentException.class, () -> apply(DOCUMENT, PatchPlan.Format.JSON_PATCH,
+        "[{\"op\":\"add\",\"path\":\"/tags/3\",\"value\":\"late\"}]"));
+    assertThrows(IllegalArgumentException.class, () -> apply(DOCUMENT, PatchPlan.Format.JSON_PATCH,
+        "[{\"op\":\"remove\",\"path\":\"/missing\"}]"));
+    assertThrows(IllegalArgumentException.class, () -> apply(DOCUMENT, PatchPlan.Format.JSON_PATCH,
+        "{\"op\":\"remove\",\"path\":\"/title\"}"));
+    assertThrows(IllegalArgumentException.class, () -> PatchPlan.Format.fromMediaType("application/json"));
+  }
+
+  private static PatchPlan.Result<String> apply(String document, PatchPlan.Format format, String patch) {
+    Map<String, String> stored = leaves(document);
+    NavigableSet<String> paths = new TreeSet<>(stored.keySet());
+    PatchPlan plan = PatchPlan.parse(format, patch.getBytes(StandardCharsets.UTF_8));
+
+    Map<String, PatchPlan.Kind> kinds = plan.kinds(probes -> {
+      Map<String, PatchPlan.Kind> answers = new HashMap<>();
+      probes.forEach(path -> answers.put(path, PatchPlan.kindOf(paths, path)));
+      return answers;
+    });
+    Map<String, String> current = new HashMap<>();
+    for (String scope : plan.scopes(kinds)) {
+      PatchPlan.under(paths, scope).forEach(path -> current.put(path, stored.get(path)));
+    }
+    return plan.apply(kinds, current, JsonElement::toString);
+  }
+
+  private static Map<String, String> leaves(String document) {
+    return new TreeMap<>(PatchPlan.leaves("", JsonParser.parseString(document), JsonElement::toString));
+  }
+}
@@ -0,0 +1,107 @@
+package com.codelry.redis.maptree;
+
+import com.codelry.redis.maptree.config.SchemaCacheProperties;
+import com.codelry.redis.maptree.generator.DocumentGenerator;
+import com.codelry.redis.maptree.generator.DocumentProfile;
+import com.codelry.redis.maptree.service.JsonFlattener;
+import com.codelry.redis.maptree.service.SchemaCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class TestSchemaCache {
+
+  @Test
+  public void testCachedShapeMatchesFlattener() throws IOException {
+    byte[] document;
+    try (InputStream input = Objects.requireNonNull(
+        Thread.currentThread().getContextClassLoader().getResourceAsStream("test.json"))) {
+      document = input.readAllBytes();
+    }
+    SchemaCache cache = new SchemaCache(new SchemaCacheProperties(), new SimpleMeterRegistry());
+
+    SchemaCache.ShapedDocument first = cache.resolve(document);
+    SchemaCache.ShapedDocument second = cache.resolve(document);
+
+    assertSame(first.schema(), second.schema());
+    assertEquals(JsonFlattener.mapPaths(document), second.mapPaths());
+    assertEquals(JsonFlattener.mapPathTree(document), second.mapPathTree());
+    assertEquals(JsonFlattener.flattenPaths(document), second.paths());
+  }
+
+  @Test
+  public void testSameShapeDifferentValues() {
+    SchemaCache cache = new SchemaCache(new SchemaCacheProperties(), new SimpleMeterRegistry());
+    byte[] a = "{\"id\":1,\"tags\":[\"x\",\"y\"],\"owner\":{\"name\":\"a\"}}".getBytes(StandardCharsets.UTF_8);
+    byte[] b = "{\"id\":2,\"tags\":[\"z\",true],\"owner\":{\"name\":\"b\"}}".getBytes(StandardCharsets.UTF_8);
+
+    SchemaCache.ShapedDocument first = cache.resolve(a);
+    SchemaCache.ShapedDocument second = cache.resolve(b);
+
+    assertEquals(JsonFlattener.mapPaths(b), second.mapPaths());
+    assertEquals(JsonFlattener.mapPathTree(b), second.mapPathTree());
+    assertSame(first.schema(), second.schema());
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testDistinctShapesNeverShareSchema() {
+    SchemaCache cache = new SchemaCache(new SchemaCacheProperties(), new SimpleMeterRegistry());
+    byte[][] documents = {
+        "{\"a.b\":1}".getBytes(StandardCharsets.UTF_8),
+        "{\"a\":{\"b\":1}}".getBytes(StandardCharsets.UTF_8),
+        "{\"a\":[\"x\",null]}".getBytes(StandardCharsets.UTF_8),
+        "{\"a\":[null,\"x\"]}".getBytes(StandardCharsets.UTF_8)
+    };
+
+    SchemaCache.ShapedDocument previous = null;
+    for (byte[] document : documents) {
+      SchemaCache.ShapedDocument shaped = cache.resolve(document);
+      assertEquals(JsonFlattener.mapPathTree(document), shaped.mapPathTree());
+      if (previous != null) {
+        assertNotSame(previous.schema(), shaped.schema());
+      }
+      previous = shaped;
+    }
+    assertEquals(documents.length, cache.size());
+  }
+
+  @Test
+  public void testDisabledCacheMatchesFlattener() {
+    SchemaCacheProperties properties = new SchemaCacheProperties();
+    properties.setEnabled(false);
+    SchemaCache cache = new SchemaCache(properties, new SimpleMeterRegistry());
+    DocumentGenerator generator = new DocumentGenerator(DocumentProfile.wide(10));
+
+    for (int i = 0; i < 3; i++) {
+      byte[] document = generator.generate(i);
+      SchemaCache.ShapedDocument shaped = cache.resolve(document);
+      assertEquals(JsonFlattener.mapPaths(document), shaped.mapPaths());
+      assertEquals(JsonFlattener.mapPathTree(document), shaped.mapPathTree());
+      assertEquals(JsonFlattener.flattenPaths(document), shaped.paths());
+    }
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEviction() {
+    SchemaCacheProperties properties = new SchemaCacheProperties();
+    properties.setMaxEntries(2);
+    SchemaCache cache = new SchemaCache(properties, new SimpleMeterRegistry());
+    DocumentGenerator generator = new DocumentGenerator(DocumentProfile.wide(10));
+
+    for (int i = 0; i < 5; i++) {
+      byte[] document = generator.generate(i);
+      assertEquals(JsonFlattener.mapPaths(document), cache.resolve(document).mapPaths());
+    }
+    assertEquals(2, cache.size());
+  }
+}
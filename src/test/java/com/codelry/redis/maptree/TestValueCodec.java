@@ -0,0 +1,48 @@
+package com.codelry.redis.maptree;
+
+import com.codelry.redis.maptree.service.TypedValueCodec;
+import com.codelry.redis.maptree.service.ValueCodec;
+import com.google.gson.JsonNull;
+import com.google.gson.stream.JsonToken;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestValueCodec {
+
+  private final ValueCodec codec = new TypedValueCodec();
+
+  @Test
+  public void testTypedRoundTrip() {
+    assertEquals("12345", codec.decode(codec.encode("12345", JsonToken.STRING)));
+    assertEquals(12345L, codec.decode(codec.encode("12345", JsonToken.NUMBER)));
+    assertEquals(-1L, codec.decode(codec.encode("-1", JsonToken.NUMBER)));
+    assertEquals(Long.MIN_VALUE, codec.decode(codec.encode(Long.toString(Long.MIN_VALUE), JsonToken.NUMBER)));
+    assertEquals(new BigDecimal("12.345"), codec.decode(codec.encode("12.345", JsonToken.NUMBER)));
+    assertEquals(3.141592653589793, codec.decode(codec.encode("3.141592653589793", JsonToken.NUMBER)));
+    assertEquals(new BigDecimal("123456789012345678901234567890"),
+        codec.decode(codec.encode("123456789012345678901234567890", JsonToken.NUMBER)));
+    assertEquals(Boolean.TRUE, codec.decode(codec.encode("true", JsonToken.BOOLEAN)));
+    assertEquals(Boolean.FALSE, codec.decode(codec.encode("false", JsonToken.BOOLEAN)));
+    assertEquals(JsonNull.INSTANCE, codec.decode(codec.encode(null, JsonToken.NULL)));
+    assertEquals("", codec.decode(codec.encode("", JsonToken.STRING)));
+    assertEquals("\u0002tag", codec.decode(codec.encode("\u0002tag", JsonToken.STRING)));
+  }
+
+  @Test
+  public void testCompactIntegers() {
+    assertEquals(2, codec.encode("12", JsonToken.NUMBER).length);
+    assertTrue(codec.encode("1234567890123", JsonToken.NUMBER).length < "1234567890123".length());
+    assertEquals(1, codec.encode("true", JsonToken.BOOLEAN).length);
+  }
+
+  @Test
+  public void testStringsStayRaw() {
+    assertEquals("text", new String(codec.encode("text", JsonToken.STRING), StandardCharsets.UTF_8));
+    assertEquals("legacy", codec.decode("legacy".getBytes(StandardCharsets.UTF_8)));
+  }
+}
@@ -0,0 +1,38 @@
+package com.codelry.redis.maptree.config;
+
+import com.codelry.redis.maptree.embedded.EmbeddedRedisServer;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+// points RedisConfig at an embedded server for a test context: @ContextConfiguration(initializers = EmbeddedRedisInitializer.class)
+public class EmbeddedRedisInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+  @Override
+  public void initialize(ConfigurableApplicationContext context) {
+    EmbeddedRedisProperties properties = Binder.get(context.getEnvironment())
+        .bind("app.embedded-redis", EmbeddedRedisProperties.class)
+        .orElseGet(EmbeddedRedisProperties::new);
+
+    EmbeddedRedisServer server = new EmbeddedRedisServer(properties.getPort());
+    server.setLatency(properties.getLatency());
+    server.setFailureRate(properties.getFailureRate());
+    server.setFailureMode(properties.getFailureMode());
+    server.setSeed(properties.getSeed());
+    server.start();
+
+    context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("embeddedRedis", Map.of(
+        "spring.data.redis.host", server.getHost(),
+        "spring.data.redis.port", server.getPort(),
+        "spring.data.redis.ssl.enabled", false)));
+    context.addApplicationListener(event -> {
+      if (event instanceof ContextClosedEvent) {
+        server.close();
+      }
+    });
+  }
+}
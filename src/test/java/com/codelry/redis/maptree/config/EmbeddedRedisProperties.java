@@ -0,0 +1,55 @@
+package com.codelry.redis.maptree.config;
+
+import com.codelry.redis.maptree.embedded.FailureMode;
+
+import java.time.Duration;
+
+// bound from app.embedded-redis.*: latency is simulated once per reply flush, failure-mode is error or disconnect
+public class EmbeddedRedisProperties {
+
+  private int port = 0;
+  private Duration latency = Duration.ZERO;
+  private double failureRate = 0.0;
+  private FailureMode failureMode = FailureMode.ERROR;
+  private long seed = 42L;
+
+  public int getPort() {
+    return port;
+  }
+
+  public void setPort(int port) {
+    this.port = port;
+  }
+
+  public Duration getLatency() {
+    return latency;
+  }
+
+  public void setLatency(Duration latency) {
+    this.latency = latency;
+  }
+
+  public double getFailureRate() {
+    return failureRate;
+  }
+
+  public void setFailureRate(double failureRate) {
+    this.failureRate = failureRate;
+  }
+
+  public FailureMode getFailureMode() {
+    return failureMode;
+  }
+
+  public void setFailureMode(FailureMode failureMode) {
+    this.failureMode = failureMode;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+}
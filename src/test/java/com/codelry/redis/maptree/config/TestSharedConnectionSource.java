@@ -0,0 +1,83 @@
+package com.codelry.redis.maptree.config;
+
+import com.codelry.redis.maptree.embedded.EmbeddedRedisServer;
+import com.redis.lettucemod.RedisModulesClient;
+import com.redis.lettucemod.api.StatefulRedisModulesConnection;
+import io.lettuce.core.RedisURI;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// in the config package so the health check can be driven without waiting for the scheduler
+public class TestSharedConnectionSource {
+
+  private static EmbeddedRedisServer server;
+  private static RedisModulesClient client;
+
+  @BeforeAll
+  public static void start() throws IOException {
+    server = new EmbeddedRedisServer().start();
+    client = RedisModulesClient.create(RedisURI.create(server.getHost(), server.getPort()));
+  }
+
+  @AfterAll
+  public static void stop() {
+    client.shutdown();
+    server.close();
+  }
+
+  @Test
+  public void testRoundRobinKeepsConnectionsOpen() {
+    try (SharedConnectionSource source = new SharedConnectionSource(client::connect, 2, Duration.ZERO, Duration.ofSeconds(1))) {
+      StatefulRedisModulesConnection<String, String> first = source.acquire();
+      StatefulRedisModulesConnection<String, String> second = source.acquire();
+
+      assertNotSame(first, second);
+      assertSame(first, source.acquire());
+      source.release(first);
+      assertTrue(first.isOpen());
+    }
+  }
+
+  @Test
+  public void testHealthCheckReplacesClosedConnection() {
+    try (SharedConnectionSource source = new SharedConnectionSource(client::connect, 1, Duration.ZERO, Duration.ofSeconds(1))) {
+      StatefulRedisModulesConnection<String, String> broken = source.acquire();
+      broken.close();
+      source.checkHealth();
+
+      StatefulRedisModulesConnection<String, String> replacement = source.acquire();
+      assertNotSame(broken, replacement);
+      assertEquals("PONG", replacement.sync().ping());
+    }
+  }
+
+  @Test
+  public void testRejectsEmptySource() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new SharedConnectionSource(client::connect, 0, Duration.ZERO, Duration.ofSeconds(1)));
+  }
+
+  @Test
+  public void testTemplateTimesFailedCommands() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    try (RedisModulesTemplate template = new RedisModulesTemplate(
+        new SharedConnectionSource(client::connect, 1, Duration.ZERO, Duration.ofSeconds(1)), meterRegistry)) {
+      assertThrows(RuntimeException.class, () -> template.execute(commands -> {
+        throw new IllegalStateException("command failed");
+      }));
+      assertEquals("PONG", template.execute(commands -> commands.ping()));
+    }
+    assertEquals(2, meterRegistry.timer("redis.modules.command.duration", "mode", "shared").count());
+  }
+}
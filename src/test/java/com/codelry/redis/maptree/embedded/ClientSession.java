@@ -0,0 +1,18 @@
+package com.codelry.redis.maptree.embedded;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class ClientSession {
+
+  final long id;
+  String name;
+  List<List<byte[]>> queued;
+  final Map<String, Object> watched = new HashMap<>();
+  boolean closing;
+
+  ClientSession(long id) {
+    this.id = id;
+  }
+}
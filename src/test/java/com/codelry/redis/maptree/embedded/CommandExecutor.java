@@ -0,0 +1,850 @@
+package com.codelry.redis.maptree.embedded;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+class CommandExecutor {
+
+  static final String VERSION = "7.2.0";
+
+  private static final Set<String> CONNECTION_COMMANDS = Set.of(
+      "HELLO", "AUTH", "CLIENT", "SELECT", "PING", "ECHO", "QUIT", "COMMAND", "RESET");
+
+  private final EmbeddedStore store;
+  private final int port;
+
+  CommandExecutor(EmbeddedStore store, int port) {
+    this.store = store;
+    this.port = port;
+  }
+
+  static boolean isConnectionCommand(String name) {
+    return CONNECTION_COMMANDS.contains(name);
+  }
+
+  static String name(List<byte[]> args) {
+    return new String(args.get(0), StandardCharsets.ISO_8859_1).toUpperCase(Locale.ROOT);
+  }
+
+  void execute(List<byte[]> args, RespWriter out, ClientSession session) throws IOException {
+    String name = name(args);
+
+    if (session.queued != null && !name.equals("EXEC") && !name.equals("DISCARD") && !name.equals("MULTI")) {
+      session.queued.add(args);
+      out.simple("QUEUED");
+      return;
+    }
+
+    switch (name) {
+      case "MULTI" -> {
+        if (session.queued != null) {
+          out.error("ERR MULTI calls can not be nested");
+        } else {
+          session.queued = new ArrayList<>();
+          out.simple("OK");
+        }
+      }
+      case "EXEC" -> {
+        if (session.queued == null) {
+          out.error("ERR EXEC without MULTI");
+          return;
+        }
+        List<List<byte[]>> queued = session.queued;
+        session.queued = null;
+        synchronized (store) {
+          boolean changed = session.watched.entrySet().stream()
+              .anyMatch(watch -> !Objects.equals(watch.getValue(), store.snapshot(watch.getKey())));
+          session.watched.clear();
+          if (changed) {
+            out.nullArray();
+            return;
+          }
+          out.array(queued.size());
+          for (List<byte[]> command : queued) {
+            dispatch(command, out, session);
+          }
+        }
+      }
+      case "DISCARD" -> {
+        if (session.queued == null) {
+          out.error("ERR DISCARD without MULTI");
+        } else {
+          session.queued = null;
+          session.watched.clear();
+          out.simple("OK");
+        }
+      }
+      default -> {
+        synchronized (store) {
+          dispatch(args, out, session);
+        }
+      }
+    }
+  }
+
+  private void dispatch(List<byte[]> args, RespWriter out, ClientSession session) throws IOException {
+    String name = name(args);
+    long start = System.nanoTime();
+    try {
+      run(name, args, out, session);
+    } catch (RespException e) {
+      out.error(e.getMessage());
+    }
+    store.recordCommand(name.toLowerCase(Locale.ROOT), (System.nanoTime() - start) / 1000);
+  }
+
+  private void run(String name, List<byte[]> args, RespWriter out, ClientSession session) throws IOException {
+    switch (name) {
+      case "PING" -> {
+        if (args.size() > 1) {
+          out.bulk(args.get(1));
+        } else {
+          out.simple("PONG");
+        }
+      }
+      case "ECHO" -> out.bulk(arg(args, 1, name));
+      case "HELLO" -> hello(args, out, session);
+      case "AUTH", "SELECT" -> out.simple("OK");
+      case "WATCH" -> {
+        for (int i = 1; i < args.size(); i++) {
+          String key = str(args.get(i));
+          session.watched.putIfAbsent(key, store.snapshot(key));
+        }
+        out.simple("OK");
+      }
+      case "UNWATCH", "RESET" -> {
+        session.watched.clear();
+        out.simple("OK");
+      }
+      case "QUIT" -> {
+        session.closing = true;
+        out.simple("OK");
+      }
+      case "CLIENT" -> client(args, out, session);
+      case "COMMAND" -> out.array(0);
+      case "CONFIG" -> out.map(0);
+      case "INFO" -> out.utf8(info(args.size() > 1 ? str(args.get(1)) : "all"));
+      case "DBSIZE" -> out.integer(store.keys().size());
+      case "FLUSHALL", "FLUSHDB" -> {
+        store.flushAll();
+        out.simple("OK");
+      }
+      case "DEL", "UNLINK" -> {
+        requireArgs(args, 2, name);
+        long removed = 0;
+        for (int i = 1; i < args.size(); i++) {
+          removed += store.remove(str(args.get(i))) ? 1 : 0;
+        }
+        out.integer(removed);
+      }
+      case "RENAME" -> {
+        requireArgs(args, 3, name);
+        if (!store.rename(str(args.get(1)), str(args.get(2)))) {
+          throw new RespException("ERR no such key");
+        }
+        out.simple("OK");
+      }
+      case "EXISTS" -> {
+        requireArgs(args, 2, name);
+        long count = 0;
+        for (int i = 1; i < args.size(); i++) {
+          count += store.get(str(args.get(i))) != null ? 1 : 0;
+        }
+        out.integer(count);
+      }
+      case "TYPE" -> out.simple(type(store.get(str(arg(args, 1, name)))));
+      case "EXPIRE" -> out.integer(store.expireAt(str(arg(args, 1, name)),
+          System.currentTimeMillis() + number(arg(args, 2, name)) * 1000) ? 1 : 0);
+      case "PEXPIRE" -> out.integer(store.expireAt(str(arg(args, 1, name)),
+          System.currentTimeMillis() + number(arg(args, 2, name))) ? 1 : 0);
+      case "PERSIST" -> out.integer(store.persist(str(arg(args, 1, name))) ? 1 : 0);
+      case "TTL" -> {
+        long ttl = store.ttlMillis(str(arg(args, 1, name)));
+        out.integer(ttl < 0 ? ttl : (ttl + 999) / 1000);
+      }
+      case "PTTL" -> out.integer(store.ttlMillis(str(arg(args, 1, name))));
+      case "KEYS" -> {
+        String pattern = str(arg(args, 1, name));
+        List<String> keys = new ArrayList<>();
+        for (String key : store.keys()) {
+          if (Glob.matches(pattern, key)) {
+            keys.add(key);
+          }
+        }
+        out.array(keys.size());
+        for (String key : keys) {
+          out.bulk(key);
+        }
+      }
+      case "SCAN" -> scan(args, out);
+      case "GET" -> out.bulk(store.get(str(arg(args, 1, name)), byte[].class));
+      case "SET" -> set(args, out);
+      case "INCR", "INCRBY" -> {
+        String key = str(arg(args, 1, name));
+        long increment = name.equals("INCR") ? 1 : number(arg(args, 2, name));
+        byte[] current = store.get(key, byte[].class);
+        long value = (current != null ? number(current) : 0) + increment;
+        store.put(key, Long.toString(value).getBytes(StandardCharsets.UTF_8));
+        out.integer(value);
+      }
+      case "HSET", "HMSET" -> {
+        if (args.size() < 4 || args.size() % 2 != 0) {
+          throw RespException.wrongArguments(name);
+        }
+        Map<String, byte[]> hash = store.hash(str(args.get(1)), true);
+        long added = 0;
+        for (int i = 2; i < args.size(); i += 2) {
+          added += hash.put(str(args.get(i)), args.get(i + 1)) == null ? 1 : 0;
+        }
+        if (name.equals("HMSET")) {
+          out.simple("OK");
+        } else {
+          out.integer(added);
+        }
+      }
+      case "HSETNX" -> {
+        requireArgs(args, 4, name);
+        Map<String, byte[]> hash = store.hash(str(args.get(1)), true);
+        out.integer(hash.putIfAbsent(str(args.get(2)), args.get(3)) == null ? 1 : 0);
+      }
+      case "HGET" -> {
+        Map<String, byte[]> hash = store.hash(str(arg(args, 1, name)), false);
+        out.bulk(hash != null ? hash.get(str(arg(args, 2, name))) : null);
+      }
+      case "HMGET" -> {
+        requireArgs(args, 3, name);
+        Map<String, byte[]> hash = store.hash(str(args.get(1)), false);
+        out.array(args.size() - 2);
+        for (int i = 2; i < args.size(); i++) {
+          out.bulk(hash != null ? hash.get(str(args.get(i))) : null);
+        }
+      }
+      case "HGETALL" -> {
+        Map<String, byte[]> hash = store.hash(str(arg(args, 1, name)), false);
+        if (hash == null) {
+          out.map(0);
+          return;
+        }
+        out.map(hash.size());
+        for (Map.Entry<String, byte[]> field : hash.entrySet()) {
+          out.bulk(field.getKey());
+          out.bulk(field.getValue());
+        }
+      }
+      case "HKEYS", "HVALS" -> {
+        Map<String, byte[]> hash = store.hash(str(arg(args, 1, name)), false);
+        if (hash == null) {
+          out.array(0);
+          return;
+        }
+        out.array(hash.size());
+        for (Map.Entry<String, byte[]> field : hash.entrySet()) {
+          if (name.equals("HKEYS")) {
+            out.bulk(field.getKey());
+          } else {
+            out.bulk(field.getValue());
+          }
+        }
+      }
+      case "HDEL" -> {
+        requireArgs(args, 3, name);
+        String key = str(args.get(1));
+        Map<String, byte[]> hash = store.hash(key, false);
+        long removed = 0;
+        if (hash != null) {
+          for (int i = 2; i < args.size(); i++) {
+            removed += hash.remove(str(args.get(i))) != null ? 1 : 0;
+          }
+          store.removeIfEmpty(key);
+        }
+        out.integer(removed);
+      }
+      case "HLEN" -> {
+        Map<String, byte[]> hash = store.hash(str(arg(args, 1, name)), false);
+        out.integer(hash != null ? hash.size() : 0);
+      }
+      case "HEXISTS" -> {
+        Map<String, byte[]> hash = store.hash(str(arg(args, 1, name)), false);
+        out.integer(hash != null && hash.containsKey(str(arg(args, 2, name))) ? 1 : 0);
+      }
+      case "HRANDFIELD" -> {
+        Map<String, byte[]> hash = store.hash(str(arg(args, 1, name)), false);
+        int count = args.size() > 2 ? (int) Math.min(number(args.get(2)), hash != null ? hash.size() : 0) : -1;
+        if (count < 0) {
+          out.bulk(hash != null && !hash.isEmpty() ? hash.keySet().iterator().next() : null);
+          return;
+        }
+        out.array(count);
+        for (String field : hash != null ? new ArrayList<>(hash.keySet()).subList(0, count) : List.<String>of()) {
+          out.bulk(field);
+        }
+      }
+      case "HSCAN" -> hscan(args, out);
+      case "LPUSH", "RPUSH" -> {
+        requireArgs(args, 3, name);
+        List<byte[]> list = store.list(str(args.get(1)), true);
+        for (int i = 2; i < args.size(); i++) {
+          if (name.equals("LPUSH")) {
+            list.add(0, args.get(i));
+          } else {
+            list.add(args.get(i));
+          }
+        }
+        out.integer(list.size());
+      }
+      case "LRANGE" -> {
+        List<byte[]> list = store.list(str(arg(args, 1, name)), false);
+        if (list == null) {
+          out.array(0);
+          return;
+        }
+        int size = list.size();
+        long first = index(number(arg(args, 2, name)), size);
+        long last = Math.min(index(number(arg(args, 3, name)), size), size - 1);
+        first = Math.max(first, 0);
+        if (first > last) {
+          out.array(0);
+          return;
+        }
+        out.array((int) (last - first + 1));
+        for (long i = first; i <= last; i++) {
+          out.bulk(list.get((int) i));
+        }
+      }
+      case "LINDEX" -> {
+        List<byte[]> list = store.list(str(arg(args, 1, name)), false);
+        long position = list != null ? index(number(arg(args, 2, name)), list.size()) : -1;
+        out.bulk(list != null && position >= 0 && position < list.size() ? list.get((int) position) : null);
+      }
+      case "LLEN" -> {
+        List<byte[]> list = store.list(str(arg(args, 1, name)), false);
+        out.integer(list != null ? list.size() : 0);
+      }
+      case "LSET" -> {
+        requireArgs(args, 4, name);
+        List<byte[]> list = store.list(str(args.get(1)), false);
+        if (list == null) {
+          throw new RespException("ERR no such key");
+        }
+        long position = index(number(args.get(2)), list.size());
+        if (position < 0 || position >= list.size()) {
+          throw new RespException("ERR index out of range");
+        }
+        list.set((int) position, args.get(3));
+        out.simple("OK");
+      }
+      case "LTRIM" -> {
+        requireArgs(args, 4, name);
+        String key = str(args.get(1));
+        List<byte[]> list = store.list(key, false);
+        if (list != null) {
+          int size = list.size();
+          long first = Math.max(index(number(args.get(2)), size), 0);
+          long last = Math.min(index(number(args.get(3)), size), size - 1);
+          if (first > last) {
+            list.clear();
+          } else {
+            list.subList((int) last + 1, size).clear();
+            list.subList(0, (int) first).clear();
+          }
+          store.removeIfEmpty(key);
+        }
+        out.simple("OK");
+      }
+      case "MEMORY" -> memory(args, out);
+      case "OBJECT" -> object(args, out);
+      case "JSON.SET" -> jsonSet(args, out);
+      case "JSON.GET" -> jsonGet(args, out);
+      case "JSON.DEL", "JSON.FORGET" -> jsonDel(args, out);
+      case "JSON.TYPE" -> jsonType(args, out);
+      default -> out.error("ERR unknown command '" + name.toLowerCase(Locale.ROOT) + "'");
+    }
+  }
+
+  private void hello(List<byte[]> args, RespWriter out, ClientSession session) throws IOException {
+    if (args.size() > 1) {
+      long protocol;
+      try {
+        protocol = Long.parseLong(str(args.get(1)));
+      } catch (NumberFormatException e) {
+        throw new RespException("ERR Protocol version is not an integer or out of range");
+      }
+      if (protocol < 2 || protocol > 3) {
+        throw new RespException("NOPROTO unsupported protocol version");
+      }
+      out.setProtocol((int) protocol);
+    }
+    for (int i = 2; i < args.size(); i++) {
+      if (str(args.get(i)).equalsIgnoreCase("SETNAME") && i + 1 < args.size()) {
+        session.name = str(args.get(++i));
+      }
+    }
+    out.map(7);
+    out.bulk("server");
+    out.bulk("redis");
+    out.bulk("version");
+    out.bulk(VERSION);
+    out.bulk("proto");
+    out.integer(out.getProtocol());
+    out.bulk("id");
+    out.integer(session.id);
+    out.bulk("mode");
+    out.bulk("standalone");
+    out.bulk("role");
+    out.bulk("master");
+    out.bulk("modules");
+    out.array(0);
+  }
+
+  private void client(List<byte[]> args, RespWriter out, ClientSession session) throws IOException {
+    String sub = str(arg(args, 1, "CLIENT")).toUpperCase(Locale.ROOT);
+    switch (sub) {
+      case "SETNAME" -> {
+        session.name = str(arg(args, 2, "CLIENT"));
+        out.simple("OK");
+      }
+      case "GETNAME" -> out.bulk(session.name);
+      case "ID" -> out.integer(session.id);
+      default -> out.simple("OK");
+    }
+  }
+
+  private String info(String section) {
+    String wanted = section.toLowerCase(Locale.ROOT);
+    boolean all = wanted.equals("all") || wanted.equals("everything") || wanted.equals("default");
+    StringBuilder info = new StringBuilder();
+    if (all || wanted.equals("server")) {
+      info.append("# Server\r\n")
+          .append("redis_version:").append(VERSION).append("\r\n")
+          .append("redis_mode:standalone\r\n")
+          .append("tcp_port:").append(port).append("\r\n\r\n");
+    }
+    if (all || wanted.equals("memory")) {
+      info.append("# Memory\r\n")
+          .append("used_memory:").append(store.usedMemory()).append("\r\n\r\n");
+    }
+    if (all || wanted.equals("keyspace")) {
+      info.append("# Keyspace\r\n");
+      int keys = store.keys().size();
+      if (keys > 0) {
+        info.append("db0:keys=").append(keys).append(",expires=").append(store.expiringKeys())
+            .append(",avg_ttl=0\r\n");
+      }
+      info.append("\r\n");
+    }
+    if (wanted.equals("everything") || wanted.equals("commandstats")) {
+      info.append("# Commandstats\r\n");
+      for (Map.Entry<String, long[]> command : store.commandStats().entrySet()) {
+        long calls = command.getValue()[0];
+        long usec = command.getValue()[1];
+        info.append("cmdstat_").append(command.getKey())
+            .append(":calls=").append(calls)
+            .append(",usec=").append(usec)
+            .append(",usec_per_call=").append(String.format(Locale.ROOT, "%.2f", calls > 0 ? (double) usec / calls : 0.0))
+            .append("\r\n");
+      }
+      info.append("\r\n");
+    }
+    return info.toString();
+  }
+
+  private void set(List<byte[]> args, RespWriter out) throws IOException {
+    requireArgs(args, 3, "SET");
+    String key = str(args.get(1));
+    long expiresAt = 0;
+    boolean nx = false;
+    boolean xx = false;
+    for (int i = 3; i < args.size(); i++) {
+      String option = str(args.get(i)).toUpperCase(Locale.ROOT);
+      switch (option) {
+        case "NX" -> nx = true;
+        case "XX" -> xx = true;
+        case "EX" -> expiresAt = System.currentTimeMillis() + number(arg(args, ++i, "SET")) * 1000;
+        case "PX" -> expiresAt = System.currentTimeMillis() + number(arg(args, ++i, "SET"));
+        default -> throw new RespException(RespException.SYNTAX);
+      }
+    }
+    boolean exists = store.get(key) != null;
+    if ((nx && exists) || (xx && !exists)) {
+      out.nullValue();
+      return;
+    }
+    store.put(key, args.get(2));
+    if (expiresAt > 0) {
+      store.expireAt(key, expiresAt);
+    }
+    out.simple("OK");
+  }
+
+  private void scan(List<byte[]> args, RespWriter out) throws IOException {
+    long cursor = number(arg(args, 1, "SCAN"));
+    ScanOptions options = ScanOptions.parse(args, 2);
+    EmbeddedStore.ScanState state = store.cursor(cursor, cursor == 0 ? sorted(store.keys()) : null);
+
+    List<String> keys = new ArrayList<>();
+    int examined = 0;
+    while (state.position < state.names.size() && examined < options.count) {
+      String key = state.names.get(state.position++);
+      examined++;
+      Object value = store.get(key);
+      if (value != null && Glob.matches(options.match, key)
+          && (options.type == null || options.type.equalsIgnoreCase(type(value)))) {
+        keys.add(key);
+      }
+    }
+    out.array(2);
+    out.bulk(Long.toString(store.saveCursor(state)));
+    out.array(keys.size());
+    for (String key : keys) {
+      out.bulk(key);
+    }
+  }
+
+  private void hscan(List<byte[]> args, RespWriter out) throws IOException {
+    String key = str(arg(args, 1, "HSCAN"));
+    long cursor = number(arg(args, 2, "HSCAN"));
+    ScanOptions options = ScanOptions.parse(args, 3);
+    Map<String, byte[]> hash = store.hash(key, false);
+    EmbeddedStore.ScanState state = store.cursor(cursor,
+        cursor == 0 ? (hash != null ? new ArrayList<>(hash.keySet()) : List.of()) : null);
+
+    List<String> fields = new ArrayList<>();
+    int examined = 0;
+    while (hash != null && state.position < state.names.size() && examined < options.count) {
+      String field = state.names.get(state.position++);
+      examined++;
+      if (hash.containsKey(field) && Glob.matches(options.match, field)) {
+        fields.add(field);
+      }
+    }
+    out.array(2);
+    out.bulk(Long.toString(store.saveCursor(state)));
+    out.array(fields.size() * 2);
+    for (String field : fields) {
+      out.bulk(field);
+      out.bulk(hash.get(field));
+    }
+  }
+
+  private void memory(List<byte[]> args, RespWriter out) throws IOException {
+    String sub = str(arg(args, 1, "MEMORY")).toUpperCase(Locale.ROOT);
+    if (!sub.equals("USAGE")) {
+      throw new RespException("ERR unknown subcommand '" + sub.toLowerCase(Locale.ROOT) + "'");
+    }
+    String key = str(arg(args, 2, "MEMORY"));
+    Object value = store.get(key);
+    if (value == null) {
+      out.nullValue();
+    } else {
+      out.integer(EmbeddedStore.memoryUsage(key, value).bytes());
+    }
+  }
+
+  private void object(List<byte[]> args, RespWriter out) throws IOException {
+    String sub = str(arg(args, 1, "OBJECT")).toUpperCase(Locale.ROOT);
+    if (!sub.equals("ENCODING")) {
+      throw new RespException("ERR unknown subcommand '" + sub.toLowerCase(Locale.ROOT) + "'");
+    }
+    String key = str(arg(args, 2, "OBJECT"));
+    Object value = store.get(key);
+    if (value == null) {
+      out.nullValue();
+    } else {
+      out.bulk(EmbeddedStore.encoding(key, value));
+    }
+  }
+
+  private void jsonSet(List<byte[]> args, RespWriter out) throws IOException {
+    requireArgs(args, 4, "JSON.SET");
+    String key = str(args.get(1));
+    JsonPath path = JsonPath.parse(utf8(args.get(2)));
+    JsonElement value = parseJson(args.get(3));
+    boolean nx = false;
+    boolean xx = false;
+    for (int i = 4; i < args.size(); i++) {
+      String option = str(args.get(i)).toUpperCase(Locale.ROOT);
+      if (option.equals("NX")) {
+        nx = true;
+      } else if (option.equals("XX")) {
+        xx = true;
+      } else {
+        throw new RespException(RespException.SYNTAX);
+      }
+    }
+
+    EmbeddedStore.JsonDocument document = store.json(key);
+    if (document == null) {
+      if (!path.isRoot()) {
+        throw new RespException("ERR new objects must be created at the root");
+      }
+      if (xx) {
+        out.nullValue();
+        return;
+      }
+      store.put(key, new EmbeddedStore.JsonDocument(value));
+      out.simple("OK");
+      return;
+    }
+
+    if (path.isRoot()) {
+      if (nx) {
+        out.nullValue();
+        return;
+      }
+      document.setRoot(value);
+      out.simple("OK");
+      return;
+    }
+
+    List<JsonPath.Match> matches = path.select(document.getRoot());
+    if (!matches.isEmpty()) {
+      if (nx) {
+        out.nullValue();
+        return;
+      }
+      for (JsonPath.Match match : matches) {
+        match.replace(value.deepCopy());
+      }
+      out.simple("OK");
+      return;
+    }
+
+    if (xx || !(path.last() instanceof String name)) {
+      out.nullValue();
+      return;
+    }
+    boolean added = false;
+    for (JsonPath.Match parent : path.parent().select(document.getRoot())) {
+      if (parent.value().isJsonObject()) {
+        parent.value().getAsJsonObject().add(name, value.deepCopy());
+        added = true;
+      }
+    }
+    if (added) {
+      out.simple("OK");
+    } else if (path.isLegacy()) {
+      throw new RespException("ERR Path '" + path.path() + "' does not exist");
+    } else {
+      out.nullValue();
+    }
+  }
+
+  private void jsonGet(List<byte[]> args, RespWriter out) throws IOException {
+    requireArgs(args, 2, "JSON.GET");
+    EmbeddedStore.JsonDocument document = store.json(str(args.get(1)));
+
+    List<JsonPath> paths = new ArrayList<>();
+    for (int i = 2; i < args.size(); i++) {
+      String arg = utf8(args.get(i));
+      String option = arg.toUpperCase(Locale.ROOT);
+      if (option.equals("INDENT") || option.equals("NEWLINE") || option.equals("SPACE")) {
+        i++;
+        continue;
+      }
+      paths.add(JsonPath.parse(arg));
+    }
+    if (document == null) {
+      out.nullValue();
+      return;
+    }
+
+    JsonElement root = document.getRoot();
+    if (paths.isEmpty()) {
+      out.utf8(root.toString());
+    } else if (paths.size() == 1) {
+      out.utf8(selectForGet(paths.get(0), root).toString());
+    } else {
+      JsonObject result = new JsonObject();
+      for (JsonPath path : paths) {
+        result.add(path.path(), selectForGet(path, root));
+      }
+      out.utf8(result.toString());
+    }
+  }
+
+  private static JsonElement selectForGet(JsonPath path, JsonElement root) {
+    List<JsonPath.Match> matches = path.select(root);
+    if (path.isLegacy()) {
+      if (matches.isEmpty()) {
+        throw new RespException("ERR Path '" + path.path() + "' does not exist");
+      }
+      return matches.get(0).value();
+    }
+    JsonArray result = new JsonArray();
+    for (JsonPath.Match match : matches) {
+      result.add(match.value());
+    }
+    return result;
+  }
+
+  private void jsonDel(List<byte[]> args, RespWriter out) throws IOException {
+    requireArgs(args, 2, "JSON.DEL");
+    String key = str(args.get(1));
+    EmbeddedStore.JsonDocument document = store.json(key);
+    if (document == null) {
+      out.integer(0);
+      return;
+    }
+    JsonPath path = JsonPath.parse(args.size() > 2 ? utf8(args.get(2)) : "$");
+    if (path.isRoot()) {
+      store.remove(key);
+      out.integer(1);
+      return;
+    }
+
+    List<JsonPath.Match> matches = new ArrayList<>(path.select(document.getRoot()));
+    matches.sort(Comparator.comparing((JsonPath.Match match) -> match.key() instanceof Integer index ? index : 0)
+        .reversed());
+    for (JsonPath.Match match : matches) {
+      if (match.parent() instanceof JsonObject object) {
+        object.remove((String) match.key());
+      } else if (match.parent() instanceof JsonArray array) {
+        array.remove((int) (Integer) match.key());
+      }
+    }
+    out.integer(matches.size());
+  }
+
+  private void jsonType(List<byte[]> args, RespWriter out) throws IOException {
+    requireArgs(args, 2, "JSON.TYPE");
+    EmbeddedStore.JsonDocument document = store.json(str(args.get(1)));
+    JsonPath path = JsonPath.parse(args.size() > 2 ? utf8(args.get(2)) : ".");
+    if (document == null) {
+      out.nullValue();
+      return;
+    }
+    List<JsonPath.Match> matches = path.select(document.getRoot());
+    if (path.isLegacy()) {
+      if (matches.isEmpty()) {
+        out.nullValue();
+      } else {
+        out.simple(jsonType(matches.get(0).value()));
+      }
+      return;
+    }
+    out.array(matches.size());
+    for (JsonPath.Match match : matches) {
+      out.bulk(jsonType(match.value()));
+    }
+  }
+
+  private static String jsonType(JsonElement value) {
+    if (value == null || value.isJsonNull()) {
+      return "null";
+    }
+    if (value.isJsonObject()) {
+      return "object";
+    }
+    if (value.isJsonArray()) {
+      return "array";
+    }
+    JsonPrimitive primitive = value.getAsJsonPrimitive();
+    if (primitive.isBoolean()) {
+      return "boolean";
+    }
+    if (primitive.isNumber()) {
+      String number = primitive.getAsString();
+      return number.contains(".") || number.contains("e") || number.contains("E") ? "number" : "integer";
+    }
+    return "string";
+  }
+
+  private static String type(Object value) {
+    if (value == null) {
+      return "none";
+    }
+    if (value instanceof byte[]) {
+      return "string";
+    }
+    if (value instanceof Map) {
+      return "hash";
+    }
+    if (value instanceof List) {
+      return "list";
+    }
+    return "ReJSON-RL";
+  }
+
+  private static JsonElement parseJson(byte[] raw) {
+    try {
+      JsonElement value = JsonParser.parseString(utf8(raw));
+      return value != null ? value : JsonNull.INSTANCE;
+    } catch (JsonParseException e) {
+      throw new RespException("ERR expected value at line 1 column 1");
+    }
+  }
+
+  private static List<String> sorted(List<String> names) {
+    Collections.sort(names);
+    return names;
+  }
+
+  private static long index(long index, int size) {
+    return index < 0 ? size + index : index;
+  }
+
+  private static void requireArgs(List<byte[]> args, int minimum, String name) {
+    if (args.size() < minimum) {
+      throw RespException.wrongArguments(name);
+    }
+  }
+
+  private static byte[] arg(List<byte[]> args, int index, String name) {
+    if (index >= args.size()) {
+      throw RespException.wrongArguments(name);
+    }
+    return args.get(index);
+  }
+
+  static String str(byte[] raw) {
+    return new String(raw, StandardCharsets.ISO_8859_1);
+  }
+
+  private static String utf8(byte[] raw) {
+    return new String(raw, StandardCharsets.UTF_8);
+  }
+
+  static long number(byte[] raw) {
+    try {
+      return Long.parseLong(str(raw));
+    } catch (NumberFormatException e) {
+      throw new RespException(RespException.NOT_INTEGER);
+    }
+  }
+
+  private static final class ScanOptions {
+    private String match = "*";
+    private int count = 10;
+    private String type;
+
+    static ScanOptions parse(List<byte[]> args, int from) {
+      ScanOptions options = new ScanOptions();
+      for (int i = from; i < args.size(); i++) {
+        String option = str(args.get(i)).toUpperCase(Locale.ROOT);
+        switch (option) {
+          case "MATCH" -> options.match = str(arg(args, ++i, "SCAN"));
+          case "COUNT" -> options.count = (int) Math.max(1, number(arg(args, ++i, "SCAN")));
+          case "TYPE" -> options.type = str(arg(args, ++i, "SCAN"));
+          default -> throw new RespException(RespException.SYNTAX);
+        }
+      }
+      return options;
+    }
+  }
+}
@@ -0,0 +1,223 @@
+package com.codelry.redis.maptree.embedded;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class EmbeddedRedisServer implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(EmbeddedRedisServer.class);
+
+  private final EmbeddedStore store = new EmbeddedStore();
+  private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+  private final AtomicLong clientIds = new AtomicLong();
+
+  private int port;
+  private Duration latency = Duration.ZERO;
+  private double failureRate = 0.0;
+  private FailureMode failureMode = FailureMode.ERROR;
+  private long seed = 42L;
+
+  private Random random;
+  private ServerSocket serverSocket;
+  private ExecutorService executor;
+  private CommandExecutor commands;
+
+  public EmbeddedRedisServer() {
+    this(0);
+  }
+
+  public EmbeddedRedisServer(int port) {
+    this.port = port;
+  }
+
+  public synchronized EmbeddedRedisServer start() {
+    if (serverSocket != null) {
+      return this;
+    }
+    try {
+      serverSocket = new ServerSocket();
+      serverSocket.setReuseAddress(true);
+      serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to start embedded Redis on port " + port, e);
+    }
+    port = serverSocket.getLocalPort();
+    random = new Random(seed);
+    commands = new CommandExecutor(store, port);
+    executor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "embedded-redis-" + port);
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.submit(this::acceptLoop);
+    logger.info("Embedded Redis listening on {}:{} (latency {}, failure rate {}, failure mode {})",
+        getHost(), port, latency, failureRate, failureMode);
+    return this;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (serverSocket == null) {
+      return;
+    }
+    try {
+      serverSocket.close();
+    } catch (IOException e) {
+      logger.debug("Error closing embedded Redis listener", e);
+    }
+    for (Socket client : clients) {
+      closeQuietly(client);
+    }
+    executor.shutdownNow();
+    serverSocket = null;
+    logger.info("Embedded Redis on port {} stopped", port);
+  }
+
+  public String getHost() {
+    return InetAddress.getLoopbackAddress().getHostAddress();
+  }
+
+  public int getPort() {
+    return port;
+  }
+
+  public EmbeddedStore getStore() {
+    return store;
+  }
+
+  public Duration getLatency() {
+    return latency;
+  }
+
+  public void setLatency(Duration latency) {
+    this.latency = latency != null ? latency : Duration.ZERO;
+  }
+
+  public double getFailureRate() {
+    return failureRate;
+  }
+
+  public void setFailureRate(double failureRate) {
+    this.failureRate = failureRate;
+  }
+
+  public FailureMode getFailureMode() {
+    return failureMode;
+  }
+
+  public void setFailureMode(FailureMode failureMode) {
+    this.failureMode = failureMode;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  private void acceptLoop() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket client = serverSocket.accept();
+        client.setTcpNoDelay(true);
+        clients.add(client);
+        executor.submit(() -> serve(client));
+      } catch (SocketException e) {
+        return;
+      } catch (IOException e) {
+        logger.warn("Embedded Redis accept failed", e);
+      } catch (RuntimeException e) {
+        // executor rejected the client during shutdown
+        return;
+      }
+    }
+  }
+
+  private void serve(Socket client) {
+    ClientSession session = new ClientSession(clientIds.incrementAndGet());
+    try (client) {
+      RespReader reader = new RespReader(new BufferedInputStream(client.getInputStream()));
+      RespWriter writer = new RespWriter(new BufferedOutputStream(client.getOutputStream()));
+      while (!session.closing) {
+        List<byte[]> args;
+        try {
+          args = reader.readCommand();
+        } catch (RespException e) {
+          writer.error(e.getMessage());
+          writer.flush();
+          return;
+        }
+        if (args == null) {
+          return;
+        }
+        if (args.isEmpty()) {
+          continue;
+        }
+
+        String name = CommandExecutor.name(args);
+        if (!CommandExecutor.isConnectionCommand(name) && injectFailure()) {
+          if (failureMode == FailureMode.DISCONNECT) {
+            logger.debug("Injected disconnect on {}", name);
+            return;
+          }
+          writer.error("ERR injected failure");
+        } else {
+          commands.execute(args, writer, session);
+        }
+
+        if (!reader.hasBufferedInput()) {
+          simulateRoundTrip();
+          writer.flush();
+        }
+      }
+      writer.flush();
+    } catch (IOException e) {
+      logger.debug("Embedded Redis client {} disconnected: {}", session.id, e.getMessage());
+    } finally {
+      clients.remove(client);
+    }
+  }
+
+  private boolean injectFailure() {
+    return failureRate > 0 && random.nextDouble() < failureRate;
+  }
+
+  private void simulateRoundTrip() {
+    if (latency.isZero() || latency.isNegative()) {
+      return;
+    }
+    try {
+      Thread.sleep(latency.toMillis(), latency.toNanosPart() % 1_000_000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void closeQuietly(Socket socket) {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      // already closed
+    }
+  }
+}
@@ -0,0 +1,264 @@
+package com.codelry.redis.maptree.embedded;
+
+import com.codelry.redis.maptree.estimator.MemoryEstimator;
+import com.codelry.redis.maptree.service.JsonFlattener;
+import com.google.gson.JsonElement;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class EmbeddedStore {
+
+  private static final int MAX_SCAN_CURSORS = 1024;
+  private static final MemoryEstimator ESTIMATOR = new MemoryEstimator();
+
+  private final Map<String, Object> data = new HashMap<>();
+  private final Map<String, Long> expires = new HashMap<>();
+  private final Map<String, long[]> commandStats = new TreeMap<>();
+  private final AtomicLong cursorSequence = new AtomicLong();
+  private final Map<Long, ScanState> cursors = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, ScanState> eldest) {
+      return size() > MAX_SCAN_CURSORS;
+    }
+  };
+
+  public synchronized void flushAll() {
+    data.clear();
+    expires.clear();
+    cursors.clear();
+  }
+
+  public synchronized int size() {
+    purgeExpired();
+    return data.size();
+  }
+
+  Object get(String key) {
+    Long expiresAt = expires.get(key);
+    if (expiresAt != null && expiresAt <= System.currentTimeMillis()) {
+      data.remove(key);
+      expires.remove(key);
+      return null;
+    }
+    return data.get(key);
+  }
+
+  <T> T get(String key, Class<T> type) {
+    Object value = get(key);
+    if (value != null && !type.isInstance(value)) {
+      throw new RespException(RespException.WRONG_TYPE);
+    }
+    return type.cast(value);
+  }
+
+  @SuppressWarnings("unchecked")
+  Map<String, byte[]> hash(String key, boolean create) {
+    Map<String, byte[]> hash = get(key, Map.class);
+    if (hash == null && create) {
+      hash = new LinkedHashMap<>();
+      data.put(key, hash);
+    }
+    return hash;
+  }
+
+  @SuppressWarnings("unchecked")
+  List<byte[]> list(String key, boolean create) {
+    List<byte[]> list = get(key, List.class);
+    if (list == null && create) {
+      list = new ArrayList<>();
+      data.put(key, list);
+    }
+    return list;
+  }
+
+  JsonDocument json(String key) {
+    return get(key, JsonDocument.class);
+  }
+
+  // a copy of the key's content for WATCH; EXEC aborts when the key no longer holds an equal copy
+  Object snapshot(String key) {
+    Object value = get(key);
+    if (value instanceof Map<?, ?> hash) {
+      Map<Object, String> copy = new HashMap<>();
+      hash.forEach((field, raw) -> copy.put(field, new String((byte[]) raw, StandardCharsets.ISO_8859_1)));
+      return copy;
+    }
+    if (value instanceof List<?> list) {
+      return list.stream().map(raw -> new String((byte[]) raw, StandardCharsets.ISO_8859_1)).toList();
+    }
+    if (value instanceof JsonDocument document) {
+      return document.getRoot().toString();
+    }
+    if (value instanceof byte[] raw) {
+      return new String(raw, StandardCharsets.ISO_8859_1);
+    }
+    return value;
+  }
+
+  void put(String key, Object value) {
+    data.put(key, value);
+    expires.remove(key);
+  }
+
+  boolean remove(String key) {
+    boolean existed = get(key) != null;
+    data.remove(key);
+    expires.remove(key);
+    return existed;
+  }
+
+  boolean rename(String from, String to) {
+    Object value = get(from);
+    if (value == null) {
+      return false;
+    }
+    Long expiresAt = expires.remove(from);
+    data.remove(from);
+    put(to, value);
+    if (expiresAt != null) {
+      expires.put(to, expiresAt);
+    }
+    return true;
+  }
+
+  void removeIfEmpty(String key) {
+    Object value = data.get(key);
+    if ((value instanceof Map<?, ?> map && map.isEmpty()) || (value instanceof List<?> list && list.isEmpty())) {
+      remove(key);
+    }
+  }
+
+  boolean expireAt(String key, long timestamp) {
+    if (get(key) == null) {
+      return false;
+    }
+    expires.put(key, timestamp);
+    return true;
+  }
+
+  boolean persist(String key) {
+    return get(key) != null && expires.remove(key) != null;
+  }
+
+  long ttlMillis(String key) {
+    if (get(key) == null) {
+      return -2;
+    }
+    Long expiresAt = expires.get(key);
+    return expiresAt == null ? -1 : Math.max(0, expiresAt - System.currentTimeMillis());
+  }
+
+  int expiringKeys() {
+    purgeExpired();
+    return expires.size();
+  }
+
+  List<String> keys() {
+    purgeExpired();
+    return new ArrayList<>(data.keySet());
+  }
+
+  ScanState cursor(long id, List<String> snapshot) {
+    if (id == 0) {
+      return new ScanState(snapshot);
+    }
+    ScanState state = cursors.remove(id);
+    return state != null ? state : new ScanState(List.of());
+  }
+
+  long saveCursor(ScanState state) {
+    if (state.position >= state.names.size()) {
+      return 0;
+    }
+    long id = cursorSequence.incrementAndGet();
+    cursors.put(id, state);
+    return id;
+  }
+
+  void recordCommand(String name, long micros) {
+    long[] stats = commandStats.computeIfAbsent(name, command -> new long[2]);
+    stats[0] += 1;
+    stats[1] += micros;
+  }
+
+  Map<String, long[]> commandStats() {
+    return commandStats;
+  }
+
+  long usedMemory() {
+    long total = 0;
+    for (Map.Entry<String, Object> entry : data.entrySet()) {
+      total += memoryUsage(entry.getKey(), entry.getValue()).bytes();
+    }
+    return total;
+  }
+
+  // sizes and encodings come from MemoryEstimator's model of Redis 7.2, not from anything this store allocates
+  static MemoryEstimator.ModelEstimate memoryUsage(String key, Object value) {
+    String name = utf8(key);
+    if (value instanceof Map<?, ?> hash) {
+      Map<String, Object> fields = new HashMap<>();
+      hash.forEach((field, bytes) -> fields.put(utf8((String) field), bytes));
+      return ESTIMATOR.map(name, fields);
+    } else if (value instanceof List<?> list) {
+      return ESTIMATOR.list(name, list);
+    } else if (value instanceof JsonDocument document) {
+      return ESTIMATOR.json(name, JsonFlattener.mapPaths(document.getRoot().toString().getBytes(StandardCharsets.UTF_8)));
+    }
+    return ESTIMATOR.string(name, (byte[]) value);
+  }
+
+  static String encoding(String key, Object value) {
+    return memoryUsage(key, value).encodings().keySet().iterator().next();
+  }
+
+  // names are held as ISO-8859-1 so any byte survives; the estimator counts them as the UTF-8 they were sent as
+  private static String utf8(String name) {
+    return new String(name.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+  }
+
+  private void purgeExpired() {
+    long now = System.currentTimeMillis();
+    Iterator<Map.Entry<String, Long>> iterator = expires.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, Long> entry = iterator.next();
+      if (entry.getValue() <= now) {
+        data.remove(entry.getKey());
+        iterator.remove();
+      }
+    }
+  }
+
+  static final class ScanState {
+    final List<String> names;
+    int position;
+
+    ScanState(List<String> names) {
+      this.names = names;
+    }
+  }
+
+  static final class JsonDocument {
+    private JsonElement root;
+
+    JsonDocument(JsonElement root) {
+      this.root = root;
+    }
+
+    JsonElement getRoot() {
+      return root;
+    }
+
+    void setRoot(JsonElement root) {
+      this.root = root;
+    }
+  }
+}
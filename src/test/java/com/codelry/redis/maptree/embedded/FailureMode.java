@@ -0,0 +1,6 @@
+package com.codelry.redis.maptree.embedded;
+
+public enum FailureMode {
+  ERROR,
+  DISCONNECT
+}
@@ -0,0 +1,86 @@
+package com.codelry.redis.maptree.embedded;
+
+final class Glob {
+
+  private Glob() {
+  }
+
+  static boolean matches(String pattern, String value) {
+    return matches(pattern, 0, value, 0);
+  }
+
+  private static boolean matches(String pattern, int p, String value, int v) {
+    while (p < pattern.length()) {
+      char c = pattern.charAt(p);
+      switch (c) {
+        case '*' -> {
+          while (p + 1 < pattern.length() && pattern.charAt(p + 1) == '*') {
+            p++;
+          }
+          if (p + 1 == pattern.length()) {
+            return true;
+          }
+          for (int i = v; i <= value.length(); i++) {
+            if (matches(pattern, p + 1, value, i)) {
+              return true;
+            }
+          }
+          return false;
+        }
+        case '?' -> {
+          if (v >= value.length()) {
+            return false;
+          }
+          v++;
+          p++;
+        }
+        case '[' -> {
+          if (v >= value.length()) {
+            return false;
+          }
+          int end = p + 1;
+          boolean negate = end < pattern.length() && pattern.charAt(end) == '^';
+          if (negate) {
+            end++;
+          }
+          boolean match = false;
+          char target = value.charAt(v);
+          while (end < pattern.length() && pattern.charAt(end) != ']') {
+            char start = pattern.charAt(end);
+            if (start == '\\' && end + 1 < pattern.length()) {
+              start = pattern.charAt(++end);
+            }
+            if (end + 2 < pattern.length() && pattern.charAt(end + 1) == '-' && pattern.charAt(end + 2) != ']') {
+              char stop = pattern.charAt(end + 2);
+              if (target >= Math.min(start, stop) && target <= Math.max(start, stop)) {
+                match = true;
+              }
+              end += 3;
+            } else {
+              if (target == start) {
+                match = true;
+              }
+              end++;
+            }
+          }
+          if (match == negate) {
+            return false;
+          }
+          v++;
+          p = end + 1;
+        }
+        default -> {
+          if (c == '\\' && p + 1 < pattern.length()) {
+            c = pattern.charAt(++p);
+          }
+          if (v >= value.length() || value.charAt(v) != c) {
+            return false;
+          }
+          v++;
+          p++;
+        }
+      }
+    }
+    return v == value.length();
+  }
+}
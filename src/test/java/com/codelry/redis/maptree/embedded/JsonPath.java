@@ -0,0 +1,146 @@
+package com.codelry.redis.maptree.embedded;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+final class JsonPath {
+
+  private final String path;
+  private final boolean legacy;
+  private final List<Object> segments;
+
+  private JsonPath(String path, boolean legacy, List<Object> segments) {
+    this.path = path;
+    this.legacy = legacy;
+    this.segments = segments;
+  }
+
+  static JsonPath parse(String path) {
+    boolean legacy = !path.startsWith("$");
+    int i = legacy ? 0 : 1;
+    List<Object> segments = new ArrayList<>();
+    while (i < path.length()) {
+      char c = path.charAt(i);
+      if (c == '.') {
+        i++;
+        if (i < path.length() && path.charAt(i) == '*') {
+          segments.add(Wildcard.INSTANCE);
+          i++;
+          continue;
+        }
+        int start = i;
+        while (i < path.length() && path.charAt(i) != '.' && path.charAt(i) != '[') {
+          i++;
+        }
+        if (i > start) {
+          segments.add(path.substring(start, i));
+        }
+      } else if (c == '[') {
+        int close = path.indexOf(']', i);
+        if (close < 0) {
+          throw new RespException("ERR invalid JSON path: " + path);
+        }
+        String inner = path.substring(i + 1, close).trim();
+        if (inner.equals("*")) {
+          segments.add(Wildcard.INSTANCE);
+        } else if (inner.length() >= 2 && (inner.startsWith("'") || inner.startsWith("\""))) {
+          segments.add(inner.substring(1, inner.length() - 1));
+        } else {
+          try {
+            segments.add(Integer.parseInt(inner));
+          } catch (NumberFormatException e) {
+            throw new RespException("ERR invalid JSON path: " + path);
+          }
+        }
+        i = close + 1;
+      } else if (legacy) {
+        int start = i;
+        while (i < path.length() && path.charAt(i) != '.' && path.charAt(i) != '[') {
+          i++;
+        }
+        segments.add(path.substring(start, i));
+      } else {
+        throw new RespException("ERR invalid JSON path: " + path);
+      }
+    }
+    return new JsonPath(path, legacy, segments);
+  }
+
+  String path() {
+    return path;
+  }
+
+  boolean isLegacy() {
+    return legacy;
+  }
+
+  boolean isRoot() {
+    return segments.isEmpty();
+  }
+
+  JsonPath parent() {
+    return new JsonPath(path, legacy, segments.subList(0, segments.size() - 1));
+  }
+
+  Object last() {
+    return segments.get(segments.size() - 1);
+  }
+
+  List<Match> select(JsonElement root) {
+    List<Match> matches = new ArrayList<>();
+    matches.add(new Match(null, null, root));
+    for (Object segment : segments) {
+      List<Match> next = new ArrayList<>();
+      for (Match match : matches) {
+        step(match.value(), segment, next);
+      }
+      matches = next;
+    }
+    return matches;
+  }
+
+  private static void step(JsonElement value, Object segment, List<Match> out) {
+    if (segment instanceof String name) {
+      if (value.isJsonObject() && value.getAsJsonObject().has(name)) {
+        out.add(new Match(value, name, value.getAsJsonObject().get(name)));
+      }
+    } else if (segment instanceof Integer index) {
+      if (value.isJsonArray()) {
+        JsonArray array = value.getAsJsonArray();
+        int position = index < 0 ? array.size() + index : index;
+        if (position >= 0 && position < array.size()) {
+          out.add(new Match(value, position, array.get(position)));
+        }
+      }
+    } else if (value.isJsonObject()) {
+      for (Map.Entry<String, JsonElement> entry : value.getAsJsonObject().entrySet()) {
+        out.add(new Match(value, entry.getKey(), entry.getValue()));
+      }
+    } else if (value.isJsonArray()) {
+      JsonArray array = value.getAsJsonArray();
+      for (int i = 0; i < array.size(); i++) {
+        out.add(new Match(value, i, array.get(i)));
+      }
+    }
+  }
+
+  record Match(JsonElement parent, Object key, JsonElement value) {
+
+    void replace(JsonElement replacement) {
+      if (parent instanceof JsonObject object) {
+        object.add((String) key, replacement);
+      } else if (parent instanceof JsonArray array) {
+        array.set((Integer) key, replacement);
+      }
+    }
+  }
+
+  private enum Wildcard {
+    INSTANCE
+  }
+}
@@ -0,0 +1,16 @@
+package com.codelry.redis.maptree.embedded;
+
+class RespException extends RuntimeException {
+
+  static final String WRONG_TYPE = "WRONGTYPE Operation against a key holding the wrong kind of value";
+  static final String SYNTAX = "ERR syntax error";
+  static final String NOT_INTEGER = "ERR value is not an integer or out of range";
+
+  RespException(String message) {
+    super(message);
+  }
+
+  static RespException wrongArguments(String command) {
+    return new RespException("ERR wrong number of arguments for '" + command.toLowerCase() + "' command");
+  }
+}
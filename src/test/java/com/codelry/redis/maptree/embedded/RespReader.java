@@ -0,0 +1,105 @@
+package com.codelry.redis.maptree.embedded;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+class RespReader {
+
+  private static final int MAX_BULK_LENGTH = 512 * 1024 * 1024;
+
+  private final InputStream in;
+
+  RespReader(InputStream in) {
+    this.in = in;
+  }
+
+  boolean hasBufferedInput() throws IOException {
+    return in.available() > 0;
+  }
+
+  List<byte[]> readCommand() throws IOException {
+    int first = in.read();
+    if (first < 0) {
+      return null;
+    }
+    if (first != '*') {
+      return readInline(first);
+    }
+
+    int count = (int) readNumber();
+    List<byte[]> args = new ArrayList<>(Math.max(count, 0));
+    for (int i = 0; i < count; i++) {
+      int type = in.read();
+      if (type != '$') {
+        throw new RespException("ERR Protocol error: expected '$', got '" + (char) type + "'");
+      }
+      long length = readNumber();
+      if (length < 0 || length > MAX_BULK_LENGTH) {
+        throw new RespException("ERR Protocol error: invalid bulk length");
+      }
+      byte[] arg = in.readNBytes((int) length);
+      if (arg.length < length) {
+        throw new EOFException();
+      }
+      expectCrlf();
+      args.add(arg);
+    }
+    return args;
+  }
+
+  private List<byte[]> readInline(int first) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    int c = first;
+    while (c != '\n') {
+      if (c < 0) {
+        throw new EOFException();
+      }
+      if (c != '\r') {
+        line.write(c);
+      }
+      c = in.read();
+    }
+    List<byte[]> args = new ArrayList<>();
+    for (String part : line.toString(StandardCharsets.ISO_8859_1).trim().split("\\s+")) {
+      if (!part.isEmpty()) {
+        args.add(part.getBytes(StandardCharsets.ISO_8859_1));
+      }
+    }
+    return args;
+  }
+
+  private long readNumber() throws IOException {
+    long value = 0;
+    boolean negative = false;
+    int c = in.read();
+    if (c == '-') {
+      negative = true;
+      c = in.read();
+    }
+    while (c != '\r') {
+      if (c < '0' || c > '9') {
+        if (c < 0) {
+          throw new EOFException();
+        }
+        throw new RespException("ERR Protocol error: invalid length");
+      }
+      value = value * 10 + (c - '0');
+      c = in.read();
+    }
+    if (in.read() != '\n') {
+      throw new RespException("ERR Protocol error: expected CRLF");
+    }
+    return negative ? -value : value;
+  }
+
+  private void expectCrlf() throws IOException {
+    if (in.read() != '\r' || in.read() != '\n') {
+      throw new RespException("ERR Protocol error: expected CRLF");
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package com.codelry.redis.maptree.embedded;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+class RespWriter {
+
+  private static final byte[] CRLF = {'\r', '\n'};
+
+  private final OutputStream out;
+  private int protocol = 2;
+
+  RespWriter(OutputStream out) {
+    this.out = out;
+  }
+
+  int getProtocol() {
+    return protocol;
+  }
+
+  void setProtocol(int protocol) {
+    this.protocol = protocol;
+  }
+
+  void simple(String value) throws IOException {
+    line('+', value);
+  }
+
+  void error(String message) throws IOException {
+    line('-', message.replace('\r', ' ').replace('\n', ' '));
+  }
+
+  void integer(long value) throws IOException {
+    line(':', Long.toString(value));
+  }
+
+  void bulk(byte[] value) throws IOException {
+    if (value == null) {
+      nullValue();
+      return;
+    }
+    line('$', Integer.toString(value.length));
+    out.write(value);
+    out.write(CRLF);
+  }
+
+  void bulk(String value) throws IOException {
+    bulk(value != null ? value.getBytes(StandardCharsets.ISO_8859_1) : null);
+  }
+
+  void utf8(String value) throws IOException {
+    bulk(value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+  }
+
+  void nullValue() throws IOException {
+    if (protocol >= 3) {
+      out.write('_');
+      out.write(CRLF);
+    } else {
+      line('$', "-1");
+    }
+  }
+
+  void nullArray() throws IOException {
+    if (protocol >= 3) {
+      out.write('_');
+      out.write(CRLF);
+    } else {
+      line('*', "-1");
+    }
+  }
+
+  void array(int size) throws IOException {
+    line('*', Integer.toString(size));
+  }
+
+  void map(int entries) throws IOException {
+    if (protocol >= 3) {
+      line('%', Integer.toString(entries));
+    } else {
+      line('*', Integer.toString(entries * 2));
+    }
+  }
+
+  void flush() throws IOException {
+    out.flush();
+  }
+
+  private void line(char type, String value) throws IOException {
+    out.write(type);
+    out.write(value.getBytes(StandardCharsets.ISO_8859_1));
+    out.write(CRLF);
+  }
+}